@@ -0,0 +1,11 @@
+#!/usr/bin/env bash
+# Сравнивает задержку чтения пачки пользователей: цикл одиночных GET /{id} против одного POST /batch.
+# Требует запущенное приложение с данными, параметры нагрузки передаются как -Pbench.* свойства:
+#   scripts/batch-lookup-benchmark.sh -Pbench.batchSize=100 -Pbench.concurrency=50
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+for SCENARIO in batch-loop batch; do
+  echo "=== ${SCENARIO} ==="
+  ./gradlew -q loadBenchmark -Pbench.scenario="${SCENARIO}" "$@"
+done
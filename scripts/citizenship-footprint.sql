@@ -0,0 +1,44 @@
+-- Сколько места занимает гражданство в users и сколько длится поиск по нему; запускать до V9 и после удаления
+-- строкового столбца citizenship и сравнивать результаты:
+--   psql "$DATABASE_URL" -f scripts/citizenship-footprint.sql
+-- Размеры индексов меняются сразу после миграции. Место в страницах таблицы освобождается только после
+-- перезаписи строк (VACUUM FULL users или pg_repack)
+\timing on
+
+SELECT EXISTS (SELECT 1 FROM pg_attribute
+               WHERE attrelid = 'users'::regclass AND attname = 'citizenship' AND NOT attisdropped) AS text_column
+\gset
+
+\if :text_column
+SELECT ROUND(AVG(pg_column_size(citizenship)), 1) AS avg_citizenship_bytes,
+       ROUND(AVG(pg_column_size(u.*)), 1) AS avg_row_bytes
+FROM users u;
+\else
+SELECT ROUND(AVG(pg_column_size(citizenship_id)), 1) AS avg_citizenship_bytes,
+       ROUND(AVG(pg_column_size(u.*)), 1) AS avg_row_bytes
+FROM users u;
+\endif
+
+SELECT pg_size_pretty(pg_table_size('users')) AS table_size,
+       pg_size_pretty(pg_indexes_size('users')) AS all_indexes_size;
+
+SELECT indexrelid::regclass AS index_name, pg_size_pretty(pg_relation_size(indexrelid)) AS size
+FROM pg_index
+WHERE indrelid = 'users'::regclass
+  AND indexrelid::regclass::text IN ('idx_users_citizenship_id', 'idx_users_citizenship_ref_id');
+
+-- задержка: страница keyset и подсчет по гражданству, как их выполняют findByCitizenshipAndIdGreaterThan
+-- и countByCitizenship
+\if :text_column
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM users WHERE citizenship = 'Uzbekistan' AND id > 1000 ORDER BY id LIMIT 26;
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(*) FROM users WHERE citizenship = 'Uzbekistan';
+\else
+SELECT id AS uzbekistan_id FROM citizenships WHERE name = 'Uzbekistan'
+\gset
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM users WHERE citizenship_id = :uzbekistan_id AND id > 1000 ORDER BY id LIMIT 26;
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT COUNT(*) FROM users WHERE citizenship_id = :uzbekistan_id;
+\endif
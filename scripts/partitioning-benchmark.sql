@@ -0,0 +1,141 @@
+-- Сравнивает обычную users и секционированную по хешу pinfl (V14) на одинаковых данных: генератор из
+-- V2__seed_users.sql, растянутый до 30 млн строк. Таблицы создаются в отдельной схеме partitioning_bench,
+-- рабочие users и users_p не затрагиваются. Нужна база после V13 (типы gender и document_type):
+--   psql "$DATABASE_URL" -f scripts/partitioning-benchmark.sql
+--   psql "$DATABASE_URL" -v rows=3000000 -v keep=1 -f scripts/partitioning-benchmark.sql
+-- На 30 млн строк нужно около 40 GB свободного места и десятки минут на загрузку
+\set ON_ERROR_STOP on
+\timing on
+
+\if :{?rows}
+\else
+\set rows 30000000
+\endif
+\if :{?keep}
+\else
+\set keep 0
+\endif
+
+DROP SCHEMA IF EXISTS partitioning_bench CASCADE;
+CREATE SCHEMA partitioning_bench;
+SET search_path = partitioning_bench, public;
+SET maintenance_work_mem = '1GB';
+SET max_parallel_maintenance_workers = 4;
+
+CREATE TABLE users_plain (
+    id BIGINT PRIMARY KEY,
+    full_name VARCHAR(255) NOT NULL,
+    address VARCHAR(500) NOT NULL,
+    phone_number VARCHAR(20) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    photo_url VARCHAR(500),
+    pinfl VARCHAR(14) NOT NULL,
+    age INTEGER NOT NULL,
+    gender gender NOT NULL,
+    document_type document_type NOT NULL,
+    issue_date DATE NOT NULL,
+    expiry_date DATE NOT NULL,
+    citizenship_id SMALLINT NOT NULL,
+    death_date DATE
+);
+
+CREATE TABLE users_hash (LIKE users_plain) PARTITION BY HASH (pinfl);
+DO $$
+BEGIN
+    FOR i IN 0..15 LOOP
+        EXECUTE format('CREATE TABLE users_hash_%s PARTITION OF users_hash FOR VALUES WITH (MODULUS 16, REMAINDER %s)',
+                       lpad(i::text, 2, '0'), i);
+    END LOOP;
+END;
+$$;
+
+CREATE TABLE user_keys (
+    id BIGINT PRIMARY KEY,
+    pinfl VARCHAR(14) NOT NULL UNIQUE,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    phone_number VARCHAR(20) NOT NULL UNIQUE
+);
+
+-- загрузка: тот же генератор, что в V2, с гражданством по ключу справочника
+INSERT INTO users_plain
+SELECT gs,
+       'User ' || gs,
+       'Tashkent, street ' || (gs % 5000) || ', house ' || (gs % 300),
+       '+998' || LPAD(((900000000 + (gs % 99999999))::text), 9, '0'),
+       'user' || gs || '@mail.com',
+       CASE WHEN (random() < 0.7) THEN NULL ELSE 'https://pics.example/' || gs || '.jpg' END,
+       LPAD(gs::text, 14, '0'),
+       (18 + (gs % 63))::int,
+       CAST(CASE WHEN (gs % 2 = 0) THEN 'MALE' ELSE 'FEMALE' END AS gender),
+       CAST(CASE (gs % 3) WHEN 0 THEN 'PASSPORT' WHEN 1 THEN 'ID_CARD' ELSE 'DRIVER_LICENSE' END AS document_type),
+       (DATE '2010-01-01' + ((gs % 5000))::int),
+       (DATE '2010-01-01' + ((gs % 5000))::int + 3650),
+       (1 + gs % 5)::smallint,
+       CASE WHEN random() < 0.97 THEN NULL ELSE (DATE '2015-01-01' + ((gs % 3000))::int) END
+FROM generate_series(1, :rows) AS gs;
+
+INSERT INTO users_hash SELECT * FROM users_plain;
+INSERT INTO user_keys SELECT id, pinfl, email, phone_number FROM users_plain;
+
+-- построение индексов: у секционированной таблицы каждый индекс строится по 16 секциям меньшего размера
+CREATE UNIQUE INDEX users_plain_pinfl_key ON users_plain (pinfl);
+CREATE UNIQUE INDEX users_plain_email_key ON users_plain (email);
+CREATE UNIQUE INDEX users_plain_phone_number_key ON users_plain (phone_number);
+CREATE INDEX users_plain_gender_id ON users_plain (gender, id);
+CREATE INDEX users_plain_alive_id ON users_plain (id) WHERE death_date IS NULL;
+
+ALTER TABLE users_hash ADD PRIMARY KEY (pinfl);
+CREATE INDEX users_hash_id ON users_hash (id);
+CREATE INDEX users_hash_gender_id ON users_hash (gender, id);
+CREATE INDEX users_hash_alive_id ON users_hash (id) WHERE death_date IS NULL;
+
+-- обслуживание: после смерти 1% людей VACUUM обычной таблицы проходит всю кучу и все индексы,
+-- у секционированной то же делается по секциям, и одну секцию можно обслужить отдельно
+UPDATE users_plain SET death_date = DATE '2025-01-01' WHERE death_date IS NULL AND id % 100 = 0;
+UPDATE users_hash SET death_date = DATE '2025-01-01' WHERE death_date IS NULL AND id % 100 = 0;
+VACUUM (ANALYZE) users_plain;
+VACUUM (ANALYZE) users_hash_00;
+VACUUM (ANALYZE) users_hash;
+ANALYZE user_keys;
+
+SELECT 'users_plain' AS table_name,
+       pg_size_pretty(pg_table_size('users_plain')) AS table_size,
+       pg_size_pretty(pg_indexes_size('users_plain')) AS indexes_size
+UNION ALL
+SELECT 'users_hash',
+       pg_size_pretty(SUM(pg_table_size(relid))),
+       pg_size_pretty(SUM(pg_indexes_size(relid)))
+FROM pg_partition_tree('users_hash') WHERE isleaf
+UNION ALL
+SELECT 'user_keys', pg_size_pretty(pg_table_size('user_keys')), pg_size_pretty(pg_indexes_size('user_keys'));
+
+SELECT (:rows / 2)::bigint AS probe_id, LPAD((:rows / 2)::text, 14, '0') AS probe_pinfl
+\gset
+
+-- поиск по pinfl: в секционированной таблице план читает одну секцию
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) SELECT * FROM users_plain WHERE pinfl = :'probe_pinfl';
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) SELECT * FROM users_hash WHERE pinfl = :'probe_pinfl';
+
+-- поиск по id: без pinfl проверяются все 16 секций, через user_keys остается одна (Subplans Removed: 15),
+-- как в UserRepository.findResponseByIdViaKeys
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) SELECT * FROM users_plain WHERE id = :probe_id;
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) SELECT * FROM users_hash WHERE id = :probe_id;
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM users_hash
+WHERE pinfl = (SELECT k.pinfl FROM user_keys k WHERE k.id = :probe_id) AND id = :probe_id;
+
+-- keyset-страница: секционированная таблица собирает ее из 16 индексов через Merge Append
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM users_plain WHERE gender = 'MALE' AND id > :probe_id ORDER BY id LIMIT 26;
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF)
+SELECT * FROM users_hash WHERE gender = 'MALE' AND id > :probe_id ORDER BY id LIMIT 26;
+
+-- полный подсчет: секции сканируются параллельно
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) SELECT COUNT(*) FROM users_plain WHERE death_date IS NULL;
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) SELECT COUNT(*) FROM users_hash WHERE death_date IS NULL;
+
+\if :keep
+\else
+RESET search_path;
+DROP SCHEMA partitioning_bench CASCADE;
+\endif
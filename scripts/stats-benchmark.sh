@@ -0,0 +1,11 @@
+#!/usr/bin/env bash
+# Сравнивает задержку панели статистики: один GET /stats против отдельных запросов /count по тем же числам.
+# Требует запущенное приложение с данными, параметры нагрузки передаются как -Pbench.* свойства:
+#   scripts/stats-benchmark.sh -Pbench.concurrency=20 -Pbench.duration=PT60S
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+for SCENARIO in stats-fan-out stats; do
+  echo "=== ${SCENARIO} ==="
+  ./gradlew -q loadBenchmark -Pbench.scenario="${SCENARIO}" "$@"
+done
@@ -0,0 +1,46 @@
+#!/usr/bin/env bash
+# Сравнивает пропускную способность и p99 в двух режимах: виртуальные потоки и пул платформенных потоков tomcat.
+# Требует запущенные PostgreSQL (с данными) и Redis, параметры нагрузки передаются как -Pbench.* свойства:
+#   scripts/virtual-threads-benchmark.sh -Pbench.scenario=cursor -Pbench.concurrency=1000
+# По умолчанию сценарий cursor: разница режимов видна на блокирующих запросах к базе, а is-alive и by-id
+# отвечают из памяти
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+# без ключа подписи курсоров приложение не стартует; для замера подходит любой
+export PAGINATION_CURSOR_SECRET="${PAGINATION_CURSOR_SECRET:-jgcp-benchmark-cursor-secret}"
+# сколько секунд ждать готовности приложения
+STARTUP_TIMEOUT="${STARTUP_TIMEOUT:-120}"
+
+./gradlew -q bootJar loadtestClasses
+JAR=$(ls build/libs/*-SNAPSHOT.jar | grep -v plain | head -n 1)
+
+for MODE in true false; do
+  echo "=== spring.threads.virtual.enabled=${MODE} ==="
+  # -Djdk.tracePinnedThreads печатает стек, если виртуальный поток закреплен за носителем
+  VIRTUAL_THREADS_ENABLED=${MODE} java -Djdk.tracePinnedThreads=short -jar "$JAR" \
+    > "build/benchmark-app-virtual-${MODE}.log" 2>&1 &
+  APP_PID=$!
+  trap 'kill ${APP_PID} 2>/dev/null || true' EXIT
+
+  WAITED=0
+  until curl -sf http://localhost:8080/actuator/health > /dev/null; do
+    if ! kill -0 "${APP_PID}" 2>/dev/null; then
+      echo "application exited during startup, see build/benchmark-app-virtual-${MODE}.log" >&2
+      exit 1
+    fi
+    if (( WAITED >= STARTUP_TIMEOUT )); then
+      echo "application not healthy after ${STARTUP_TIMEOUT}s, see build/benchmark-app-virtual-${MODE}.log" >&2
+      exit 1
+    fi
+    sleep 1
+    WAITED=$((WAITED + 1))
+  done
+
+  # последнее значение -P побеждает, поэтому сценарий из аргументов заменяет cursor
+  ./gradlew -q loadBenchmark -Pbench.scenario=cursor "$@"
+
+  kill "${APP_PID}"
+  wait "${APP_PID}" 2>/dev/null || true
+  grep -c "Thread\[#" "build/benchmark-app-virtual-${MODE}.log" | xargs echo "pinned thread traces:" || true
+done
@@ -0,0 +1,151 @@
+package uz.javacourse.jgcp.benchmark;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.http.ResponseEntity;
+import uz.javacourse.jgcp.aspect.ControllerLoggingAspect;
+import uz.javacourse.jgcp.aspect.RepositoryMetricsAspect;
+import uz.javacourse.jgcp.aspect.ServiceBulkheadAspect;
+import uz.javacourse.jgcp.config.BulkheadProperties;
+import uz.javacourse.jgcp.config.LoggingProperties;
+import uz.javacourse.jgcp.controller.UserController;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.repository.UserRepository;
+import uz.javacourse.jgcp.service.UserExportService;
+import uz.javacourse.jgcp.service.UserImportService;
+import uz.javacourse.jgcp.service.UserService;
+import uz.javacourse.jgcp.service.UserStatsService;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// накладные расходы spring aop: прямой вызов против прокси с аспектами логирования, bulkhead и метрик
+// репозитория; сервисы и репозиторий заменены заглушками, поэтому измеряется только цена прокси и советов.
+// Аспекты логируют через NOPAppender (src/jmh/resources/logback.xml): форматирование аргументов
+// учитывается, запись на диск - нет
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AspectOverheadBenchmark {
+
+    private static final Long USER_ID = 42L;
+
+    private static final String PINFL = "30101990000042";
+
+    private UserService plainService;
+    private UserService bulkheadService;
+    private UserController plainController;
+    private UserController sampledLoggingController;
+    private UserController fullLoggingController;
+    private UserRepository plainRepository;
+    private UserRepository meteredRepository;
+
+    @Setup
+    public void setUp() {
+        UserResponseDto user = BenchmarkFixtures.responseDto(USER_ID);
+        plainService = stub(UserService.class, user);
+        bulkheadService = proxy(plainService, UserService.class,
+                new ServiceBulkheadAspect(new BulkheadProperties(50, Duration.ofSeconds(5)), new SimpleMeterRegistry()));
+
+        plainController = new UserController(plainService, stub(UserImportService.class, null),
+                stub(UserExportService.class, null), stub(UserStatsService.class, null));
+        sampledLoggingController = controllerProxy(plainController, new LoggingProperties(0.01));
+        fullLoggingController = controllerProxy(plainController, new LoggingProperties(1.0));
+
+        plainRepository = stub(UserRepository.class, Optional.of(user));
+        meteredRepository = proxy(plainRepository, UserRepository.class, new RepositoryMetricsAspect(meterRegistry()));
+    }
+
+    @Benchmark
+    public UserResponseDto serviceDirect() {
+        return plainService.getUserById(USER_ID);
+    }
+
+    @Benchmark
+    public UserResponseDto serviceWithBulkhead() {
+        return bulkheadService.getUserById(USER_ID);
+    }
+
+    @Benchmark
+    public ResponseEntity<UserResponseDto> controllerDirect() {
+        return plainController.getUserById(USER_ID);
+    }
+
+    // app.logging.argument-sample-rate по умолчанию
+    @Benchmark
+    public ResponseEntity<UserResponseDto> controllerWithSampledLogging() {
+        return sampledLoggingController.getUserById(USER_ID);
+    }
+
+    // прежнее поведение: аргументы логируются при каждом вызове
+    @Benchmark
+    public ResponseEntity<UserResponseDto> controllerWithFullLogging() {
+        return fullLoggingController.getUserById(USER_ID);
+    }
+
+    @Benchmark
+    public Optional<UserResponseDto> repositoryDirect() {
+        return plainRepository.findResponseByPinfl(PINFL);
+    }
+
+    // цель - не больше микросекунды сверх repositoryDirect
+    @Benchmark
+    public Optional<UserResponseDto> repositoryWithMetrics() {
+        return meteredRepository.findResponseByPinfl(PINFL);
+    }
+
+    private static UserController controllerProxy(UserController target, LoggingProperties loggingProperties) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new ControllerLoggingAspect(loggingProperties));
+        return factory.getProxy();
+    }
+
+    // реестр с теми же гистограммами и перцентилями, что включены в application.yml
+    private static SimpleMeterRegistry meterRegistry() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .percentiles(0.5, 0.95, 0.99)
+                        .build()
+                        .merge(config);
+            }
+        });
+        return registry;
+    }
+
+    private static <T> T proxy(T target, Class<T> type, Object... aspects) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addInterface(type);
+        for (Object aspect : aspects) {
+            factory.addAspect(aspect);
+        }
+        return factory.getProxy();
+    }
+
+    // заглушка интерфейса сервиса: каждый метод возвращает result (или null для несовместимого типа)
+    private static <T> T stub(Class<T> type, Object result) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> type.getSimpleName() + "Stub";
+                    default -> result != null && method.getReturnType().isInstance(result) ? result : null;
+                }));
+    }
+}
@@ -0,0 +1,76 @@
+package uz.javacourse.jgcp.benchmark;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import tools.jackson.databind.json.JsonMapper;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.entity.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// общие тестовые данные: значения полей похожи на реальные строки таблицы users
+final class BenchmarkFixtures {
+
+    static final int PAGE_SIZE = 25;
+
+    private BenchmarkFixtures() {
+    }
+
+    // ObjectMapper с настройками по умолчанию jackson 3, как в приложении (без дополнительных модулей)
+    static JsonMapper jsonMapper() {
+        return JsonMapper.builder().build();
+    }
+
+    static User user(long id) {
+        return User.builder()
+                .id(id)
+                .fullName("Abdullayev Jasur Karimovich " + id)
+                .address("Toshkent shahri, Yunusobod tumani, 14-kvartal, " + id + "-uy")
+                .phoneNumber("+99890" + String.format("%07d", id % 10_000_000))
+                .email("user" + id + "@example.uz")
+                .photoUrl("https://cdn.example.uz/photos/" + id + ".jpg")
+                .pinfl(String.format("%014d", 30_101_990_000_000L + id))
+                .age(20 + (int) (id % 60))
+                .gender(id % 2 == 0 ? Gender.MALE : Gender.FEMALE)
+                .documentType(DocumentType.values()[(int) (id % DocumentType.values().length)])
+                .issueDate(LocalDate.of(2018, 3, 14))
+                .expiryDate(LocalDate.of(2028, 3, 13))
+                .citizenship("Uzbekistan")
+                .deathDate(id % 50 == 0 ? LocalDate.of(2024, 11, 2) : null)
+                .build();
+    }
+
+    static UserResponseDto responseDto(long id) {
+        User user = user(id);
+        return UserResponseDto.builder()
+                .id(user.getId())
+                .fullName(user.getFullName())
+                .address(user.getAddress())
+                .phoneNumber(user.getPhoneNumber())
+                .email(user.getEmail())
+                .photoUrl(user.getPhotoUrl())
+                .pinfl(user.getPinfl())
+                .age(user.getAge())
+                .gender(user.getGender())
+                .documentType(user.getDocumentType())
+                .issueDate(user.getIssueDate())
+                .expiryDate(user.getExpiryDate())
+                .citizenship(user.getCitizenship())
+                .deathDate(user.getDeathDate())
+                .build();
+    }
+
+    // страница, которую возвращает GET /api/gcp/users
+    static Slice<UserResponseDto> responseSlice() {
+        List<UserResponseDto> content = new ArrayList<>(PAGE_SIZE);
+        for (long id = 1; id <= PAGE_SIZE; id++) {
+            content.add(responseDto(id));
+        }
+        return new SliceImpl<>(content, PageRequest.of(0, PAGE_SIZE), true);
+    }
+}
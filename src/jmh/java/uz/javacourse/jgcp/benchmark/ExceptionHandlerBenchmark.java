@@ -0,0 +1,53 @@
+package uz.javacourse.jgcp.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import tools.jackson.databind.ObjectMapper;
+import uz.javacourse.jgcp.dto.response.ErrorDto;
+import uz.javacourse.jgcp.exception.ResourceNotFoundException;
+import uz.javacourse.jgcp.handler.GlobalExceptionHandler;
+
+import java.util.concurrent.TimeUnit;
+
+// ответ на ошибку 404: обработчик GlobalExceptionHandler вместе с сериализацией ErrorDto,
+// отдельно - с созданием исключения (заполнение стека вызовов обычно дороже самого обработчика)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ExceptionHandlerBenchmark {
+
+    private GlobalExceptionHandler handler;
+    private ObjectMapper objectMapper;
+    private WebRequest request;
+    private ResourceNotFoundException exception;
+
+    @Setup
+    public void setUp() {
+        handler = new GlobalExceptionHandler();
+        objectMapper = BenchmarkFixtures.jsonMapper();
+        request = new ServletWebRequest(new MockHttpServletRequest("GET", "/api/gcp/users/42"));
+        exception = new ResourceNotFoundException("User", "id", 42L);
+    }
+
+    @Benchmark
+    public byte[] handleAndRender() {
+        ResponseEntity<ErrorDto> response = handler.handleBaseException(exception, request);
+        return objectMapper.writeValueAsBytes(response.getBody());
+    }
+
+    @Benchmark
+    public byte[] throwHandleAndRender() {
+        ResponseEntity<ErrorDto> response = handler.handleBaseException(
+                new ResourceNotFoundException("User", "id", 42L), request);
+        return objectMapper.writeValueAsBytes(response.getBody());
+    }
+}
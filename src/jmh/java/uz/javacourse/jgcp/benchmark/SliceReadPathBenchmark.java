@@ -0,0 +1,108 @@
+package uz.javacourse.jgcp.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceConfiguration;
+import org.flywaydb.core.Flyway;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.entity.User;
+import uz.javacourse.jgcp.mapper.UserMapper;
+import uz.javacourse.jgcp.repository.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// чтение keyset-страницы из 25 строк двумя способами: прежний (управляемые сущности в обычной транзакции,
+// flush с dirty checking при коммите, затем UserMapper) и новый (конструктор UserResponseDto в JPQL,
+// read-only сессия с FlushMode.MANUAL). Нужен docker: postgres поднимается в контейнере, миграции
+// заполняют users (V2 - 3 млн строк, первый запуск занимает несколько минут)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SliceReadPathBenchmark {
+
+    private static final String ENTITY_QUERY = "SELECT u FROM User u WHERE u.id > :afterId ORDER BY u.id ASC";
+    private static final String PROJECTION_QUERY = UserRepository.RESPONSE_SELECT + " WHERE u.id > :afterId ORDER BY u.id ASC";
+    private static final long MAX_AFTER_ID = 2_900_000;
+
+    private PostgreSQLContainer postgres;
+    private EntityManagerFactory entityManagerFactory;
+    private UserMapper userMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        postgres = new PostgreSQLContainer("postgres:16-alpine");
+        postgres.start();
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+
+        entityManagerFactory = new PersistenceConfiguration("slice-read-path")
+                .managedClass(User.class)
+                .property(PersistenceConfiguration.JDBC_URL, postgres.getJdbcUrl())
+                .property(PersistenceConfiguration.JDBC_USER, postgres.getUsername())
+                .property(PersistenceConfiguration.JDBC_PASSWORD, postgres.getPassword())
+                .createEntityManagerFactory();
+        userMapper = Mappers.getMapper(UserMapper.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManagerFactory.close();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public List<UserResponseDto> entityAndMapper() {
+        try (EntityManager entityManager = entityManagerFactory.createEntityManager()) {
+            entityManager.getTransaction().begin();
+            List<User> users = entityManager.createQuery(ENTITY_QUERY, User.class)
+                    .setParameter("afterId", randomAfterId())
+                    .setMaxResults(BenchmarkFixtures.PAGE_SIZE + 1)
+                    .getResultList();
+            List<UserResponseDto> page = new ArrayList<>(users.size());
+            for (User user : users) {
+                page.add(userMapper.toResponseDto(user));
+            }
+            entityManager.getTransaction().commit();
+            return page;
+        }
+    }
+
+    @Benchmark
+    public List<UserResponseDto> readOnlyProjection() {
+        try (EntityManager entityManager = entityManagerFactory.createEntityManager()) {
+            Session session = entityManager.unwrap(Session.class);
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            entityManager.getTransaction().begin();
+            List<UserResponseDto> page = entityManager.createQuery(PROJECTION_QUERY, UserResponseDto.class)
+                    .setParameter("afterId", randomAfterId())
+                    .setMaxResults(BenchmarkFixtures.PAGE_SIZE + 1)
+                    .getResultList();
+            entityManager.getTransaction().commit();
+            return page;
+        }
+    }
+
+    private static long randomAfterId() {
+        return ThreadLocalRandom.current().nextLong(MAX_AFTER_ID);
+    }
+}
@@ -0,0 +1,47 @@
+package uz.javacourse.jgcp.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Slice;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// сериализация ответа GET /api/gcp/users: Slice из 25 UserResponseDto целиком и только его content
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SliceSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter contentWriter;
+    private Slice<UserResponseDto> slice;
+    private List<UserResponseDto> content;
+
+    @Setup
+    public void setUp() {
+        objectMapper = BenchmarkFixtures.jsonMapper();
+        slice = BenchmarkFixtures.responseSlice();
+        content = slice.getContent();
+        contentWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, UserResponseDto.class));
+    }
+
+    @Benchmark
+    public byte[] slice() {
+        return objectMapper.writeValueAsBytes(slice);
+    }
+
+    @Benchmark
+    public byte[] contentOnly() {
+        return contentWriter.writeValueAsBytes(content);
+    }
+}
@@ -0,0 +1,51 @@
+package uz.javacourse.jgcp.benchmark;
+
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.entity.User;
+import uz.javacourse.jgcp.mapper.UserMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// стоимость MapStruct UserMapper.toResponseDto для одной записи и для страницы из 25 записей
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserMapperBenchmark {
+
+    private UserMapper userMapper;
+    private User user;
+    private List<User> page;
+
+    @Setup
+    public void setUp() {
+        userMapper = Mappers.getMapper(UserMapper.class);
+        user = BenchmarkFixtures.user(42);
+        page = new ArrayList<>(BenchmarkFixtures.PAGE_SIZE);
+        for (long id = 1; id <= BenchmarkFixtures.PAGE_SIZE; id++) {
+            page.add(BenchmarkFixtures.user(id));
+        }
+    }
+
+    @Benchmark
+    public UserResponseDto toResponseDto() {
+        return userMapper.toResponseDto(user);
+    }
+
+    @Benchmark
+    public void toResponseDtoPage(Blackhole blackhole) {
+        for (User entity : page) {
+            blackhole.consume(userMapper.toResponseDto(entity));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package uz.javacourse.jgcp.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+// нагрузочный тест с замкнутым циклом: N клиентов без пауз отправляют запросы к запущенному приложению,
+// после прогрева печатаются пропускная способность и перцентили задержки.
+// Запуск: ./gradlew loadBenchmark -Pbench.baseUrl=http://localhost:8080 -Pbench.concurrency=1000
+// Сравнение виртуальных и платформенных потоков: scripts/virtual-threads-benchmark.sh,
+// пакетного чтения и цикла одиночных запросов: scripts/batch-lookup-benchmark.sh,
+// /stats и отдельных подсчетов панели: scripts/stats-benchmark.sh
+public class LoadBenchmark {
+
+    private static final String USERS = "/api/gcp/users";
+    private static final LocalDate PERIOD_ORIGIN = LocalDate.of(2000, 1, 1);
+    private static final int PERIOD_DAYS = 30;
+    private static final List<String> DOCUMENT_TYPES =
+            List.of("PASSPORT", "ID_CARD", "BIRTH_CERTIFICATE", "DRIVER_LICENSE");
+    private static final List<String> CITIZENSHIPS =
+            List.of("Uzbekistan", "Russia", "Kazakhstan", "Kyrgyzstan", "Tajikistan");
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = System.getProperty("bench.baseUrl", "http://localhost:8080");
+        String scenario = System.getProperty("bench.scenario", "is-alive");
+        int concurrency = Integer.getInteger("bench.concurrency", 1000);
+        long maxUserId = Long.getLong("bench.maxUserId", 100_000);
+        int batchSize = Integer.getInteger("bench.batchSize", 100);
+        Duration warmup = Duration.parse(System.getProperty("bench.warmup", "PT20S"));
+        Duration duration = Duration.parse(System.getProperty("bench.duration", "PT60S"));
+
+        // сценарии: каждый получает случайный id пользователя и возвращает запросы одной операции,
+        // задержка измеряется на всю операцию
+        Map<String, LongFunction<List<HttpRequest>>> scenarios = Map.of(
+                // ответ из индекса статусов в памяти (UserStatusIndex), база читается только при промахе
+                "is-alive", id -> List.of(get(baseUrl + USERS + "/" + id + "/is-alive")),
+                // keyset-страница из 25 строк, каждый запрос читает базу данных
+                "cursor", id -> List.of(get(baseUrl + USERS + "/cursor?afterId=" + id + "&size=25")),
+                // чтение через кэш пользователей
+                "by-id", id -> List.of(get(baseUrl + USERS + "/" + id)),
+                // bench.batchSize пользователей подряд отдельными запросами /{id}
+                "batch-loop", id -> LongStream.range(id, id + batchSize)
+                        .mapToObj(userId -> get(baseUrl + USERS + "/" + userId))
+                        .toList(),
+                // те же пользователи одним запросом POST /batch
+                "batch", id -> List.of(HttpRequest.newBuilder(URI.create(baseUrl + USERS + "/batch"))
+                        .timeout(Duration.ofSeconds(30))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(LongStream.range(id, id + batchSize)
+                                .mapToObj(Long::toString)
+                                .collect(Collectors.joining(",", "{\"ids\":[", "]}"))))
+                        .build()),
+                // вся статистика панели одним запросом; период зависит от id, поэтому ответы почти не
+                // совпадают с закэшированными и каждый раз считаются одним проходом по таблице
+                "stats", id -> {
+                    LocalDate start = periodStart(id);
+                    LocalDate end = start.plusDays(PERIOD_DAYS);
+                    return List.of(get(baseUrl + USERS + "/stats?expiringStart=" + start + "&expiringEnd=" + end
+                            + "&deceasedStart=" + start + "&deceasedEnd=" + end));
+                },
+                // те же числа отдельными эндпоинтами подсчета, как панель собирала их до /stats
+                "stats-fan-out", id -> statsFanOut(baseUrl + USERS, periodStart(id))
+        );
+
+        LongFunction<List<HttpRequest>> operation = scenarios.get(scenario);
+        if (operation == null) {
+            throw new IllegalArgumentException("Unknown scenario " + scenario + ", expected one of " + scenarios.keySet());
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        System.out.printf("scenario=%s concurrency=%d warmup=%s duration=%s%n", scenario, concurrency, warmup, duration);
+        run(client, operation, concurrency, maxUserId, warmup);
+        Result result = run(client, operation, concurrency, maxUserId, duration);
+        result.print(duration);
+    }
+
+    private static Result run(HttpClient client, LongFunction<List<HttpRequest>> operation, int concurrency,
+                              long maxUserId, Duration duration) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<Future<Result>> workers = new ArrayList<>(concurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> {
+                    Result result = new Result();
+                    while (System.nanoTime() < deadline) {
+                        long id = ThreadLocalRandom.current().nextLong(1, maxUserId + 1);
+                        List<HttpRequest> requests = operation.apply(id);
+                        long startedAt = System.nanoTime();
+                        // статус операции - худший из статусов ее запросов
+                        int status = 0;
+                        try {
+                            for (HttpRequest request : requests) {
+                                int code = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                                status = Math.max(status, code);
+                            }
+                            result.record(System.nanoTime() - startedAt, status);
+                        } catch (Exception e) {
+                            result.record(System.nanoTime() - startedAt, -1);
+                        }
+                    }
+                    return result;
+                }));
+            }
+        }
+        Result total = new Result();
+        for (Future<Result> worker : workers) {
+            total.merge(worker.get());
+        }
+        return total;
+    }
+
+    // начало периода для /stats, разное для разных id
+    private static LocalDate periodStart(long id) {
+        return PERIOD_ORIGIN.plusDays(id);
+    }
+
+    private static List<HttpRequest> statsFanOut(String users, LocalDate start) {
+        String range = "?start=" + start + "&end=" + start.plusDays(PERIOD_DAYS);
+        List<String> urls = new ArrayList<>(List.of(
+                users + "/count",
+                users + "/alive/count",
+                users + "/deceased/count",
+                users + "/documents/expired/count",
+                users + "/alive/documents/expired/count",
+                users + "/documents/expiring-between/count" + range,
+                users + "/deceased/between/count" + range,
+                users + "/by-gender/MALE/count",
+                users + "/by-gender/FEMALE/count"));
+        for (String documentType : DOCUMENT_TYPES) {
+            urls.add(users + "/documents/by-type/" + documentType + "/count");
+        }
+        for (String citizenship : CITIZENSHIPS) {
+            urls.add(users + "/by-citizenship/" + citizenship + "/count");
+        }
+        // возрастные корзины по 10 лет, как byAgeBucket в /stats
+        for (int from = 0; from < 150; from += 10) {
+            urls.add(users + "/by-age-range/count?minAge=" + from + "&maxAge=" + (from + 9));
+        }
+        return urls.stream().map(LoadBenchmark::get).toList();
+    }
+
+    private static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    // задержки одного клиента; 404 считается успешным ответом (случайный id мог быть не занят)
+    private static final class Result {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+        private long unavailable;
+
+        void record(long nanos, int status) {
+            if (status == 503) {
+                unavailable++;
+            } else if (status < 0 || status >= 500) {
+                errors++;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        void merge(Result other) {
+            if (count + other.count > latencies.length) {
+                latencies = Arrays.copyOf(latencies, count + other.count);
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            errors += other.errors;
+            unavailable += other.unavailable;
+        }
+
+        void print(Duration duration) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            System.out.printf("requests=%d throughput=%.1f req/s errors=%d rejected_503=%d%n",
+                    count, count / (duration.toMillis() / 1000.0), errors, unavailable);
+            System.out.printf("latency ms: p50=%.2f p90=%.2f p99=%.2f p999=%.2f max=%.2f%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999), sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
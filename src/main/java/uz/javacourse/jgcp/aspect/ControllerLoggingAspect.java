@@ -2,34 +2,39 @@ package uz.javacourse.jgcp.aspect;
 
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.annotation.AfterReturning;
 import org.aspectj.lang.annotation.AfterThrowing;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 import org.springframework.stereotype.Component;
+import uz.javacourse.jgcp.config.LoggingProperties;
 
 import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
 
+// аргументы логируются только для выборки вызовов (app.logging.argument-sample-rate),
+// задержки по эндпоинтам собирает метрика http.server.requests, а не лог
 @Slf4j
 @Aspect
 @Component
 public class ControllerLoggingAspect {
 
-    @Before("execution(* uz.javacourse.jgcp.controller.*.*(..))")
-    public void logBeforeController(JoinPoint joinPoint) {
-        String methodName = joinPoint.getSignature().getName();
-        String className = joinPoint.getTarget().getClass().getSimpleName();
+    private final double argumentSampleRate;
 
-        log.info("Controller method called: {}.{} with arguments: {}",
-                className, methodName, Arrays.toString(joinPoint.getArgs()));
+    public ControllerLoggingAspect(LoggingProperties loggingProperties) {
+        this.argumentSampleRate = loggingProperties.argumentSampleRate();
     }
 
-    @AfterReturning("execution(* uz.javacourse.jgcp.controller.*.*(..))")
-    public void logAfterReturningController(JoinPoint joinPoint) {
+    @Before("execution(* uz.javacourse.jgcp.controller.*.*(..))")
+    public void logBeforeController(JoinPoint joinPoint) {
+        if (argumentSampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= argumentSampleRate
+                || !log.isInfoEnabled()) {
+            return;
+        }
         String methodName = joinPoint.getSignature().getName();
         String className = joinPoint.getTarget().getClass().getSimpleName();
 
-        log.info("Controller method completed: {}.{}", className, methodName);
+        log.info("Controller method called (sampled): {}.{} with arguments: {}",
+                className, methodName, Arrays.toString(joinPoint.getArgs()));
     }
 
     @AfterThrowing(pointcut = "execution(* uz.javacourse.jgcp.controller.*.*(..))", throwing = "ex")
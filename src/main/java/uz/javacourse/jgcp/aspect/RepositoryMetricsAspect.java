@@ -0,0 +1,67 @@
+package uz.javacourse.jgcp.aspect;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// время выполнения каждого метода UserRepository (users.repository{method, outcome}) и число вызовов в работе.
+// Таймеры создаются один раз на метод, на горячем пути остаются поиск в ConcurrentHashMap,
+// два System.nanoTime и запись в гистограмму. Гистограммы и перцентили включаются в application.yml.
+// Для методов stream* измеряется только выполнение запроса, не чтение всего потока
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+    private static final String METRIC_NAME = "users.repository";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Method, Timer[]> timers = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public RepositoryMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder(METRIC_NAME + ".in-flight", inFlight, AtomicInteger::get)
+                .description("UserRepository calls currently executing")
+                .register(meterRegistry);
+    }
+
+    @Around("this(uz.javacourse.jgcp.repository.UserRepository)")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer[] methodTimers = timers.computeIfAbsent(((MethodSignature) joinPoint.getSignature()).getMethod(),
+                this::newTimers);
+        inFlight.incrementAndGet();
+        long startedAt = System.nanoTime();
+        boolean success = false;
+        try {
+            Object result = joinPoint.proceed();
+            success = true;
+            return result;
+        } finally {
+            methodTimers[success ? 0 : 1].record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private Timer[] newTimers(Method method) {
+        return new Timer[]{newTimer(method, "success"), newTimer(method, "error")};
+    }
+
+    private Timer newTimer(Method method, String outcome) {
+        return Timer.builder(METRIC_NAME)
+                .description("UserRepository method latency")
+                .tag("method", method.getName())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
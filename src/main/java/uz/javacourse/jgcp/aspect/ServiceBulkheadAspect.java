@@ -0,0 +1,69 @@
+package uz.javacourse.jgcp.aspect;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import uz.javacourse.jgcp.config.BulkheadProperties;
+import uz.javacourse.jgcp.exception.ServiceUnavailableException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// ограничивает число одновременных вызовов сервисного слоя размером пула соединений hikari.
+// С виртуальными потоками tomcat больше не ограничивает параллелизм 200 потоками, и без этого
+// тысячи запросов стояли бы в очереди hikari, каждый со своим connection-timeout.
+// Аспект стоит раньше @Transactional, поэтому место занимается до получения соединения,
+// вложенные вызовы сервисов в том же потоке повторно место не занимают
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class ServiceBulkheadAspect {
+
+    private static final ThreadLocal<Boolean> INSIDE = new ThreadLocal<>();
+
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+    private final Counter rejected;
+
+    public ServiceBulkheadAspect(BulkheadProperties bulkheadProperties, MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(bulkheadProperties.maxConcurrentCalls(), true);
+        this.acquireTimeoutNanos = bulkheadProperties.acquireTimeout().toNanos();
+        this.rejected = meterRegistry.counter("service.bulkhead.rejected");
+
+        Gauge.builder("service.bulkhead.available", permits, Semaphore::availablePermits)
+                .register(meterRegistry);
+        Gauge.builder("service.bulkhead.queued", permits, Semaphore::getQueueLength)
+                .register(meterRegistry);
+    }
+
+    @Around("execution(public * uz.javacourse.jgcp.service..*.*(..))")
+    public Object limitConcurrency(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (INSIDE.get() != null) {
+            return joinPoint.proceed();
+        }
+
+        if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+            rejected.increment();
+            log.warn("Service bulkhead is full, rejecting {}", joinPoint.getSignature().toShortString());
+            throw new ServiceUnavailableException("Server is busy, please retry later");
+        }
+
+        INSIDE.set(Boolean.TRUE);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            INSIDE.remove();
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package uz.javacourse.jgcp.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import uz.javacourse.jgcp.repository.CitizenshipRepository;
+import uz.javacourse.jgcp.util.TransactionHooks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// справочник гражданств в памяти узла: имя <-> smallint-ключ таблицы citizenships. Записи только
+// добавляются и никогда не меняются, поэтому кэш не устаревает. Найденное в базе попадает в кэш
+// после коммита текущей транзакции: ключ, вставленный в откатившейся транзакции, не должен остаться в памяти
+@Component
+@RequiredArgsConstructor
+public class CitizenshipDictionary {
+
+    private final CitizenshipRepository citizenshipRepository;
+    private final Map<String, Short> idsByName = new ConcurrentHashMap<>();
+    private final Map<Short, String> namesById = new ConcurrentHashMap<>();
+
+    // ключ по имени или null, если такого гражданства нет; неизвестные имена не кэшируются
+    public Short findId(String name) {
+        Short id = idsByName.get(name);
+        if (id == null) {
+            id = citizenshipRepository.findIdByName(name);
+            if (id != null) {
+                remember(id, name);
+            }
+        }
+        return id;
+    }
+
+    // имя по ключу; промах означает запись, добавленную другим узлом, и справочник перечитывается целиком
+    public String nameOf(short id) {
+        String name = namesById.get(id);
+        if (name != null) {
+            return name;
+        }
+        // внутри транзакции запомненное попадет в кэш только после коммита, поэтому ответ берется из прочитанного
+        Map<Short, String> loaded = new HashMap<>();
+        citizenshipRepository.findAll(rs -> loaded.put(rs.getShort("id"), rs.getString("name")));
+        loaded.forEach(this::remember);
+        name = loaded.get(id);
+        if (name == null) {
+            throw new IllegalStateException("Unknown citizenship id " + id);
+        }
+        return name;
+    }
+
+    // ключ для записи пользователя, новое гражданство добавляется в справочник в текущей транзакции
+    public short register(String name) {
+        Short id = findId(name);
+        if (id != null) {
+            return id;
+        }
+        short inserted = citizenshipRepository.insertIfAbsent(name);
+        remember(inserted, name);
+        return inserted;
+    }
+
+    private void remember(short id, String name) {
+        TransactionHooks.afterCommit(() -> {
+            idsByName.put(name, id);
+            namesById.put(id, name);
+        });
+    }
+}
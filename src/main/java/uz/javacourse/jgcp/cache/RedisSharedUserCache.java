@@ -0,0 +1,124 @@
+package uz.javacourse.jgcp.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+import uz.javacourse.jgcp.config.CacheProperties;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+// общий кэш в redis; любые ошибки redis только логируются, чтобы чтение шло дальше в базу данных
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.cache.redis", name = "enabled", havingValue = "true")
+public class RedisSharedUserCache implements SharedUserCache, MessageListener {
+
+    private static final String ID_KEY_PREFIX = "jgcp:user:id:";
+    private static final String PINFL_KEY_PREFIX = "jgcp:user:pinfl:";
+    // значение-метка удаления, читается как промах
+    private static final String TOMBSTONE = "";
+
+    // идентификатор узла, чтобы не обрабатывать собственные инвалидации
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<BiConsumer<Long, String>> listeners = new CopyOnWriteArrayList<>();
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final CacheProperties.Redis properties;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter errors;
+
+    public RedisSharedUserCache(StringRedisTemplate redisTemplate,
+                                ObjectMapper objectMapper,
+                                CacheProperties cacheProperties,
+                                MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = cacheProperties.redis();
+        this.hits = meterRegistry.counter("users.cache.shared", "result", "hit");
+        this.misses = meterRegistry.counter("users.cache.shared", "result", "miss");
+        this.errors = meterRegistry.counter("users.cache.shared", "result", "error");
+    }
+
+    @Override
+    public Optional<UserResponseDto> getById(Long id) {
+        return read(ID_KEY_PREFIX + id);
+    }
+
+    @Override
+    public Optional<UserResponseDto> getByPinfl(String pinfl) {
+        return read(PINFL_KEY_PREFIX + pinfl);
+    }
+
+    // SET NX: пока ключ занят меткой удаления, загрузка, начатая до коммита изменения, его не перезапишет
+    @Override
+    public void put(UserResponseDto user) {
+        try {
+            String json = objectMapper.writeValueAsString(user);
+            redisTemplate.opsForValue().setIfAbsent(ID_KEY_PREFIX + user.id(), json, properties.ttl());
+            redisTemplate.opsForValue().setIfAbsent(PINFL_KEY_PREFIX + user.pinfl(), json, properties.ttl());
+        } catch (RuntimeException e) {
+            errors.increment();
+            log.warn("Failed to write user {} to redis cache: {}", user.id(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void evict(Long id, String pinfl) {
+        try {
+            redisTemplate.opsForValue().set(ID_KEY_PREFIX + id, TOMBSTONE, properties.evictionTombstoneTtl());
+            redisTemplate.opsForValue().set(PINFL_KEY_PREFIX + pinfl, TOMBSTONE, properties.evictionTombstoneTtl());
+            redisTemplate.convertAndSend(properties.invalidationChannel(), nodeId + "|" + id + "|" + pinfl);
+        } catch (RuntimeException e) {
+            errors.increment();
+            log.warn("Failed to evict user {} from redis cache: {}", id, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onRemoteInvalidation(BiConsumer<Long, String> listener) {
+        listeners.add(listener);
+    }
+
+    // сообщение инвалидации: nodeId|id|pinfl
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        Long id = Long.valueOf(parts[1]);
+        for (BiConsumer<Long, String> listener : listeners) {
+            listener.accept(id, parts[2]);
+        }
+    }
+
+    private Optional<UserResponseDto> read(String key) {
+        try {
+            String json = redisTemplate.opsForValue().get(key);
+            if (json == null || json.equals(TOMBSTONE)) {
+                misses.increment();
+                return Optional.empty();
+            }
+            hits.increment();
+            return Optional.of(objectMapper.readValue(json, UserResponseDto.class));
+        } catch (RuntimeException e) {
+            errors.increment();
+            log.warn("Failed to read {} from redis cache: {}", key, e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
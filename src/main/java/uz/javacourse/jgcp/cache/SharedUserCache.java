@@ -0,0 +1,23 @@
+package uz.javacourse.jgcp.cache;
+
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+// общий (межузловой) уровень кэша пользователей
+public interface SharedUserCache {
+
+    Optional<UserResponseDto> getById(Long id);
+
+    Optional<UserResponseDto> getByPinfl(String pinfl);
+
+    // не перезаписывает ключи, недавно удаленные через evict
+    void put(UserResponseDto user);
+
+    // удаляет записи по id и pinfl и сообщает остальным узлам
+    void evict(Long id, String pinfl);
+
+    // вызывается когда другой узел прислал инвалидацию
+    void onRemoteInvalidation(BiConsumer<Long, String> listener);
+}
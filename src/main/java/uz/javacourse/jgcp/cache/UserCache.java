@@ -0,0 +1,190 @@
+package uz.javacourse.jgcp.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import uz.javacourse.jgcp.config.CacheProperties;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// read-through кэш пользователей: локальный caffeine (W-TinyLFU) перед необязательным общим redis,
+// записи по id и по pinfl хранятся отдельно, но всегда инвалидируются вместе.
+// Кэш асинхронный: в caffeine кладется незавершенный future, а сама загрузка из базы идет вне
+// synchronized-блока ConcurrentHashMap.compute, иначе виртуальный поток был бы закреплен
+// за потоком-носителем на все время запроса в базу данных.
+// Загрузка, начатая до коммита изменения, может закончиться уже после его инвалидации: такие загрузки
+// узнаются по счетчику инвалидаций и не кладут запись по второму ключу, а redis защищен меткой удаления
+@Component
+public class UserCache {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final AsyncCache<Long, UserResponseDto> byId;
+    private final AsyncCache<String, UserResponseDto> byPinfl;
+    private final SharedUserCache sharedCache;
+    private final Counter invalidations;
+    // счетчики инвалидаций, разложенные по хешу ключа (id или pinfl)
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public UserCache(CacheProperties cacheProperties,
+                     ObjectProvider<SharedUserCache> sharedCacheProvider,
+                     MeterRegistry meterRegistry) {
+        this.byId = newNearCache(cacheProperties);
+        this.byPinfl = newNearCache(cacheProperties);
+        this.sharedCache = sharedCacheProvider.getIfAvailable();
+        this.invalidations = meterRegistry.counter("users.cache.invalidations");
+
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "users.near.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, byPinfl, "users.near.by-pinfl");
+        if (sharedCache != null) {
+            sharedCache.onRemoteInvalidation(this::evictLocal);
+        }
+    }
+
+    // возвращает пользователя из кэша или загружает через loader; параллельные промахи по одному ключу
+    // склеиваются caffeine в одну загрузку, исключения loader (например not found) не кэшируются
+    public UserResponseDto getById(Long id, Supplier<UserResponseDto> loader) {
+        return getOrLoad(byId, id, key -> {
+            long generation = generation(key);
+            UserResponseDto user = load(sharedCache == null ? Optional.empty() : sharedCache.getById(key), loader);
+            putIfNotEvicted(byPinfl, user.pinfl(), user, key, generation);
+            return user;
+        });
+    }
+
+    public UserResponseDto getByPinfl(String pinfl, Supplier<UserResponseDto> loader) {
+        return getOrLoad(byPinfl, pinfl, key -> {
+            long generation = generation(key);
+            UserResponseDto user = load(sharedCache == null ? Optional.empty() : sharedCache.getByPinfl(key), loader);
+            putIfNotEvicted(byId, user.id(), user, key, generation);
+            return user;
+        });
+    }
+
+    // возвращает пользователя только если он уже загружен в локальный кэш, незавершенные загрузки не ждет
+    public UserResponseDto getIfPresent(Long id) {
+        return completedOrNull(byId.getIfPresent(id));
+    }
+
+    public UserResponseDto getIfPresentByPinfl(String pinfl) {
+        return completedOrNull(byPinfl.getIfPresent(pinfl));
+    }
+
+    // синхронно удаляет записи на этом узле; внутри транзакции удаление повторяется после коммита
+    // (вместе с redis и рассылкой другим узлам), чтобы параллельное чтение не вернуло старую версию
+    public void evict(Long id, String pinfl) {
+        evictLocal(id, pinfl);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictEverywhere(id, pinfl);
+                }
+            });
+        } else {
+            evictEverywhere(id, pinfl);
+        }
+    }
+
+    // сначала redis: загрузка, начатая после локальной инвалидации, уже не прочитает оттуда старую версию
+    private void evictEverywhere(Long id, String pinfl) {
+        if (sharedCache != null) {
+            sharedCache.evict(id, pinfl);
+        }
+        evictLocal(id, pinfl);
+    }
+
+    // удаляет записи только на этом узле - так применяются изменения с других узлов (pub/sub redis,
+    // события kafka). Счетчик увеличивается до удаления, на этом порядке держится проверка в putIfNotEvicted
+    public void evictLocal(Long id, String pinfl) {
+        invalidations.increment();
+        generations.incrementAndGet(stripe(id));
+        generations.incrementAndGet(stripe(pinfl));
+        byId.synchronous().invalidate(id);
+        byPinfl.synchronous().invalidate(pinfl);
+    }
+
+    // кладет запись по второму ключу, если с начала загрузки по loadedKey инвалидаций не было; повторная
+    // проверка после вставки ловит инвалидацию, пришедшую между проверкой и вставкой. Запись по самому
+    // loadedKey защищать не нужно: инвалидация удаляет из caffeine еще незавершенный future загрузки
+    private <K> void putIfNotEvicted(AsyncCache<K, UserResponseDto> cache, K key, UserResponseDto user,
+                                     Object loadedKey, long generation) {
+        if (generation(loadedKey) != generation) {
+            return;
+        }
+        CompletableFuture<UserResponseDto> value = CompletableFuture.completedFuture(user);
+        cache.put(key, value);
+        if (generation(loadedKey) != generation) {
+            cache.asMap().remove(key, value);
+        }
+    }
+
+    private long generation(Object key) {
+        return generations.get(stripe(key));
+    }
+
+    private static int stripe(Object key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % GENERATION_STRIPES;
+    }
+
+    // первый промах кладет в кэш свой future и загружает значение в текущем потоке, остальные ждут этот future;
+    // future, завершенный исключением, caffeine удаляет сам
+    private static <K> UserResponseDto getOrLoad(AsyncCache<K, UserResponseDto> cache, K key,
+                                                 Function<K, UserResponseDto> loader) {
+        CompletableFuture<UserResponseDto> placeholder = new CompletableFuture<>();
+        CompletableFuture<UserResponseDto> cached = cache.get(key, (k, executor) -> placeholder);
+        if (cached != placeholder) {
+            try {
+                return cached.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            UserResponseDto user = loader.apply(key);
+            placeholder.complete(user);
+            return user;
+        } catch (RuntimeException e) {
+            placeholder.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static UserResponseDto completedOrNull(CompletableFuture<UserResponseDto> cached) {
+        if (cached == null || !cached.isDone() || cached.isCompletedExceptionally()) {
+            return null;
+        }
+        return cached.join();
+    }
+
+    private UserResponseDto load(Optional<UserResponseDto> shared, Supplier<UserResponseDto> loader) {
+        if (shared.isPresent()) {
+            return shared.get();
+        }
+        UserResponseDto user = loader.get();
+        if (sharedCache != null) {
+            sharedCache.put(user);
+        }
+        return user;
+    }
+
+    private static <K> AsyncCache<K, UserResponseDto> newNearCache(CacheProperties cacheProperties) {
+        return Caffeine.newBuilder()
+                .maximumSize(cacheProperties.nearMaximumSize())
+                .expireAfterWrite(cacheProperties.nearTtl())
+                .recordStats()
+                .buildAsync();
+    }
+}
@@ -0,0 +1,12 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.batch-lookup")
+public record BatchLookupProperties(
+        // наибольшее количество ключей в одном запросе
+        int maxKeys,
+        // сколько ключей уходит в базу одним запросом = ANY (?)
+        int chunkSize
+) {
+}
@@ -0,0 +1,14 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.bulkhead")
+public record BulkheadProperties(
+        // сколько вызовов сервисного слоя выполняется одновременно; равно размеру пула соединений
+        int maxConcurrentCalls,
+        // сколько запрос ждет свободного места, прежде чем получить 503
+        Duration acquireTimeout
+) {
+}
@@ -0,0 +1,29 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.cache")
+public record CacheProperties(
+        // максимальное количество записей в каждом локальном кэше (по id и по pinfl)
+        long nearMaximumSize,
+        // время жизни записи в локальном кэше
+        Duration nearTtl,
+        // общий кэш в redis, необязательный
+        Redis redis
+) {
+
+    public record Redis(
+            // без redis приложение работает только с локальным кэшем
+            boolean enabled,
+            // время жизни записи в redis
+            Duration ttl,
+            // сколько после инвалидации ключ занят меткой удаления: загрузка, начатая до коммита,
+            // не сможет вернуть в redis старую версию; должно быть больше времени одной загрузки из базы
+            Duration evictionTombstoneTtl,
+            // канал pub/sub для рассылки инвалидаций другим узлам
+            String invalidationChannel
+    ) {
+    }
+}
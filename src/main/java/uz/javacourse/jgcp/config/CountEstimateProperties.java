@@ -0,0 +1,14 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.count-estimate")
+public record CountEstimateProperties(
+        // доля страниц таблицы (в процентах), которую читает TABLESAMPLE SYSTEM
+        double samplePercent,
+        // на таблицах меньше этого размера оценка не нужна - считается точно
+        long exactBelow,
+        // если в выборку попало меньше совпадений, погрешность слишком велика и берется оценка планировщика
+        int minSampleMatches
+) {
+}
@@ -0,0 +1,12 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.counters")
+public record CounterProperties(
+        // на сколько строк разбит каждый счетчик (больше слотов - меньше ожидания блокировок при записи)
+        int slots,
+        // расписание сверки счетчиков с таблицей users
+        String reconcileCron
+) {
+}
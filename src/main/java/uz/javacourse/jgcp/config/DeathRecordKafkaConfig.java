@@ -0,0 +1,73 @@
+package uz.javacourse.jgcp.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+
+import java.nio.charset.StandardCharsets;
+
+// пакетный потребитель записей о смерти: offset подтверждается вручную после коммита транзакции.
+// Ошибка всей пачки (например база данных недоступна) повторяется с растущей паузой ограниченное число раз,
+// затем записи пачки уходят в DLQ с причиной в заголовке и партиция читается дальше, а не стоит
+@Configuration
+public class DeathRecordKafkaConfig {
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> deathRecordListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory,
+            KafkaTemplate<String, String> kafkaTemplate,
+            DeathRecordProperties deathRecordProperties) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(deathRecordProperties.concurrency());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(deadLetterRecoverer(kafkaTemplate, deathRecordProperties),
+                retryBackOff(deathRecordProperties)));
+        return factory;
+    }
+
+    // та же партиция и тот же заголовок x-dlq-reason, что у записей, отклоненных DeathRecordListener
+    private static DeadLetterPublishingRecoverer deadLetterRecoverer(KafkaTemplate<String, String> kafkaTemplate,
+                                                                     DeathRecordProperties deathRecordProperties) {
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, e) -> new TopicPartition(deathRecordProperties.dlqTopic(), record.partition()));
+        recoverer.setHeadersFunction((record, e) -> new RecordHeaders().add("x-dlq-reason",
+                String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8)));
+        return recoverer;
+    }
+
+    private static ExponentialBackOffWithMaxRetries retryBackOff(DeathRecordProperties deathRecordProperties) {
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(deathRecordProperties.retryAttempts());
+        backOff.setInitialInterval(deathRecordProperties.retryBackoff().toMillis());
+        backOff.setMultiplier(2.0);
+        backOff.setMaxInterval(deathRecordProperties.retryMaxBackoff().toMillis());
+        return backOff;
+    }
+
+    @Bean
+    public NewTopic deathRecordsTopic(DeathRecordProperties deathRecordProperties) {
+        return TopicBuilder.name(deathRecordProperties.topic())
+                .partitions(deathRecordProperties.partitions())
+                .replicas(deathRecordProperties.replicas())
+                .build();
+    }
+
+    @Bean
+    public NewTopic deathRecordsDlqTopic(DeathRecordProperties deathRecordProperties) {
+        return TopicBuilder.name(deathRecordProperties.dlqTopic())
+                .partitions(deathRecordProperties.partitions())
+                .replicas(deathRecordProperties.replicas())
+                .build();
+    }
+}
@@ -0,0 +1,27 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.death-records")
+public record DeathRecordProperties(
+        boolean listenerEnabled,
+        String topic,
+        // сюда уходят записи, которые нельзя разобрать или проверить
+        String dlqTopic,
+        int partitions,
+        short replicas,
+        // количество потребителей; больше числа партиций не имеет смысла
+        int concurrency,
+        // пауза перед первым повтором пачки, если база данных недоступна; дальше пауза удваивается
+        Duration retryBackoff,
+        // наибольшая пауза между повторами
+        Duration retryMaxBackoff,
+        // сколько раз повторить пачку, прежде чем отправить ее записи в DLQ
+        int retryAttempts,
+        // POST /deceased/bulk: наибольшее количество записей в запросе и размер пачки на одну транзакцию
+        int bulkMaxRecords,
+        int bulkChunkSize
+) {
+}
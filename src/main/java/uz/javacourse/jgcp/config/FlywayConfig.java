@@ -5,10 +5,16 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import javax.sql.DataSource;
+import java.util.Map;
 
 @Configuration
 public class FlywayConfig {
 
+    // миграции с CREATE INDEX CONCURRENTLY (executeInTransaction=false) ждут завершения всех открытых
+    // транзакций, в том числе той, в которой flyway по умолчанию держит advisory-блокировку, и запуск
+    // зависает (flyway#3508); без транзакции flyway берет сессионную блокировку
+    static final Map<String, String> POSTGRESQL_SETTINGS = Map.of("flyway.postgresql.transactional.lock", "false");
+
     @Bean(initMethod = "migrate")
     public Flyway flyway(DataSource dataSource) {
         return Flyway.configure()
@@ -16,6 +22,7 @@ public class FlywayConfig {
                 .locations("classpath:db/migration")
                 .baselineOnMigrate(true)
                 .validateOnMigrate(false)
+                .configuration(POSTGRESQL_SETTINGS)
                 .load();
     }
 }
@@ -0,0 +1,12 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.import")
+public record ImportProperties(
+        // количество строк, которые проверяются и записываются в одной транзакции
+        int chunkSize,
+        // сколько отклоненных строк попадает в отчет (остальные только считаются)
+        int maxRejections
+) {
+}
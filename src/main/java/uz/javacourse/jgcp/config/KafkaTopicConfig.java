@@ -0,0 +1,28 @@
+package uz.javacourse.jgcp.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+// топики событий создаются при старте через KafkaAdmin, если их еще нет
+@Configuration
+public class KafkaTopicConfig {
+
+    @Bean
+    public NewTopic userCreatedTopic(OutboxProperties outboxProperties) {
+        return topic(outboxProperties.topics().userCreated(), outboxProperties.topics());
+    }
+
+    @Bean
+    public NewTopic userDeceasedTopic(OutboxProperties outboxProperties) {
+        return topic(outboxProperties.topics().userDeceased(), outboxProperties.topics());
+    }
+
+    private static NewTopic topic(String name, OutboxProperties.Topics topics) {
+        return TopicBuilder.name(name)
+                .partitions(topics.partitions())
+                .replicas(topics.replicas())
+                .build();
+    }
+}
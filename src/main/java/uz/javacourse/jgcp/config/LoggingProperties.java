@@ -0,0 +1,10 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.logging")
+public record LoggingProperties(
+        // доля вызовов контроллера, для которых логируются аргументы (0 - никогда, 1 - всегда)
+        double argumentSampleRate
+) {
+}
@@ -0,0 +1,25 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.online-migrations")
+public record OnlineMigrationProperties(
+        // запускать незавершенные миграции после старта приложения; иначе только через POST /migrations/{name}/start,
+        // кроме миграций с requiredBeforeServing
+        boolean autoStart,
+        // диапазон ключей одной пачки: одна короткая транзакция, блокирует не больше этого числа строк
+        int chunkSize,
+        // пауза между пачками, чтобы фоновая запись не вытесняла рабочую нагрузку и не раздувала WAL и отставание реплик
+        Duration pause,
+        // ожидание блокировки одним оператором; при превышении оператор повторяется после паузы,
+        // а не держит очередь запросов за собой
+        Duration lockTimeout,
+        // предел выполнения одного оператора пачки
+        Duration statementTimeout,
+        // аренда: если владелец не обновлял heartbeat дольше, миграцию может забрать другой узел
+        Duration leaseTimeout,
+        Duration heartbeatInterval
+) {
+}
@@ -0,0 +1,33 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.outbox")
+public record OutboxProperties(
+        // включает публикацию событий из user_outbox в kafka (запись в outbox идет всегда)
+        boolean relayEnabled,
+        // применять user.created и user.deceased к структурам в памяти этого узла (индекс статусов, снимок),
+        // чтобы они видели записи, сделанные на других узлах
+        boolean syncEnabled,
+        // сколько событий забирается, публикуется и удаляется за один проход
+        int batchSize,
+        // пауза между проходами, когда outbox опустошен
+        Duration pollInterval,
+        // сколько ждать подтверждения kafka для всей пачки
+        Duration sendTimeout,
+        // сколько пачка принадлежит забравшему ее узлу; больше send-timeout, иначе пачку
+        // заберет другой узел, пока этот еще ждет подтверждения
+        Duration claimTimeout,
+        Topics topics
+) {
+
+    public record Topics(
+            String userCreated,
+            String userDeceased,
+            int partitions,
+            short replicas
+    ) {
+    }
+}
@@ -0,0 +1,17 @@
+package uz.javacourse.jgcp.config;
+
+import jakarta.validation.constraints.NotBlank;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Validated
+@ConfigurationProperties(prefix = "app.pagination")
+public record PaginationProperties(
+        // наибольшее смещение (page * size) для offset-эндпоинтов; глубже - 400 с подсказкой про курсоры
+        long maxOffset,
+        // ключ подписи курсоров; у всех экземпляров приложения должен быть одинаковым.
+        // Значения по умолчанию нет: известным ключом можно подделать любой курсор
+        @NotBlank(message = "app.pagination.cursor-secret (PAGINATION_CURSOR_SECRET) is required")
+        String cursorSecret
+) {
+}
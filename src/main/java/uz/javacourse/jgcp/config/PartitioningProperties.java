@@ -0,0 +1,13 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.partitioning")
+public record PartitioningProperties(
+        // как часто узел проверяет, заменена ли users секционированной таблицей, если замену сделали вручную;
+        // о завершении users-partitioning узел узнает через OnlineMigrationFinishedEvent
+        Duration layoutCheckInterval
+) {
+}
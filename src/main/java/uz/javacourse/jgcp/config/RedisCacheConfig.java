@@ -0,0 +1,26 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import uz.javacourse.jgcp.cache.RedisSharedUserCache;
+
+@Configuration
+@ConditionalOnProperty(prefix = "app.cache.redis", name = "enabled", havingValue = "true")
+public class RedisCacheConfig {
+
+    // подписка на канал инвалидаций кэша пользователей
+    @Bean
+    public RedisMessageListenerContainer userCacheInvalidationListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            RedisSharedUserCache sharedUserCache,
+            CacheProperties cacheProperties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(sharedUserCache, new ChannelTopic(cacheProperties.redis().invalidationChannel()));
+        return container;
+    }
+}
@@ -0,0 +1,84 @@
+package uz.javacourse.jgcp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import uz.javacourse.jgcp.datasource.ReadYourWrites;
+import uz.javacourse.jgcp.datasource.ReplicaNode;
+import uz.javacourse.jgcp.datasource.ReplicaRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+// чтение с реплик: @Transactional(readOnly = true) получает соединение реплики, остальное - primary.
+// LazyConnectionDataSourceProxy берет настоящее соединение только при первом запросе, когда признак
+// read-only транзакции уже выставлен, поэтому маршрутизация не требует изменений в сервисах
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replicas", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    // тот же пул, что создал бы spring boot: spring.datasource.* и настройки spring.datasource.hikari.*
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(@Value("${spring.datasource.url}") String url,
+                                              @Value("${spring.datasource.username}") String username,
+                                              @Value("${spring.datasource.password}") String password,
+                                              @Value("${spring.datasource.driver-class-name}") String driverClassName) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("primary");
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setDriverClassName(driverClassName);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             ReplicaProperties replicaProperties,
+                                                             MeterRegistry meterRegistry) {
+        List<ReplicaNode> replicas = replicaProperties.nodes().stream()
+                .map(node -> new ReplicaNode(node.name(), replicaPool(node, meterRegistry)))
+                .toList();
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, replicaProperties.maxLag(),
+                replicaProperties.readYourWrites(), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaRoutingDataSource) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primaryDataSource);
+        proxy.setReadOnlyDataSource(replicaRoutingDataSource);
+        return proxy;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.datasource.replicas", name = "read-your-writes", havingValue = "true")
+    public ReadYourWrites readYourWrites(HikariDataSource primaryDataSource) {
+        return new ReadYourWrites(primaryDataSource);
+    }
+
+    // реплики только читают: read-only на уровне соединения защищает от случайной записи мимо primary
+    private static HikariDataSource replicaPool(ReplicaProperties.Node node, MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(node.name());
+        dataSource.setJdbcUrl(node.url());
+        dataSource.setUsername(node.username());
+        dataSource.setPassword(node.password());
+        dataSource.setMaximumPoolSize(node.maximumPoolSize());
+        dataSource.setMinimumIdle(node.minimumIdle());
+        dataSource.setConnectionTimeout(node.connectionTimeout().toMillis());
+        dataSource.setReadOnly(true);
+        // пул не должен падать при старте, если реплика недоступна - ее исключит проверка здоровья
+        dataSource.setInitializationFailTimeout(-1);
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+}
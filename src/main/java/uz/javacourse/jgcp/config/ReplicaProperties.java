@@ -0,0 +1,33 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "app.datasource.replicas")
+public record ReplicaProperties(
+        // без реплик все запросы идут в spring.datasource
+        boolean enabled,
+        // реплика с большим отставанием исключается из чтения, пока не догонит
+        Duration maxLag,
+        // как часто проверяются доступность и отставание реплик
+        Duration healthCheckInterval,
+        // после записи ответ получает заголовок X-Read-After-Lsn; запрос с этим заголовком читает
+        // только с реплик, которые уже применили этот LSN (иначе - с primary)
+        boolean readYourWrites,
+        List<Node> nodes
+) {
+
+    public record Node(
+            // имя пула в метриках hikaricp и db.replica
+            String name,
+            String url,
+            String username,
+            String password,
+            int maximumPoolSize,
+            int minimumIdle,
+            Duration connectionTimeout
+    ) {
+    }
+}
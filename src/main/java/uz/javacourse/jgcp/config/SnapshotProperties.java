@@ -0,0 +1,16 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.snapshot")
+public record SnapshotProperties(
+        // без снимка подсчет с snapshot=true отвечает 503
+        boolean enabled,
+        // начальная емкость колонок в строках, чтобы при заполнении не было копирований
+        int initialCapacity,
+        // период полного перестроения из базы: исправляет расхождения от ручных правок и потерянных событий
+        Duration rebuildInterval
+) {
+}
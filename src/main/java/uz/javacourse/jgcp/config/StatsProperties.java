@@ -0,0 +1,14 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.stats")
+public record StatsProperties(
+        // сколько живет посчитанный результат /stats для одного набора параметров
+        Duration cacheTtl,
+        // сколько разных наборов параметров хранится одновременно
+        long cacheMaximumSize
+) {
+}
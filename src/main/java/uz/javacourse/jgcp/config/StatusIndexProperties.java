@@ -0,0 +1,15 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.status-index")
+public record StatusIndexProperties(
+        // без индекса проверки статуса идут в базу данных
+        boolean enabled,
+        // начальный размер таблицы pinfl -> id, чтобы при заполнении не было перестроений
+        long expectedUsers,
+        // false - из индекса берется только окончательный ответ DECEASED, ALIVE перепроверяется в базе данных:
+        // так закрывается окно, пока смерть, отмеченная на другом узле, еще не доехала через kafka
+        boolean trustAlive
+) {
+}
@@ -0,0 +1,19 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.uniqueness")
+public record UniquenessProperties(
+        // bloom-фильтр занятых pinfl/email/телефонов перед запросом в базу данных
+        Bloom bloom
+) {
+
+    public record Bloom(
+            boolean enabled,
+            // на сколько записей рассчитан каждый фильтр
+            long expectedInsertions,
+            // допустимая доля ложных срабатываний
+            double falsePositiveProbability
+    ) {
+    }
+}
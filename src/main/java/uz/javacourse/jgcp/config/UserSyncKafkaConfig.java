@@ -0,0 +1,25 @@
+package uz.javacourse.jgcp.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+// потребитель синхронизации структур в памяти (UserChangeListener): партиции назначаются вручную, без
+// участия в группе и без ребалансировок, а offset никогда не подтверждается - после перезапуска узел
+// снова читает с конца топика, поэтому в брокере не копятся группы и offset'ы от прошлых запусков
+@Configuration
+public class UserSyncKafkaConfig {
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> userSyncListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        // ручной режим без вызовов acknowledge: ни после пачки, ни при назначении партиций ничего не коммитится
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setAssignmentCommitOption(ContainerProperties.AssignmentCommitOption.NEVER);
+        return factory;
+    }
+}
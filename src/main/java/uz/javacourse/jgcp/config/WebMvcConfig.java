@@ -0,0 +1,34 @@
+package uz.javacourse.jgcp.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import uz.javacourse.jgcp.interceptor.DeepOffsetInterceptor;
+import uz.javacourse.jgcp.util.CursorSigner;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final PaginationProperties paginationProperties;
+
+    @Value("${spring.data.web.pageable.default-page-size}")
+    private int defaultPageSize;
+
+    @Value("${spring.data.web.pageable.max-page-size}")
+    private int maxPageSize;
+
+    // одна подпись для всех курсоров приложения: фильтра и поиска по похожести имени
+    @Bean
+    public CursorSigner cursorSigner() {
+        return new CursorSigner(paginationProperties.cursorSecret());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new DeepOffsetInterceptor(paginationProperties.maxOffset(), defaultPageSize, maxPageSize));
+    }
+}
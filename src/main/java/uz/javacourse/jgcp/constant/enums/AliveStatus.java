@@ -0,0 +1,7 @@
+package uz.javacourse.jgcp.constant.enums;
+
+public enum AliveStatus {
+    ALIVE,
+    DECEASED,
+    NOT_FOUND
+}
@@ -0,0 +1,12 @@
+package uz.javacourse.jgcp.constant.enums;
+
+public enum CountMethod {
+    // точный COUNT(*) или поддерживаемый счетчик
+    EXACT,
+    // pg_class.reltuples, пересчитанный на текущий размер таблицы
+    STATISTICS,
+    // COUNT(*) по выборке TABLESAMPLE SYSTEM, масштабированный на всю таблицу
+    SAMPLE,
+    // оценка числа строк планировщиком (EXPLAIN)
+    PLANNER
+}
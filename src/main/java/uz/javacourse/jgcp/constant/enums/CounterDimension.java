@@ -0,0 +1,9 @@
+package uz.javacourse.jgcp.constant.enums;
+
+// измерения, по которым ведутся счетчики пользователей (возраст хранится отдельной гистограммой)
+public enum CounterDimension {
+    STATUS,
+    GENDER,
+    DOCUMENT_TYPE,
+    CITIZENSHIP
+}
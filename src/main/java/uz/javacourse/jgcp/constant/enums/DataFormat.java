@@ -0,0 +1,32 @@
+package uz.javacourse.jgcp.constant.enums;
+
+import org.springframework.http.MediaType;
+import uz.javacourse.jgcp.exception.BusinessException;
+
+public enum DataFormat {
+    NDJSON(MediaType.APPLICATION_NDJSON_VALUE),
+    CSV("text/csv");
+
+    private final String mediaType;
+
+    DataFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    // определяет формат по заголовку Content-Type (параметры вроде charset игнорируются)
+    public static DataFormat fromContentType(String contentType) {
+        if (contentType != null) {
+            MediaType parsed = MediaType.parseMediaType(contentType);
+            for (DataFormat format : values()) {
+                if (MediaType.parseMediaType(format.mediaType).includes(parsed)) {
+                    return format;
+                }
+            }
+        }
+        throw new BusinessException("Unsupported content type: " + contentType);
+    }
+}
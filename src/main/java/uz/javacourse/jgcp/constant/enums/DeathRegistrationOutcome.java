@@ -0,0 +1,14 @@
+package uz.javacourse.jgcp.constant.enums;
+
+public enum DeathRegistrationOutcome {
+    // дата смерти проставлена этим вызовом
+    UPDATED,
+    // пользователь уже был отмечен умершим, запись не изменена
+    ALREADY_DECEASED,
+    // пользователя с таким pinfl (или id) нет
+    NOT_FOUND,
+    // только в пакетной отметке: повтор ключа из этого же запроса, применен вместе с первой записью ключа
+    DUPLICATE,
+    // только в пакетной отметке: транзакция пачки откатилась, запись можно отправить повторно
+    FAILED
+}
@@ -0,0 +1,9 @@
+package uz.javacourse.jgcp.constant.enums;
+
+public enum OnlineMigrationStatus {
+    PENDING,
+    RUNNING,
+    PAUSED,
+    FAILED,
+    DONE
+}
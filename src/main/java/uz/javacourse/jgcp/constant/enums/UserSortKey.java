@@ -0,0 +1,41 @@
+package uz.javacourse.jgcp.constant.enums;
+
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+
+import java.time.LocalDate;
+import java.util.function.Function;
+
+// ключ сортировки фильтра; id всегда добавляется вторым столбцом, поэтому порядок строк однозначный
+public enum UserSortKey {
+    ID("id", UserResponseDto::id),
+    FULL_NAME("full_name", UserResponseDto::fullName),
+    EXPIRY_DATE("expiry_date", UserResponseDto::expiryDate),
+    // death_date есть только у умерших, сортировка по ней ограничивает выборку умершими
+    DEATH_DATE("death_date", UserResponseDto::deathDate);
+
+    private final String column;
+    private final Function<UserResponseDto, Object> value;
+
+    UserSortKey(String column, Function<UserResponseDto, Object> value) {
+        this.column = column;
+        this.value = value;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    // значение ключа у строки в виде, который кладется в курсор
+    public String valueOf(UserResponseDto user) {
+        return String.valueOf(value.apply(user));
+    }
+
+    // обратное преобразование значения из курсора в параметр запроса
+    public Object parse(String value) {
+        return switch (this) {
+            case ID -> Long.parseLong(value);
+            case FULL_NAME -> value;
+            case EXPIRY_DATE, DEATH_DATE -> LocalDate.parse(value);
+        };
+    }
+}
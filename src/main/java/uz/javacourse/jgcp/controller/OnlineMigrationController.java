@@ -0,0 +1,41 @@
+package uz.javacourse.jgcp.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import uz.javacourse.jgcp.dto.response.OnlineMigrationDto;
+import uz.javacourse.jgcp.service.OnlineMigrationService;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/gcp/migrations")
+@RequiredArgsConstructor
+public class OnlineMigrationController {
+
+    private final OnlineMigrationService onlineMigrationService;
+
+    // состояние и прогресс фоновых миграций данных
+    @GetMapping
+    public ResponseEntity<List<OnlineMigrationDto>> getMigrations() {
+        return ResponseEntity.ok(onlineMigrationService.getMigrations());
+    }
+
+    // запуск или продолжение с последней сохраненной пачки
+    @PostMapping("/{name}/start")
+    public ResponseEntity<OnlineMigrationDto> start(@PathVariable String name) {
+        return ResponseEntity.ok(onlineMigrationService.start(name));
+    }
+
+    // остановка после текущей пачки или текущего завершающего шага
+    @PostMapping("/{name}/pause")
+    public ResponseEntity<OnlineMigrationDto> pause(@PathVariable String name) {
+        return ResponseEntity.ok(onlineMigrationService.pause(name));
+    }
+
+    // отмена остановленной миграции: убирает ее триггеры и частичные данные, следующий запуск начнется с начала
+    @PostMapping("/{name}/abandon")
+    public ResponseEntity<OnlineMigrationDto> abandon(@PathVariable String name) {
+        return ResponseEntity.ok(onlineMigrationService.abandon(name));
+    }
+}
@@ -4,19 +4,47 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uz.javacourse.jgcp.constant.enums.DataFormat;
 import uz.javacourse.jgcp.constant.enums.DocumentType;
 import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.constant.enums.UserSortKey;
+import uz.javacourse.jgcp.dto.request.AliveCheckRequestDto;
+import uz.javacourse.jgcp.dto.request.BulkMarkDeceasedRequestDto;
 import uz.javacourse.jgcp.dto.request.MarkDeceasedRequestDto;
+import uz.javacourse.jgcp.dto.request.UserBatchLookupRequestDto;
+import uz.javacourse.jgcp.dto.request.UserFilterDto;
 import uz.javacourse.jgcp.dto.request.UserRequestDto;
+import uz.javacourse.jgcp.dto.response.AliveCheckResultDto;
+import uz.javacourse.jgcp.dto.response.BulkMarkDeceasedResponseDto;
+import uz.javacourse.jgcp.dto.response.CountEstimateDto;
+import uz.javacourse.jgcp.dto.response.CursorPageDto;
+import uz.javacourse.jgcp.dto.response.ImportReportDto;
 import uz.javacourse.jgcp.dto.response.MarkDeceasedResponseDto;
+import uz.javacourse.jgcp.dto.response.SnapshotCountDto;
+import uz.javacourse.jgcp.dto.response.SnapshotInfoDto;
+import uz.javacourse.jgcp.dto.response.UserBatchLookupResponseDto;
 import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.dto.response.UserStatsDto;
+import uz.javacourse.jgcp.service.DeathRegistrationService;
+import uz.javacourse.jgcp.service.UserBatchLookupService;
+import uz.javacourse.jgcp.service.UserExportService;
+import uz.javacourse.jgcp.service.UserFilterService;
+import uz.javacourse.jgcp.service.UserImportService;
 import uz.javacourse.jgcp.service.UserService;
+import uz.javacourse.jgcp.service.UserStatsService;
+import uz.javacourse.jgcp.service.UserStatusService;
 
+import java.io.InputStream;
 import java.time.LocalDate;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/gcp/users")
@@ -25,6 +53,13 @@ import java.time.LocalDate;
 public class UserController {
 
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final UserExportService userExportService;
+    private final UserFilterService userFilterService;
+    private final UserStatsService userStatsService;
+    private final UserBatchLookupService userBatchLookupService;
+    private final UserStatusService userStatusService;
+    private final DeathRegistrationService deathRegistrationService;
 
     @GetMapping
     public ResponseEntity<Slice<UserResponseDto>> getAllUsers(Pageable pageable) {
@@ -37,6 +72,21 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    // массовый импорт: тело запроса читается потоком (NDJSON - одна запись на строку, CSV - с заголовком)
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<ImportReportDto> importUsers(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) {
+        return ResponseEntity.ok(userImportService.importUsers(body, DataFormat.fromContentType(contentType)));
+    }
+
+    // пакетное чтение: {"ids": [...]} или {"pinfls": [...]}, результаты в порядке ключей запроса,
+    // ненайденные ключи возвращаются с found=false
+    @PostMapping("/batch")
+    public ResponseEntity<UserBatchLookupResponseDto> lookupUsers(@Valid @RequestBody UserBatchLookupRequestDto request) {
+        return ResponseEntity.ok(userBatchLookupService.lookupUsers(request));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<UserResponseDto> getUserById(@PathVariable Long id) {
         return ResponseEntity.ok(userService.getUserById(id));
@@ -52,6 +102,21 @@ public class UserController {
         return ResponseEntity.ok(userService.isUserAlive(id));
     }
 
+    // пакетная проверка статуса: {"pinfls": [...]}, результаты в порядке запроса со статусом
+    // ALIVE, DECEASED или NOT_FOUND
+    @PostMapping("/alive/batch")
+    public ResponseEntity<List<AliveCheckResultDto>> checkAliveByPinfl(@Valid @RequestBody AliveCheckRequestDto request) {
+        return ResponseEntity.ok(userStatusService.checkAliveByPinfl(request));
+    }
+
+    // пакетная отметка смерти по реестру: {"records": [{"id": 1, "deathDate": "..."}, {"pinfl": "...", "deathDate": "..."}]},
+    // повторная отправка безопасна - уже отмеченные записи вернутся как ALREADY_DECEASED
+    @PostMapping("/deceased/bulk")
+    public ResponseEntity<BulkMarkDeceasedResponseDto> markUsersAsDeceased(
+            @Valid @RequestBody BulkMarkDeceasedRequestDto request) {
+        return ResponseEntity.ok(deathRegistrationService.markDeceased(request));
+    }
+
     @PatchMapping("/{id}/mark-deceased")
     public ResponseEntity<MarkDeceasedResponseDto> markUserAsDeceased(
             @PathVariable Long id,
@@ -66,6 +131,15 @@ public class UserController {
         return ResponseEntity.ok(userService.searchByName(name, pageable));
     }
 
+    // поиск по похожести имени: ?name=...&size=25, следующая страница - ?cursor=<nextCursor>
+    @GetMapping("/search/ranked")
+    public ResponseEntity<CursorPageDto<UserResponseDto>> searchByNameRanked(
+            @RequestParam String name,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "25") int size) {
+        return ResponseEntity.ok(userService.searchByNameRanked(name, cursor, size));
+    }
+
     @GetMapping("/alive")
     public ResponseEntity<Slice<UserResponseDto>> getAllAliveUsers(Pageable pageable) {
         return ResponseEntity.ok(userService.getAllAliveUsers(pageable));
@@ -158,16 +232,39 @@ public class UserController {
 
     // СТАТИСТИКА
 
+    // все агрегаты для дашборда одним запросом; периоды необязательные
+    @GetMapping("/stats")
+    public ResponseEntity<UserStatsDto> getStats(
+            @RequestParam(required = false) LocalDate expiringStart,
+            @RequestParam(required = false) LocalDate expiringEnd,
+            @RequestParam(required = false) LocalDate deceasedStart,
+            @RequestParam(required = false) LocalDate deceasedEnd) {
+        return ResponseEntity.ok(userStatsService.getStats(expiringStart, expiringEnd, deceasedStart, deceasedEnd));
+    }
+
     @GetMapping("/count")
     public ResponseEntity<Long> getTotalUsersCount() {
         return ResponseEntity.ok(userService.getTotalUsersCount());
     }
 
+    // ?estimate=true - приблизительное значение с погрешностью вместо точного COUNT(*), см. CountEstimateDto
+    @GetMapping(value = "/count", params = "estimate=true")
+    public ResponseEntity<CountEstimateDto> estimateTotalUsersCount() {
+        return ResponseEntity.ok(userFilterService.estimateUsersCount(UserFilterDto.builder().build()));
+    }
+
     @GetMapping("/documents/expired/count")
     public ResponseEntity<Long> getUsersWithExpiredDocumentsCount() {
         return ResponseEntity.ok(userService.getUsersWithExpiredDocumentsCount());
     }
 
+    @GetMapping(value = "/documents/expired/count", params = "estimate=true")
+    public ResponseEntity<CountEstimateDto> estimateUsersWithExpiredDocumentsCount() {
+        return ResponseEntity.ok(userFilterService.estimateUsersCount(UserFilterDto.builder()
+                .expiryTo(LocalDate.now().minusDays(1))
+                .build()));
+    }
+
     @GetMapping("/documents/expiring-between/count")
     public ResponseEntity<Long> getUsersWithDocumentsExpiringBetweenCount(
             @RequestParam LocalDate start,
@@ -175,6 +272,16 @@ public class UserController {
         return ResponseEntity.ok(userService.getUsersWithDocumentsExpiringBetweenCount(start, end));
     }
 
+    @GetMapping(value = "/documents/expiring-between/count", params = "estimate=true")
+    public ResponseEntity<CountEstimateDto> estimateUsersWithDocumentsExpiringBetweenCount(
+            @RequestParam LocalDate start,
+            @RequestParam LocalDate end) {
+        return ResponseEntity.ok(userFilterService.estimateUsersCount(UserFilterDto.builder()
+                .expiryFrom(start)
+                .expiryTo(end)
+                .build()));
+    }
+
     @GetMapping("/documents/by-type/{documentType}/count")
     public ResponseEntity<Long> getUsersByDocumentTypeCount(@PathVariable DocumentType documentType) {
         return ResponseEntity.ok(userService.getUsersByDocumentTypeCount(documentType));
@@ -194,11 +301,29 @@ public class UserController {
         return ResponseEntity.ok(userService.getUsersDeceasedBetweenCount(start, end));
     }
 
+    @GetMapping(value = "/deceased/between/count", params = "estimate=true")
+    public ResponseEntity<CountEstimateDto> estimateUsersDeceasedBetweenCount(
+            @RequestParam LocalDate start,
+            @RequestParam LocalDate end) {
+        return ResponseEntity.ok(userFilterService.estimateUsersCount(UserFilterDto.builder()
+                .deathFrom(start)
+                .deathTo(end)
+                .build()));
+    }
+
     @GetMapping("/alive/documents/expired/count")
     public ResponseEntity<Long> getAliveUsersWithExpiredDocumentsCount() {
         return ResponseEntity.ok(userService.getAliveUsersWithExpiredDocumentsCount());
     }
 
+    @GetMapping(value = "/alive/documents/expired/count", params = "estimate=true")
+    public ResponseEntity<CountEstimateDto> estimateAliveUsersWithExpiredDocumentsCount() {
+        return ResponseEntity.ok(userFilterService.estimateUsersCount(UserFilterDto.builder()
+                .alive(true)
+                .expiryTo(LocalDate.now().minusDays(1))
+                .build()));
+    }
+
     @GetMapping("/by-gender-and-age/count")
     public ResponseEntity<Long> getUsersByGenderAndAgeRangeCount(
             @RequestParam Gender gender,
@@ -207,11 +332,56 @@ public class UserController {
         return ResponseEntity.ok(userService.getUsersByGenderAndAgeRangeCount(gender, minAge, maxAge));
     }
 
+    @GetMapping(value = "/by-gender-and-age/count", params = "estimate=true")
+    public ResponseEntity<CountEstimateDto> estimateUsersByGenderAndAgeRangeCount(
+            @RequestParam Gender gender,
+            @RequestParam Integer minAge,
+            @RequestParam Integer maxAge) {
+        return ResponseEntity.ok(userFilterService.estimateUsersCount(UserFilterDto.builder()
+                .gender(gender)
+                .minAge(minAge)
+                .maxAge(maxAge)
+                .build()));
+    }
+
     @GetMapping("/by-citizenship/{citizenship}/count")
     public ResponseEntity<Long> getUsersByCitizenshipCount(@PathVariable String citizenship) {
         return ResponseEntity.ok(userService.getUsersByCitizenshipCount(citizenship));
     }
 
+    // фильтр по любой комбинации условий, например ?citizenship=Uzbekistan&alive=true&expiryTo=2026-12-31&size=25,
+    // сортировка - ?sort=EXPIRY_DATE&direction=DESC; соседние страницы - тот же запрос с ?cursor=<nextCursor|prevCursor>
+    @GetMapping("/filter")
+    public ResponseEntity<CursorPageDto<UserResponseDto>> filterUsers(
+            @Valid UserFilterDto filter,
+            @RequestParam(defaultValue = "ID") UserSortKey sort,
+            @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "25") int size) {
+        return ResponseEntity.ok(userFilterService.filterUsers(filter, sort, direction, cursor, size));
+    }
+
+    @GetMapping("/filter/count")
+    public ResponseEntity<Long> countFilteredUsers(@Valid UserFilterDto filter) {
+        return ResponseEntity.ok(userFilterService.countUsers(filter));
+    }
+
+    @GetMapping(value = "/filter/count", params = "estimate=true")
+    public ResponseEntity<CountEstimateDto> estimateFilteredUsersCount(@Valid UserFilterDto filter) {
+        return ResponseEntity.ok(userFilterService.estimateUsersCount(filter));
+    }
+
+    // подсчет по колоночному снимку в памяти (все условия фильтра, кроме name), вместе с возрастом снимка
+    @GetMapping(value = "/filter/count", params = "snapshot=true")
+    public ResponseEntity<SnapshotCountDto> countFilteredUsersFromSnapshot(@Valid UserFilterDto filter) {
+        return ResponseEntity.ok(userFilterService.countUsersFromSnapshot(filter));
+    }
+
+    @GetMapping("/snapshot")
+    public ResponseEntity<SnapshotInfoDto> getSnapshotInfo() {
+        return ResponseEntity.ok(userFilterService.getSnapshotInfo());
+    }
+
     // === KEYSET (CURSOR-BASED) ПАГИНАЦИЯ ===
     // Быстрая пагинация через afterId - всегда быстро, независимо от глубины
     // Использование: ?afterId=12345&size=25
@@ -232,6 +402,14 @@ public class UserController {
         return ResponseEntity.ok(userService.searchByNameAfter(name, afterId, size));
     }
 
+    @GetMapping("/cursor/search/prefix")
+    public ResponseEntity<Slice<UserResponseDto>> searchByNamePrefixCursor(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "0") Long afterId,
+            @RequestParam(defaultValue = "25") int size) {
+        return ResponseEntity.ok(userService.searchByNamePrefixAfter(prefix, afterId, size));
+    }
+
     @GetMapping("/cursor/alive")
     public ResponseEntity<Slice<UserResponseDto>> getAllAliveUsersCursor(
             @RequestParam(defaultValue = "0") Long afterId,
@@ -320,4 +498,104 @@ public class UserController {
             @RequestParam(defaultValue = "25") int size) {
         return ResponseEntity.ok(userService.getUsersByGenderAndAgeRangeAfter(gender, minAge, maxAge, afterId, size));
     }
+
+    // === ПОТОКОВАЯ ВЫГРУЗКА ===
+    // Весь отфильтрованный набор одним ответом: ?format=NDJSON (по умолчанию) или ?format=CSV
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportAllUsers(
+            @RequestParam(defaultValue = "NDJSON") DataFormat format) {
+        return export(format, out -> userExportService.exportAllUsers(format, out));
+    }
+
+    @GetMapping("/export/search")
+    public ResponseEntity<StreamingResponseBody> exportByName(
+            @RequestParam String name,
+            @RequestParam(defaultValue = "NDJSON") DataFormat format) {
+        return export(format, out -> userExportService.exportByName(name, format, out));
+    }
+
+    @GetMapping("/export/alive")
+    public ResponseEntity<StreamingResponseBody> exportAliveUsers(
+            @RequestParam(defaultValue = "NDJSON") DataFormat format) {
+        return export(format, out -> userExportService.exportAliveUsers(format, out));
+    }
+
+    @GetMapping("/export/deceased")
+    public ResponseEntity<StreamingResponseBody> exportDeceasedUsers(
+            @RequestParam(defaultValue = "NDJSON") DataFormat format) {
+        return export(format, out -> userExportService.exportDeceasedUsers(format, out));
+    }
+
+    @GetMapping("/export/deceased/between")
+    public ResponseEntity<StreamingResponseBody> exportUsersDeceasedBetween(
+            @RequestParam LocalDate start,
+            @RequestParam LocalDate end,
+            @RequestParam(defaultValue = "NDJSON") DataFormat format) {
+        return export(format, out -> userExportService.exportUsersDeceasedBetween(start, end, format, out));
+    }
+
+    @GetMapping("/export/documents/expired")
+    public ResponseEntity<StreamingResponseBody> exportUsersWithExpiredDocuments(
+            @RequestParam(defaultValue = "NDJSON") DataFormat format) {
+        return export(format, out -> userExportService.exportUsersWithExpiredDocuments(format, out));
+    }
+
+    @GetMapping("/export/documents/expiring-between")
+    public ResponseEntity<StreamingResponseBody> exportUsersWithDocumentsExpiringBetween(
+            @RequestParam LocalDate start,
+            @RequestParam LocalDate end,
+            @RequestParam(defaultValue = "NDJSON") DataFormat format) {
+        return export(format, out -> userExportService.exportUsersWithDocumentsExpiringBetween(start, end, format, out));
+    }
+
+    @GetMapping("/export/documents/by-type/{documentType}")
+    public ResponseEntity<StreamingResponseBody> exportUsersByDocumentType(
+            @PathVariable DocumentType documentType,
+            @RequestParam(defaultValue = "NDJSON") DataFormat format) {
+        return export(format, out -> userExportService.exportUsersByDocumentType(documentType, format, out));
+    }
+
+    @GetMapping("/export/by-gender/{gender}")
+    public ResponseEntity<StreamingResponseBody> exportUsersByGender(
+            @PathVariable Gender gender,
+            @RequestParam(defaultValue = "NDJSON") DataFormat format) {
+        return export(format, out -> userExportService.exportUsersByGender(gender, format, out));
+    }
+
+    @GetMapping("/export/by-citizenship/{citizenship}")
+    public ResponseEntity<StreamingResponseBody> exportUsersByCitizenship(
+            @PathVariable String citizenship,
+            @RequestParam(defaultValue = "NDJSON") DataFormat format) {
+        return export(format, out -> userExportService.exportUsersByCitizenship(citizenship, format, out));
+    }
+
+    @GetMapping("/export/by-age-range")
+    public ResponseEntity<StreamingResponseBody> exportUsersByAgeRange(
+            @RequestParam Integer minAge,
+            @RequestParam Integer maxAge,
+            @RequestParam(defaultValue = "NDJSON") DataFormat format) {
+        return export(format, out -> userExportService.exportUsersByAgeRange(minAge, maxAge, format, out));
+    }
+
+    @GetMapping("/export/alive/documents/expired")
+    public ResponseEntity<StreamingResponseBody> exportAliveUsersWithExpiredDocuments(
+            @RequestParam(defaultValue = "NDJSON") DataFormat format) {
+        return export(format, out -> userExportService.exportAliveUsersWithExpiredDocuments(format, out));
+    }
+
+    @GetMapping("/export/by-gender-and-age")
+    public ResponseEntity<StreamingResponseBody> exportUsersByGenderAndAgeRange(
+            @RequestParam Gender gender,
+            @RequestParam Integer minAge,
+            @RequestParam Integer maxAge,
+            @RequestParam(defaultValue = "NDJSON") DataFormat format) {
+        return export(format, out -> userExportService.exportUsersByGenderAndAgeRange(gender, minAge, maxAge, format, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(DataFormat format, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getMediaType()))
+                .body(body);
+    }
 }
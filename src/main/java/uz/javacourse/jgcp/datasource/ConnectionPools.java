@@ -0,0 +1,39 @@
+package uz.javacourse.jgcp.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+// пулы соединений узла: primary (за LazyConnectionDataSourceProxy, если включены реплики) и пулы реплик
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConnectionPools {
+
+    private final DataSource dataSource;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource;
+
+    // заменяет все соединения пулов: свободные закрываются сразу, занятые - при возврате в пул.
+    // Нужна после изменения типа столбцов: подготовленные на сервере запросы старых соединений падают
+    // с "cached plan must not change result type", новые соединения готовят их заново
+    public void softEvictConnections() {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+                if (pool != null) {
+                    pool.softEvictConnections();
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("Failed to evict primary pool connections: {}", e.getMessage());
+        }
+        replicaRoutingDataSource.ifAvailable(ReplicaRoutingDataSource::softEvictConnections);
+        log.info("Connection pools evicted");
+    }
+}
@@ -0,0 +1,69 @@
+package uz.javacourse.jgcp.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+
+// чтение своих записей при чтении с реплик: после коммита записи клиент получает LSN primary
+// в заголовке X-Read-After-Lsn и передает его в следующих запросах; такие запросы читают только
+// с реплик, применивших этот LSN
+@Slf4j
+public class ReadYourWrites {
+
+    public static final String HEADER = "X-Read-After-Lsn";
+    static final String COMMITTED_LSN_ATTRIBUTE = ReadYourWrites.class.getName() + ".committedLsn";
+
+    private final JdbcTemplate primaryJdbcTemplate;
+
+    public ReadYourWrites(DataSource primaryDataSource) {
+        this.primaryJdbcTemplate = new JdbcTemplate(primaryDataSource);
+    }
+
+    // вызывается внутри пишущей транзакции: после коммита LSN primary запоминается для ответа на текущий запрос
+    public void recordWrite() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    String lsn = primaryJdbcTemplate.queryForObject("SELECT pg_current_wal_lsn()::text", String.class);
+                    attributes.setAttribute(COMMITTED_LSN_ATTRIBUTE, lsn, RequestAttributes.SCOPE_REQUEST);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to read primary WAL position after commit: {}", e.getMessage());
+                }
+            }
+        });
+    }
+
+    // LSN из заголовка текущего запроса или -1, если его нет или он некорректный
+    static long requiredLsn() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return -1;
+        }
+        String header = attributes.getRequest().getHeader(HEADER);
+        return header == null ? -1 : parseLsn(header);
+    }
+
+    // LSN postgresql в текстовом виде - два шестнадцатеричных числа "старшие/младшие 32 бита"
+    static long parseLsn(String lsn) {
+        int slash = lsn.indexOf('/');
+        if (slash < 0) {
+            return -1;
+        }
+        try {
+            return (Long.parseLong(lsn.substring(0, slash).trim(), 16) << 32)
+                    | Long.parseLong(lsn.substring(slash + 1).trim(), 16);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
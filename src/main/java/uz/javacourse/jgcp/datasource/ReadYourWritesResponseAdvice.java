@@ -0,0 +1,37 @@
+package uz.javacourse.jgcp.datasource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+// добавляет X-Read-After-Lsn к ответу на запрос, который записал данные; заголовки можно менять
+// только до записи тела, поэтому не interceptor, а ResponseBodyAdvice
+@RestControllerAdvice
+@ConditionalOnProperty(prefix = "app.datasource.replicas", name = {"enabled", "read-your-writes"}, havingValue = "true")
+public class ReadYourWritesResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null
+                && attributes.getAttribute(ReadYourWrites.COMMITTED_LSN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST)
+                instanceof String lsn) {
+            response.getHeaders().set(ReadYourWrites.HEADER, lsn);
+        }
+        return body;
+    }
+}
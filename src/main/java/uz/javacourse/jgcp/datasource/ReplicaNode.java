@@ -0,0 +1,48 @@
+package uz.javacourse.jgcp.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+// пул соединений реплики и ее последнее известное состояние (обновляется ReplicaRoutingDataSource.checkReplicas)
+public final class ReplicaNode {
+
+    private final String name;
+    private final HikariDataSource dataSource;
+    private volatile boolean healthy;
+    private volatile double lagSeconds;
+    private volatile long replayLsn;
+
+    public ReplicaNode(String name, HikariDataSource dataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+    }
+
+    String name() {
+        return name;
+    }
+
+    HikariDataSource dataSource() {
+        return dataSource;
+    }
+
+    boolean healthy() {
+        return healthy;
+    }
+
+    double lagSeconds() {
+        return lagSeconds;
+    }
+
+    long replayLsn() {
+        return replayLsn;
+    }
+
+    void update(boolean healthy, double lagSeconds, long replayLsn) {
+        this.healthy = healthy;
+        this.lagSeconds = lagSeconds;
+        this.replayLsn = replayLsn;
+    }
+
+    void markDown() {
+        this.healthy = false;
+    }
+}
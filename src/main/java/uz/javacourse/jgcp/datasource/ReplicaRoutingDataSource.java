@@ -0,0 +1,141 @@
+package uz.javacourse.jgcp.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// источник соединений для read-only транзакций (LazyConnectionDataSourceProxy.setReadOnlyDataSource):
+// реплики по кругу среди здоровых и не отстающих больше maxLag, иначе - primary
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements DisposableBean {
+
+    // отставание считается по времени последней примененной транзакции, но только пока реплика
+    // не догнала полученный WAL: на простаивающем primary pg_last_xact_replay_timestamp не меняется.
+    // Узел не в recovery (например, в dev "реплика" указывает на сам primary) считается без отставания
+    private static final String REPLICA_STATE = """
+            SELECT pg_is_in_recovery() AS in_recovery,
+                   CASE WHEN NOT pg_is_in_recovery()
+                          OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                        ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+                   END AS lag_seconds,
+                   COALESCE(pg_last_wal_replay_lsn(), pg_current_wal_lsn())::text AS replay_lsn
+            """;
+
+    private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 2;
+
+    private final DataSource primary;
+    private final List<ReplicaNode> replicas;
+    private final double maxLagSeconds;
+    private final boolean readYourWrites;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter routedToReplica;
+    private final Counter fallbackToPrimary;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<ReplicaNode> replicas, Duration maxLag,
+                                    boolean readYourWrites, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        this.readYourWrites = readYourWrites;
+        this.routedToReplica = meterRegistry.counter("db.replica.routed", "target", "replica");
+        this.fallbackToPrimary = meterRegistry.counter("db.replica.routed", "target", "primary");
+        for (ReplicaNode replica : this.replicas) {
+            Gauge.builder("db.replica.lag", replica, ReplicaNode::lagSeconds)
+                    .tag("replica", replica.name())
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+            Gauge.builder("db.replica.healthy", replica, r -> r.healthy() ? 1 : 0)
+                    .tag("replica", replica.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long requiredLsn = readYourWrites ? ReadYourWrites.requiredLsn() : -1;
+        for (ReplicaNode replica : candidates(requiredLsn)) {
+            try {
+                Connection connection = replica.dataSource().getConnection();
+                routedToReplica.increment();
+                return connection;
+            } catch (SQLException e) {
+                // до следующей проверки реплика не используется
+                replica.markDown();
+                log.warn("Replica {} is unavailable, falling back: {}", replica.name(), e.getMessage());
+            }
+        }
+        fallbackToPrimary.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("Replica routing uses the credentials of each configured pool");
+    }
+
+    // подходящие реплики, начиная со следующей по кругу
+    private List<ReplicaNode> candidates(long requiredLsn) {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        List<ReplicaNode> candidates = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ReplicaNode replica = replicas.get((start + i) % size);
+            if (replica.healthy() && replica.lagSeconds() <= maxLagSeconds && replica.replayLsn() >= requiredLsn) {
+                candidates.add(replica);
+            }
+        }
+        return candidates;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replicas.health-check-interval}")
+    public void checkReplicas() {
+        for (ReplicaNode replica : replicas) {
+            boolean wasHealthy = replica.healthy();
+            try (Connection connection = replica.dataSource().getConnection();
+                 PreparedStatement ps = connection.prepareStatement(REPLICA_STATE)) {
+                ps.setQueryTimeout(HEALTH_CHECK_TIMEOUT_SECONDS);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    replica.update(true, rs.getDouble("lag_seconds"), ReadYourWrites.parseLsn(rs.getString("replay_lsn")));
+                }
+            } catch (SQLException e) {
+                replica.markDown();
+                if (wasHealthy) {
+                    log.warn("Replica {} failed health check: {}", replica.name(), e.getMessage());
+                }
+                continue;
+            }
+            if (!wasHealthy) {
+                log.info("Replica {} is healthy, lag {} s", replica.name(), replica.lagSeconds());
+            }
+        }
+    }
+
+    // см. ConnectionPools.softEvictConnections
+    public void softEvictConnections() {
+        for (ReplicaNode replica : replicas) {
+            if (replica.dataSource().getHikariPoolMXBean() != null) {
+                replica.dataSource().getHikariPoolMXBean().softEvictConnections();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        replicas.forEach(replica -> replica.dataSource().close());
+    }
+}
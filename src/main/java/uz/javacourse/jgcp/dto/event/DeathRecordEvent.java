@@ -0,0 +1,21 @@
+package uz.javacourse.jgcp.dto.event;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PastOrPresent;
+import jakarta.validation.constraints.Pattern;
+import lombok.Builder;
+
+import java.time.LocalDate;
+
+// сообщение топика death.records от органов ЗАГС, ключ сообщения - pinfl
+@Builder
+public record DeathRecordEvent(
+        @NotNull(message = "PINFL is required")
+        @Pattern(regexp = "^[0-9]{14}$", message = "PINFL must be exactly 14 digits")
+        String pinfl,
+
+        @NotNull(message = "Death date is required")
+        @PastOrPresent(message = "Death date must be in the past or present")
+        LocalDate deathDate
+) {
+}
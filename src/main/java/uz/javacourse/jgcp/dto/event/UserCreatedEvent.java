@@ -0,0 +1,18 @@
+package uz.javacourse.jgcp.dto.event;
+
+import lombok.Builder;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+
+import java.time.Instant;
+
+// сообщение топика user.created, ключ сообщения - pinfl
+@Builder
+public record UserCreatedEvent(
+        // уникальный идентификатор события, по нему потребители отбрасывают повторы
+        String eventId,
+        // время фиксации изменения в базе данных
+        Instant occurredAt,
+        // созданный пользователь
+        UserResponseDto user
+) {
+}
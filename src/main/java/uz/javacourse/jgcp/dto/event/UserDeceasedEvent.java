@@ -0,0 +1,22 @@
+package uz.javacourse.jgcp.dto.event;
+
+import lombok.Builder;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+// сообщение топика user.deceased, ключ сообщения - pinfl
+@Builder
+public record UserDeceasedEvent(
+        // уникальный идентификатор события, по нему потребители отбрасывают повторы
+        String eventId,
+        // время фиксации изменения в базе данных
+        Instant occurredAt,
+        // идентификатор пользователя
+        Long userId,
+        // персональный идентификационный номер
+        String pinfl,
+        // дата смерти
+        LocalDate deathDate
+) {
+}
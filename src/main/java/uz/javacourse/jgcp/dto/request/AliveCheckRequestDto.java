@@ -0,0 +1,17 @@
+package uz.javacourse.jgcp.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record AliveCheckRequestDto(
+        // персональные идентификационные номера (14 цифр)
+        @NotEmpty(message = "PINFLs are required")
+        List<@NotNull(message = "PINFL must not be null")
+             @Pattern(regexp = "^[0-9]{14}$", message = "PINFL must be exactly 14 digits") String> pinfls
+) {
+}
@@ -0,0 +1,16 @@
+package uz.javacourse.jgcp.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record BulkMarkDeceasedRequestDto(
+        // записи реестра смертей
+        @NotEmpty(message = "Records must not be empty")
+        List<@NotNull(message = "Record must not be null") @Valid DeathRecordItemDto> records
+) {
+}
@@ -0,0 +1,22 @@
+package uz.javacourse.jgcp.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PastOrPresent;
+import jakarta.validation.constraints.Pattern;
+import lombok.Builder;
+
+import java.time.LocalDate;
+
+@Builder
+public record DeathRecordItemDto(
+        // идентификатор пользователя; задается либо id, либо pinfl
+        Long id,
+        // персональный идентификационный номер (14 цифр)
+        @Pattern(regexp = "^[0-9]{14}$", message = "PINFL must be exactly 14 digits")
+        String pinfl,
+        // дата смерти пользователя
+        @NotNull(message = "Death date is required")
+        @PastOrPresent(message = "Death date must be in the past or present")
+        LocalDate deathDate
+) {
+}
@@ -0,0 +1,17 @@
+package uz.javacourse.jgcp.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record UserBatchLookupRequestDto(
+        // идентификаторы пользователей; задается либо ids, либо pinfls
+        List<@NotNull(message = "Id must not be null") Long> ids,
+        // персональные идентификационные номера (14 цифр)
+        List<@NotNull(message = "PINFL must not be null")
+             @Pattern(regexp = "^[0-9]{14}$", message = "PINFL must be exactly 14 digits") String> pinfls
+) {
+}
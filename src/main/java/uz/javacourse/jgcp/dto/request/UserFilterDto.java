@@ -0,0 +1,45 @@
+package uz.javacourse.jgcp.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+
+import java.time.LocalDate;
+
+// условия фильтра пользователей; незаданные (null) поля не участвуют, заданные объединяются через AND
+@Builder
+public record UserFilterDto(
+        Gender gender,
+
+        @Min(value = 0, message = "Minimum age must be at least 0")
+        @Max(value = 150, message = "Minimum age must not exceed 150")
+        Integer minAge,
+
+        @Min(value = 0, message = "Maximum age must be at least 0")
+        @Max(value = 150, message = "Maximum age must not exceed 150")
+        Integer maxAge,
+
+        @Size(min = 2, max = 100, message = "Citizenship must be between 2 and 100 characters")
+        String citizenship,
+
+        DocumentType documentType,
+
+        // окно срока действия документа, границы включительно
+        LocalDate expiryFrom,
+        LocalDate expiryTo,
+
+        // окно даты смерти, границы включительно
+        LocalDate deathFrom,
+        LocalDate deathTo,
+
+        // true - только живые, false - только умершие
+        Boolean alive,
+
+        // часть имени без учета регистра
+        @Size(min = 3, max = 100, message = "Name must be between 3 and 100 characters")
+        String name
+) {
+}
@@ -0,0 +1,13 @@
+package uz.javacourse.jgcp.dto.response;
+
+import lombok.Builder;
+import uz.javacourse.jgcp.constant.enums.AliveStatus;
+
+@Builder
+public record AliveCheckResultDto(
+        // персональный идентификационный номер из запроса
+        String pinfl,
+        // статус пользователя; NOT_FOUND, если пользователя с таким pinfl нет
+        AliveStatus status
+) {
+}
@@ -0,0 +1,20 @@
+package uz.javacourse.jgcp.dto.response;
+
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record BulkMarkDeceasedResponseDto(
+        // результаты в порядке записей запроса
+        List<DeathRecordResultDto> results,
+        // количество записей по каждому результату
+        int updated,
+        int alreadyDeceased,
+        int notFound,
+        // повторы id или pinfl, учтенные в первой записи того же ключа
+        int duplicate,
+        // записи из пачек, транзакция которых откатилась; их можно отправить повторно
+        int failed
+) {
+}
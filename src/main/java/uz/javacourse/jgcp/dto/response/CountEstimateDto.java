@@ -0,0 +1,16 @@
+package uz.javacourse.jgcp.dto.response;
+
+import lombok.Builder;
+import uz.javacourse.jgcp.constant.enums.CountMethod;
+
+@Builder
+public record CountEstimateDto(
+        // количество строк (точное или оценка)
+        long count,
+        // как получено значение
+        CountMethod method,
+        // погрешность: истинное значение лежит в count ± errorBound (для SAMPLE - с вероятностью ~95%),
+        // null - если погрешность оценить нельзя (PLANNER)
+        Long errorBound
+) {
+}
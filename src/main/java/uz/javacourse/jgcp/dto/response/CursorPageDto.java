@@ -0,0 +1,18 @@
+package uz.javacourse.jgcp.dto.response;
+
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record CursorPageDto<T>(
+        // элементы страницы
+        List<T> content,
+        // курсор для следующей страницы (null если страниц больше нет)
+        String nextCursor,
+        // есть ли следующая страница
+        boolean hasNext,
+        // курсор для предыдущей страницы (только там, где поддерживается обратное направление)
+        String prevCursor
+) {
+}
@@ -0,0 +1,18 @@
+package uz.javacourse.jgcp.dto.response;
+
+import lombok.Builder;
+import uz.javacourse.jgcp.constant.enums.DeathRegistrationOutcome;
+
+import java.time.LocalDate;
+
+@Builder
+public record DeathRecordResultDto(
+        // ключ записи из запроса: id или pinfl
+        Long id,
+        String pinfl,
+        // дата, примененная для ключа: самая ранняя среди его повторов в запросе
+        LocalDate deathDate,
+        // результат обработки записи
+        DeathRegistrationOutcome outcome
+) {
+}
@@ -0,0 +1,14 @@
+package uz.javacourse.jgcp.dto.response;
+
+import lombok.Builder;
+
+@Builder
+public record ImportRejectionDto(
+        // номер строки во входном файле (начиная с 1)
+        long line,
+        // pinfl из строки, если его удалось прочитать
+        String pinfl,
+        // причина отклонения
+        String reason
+) {
+}
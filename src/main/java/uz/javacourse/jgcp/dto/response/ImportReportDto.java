@@ -0,0 +1,24 @@
+package uz.javacourse.jgcp.dto.response;
+
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record ImportReportDto(
+        // всего прочитано строк с данными
+        long totalRows,
+        // успешно записано в базу данных
+        long importedRows,
+        // отклонено (ошибки формата, валидации или конфликты уникальности)
+        long rejectedRows,
+        // детали отклоненных строк (не больше app.import.max-rejections)
+        List<ImportRejectionDto> rejections,
+        // true если список rejections обрезан
+        boolean rejectionsTruncated,
+        // время импорта в миллисекундах
+        long elapsedMillis,
+        // средняя скорость записи
+        long rowsPerSecond
+) {
+}
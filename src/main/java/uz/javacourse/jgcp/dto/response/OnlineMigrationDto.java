@@ -0,0 +1,34 @@
+package uz.javacourse.jgcp.dto.response;
+
+import lombok.Builder;
+import uz.javacourse.jgcp.constant.enums.OnlineMigrationStatus;
+
+import java.time.Instant;
+
+@Builder
+public record OnlineMigrationDto(
+        // имя миграции
+        String name,
+        // текущее состояние
+        OnlineMigrationStatus status,
+        // последний обработанный ключ; заполнение продолжится с него
+        long lastKey,
+        // граница заполнения, null до первого запуска
+        Long maxKey,
+        // строк изменено заполнением
+        long rowsMigrated,
+        // доля заполненного диапазона ключей в процентах
+        double progressPercent,
+        // выполнено завершающих шагов из finalizeSteps
+        int finalizeStep,
+        int finalizeSteps,
+        // узел, который сейчас выполняет миграцию
+        String owner,
+        // последняя отметка владельца
+        Instant heartbeatAt,
+        Instant startedAt,
+        Instant finishedAt,
+        // причина последней ошибки
+        String error
+) {
+}
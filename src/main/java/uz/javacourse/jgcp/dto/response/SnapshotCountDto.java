@@ -0,0 +1,18 @@
+package uz.javacourse.jgcp.dto.response;
+
+import lombok.Builder;
+
+import java.time.Instant;
+
+@Builder
+public record SnapshotCountDto(
+        // число пользователей по снимку в памяти
+        long count,
+        // время последнего полного перестроения снимка из базы
+        Instant snapshotBuiltAt,
+        // время последнего примененного изменения
+        Instant snapshotUpdatedAt,
+        // сколько миллисекунд прошло с последнего полного перестроения
+        long snapshotAgeMillis
+) {
+}
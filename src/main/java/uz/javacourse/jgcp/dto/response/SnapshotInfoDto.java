@@ -0,0 +1,24 @@
+package uz.javacourse.jgcp.dto.response;
+
+import lombok.Builder;
+
+import java.time.Instant;
+
+@Builder
+public record SnapshotInfoDto(
+        // построен ли снимок; до первого построения подсчет по снимку недоступен
+        boolean ready,
+        // число строк в снимке
+        long rows,
+        // время последнего полного перестроения из базы
+        Instant builtAt,
+        // время последнего примененного изменения
+        Instant updatedAt,
+        // сколько миллисекунд прошло с последнего полного перестроения, -1 если снимок еще не построен
+        long ageMillis,
+        // длительность последнего перестроения
+        long buildMillis,
+        // память под колонки и таблицу id -> строка
+        long sizeInBytes
+) {
+}
@@ -0,0 +1,16 @@
+package uz.javacourse.jgcp.dto.response;
+
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record UserBatchLookupResponseDto(
+        // результаты в порядке ключей запроса, повторяющиеся ключи повторяются
+        List<UserLookupResultDto> results,
+        // сколько ключей найдено
+        int found,
+        // сколько ключей не найдено
+        int notFound
+) {
+}
@@ -0,0 +1,14 @@
+package uz.javacourse.jgcp.dto.response;
+
+import lombok.Builder;
+
+@Builder
+public record UserLookupResultDto(
+        // ключ из запроса (id или pinfl) в том виде, в котором он был передан
+        String key,
+        // найден ли пользователь
+        boolean found,
+        // пользователь (null если не найден)
+        UserResponseDto user
+) {
+}
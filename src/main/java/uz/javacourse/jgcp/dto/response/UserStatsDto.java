@@ -0,0 +1,37 @@
+package uz.javacourse.jgcp.dto.response;
+
+import lombok.Builder;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Builder
+public record UserStatsDto(
+        // всего пользователей
+        long total,
+        // живые
+        long alive,
+        // умершие
+        long deceased,
+        // пользователи с истекшими документами
+        long expiredDocuments,
+        // живые пользователи с истекшими документами
+        long aliveWithExpiredDocuments,
+        // документы истекают в запрошенном периоде (null если период не задан)
+        Long documentsExpiringBetween,
+        // умерли в запрошенном периоде (null если период не задан)
+        Long deceasedBetween,
+        // количество по полу
+        Map<Gender, Long> byGender,
+        // количество по типу документа
+        Map<DocumentType, Long> byDocumentType,
+        // количество по гражданству
+        Map<String, Long> byCitizenship,
+        // количество по возрастным корзинам по 10 лет, ключ вида "20-29"
+        Map<String, Long> byAgeBucket,
+        // когда результат был посчитан
+        LocalDateTime calculatedAt
+) {
+}
@@ -0,0 +1,33 @@
+package uz.javacourse.jgcp.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import lombok.RequiredArgsConstructor;
+import uz.javacourse.jgcp.cache.CitizenshipDictionary;
+
+// User.citizenship остается строкой в сущности, запросах и dto, а в базе хранится ключ справочника.
+// Hibernate применяет конвертер и к параметрам сравнения (u.citizenship = :citizenship); для неизвестного
+// имени подставляется несуществующий ключ, и запрос ничего не находит. Экземпляр создает spring
+// (SpringBeanContainer), поэтому зависимости внедряются через конструктор
+@Converter
+@RequiredArgsConstructor
+public class CitizenshipConverter implements AttributeConverter<String, Short> {
+
+    private static final short UNKNOWN = -1;
+
+    private final CitizenshipDictionary citizenshipDictionary;
+
+    @Override
+    public Short convertToDatabaseColumn(String citizenship) {
+        if (citizenship == null) {
+            return null;
+        }
+        Short id = citizenshipDictionary.findId(citizenship);
+        return id == null ? UNKNOWN : id;
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short id) {
+        return id == null ? null : citizenshipDictionary.nameOf(id);
+    }
+}
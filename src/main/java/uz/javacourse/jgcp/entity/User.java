@@ -2,6 +2,8 @@ package uz.javacourse.jgcp.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import uz.javacourse.jgcp.constant.enums.DocumentType;
 import uz.javacourse.jgcp.constant.enums.Gender;
 
@@ -49,13 +51,15 @@ public class User {
     @Column(nullable = false)
     private Integer age;
 
-    // пол (мужской/женский)
+    // пол (мужской/женский); enum postgresql, значение передается без типа и подходит и для строкового столбца
     @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.NAMED_ENUM)
     @Column(nullable = false)
     private Gender gender;
 
-    // тип документа (паспорт, id-карта и др.)
+    // тип документа (паспорт, id-карта и др.); enum postgresql, как и пол
     @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.NAMED_ENUM)
     @Column(nullable = false)
     private DocumentType documentType;
 
@@ -67,8 +71,9 @@ public class User {
     @Column(nullable = false)
     private LocalDate expiryDate;
 
-    // гражданство
-    @Column(nullable = false)
+    // гражданство; в таблице хранится ключ справочника citizenships
+    @Column(name = "citizenship_id", nullable = false)
+    @Convert(converter = CitizenshipConverter.class)
     private String citizenship;
 
     // дата смерти (если применимо)
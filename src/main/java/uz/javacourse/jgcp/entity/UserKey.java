@@ -0,0 +1,35 @@
+package uz.javacourse.jgcp.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+// глобально уникальные ключи пользователя рядом с секционированной users (V14); таблицу ведет триггер,
+// приложение только читает ее, чтобы по id найти pinfl - ключ секционирования
+@Entity
+@Immutable
+@Table(name = "user_keys")
+@Getter
+@NoArgsConstructor
+public class UserKey {
+
+    // идентификатор пользователя
+    @Id
+    private Long id;
+
+    // персональный идентификационный номер
+    @Column(nullable = false, length = 14)
+    private String pinfl;
+
+    // электронная почта
+    @Column(nullable = false)
+    private String email;
+
+    // номер телефона
+    @Column(nullable = false)
+    private String phoneNumber;
+}
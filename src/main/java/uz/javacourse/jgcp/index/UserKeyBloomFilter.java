@@ -0,0 +1,77 @@
+package uz.javacourse.jgcp.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import uz.javacourse.jgcp.config.UniquenessProperties;
+import uz.javacourse.jgcp.repository.UserJdbcRepository;
+import uz.javacourse.jgcp.util.BloomFilter;
+
+// bloom-фильтры занятых pinfl, email и телефонов; заполняются из базы после старта и пополняются
+// при каждой регистрации на этом узле. Пока фильтры не готовы, mightBeTaken всегда возвращает true.
+// Регистрации на других узлах сюда не попадают, поэтому окончательную гарантию дают
+// уникальные ограничения в базе данных, а фильтр только экономит запросы для новых значений
+@Slf4j
+@Component
+public class UserKeyBloomFilter {
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final UniquenessProperties.Bloom properties;
+    private final BloomFilter pinfls;
+    private final BloomFilter emails;
+    private final BloomFilter phoneNumbers;
+    private volatile boolean ready;
+
+    public UserKeyBloomFilter(UserJdbcRepository userJdbcRepository,
+                              TransactionTemplate transactionTemplate,
+                              UniquenessProperties uniquenessProperties) {
+        this.userJdbcRepository = userJdbcRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = uniquenessProperties.bloom();
+        // выключенный фильтр никогда не становится готовым, поэтому память под него не выделяем
+        long capacity = properties.enabled() ? properties.expectedInsertions() : 1;
+        this.pinfls = new BloomFilter(capacity, properties.falsePositiveProbability());
+        this.emails = new BloomFilter(capacity, properties.falsePositiveProbability());
+        this.phoneNumbers = new BloomFilter(capacity, properties.falsePositiveProbability());
+    }
+
+    // true если хотя бы одно значение может быть занято и нужна проверка в базе данных
+    public boolean mightBeTaken(String pinfl, String email, String phoneNumber) {
+        return !ready
+                || pinfls.mightContain(pinfl)
+                || emails.mightContain(email)
+                || phoneNumbers.mightContain(phoneNumber);
+    }
+
+    public void put(String pinfl, String email, String phoneNumber) {
+        pinfls.put(pinfl);
+        emails.put(email);
+        phoneNumbers.put(phoneNumber);
+    }
+
+    // заполнение идет в отдельном потоке, чтобы не задерживать старт приложения
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!properties.enabled()) {
+            return;
+        }
+        Thread.ofVirtual().name("user-key-bloom-warmup").start(() -> {
+            long startedAt = System.currentTimeMillis();
+            try {
+                long[] rows = {0};
+                transactionTemplate.executeWithoutResult(status -> userJdbcRepository.streamUniqueKeys(rs -> {
+                    put(rs.getString("pinfl"), rs.getString("email"), rs.getString("phone_number"));
+                    rows[0]++;
+                }));
+                ready = true;
+                log.info("User key bloom filters warmed up: {} users, {} KB each, took {} ms",
+                        rows[0], pinfls.sizeInBytes() / 1024, System.currentTimeMillis() - startedAt);
+            } catch (RuntimeException e) {
+                log.error("Failed to warm up user key bloom filters, uniqueness is checked in the database", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,219 @@
+package uz.javacourse.jgcp.index;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import uz.javacourse.jgcp.config.StatusIndexProperties;
+import uz.javacourse.jgcp.constant.enums.AliveStatus;
+import uz.javacourse.jgcp.repository.UserJdbcRepository;
+import uz.javacourse.jgcp.util.LongIntHashMap;
+import uz.javacourse.jgcp.util.TransactionHooks;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+// статус жизни пользователей в памяти узла: битовые карты известных и умерших id (roaring) и таблица
+// pinfl -> id на примитивных массивах. Заполняется потоковым чтением таблицы после старта, затем
+// пополняется после коммита записей на этом узле и событиями kafka с других узлов.
+// Все изменения только добавляют (пользователи не удаляются, смерть не отменяется), поэтому порядок
+// применения заполнения и событий не важен. Пока индекс не готов, а также для неизвестных ему id и pinfl
+// (например, только что созданных на другом узле) ответ берется из базы данных.
+//
+// DECEASED из индекса окончателен. ALIVE может быть устаревшим: смерть, отмеченная на другом узле, видна здесь
+// только после события kafka (UserChangeListener), то есть с задержкой relay и доставки, а при недоступном
+// kafka - до его восстановления. Где это недопустимо, app.status-index.trust-alive=false: индекс отвечает
+// только DECEASED, ALIVE перепроверяется в базе данных.
+//
+// Память: битовая карта известных id при плотных id BIGSERIAL сжимается в run-контейнеры - килобайты;
+// умершие (~3% id) - около 2 байт на умершего. Основной объем - таблица pinfl -> id: 12 байт на слот
+// при заполнении 0.75, то есть ~16 байт на человека:
+//   3 млн человек  - около 48 MB,
+//   30 млн человек - около 480 MB (и вдвое больше на время перестроения, если expected-users занижен).
+// id от 2^32 - 1 и выше в индекс не попадают и всегда проверяются в базе данных
+@Slf4j
+@Component
+public class UserStatusIndex {
+
+    // id хранятся как беззнаковый int; 2^32 - 1 занят под признак отсутствия в таблице pinfl -> id
+    private static final long MAX_INDEXED_ID = 0xFFFF_FFFEL;
+    private static final int NOT_FOUND = -1;
+    // строки заполнения применяются под блокировкой пачками, чтобы не блокировать чтения надолго
+    private static final int WARM_UP_BATCH = 10_000;
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final StatusIndexProperties properties;
+    private final RoaringBitmap known = new RoaringBitmap();
+    private final RoaringBitmap deceased = new RoaringBitmap();
+    private final LongIntHashMap idsByPinfl;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    public UserStatusIndex(UserJdbcRepository userJdbcRepository,
+                           TransactionTemplate transactionTemplate,
+                           StatusIndexProperties statusIndexProperties,
+                           MeterRegistry meterRegistry) {
+        this.userJdbcRepository = userJdbcRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = statusIndexProperties;
+        // выключенный индекс никогда не становится готовым, поэтому память под него не выделяем
+        this.idsByPinfl = new LongIntHashMap(properties.enabled() ? properties.expectedUsers() : 0);
+
+        Gauge.builder("users.status-index.users", this, index -> index.read(index.idsByPinfl::size))
+                .register(meterRegistry);
+        Gauge.builder("users.status-index.size", this, UserStatusIndex::sizeInBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    // статус по id или null, если индекс не готов, пользователь ему неизвестен или ALIVE не считается надежным
+    public AliveStatus statusById(long id) {
+        if (!ready || id < 0 || id > MAX_INDEXED_ID) {
+            return null;
+        }
+        int key = (int) id;
+        return read(() -> known.contains(key) ? status(deceased.contains(key)) : null);
+    }
+
+    public AliveStatus statusByPinfl(String pinfl) {
+        if (!ready) {
+            return null;
+        }
+        long key = pinflKey(pinfl);
+        if (key < 0) {
+            return null;
+        }
+        return read(() -> {
+            int id = idsByPinfl.get(key, NOT_FOUND);
+            if (id == NOT_FOUND) {
+                return null;
+            }
+            return status(deceased.contains(id));
+        });
+    }
+
+    private AliveStatus status(boolean isDeceased) {
+        if (isDeceased) {
+            return AliveStatus.DECEASED;
+        }
+        return properties.trustAlive() ? AliveStatus.ALIVE : null;
+    }
+
+    // внутри транзакции изменение применяется только после коммита: откатить добавление индекс не умеет
+    public void recordCreated(long id, String pinfl, boolean isDeceased) {
+        if (!properties.enabled()) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> write(() -> add(id, pinfl, isDeceased)));
+    }
+
+    public void recordDeceased(long id, String pinfl) {
+        if (!properties.enabled()) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> write(() -> add(id, pinfl, true)));
+    }
+
+    // заполнение идет в отдельном потоке, чтобы не задерживать старт приложения
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!properties.enabled()) {
+            return;
+        }
+        Thread.ofVirtual().name("user-status-index-warmup").start(() -> {
+            long startedAt = System.currentTimeMillis();
+            try {
+                long[] ids = new long[WARM_UP_BATCH];
+                String[] pinfls = new String[WARM_UP_BATCH];
+                boolean[] deaths = new boolean[WARM_UP_BATCH];
+                int[] buffered = {0};
+                transactionTemplate.executeWithoutResult(status -> userJdbcRepository.streamStatuses(rs -> {
+                    int i = buffered[0]++;
+                    ids[i] = rs.getLong("id");
+                    pinfls[i] = rs.getString("pinfl");
+                    deaths[i] = rs.getBoolean("deceased");
+                    if (buffered[0] == WARM_UP_BATCH) {
+                        applyBatch(ids, pinfls, deaths, buffered[0]);
+                        buffered[0] = 0;
+                    }
+                }));
+                applyBatch(ids, pinfls, deaths, buffered[0]);
+                write(() -> {
+                    known.runOptimize();
+                    deceased.runOptimize();
+                });
+                ready = true;
+                log.info("User status index warmed up: {} users, {} KB, took {} ms",
+                        read(idsByPinfl::size), sizeInBytes() / 1024, System.currentTimeMillis() - startedAt);
+            } catch (RuntimeException e) {
+                log.error("Failed to warm up user status index, alive checks go to the database", e);
+            }
+        });
+    }
+
+    private void applyBatch(long[] ids, String[] pinfls, boolean[] deaths, int count) {
+        write(() -> {
+            for (int i = 0; i < count; i++) {
+                add(ids[i], pinfls[i], deaths[i]);
+            }
+        });
+    }
+
+    // вызывается под блокировкой записи
+    private void add(long id, String pinfl, boolean isDeceased) {
+        long pinflKey = pinflKey(pinfl);
+        if (id < 0 || id > MAX_INDEXED_ID || pinflKey < 0) {
+            return;
+        }
+        int key = (int) id;
+        known.add(key);
+        if (isDeceased) {
+            deceased.add(key);
+        }
+        idsByPinfl.put(pinflKey, key);
+    }
+
+    private long sizeInBytes() {
+        return read(() -> known.getSizeInBytes() + deceased.getSizeInBytes() + idsByPinfl.sizeInBytes());
+    }
+
+    private <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // pinfl - 14 цифр, помещается в long; -1 для некорректного значения
+    private static long pinflKey(String pinfl) {
+        if (pinfl == null || pinfl.length() != 14) {
+            return -1;
+        }
+        long key = 0;
+        for (int i = 0; i < pinfl.length(); i++) {
+            char c = pinfl.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            key = key * 10 + (c - '0');
+        }
+        return key;
+    }
+}
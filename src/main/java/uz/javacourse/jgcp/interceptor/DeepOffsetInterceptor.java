@@ -0,0 +1,56 @@
+package uz.javacourse.jgcp.interceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import uz.javacourse.jgcp.exception.BusinessException;
+
+import java.util.Arrays;
+
+// offset-пагинация читает и отбрасывает page * size строк, поэтому глубокие страницы стоят линейно
+// от глубины. Запросы к эндпоинтам с Pageable глубже maxOffset отклоняются до обращения к базе
+public class DeepOffsetInterceptor implements HandlerInterceptor {
+
+    private final long maxOffset;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public DeepOffsetInterceptor(long maxOffset, int defaultPageSize, int maxPageSize) {
+        this.maxOffset = maxOffset;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod method) || !acceptsPageable(method)) {
+            return true;
+        }
+        long page = parse(request.getParameter("page"), 0);
+        long size = Math.min(parse(request.getParameter("size"), defaultPageSize), maxPageSize);
+        if (page * size > maxOffset) {
+            throw new BusinessException("Offset " + page * size + " exceeds the limit of " + maxOffset
+                    + "; use /api/gcp/users/filter with cursor pagination for deep pages");
+        }
+        return true;
+    }
+
+    private static boolean acceptsPageable(HandlerMethod method) {
+        return Arrays.stream(method.getMethodParameters())
+                .anyMatch(parameter -> Pageable.class.isAssignableFrom(parameter.getParameterType()));
+    }
+
+    // некорректные значения оставляются резолверу Pageable, он заменит их значениями по умолчанию
+    private static long parse(String value, long fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Math.max(Long.parseLong(value), 0);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package uz.javacourse.jgcp.job;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import uz.javacourse.jgcp.service.OnlineMigrationService;
+import uz.javacourse.jgcp.service.UserCounterService;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserCounterReconciliationJob {
+
+    private final UserCounterService userCounterService;
+    private final OnlineMigrationService onlineMigrationService;
+
+    // периодически исправляет расхождения счетчиков (ручные правки в базе, откаты после сбоев). Сверка
+    // группирует по citizenship_id, поэтому до заполнения старых строк (users-citizenship-id) она бы испортила
+    // счетчики гражданства
+    @Scheduled(cron = "${app.counters.reconcile-cron}")
+    public void reconcile() {
+        if (!onlineMigrationService.requiredMigrationsDone()) {
+            log.info("User counters reconciliation skipped: required online migrations are not done");
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        int drifted = userCounterService.reconcile();
+        if (drifted > 0) {
+            log.warn("User counters reconciled: {} counters drifted, took {} ms",
+                    drifted, System.currentTimeMillis() - startedAt);
+        } else {
+            log.info("User counters reconciled without drift, took {} ms", System.currentTimeMillis() - startedAt);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package uz.javacourse.jgcp.job;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import uz.javacourse.jgcp.config.OutboxProperties;
+import uz.javacourse.jgcp.repository.UserOutboxRepository;
+import uz.javacourse.jgcp.repository.UserOutboxRepository.OutboxMessage;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+// переносит события из user_outbox в kafka: короткая транзакция забирает пачку, пачка отправляется целиком
+// вне транзакции, и только после подтверждения всех сообщений удаляется второй короткой транзакцией.
+// Ожидание kafka не держит ни соединение, ни блокировку. При сбое пачка возвращается в очередь и
+// отправляется повторно (at-least-once, потребители отбрасывают повторы по eventId)
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.outbox.relay-enabled", havingValue = "true")
+public class UserOutboxRelay {
+
+    private final UserOutboxRepository userOutboxRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxProperties outboxProperties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> published = new ConcurrentHashMap<>();
+    private final Counter failures;
+    private final Timer batchTimer;
+    private final AtomicReference<Instant> oldestPending = new AtomicReference<>();
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    public UserOutboxRelay(UserOutboxRepository userOutboxRepository,
+                           KafkaTemplate<String, String> kafkaTemplate,
+                           TransactionTemplate transactionTemplate,
+                           OutboxProperties outboxProperties,
+                           MeterRegistry meterRegistry) {
+        this.userOutboxRepository = userOutboxRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.outboxProperties = outboxProperties;
+        this.meterRegistry = meterRegistry;
+        this.failures = meterRegistry.counter("users.outbox.failures");
+        this.batchTimer = meterRegistry.timer("users.outbox.batch");
+
+        // возраст самого старого неопубликованного события; растет и тогда, когда публикация остановилась
+        Gauge.builder("users.outbox.lag", oldestPending, oldest -> {
+                    Instant value = oldest.get();
+                    return value == null ? 0 : Duration.between(value, Instant.now()).toMillis() / 1000.0;
+                })
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    // опустошает outbox пачками, затем ждет poll-interval
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval}")
+    public void relay() {
+        try {
+            int batchSize;
+            do {
+                batchSize = batchTimer.record(this::publishBatch);
+            } while (batchSize == outboxProperties.batchSize());
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.error("Failed to publish user outbox batch, it will be retried", e);
+        }
+        oldestPending.set(userOutboxRepository.oldestCreatedAt());
+    }
+
+    private int publishBatch() {
+        List<OutboxMessage> batch = transactionTemplate.execute(status -> userOutboxRepository.tryLockRelay()
+                ? userOutboxRepository.claimBatch(owner, outboxProperties.claimTimeout(), outboxProperties.batchSize())
+                : List.of());
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = batch.stream().map(OutboxMessage::id).toList();
+
+        // все сообщения отправляются сразу, producer сам собирает их в пакеты (linger.ms, batch.size)
+        try {
+            List<CompletableFuture<SendResult<String, String>>> sends = new ArrayList<>(batch.size());
+            for (OutboxMessage message : batch) {
+                sends.add(kafkaTemplate.send(message.topic(), message.key(), message.payload()));
+            }
+            awaitAll(sends);
+        } catch (RuntimeException e) {
+            userOutboxRepository.release(ids, owner);
+            throw e;
+        }
+
+        userOutboxRepository.delete(ids, owner);
+        for (OutboxMessage message : batch) {
+            published.computeIfAbsent(message.topic(),
+                    topic -> meterRegistry.counter("users.outbox.published", "topic", topic)).increment();
+        }
+        return batch.size();
+    }
+
+    private void awaitAll(List<CompletableFuture<SendResult<String, String>>> sends) {
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                    .get(outboxProperties.sendTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing user outbox batch", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Kafka did not acknowledge user outbox batch", e);
+        }
+    }
+}
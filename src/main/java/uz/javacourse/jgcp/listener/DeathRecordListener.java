@@ -0,0 +1,144 @@
+package uz.javacourse.jgcp.listener;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+import uz.javacourse.jgcp.config.DeathRecordProperties;
+import uz.javacourse.jgcp.constant.enums.DeathRegistrationOutcome;
+import uz.javacourse.jgcp.dto.event.DeathRecordEvent;
+import uz.javacourse.jgcp.service.DeathRegistrationService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+// принимает записи о смерти пачками: корректные записи применяются одним UPDATE в одной транзакции,
+// некорректные уходят в DLQ только после ее коммита, иначе каждый повтор пачки при недоступной базе
+// отправлял бы их в DLQ заново; offset подтверждается после коммита и отправки в DLQ
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.death-records.listener-enabled", havingValue = "true")
+public class DeathRecordListener {
+
+    private final DeathRegistrationService deathRegistrationService;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final DeathRecordProperties deathRecordProperties;
+    private final Map<DeathRegistrationOutcome, Counter> outcomes = new EnumMap<>(DeathRegistrationOutcome.class);
+    private final Counter rejected;
+    private final Timer batchTimer;
+
+    public DeathRecordListener(DeathRegistrationService deathRegistrationService,
+                               KafkaTemplate<String, String> kafkaTemplate,
+                               ObjectMapper objectMapper,
+                               Validator validator,
+                               DeathRecordProperties deathRecordProperties,
+                               MeterRegistry meterRegistry) {
+        this.deathRegistrationService = deathRegistrationService;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.deathRecordProperties = deathRecordProperties;
+        for (DeathRegistrationOutcome outcome : DeathRegistrationOutcome.values()) {
+            outcomes.put(outcome, meterRegistry.counter("users.death-records", "outcome", outcome.name()));
+        }
+        this.rejected = meterRegistry.counter("users.death-records", "outcome", "REJECTED");
+        this.batchTimer = meterRegistry.timer("users.death-records.batch");
+    }
+
+    @KafkaListener(topics = "${app.death-records.topic}", containerFactory = "deathRecordListenerContainerFactory")
+    public void onBatch(List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment) {
+        Timer.Sample sample = Timer.start();
+        List<DeathRecordEvent> accepted = new ArrayList<>(records.size());
+        Map<ConsumerRecord<String, String>, String> invalid = new LinkedHashMap<>();
+        for (ConsumerRecord<String, String> record : records) {
+            String error = parse(record, accepted);
+            if (error != null) {
+                invalid.put(record, error);
+            }
+        }
+
+        Map<String, DeathRegistrationOutcome> result = deathRegistrationService.registerByPinfl(accepted);
+        // повтор после сбоя отправки в DLQ безопасен: уже умершие registerByPinfl не меняет
+        List<CompletableFuture<SendResult<String, String>>> deadLetters = new ArrayList<>(invalid.size());
+        invalid.forEach((record, error) -> deadLetters.add(sendToDlq(record, error)));
+        awaitDeadLetters(deadLetters);
+        acknowledgment.acknowledge();
+
+        rejected.increment(invalid.size());
+
+        result.values().forEach(outcome -> outcomes.get(outcome).increment());
+        sample.stop(batchTimer);
+        log.debug("Applied death record batch: {} records, {} rejected", records.size(), deadLetters.size());
+    }
+
+    // добавляет запись в accepted или возвращает причину отказа
+    private String parse(ConsumerRecord<String, String> record, List<DeathRecordEvent> accepted) {
+        if (record.value() == null) {
+            return "Empty message";
+        }
+        DeathRecordEvent event;
+        try {
+            event = objectMapper.readValue(record.value(), DeathRecordEvent.class);
+        } catch (JacksonException e) {
+            return "Malformed JSON: " + e.getOriginalMessage();
+        }
+        Set<ConstraintViolation<DeathRecordEvent>> violations = validator.validate(event);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+        if (record.key() != null && !record.key().equals(event.pinfl())) {
+            return "Message key does not match pinfl";
+        }
+        accepted.add(event);
+        return null;
+    }
+
+    private CompletableFuture<SendResult<String, String>> sendToDlq(ConsumerRecord<String, String> record, String error) {
+        ProducerRecord<String, String> deadLetter =
+                new ProducerRecord<>(deathRecordProperties.dlqTopic(), record.key(), record.value());
+        deadLetter.headers()
+                .add("x-dlq-reason", error.getBytes(StandardCharsets.UTF_8))
+                .add("x-dlq-original-topic", record.topic().getBytes(StandardCharsets.UTF_8))
+                .add("x-dlq-original-partition", String.valueOf(record.partition()).getBytes(StandardCharsets.UTF_8))
+                .add("x-dlq-original-offset", String.valueOf(record.offset()).getBytes(StandardCharsets.UTF_8));
+        log.warn("Death record {}-{}@{} sent to DLQ: {}", record.topic(), record.partition(), record.offset(), error);
+        return kafkaTemplate.send(deadLetter);
+    }
+
+    // исключение отсюда не дает подтвердить offset: пачка будет прочитана и применена повторно
+    private void awaitDeadLetters(List<CompletableFuture<SendResult<String, String>>> deadLetters) {
+        try {
+            CompletableFuture.allOf(deadLetters.toArray(CompletableFuture[]::new)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sending death records to DLQ", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to send death records to DLQ", e);
+        }
+    }
+}
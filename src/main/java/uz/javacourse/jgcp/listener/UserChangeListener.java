@@ -0,0 +1,85 @@
+package uz.javacourse.jgcp.listener;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.PartitionOffset;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+import uz.javacourse.jgcp.cache.UserCache;
+import uz.javacourse.jgcp.dto.event.UserCreatedEvent;
+import uz.javacourse.jgcp.dto.event.UserDeceasedEvent;
+import uz.javacourse.jgcp.index.UserStatusIndex;
+import uz.javacourse.jgcp.snapshot.UserColumnarSnapshot;
+
+// доставляет в структуры в памяти (индекс статусов, колоночный снимок, локальный кэш пользователей) записи,
+// сделанные на других узлах; сброс кэша здесь доходит до всех узлов и без redis с его рассылкой инвалидаций.
+// Каждый узел читает все партиции сам, без группы потребителей (UserSyncKafkaConfig), с конца топика на момент
+// запуска: прошлое берется из базы при заполнении, а события, пришедшие во время заполнения, только добавляют
+// данные и применяются в любом порядке. Партиции определяются при запуске: после увеличения их числа узлы
+// нужно перезапустить. Повторы безопасны: собственные события узла уже применены после коммита и стоят
+// только лишнего промаха кэша.
+// Событие приходит с задержкой relay (app.outbox.poll-interval) и доставки kafka, на это время другие узлы
+// отвечают по индексу ALIVE для уже умершего - см. app.status-index.trust-alive
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.outbox.sync-enabled", havingValue = "true")
+public class UserChangeListener {
+
+    // группа нужна клиенту kafka только как имя: offset'ы в ней не сохраняются, поэтому позиция всегда
+    // определяется auto.offset.reset=latest
+    private static final String SYNC_GROUP = "jgcp-sync";
+
+    private final UserStatusIndex userStatusIndex;
+    private final UserColumnarSnapshot userColumnarSnapshot;
+    private final UserCache userCache;
+    private final ObjectMapper objectMapper;
+
+    @KafkaListener(groupId = SYNC_GROUP, containerFactory = "userSyncListenerContainerFactory",
+            topicPartitions = @TopicPartition(topic = "${app.outbox.topics.user-created}",
+                    partitionOffsets = @PartitionOffset(partition = "*", initialOffset = "0",
+                            relativeToCurrent = "true")),
+            properties = "auto.offset.reset=latest")
+    public void onCreated(ConsumerRecord<String, String> record) {
+        UserCreatedEvent event = read(record, UserCreatedEvent.class);
+        if (event != null && event.user() != null && event.user().id() != null) {
+            userStatusIndex.recordCreated(event.user().id(), event.user().pinfl(), event.user().deathDate() != null);
+            userColumnarSnapshot.recordCreated(event.user());
+            userCache.evictLocal(event.user().id(), event.user().pinfl());
+        }
+    }
+
+    @KafkaListener(groupId = SYNC_GROUP, containerFactory = "userSyncListenerContainerFactory",
+            topicPartitions = @TopicPartition(topic = "${app.outbox.topics.user-deceased}",
+                    partitionOffsets = @PartitionOffset(partition = "*", initialOffset = "0",
+                            relativeToCurrent = "true")),
+            properties = "auto.offset.reset=latest")
+    public void onDeceased(ConsumerRecord<String, String> record) {
+        UserDeceasedEvent event = read(record, UserDeceasedEvent.class);
+        if (event != null && event.userId() != null) {
+            userStatusIndex.recordDeceased(event.userId(), event.pinfl());
+            userColumnarSnapshot.recordDeceased(event.userId(), event.deathDate());
+            userCache.evictLocal(event.userId(), event.pinfl());
+        }
+    }
+
+    // некорректное сообщение пропускается: для структур в памяти это лишь промах или отставание
+    // до следующего полного перестроения
+    private <T> T read(ConsumerRecord<String, String> record, Class<T> type) {
+        if (record.value() == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(record.value(), type);
+        } catch (JacksonException e) {
+            log.warn("Skipping malformed {} message at {}-{}@{}: {}",
+                    type.getSimpleName(), record.topic(), record.partition(), record.offset(), e.getOriginalMessage());
+            return null;
+        }
+    }
+}
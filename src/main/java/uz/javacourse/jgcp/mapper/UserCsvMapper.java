@@ -0,0 +1,149 @@
+package uz.javacourse.jgcp.mapper;
+
+import org.springframework.stereotype.Component;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.request.UserRequestDto;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.exception.BusinessException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class UserCsvMapper {
+
+    // порядок колонок совпадает с именами полей UserRequestDto
+    public static final List<String> COLUMNS = List.of(
+            "fullName", "address", "phoneNumber", "email", "photoUrl", "pinfl", "age",
+            "gender", "documentType", "issueDate", "expiryDate", "citizenship", "deathDate");
+
+    // заголовок выгрузки: id и те же колонки, что принимает импорт
+    public String exportHeader() {
+        return "id," + String.join(",", COLUMNS) + "\n";
+    }
+
+    // преобразует dto в строку csv для выгрузки
+    public String toCsvLine(UserResponseDto dto) {
+        StringBuilder line = new StringBuilder(256);
+        line.append(dto.id());
+        appendField(line, dto.fullName());
+        appendField(line, dto.address());
+        appendField(line, dto.phoneNumber());
+        appendField(line, dto.email());
+        appendField(line, dto.photoUrl());
+        appendField(line, dto.pinfl());
+        appendField(line, dto.age());
+        appendField(line, dto.gender());
+        appendField(line, dto.documentType());
+        appendField(line, dto.issueDate());
+        appendField(line, dto.expiryDate());
+        appendField(line, dto.citizenship());
+        appendField(line, dto.deathDate());
+        return line.append('\n').toString();
+    }
+
+    // разбирает строку заголовка и возвращает позицию каждой известной колонки
+    public Map<String, Integer> parseHeader(String line) {
+        List<String> names = parseLine(line);
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            header.put(names.get(i).trim(), i);
+        }
+        for (String column : COLUMNS) {
+            if (!column.equals("photoUrl") && !column.equals("deathDate") && !header.containsKey(column)) {
+                throw new BusinessException("CSV header is missing column: " + column);
+            }
+        }
+        return header;
+    }
+
+    // преобразует строку csv в dto используя позиции колонок из заголовка
+    public UserRequestDto toRequestDto(Map<String, Integer> header, String line) {
+        List<String> values = parseLine(line);
+        return UserRequestDto.builder()
+                .fullName(value(header, values, "fullName"))
+                .address(value(header, values, "address"))
+                .phoneNumber(value(header, values, "phoneNumber"))
+                .email(value(header, values, "email"))
+                .photoUrl(value(header, values, "photoUrl"))
+                .pinfl(value(header, values, "pinfl"))
+                .age(toInteger(value(header, values, "age")))
+                .gender(toEnum(Gender.class, value(header, values, "gender")))
+                .documentType(toEnum(DocumentType.class, value(header, values, "documentType")))
+                .issueDate(toDate(value(header, values, "issueDate")))
+                .expiryDate(toDate(value(header, values, "expiryDate")))
+                .citizenship(value(header, values, "citizenship"))
+                .deathDate(toDate(value(header, values, "deathDate")))
+                .build();
+    }
+
+    // разбирает одну строку csv (RFC 4180: поля в кавычках, "" внутри кавычек)
+    public List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new BusinessException("Unterminated quoted field");
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    private void appendField(StringBuilder line, Object value) {
+        line.append(',');
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0) {
+            line.append('"').append(text.replace("\"", "\"\"")).append('"');
+        } else {
+            line.append(text);
+        }
+    }
+
+    private String value(Map<String, Integer> header, List<String> values, String column) {
+        Integer index = header.get(column);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    private Integer toInteger(String value) {
+        return value == null ? null : Integer.valueOf(value.trim());
+    }
+
+    private LocalDate toDate(String value) {
+        return value == null ? null : LocalDate.parse(value.trim());
+    }
+
+    private <E extends Enum<E>> E toEnum(Class<E> type, String value) {
+        return value == null ? null : Enum.valueOf(type, value.trim());
+    }
+}
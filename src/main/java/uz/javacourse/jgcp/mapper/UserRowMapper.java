@@ -0,0 +1,46 @@
+package uz.javacourse.jgcp.mapper;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import uz.javacourse.jgcp.cache.CitizenshipDictionary;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+// строка таблицы users -> dto (без загрузки сущности в persistence context); гражданство по ключу справочника
+@Component
+@RequiredArgsConstructor
+public class UserRowMapper implements RowMapper<UserResponseDto> {
+
+    private final CitizenshipDictionary citizenshipDictionary;
+
+    @Override
+    public UserResponseDto mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return UserResponseDto.builder()
+                .id(rs.getLong("id"))
+                .fullName(rs.getString("full_name"))
+                .address(rs.getString("address"))
+                .phoneNumber(rs.getString("phone_number"))
+                .email(rs.getString("email"))
+                .photoUrl(rs.getString("photo_url"))
+                .pinfl(rs.getString("pinfl"))
+                .age(rs.getInt("age"))
+                .gender(Gender.valueOf(rs.getString("gender")))
+                .documentType(DocumentType.valueOf(rs.getString("document_type")))
+                .issueDate(toLocalDate(rs.getDate("issue_date")))
+                .expiryDate(toLocalDate(rs.getDate("expiry_date")))
+                .citizenship(citizenshipDictionary.nameOf(rs.getShort("citizenship_id")))
+                .deathDate(toLocalDate(rs.getDate("death_date")))
+                .build();
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date == null ? null : date.toLocalDate();
+    }
+}
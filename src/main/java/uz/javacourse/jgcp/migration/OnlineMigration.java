@@ -0,0 +1,65 @@
+package uz.javacourse.jgcp.migration;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+// большое изменение данных, которое нельзя выполнить одной миграцией flyway без долгой блокировки таблицы.
+// Выполняется OnlineMigrationService в три фазы:
+//   0. подготовительные шаги - один раз перед чтением maxKey, как завершающие шаги вне транзакции;
+//   1. заполнение пачками по ключу (from, to] - каждая пачка в своей короткой транзакции вместе с сохранением
+//      прогресса, поэтому после остановки миграция продолжается с последней подтвержденной пачки;
+//   2. завершающие шаги - по одному, каждый оператор вне транзакции (можно CREATE INDEX CONCURRENTLY).
+// Строки с ключом больше maxKey на момент старта должны уже записываться в новом формате (триггером из миграции
+// flyway или из подготовительного шага), а каждый шаг должен быть безопасен при повторе после сбоя.
+// Реализации - spring-бины, имя хранится в online_migrations
+public interface OnlineMigration {
+
+    String name();
+
+    // миграции, которые должны завершиться до запуска этой
+    default List<String> dependsOn() {
+        return List.of();
+    }
+
+    // узел не готов принимать запросы (readiness), пока миграция не завершена: код читает только новый формат.
+    // Такие миграции запускаются после старта независимо от app.online-migrations.auto-start
+    default boolean requiredBeforeServing() {
+        return false;
+    }
+
+    // меняет тип столбцов, которые читают запросы приложения: после завершения все узлы заменяют соединения пулов
+    // (ConnectionPools), иначе подготовленные на сервере запросы падают с "cached plan must not change result type"
+    default boolean changesResultTypes() {
+        return false;
+    }
+
+    // выполняются при первом запуске до чтения maxKey и повторяются, если узел упал раньше, чем его сохранил.
+    // Здесь создается то, что нагружает рабочую таблицу только на время миграции (например, триггер двойной записи)
+    default List<Step> prepareSteps() {
+        return List.of();
+    }
+
+    // отмена незавершенной миграции (POST /api/gcp/migrations/{name}/abandon): убирает созданное подготовительными
+    // шагами и заполнением, после нее миграция начинается заново. Шаг, которому отмена уже не может помочь
+    // (например, после замены таблиц), должен завершиться ошибкой
+    default List<Step> abandonSteps() {
+        return List.of();
+    }
+
+    // верхняя граница ключа для заполнения, читается один раз при первом запуске
+    long maxKey(JdbcTemplate jdbcTemplate);
+
+    // заполняет строки с ключом в (fromExclusive, toInclusive], возвращает число измененных строк
+    int migrateChunk(JdbcTemplate jdbcTemplate, long fromExclusive, long toInclusive);
+
+    List<Step> finalizeSteps();
+
+    // завершающий шаг: операторы выполняются по порядку в режиме autocommit; при сбое шаг повторяется целиком
+    record Step(String description, List<String> statements) {
+
+        public static Step of(String description, String... statements) {
+            return new Step(description, List.of(statements));
+        }
+    }
+}
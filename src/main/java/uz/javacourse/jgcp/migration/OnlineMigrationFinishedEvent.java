@@ -0,0 +1,5 @@
+package uz.javacourse.jgcp.migration;
+
+// публикуется на каждом узле, когда он узнает о завершении фоновой миграции (см. OnlineMigrationServiceImpl)
+public record OnlineMigrationFinishedEvent(String name) {
+}
@@ -0,0 +1,23 @@
+package uz.javacourse.jgcp.migration;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.stereotype.Component;
+import uz.javacourse.jgcp.service.OnlineMigrationService;
+
+// входит в группу readiness: пока миграции с requiredBeforeServing не завершены, балансировщик не направляет
+// на узел запросы, их обслуживают узлы предыдущей версии. Liveness не затрагивается, узел не перезапускается
+@Component("requiredMigrations")
+@RequiredArgsConstructor
+public class RequiredMigrationsHealthIndicator implements HealthIndicator {
+
+    private final OnlineMigrationService onlineMigrationService;
+
+    @Override
+    public Health health() {
+        return onlineMigrationService.requiredMigrationsDone()
+                ? Health.up().build()
+                : Health.outOfService().withDetail("reason", "required online migrations are not done").build();
+    }
+}
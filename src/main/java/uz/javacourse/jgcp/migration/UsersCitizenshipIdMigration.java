@@ -0,0 +1,80 @@
+package uz.javacourse.jgcp.migration;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// заполняет users.citizenship_id у строк, созданных до V9, и делает ключ обязательным. Новые и измененные
+// строки ключ получают триггером users_sync_citizenship_id. Строковый столбец и триггер остаются: узлы
+// предыдущей версии читают и пишут строку, поэтому их удаление - отдельная миграция следующего выпуска.
+// Новая версия читает только ключ, поэтому узел не готов принимать запросы, пока миграция не завершена
+@Component
+public class UsersCitizenshipIdMigration implements OnlineMigration {
+
+    // справочник пополняется до обновления пачки; поиск перед вставкой бережет значения identity
+    private static final String INSERT_NAMES = """
+            INSERT INTO citizenships (name)
+            SELECT DISTINCT u.citizenship
+            FROM users u
+            WHERE u.id > ? AND u.id <= ?
+              AND u.citizenship_id IS NULL
+              AND NOT EXISTS (SELECT 1 FROM citizenships c WHERE c.name = u.citizenship)
+            ON CONFLICT (name) DO NOTHING
+            """;
+
+    private static final String MIGRATE_CHUNK = """
+            UPDATE users u
+            SET citizenship_id = c.id
+            FROM citizenships c
+            WHERE c.name = u.citizenship
+              AND u.id > ? AND u.id <= ?
+              AND u.citizenship_id IS NULL
+            """;
+
+    @Override
+    public String name() {
+        return "users-citizenship-id";
+    }
+
+    @Override
+    public boolean requiredBeforeServing() {
+        return true;
+    }
+
+    // только незаполненные строки: в базе, где прежние V10 и V11 уже заполнили ключ и удалили строковый
+    // столбец, пачек нет, и остаются только повторяемые завершающие шаги
+    @Override
+    public long maxKey(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM users WHERE citizenship_id IS NULL",
+                Long.class);
+    }
+
+    @Override
+    public int migrateChunk(JdbcTemplate jdbcTemplate, long fromExclusive, long toInclusive) {
+        jdbcTemplate.update(INSERT_NAMES, fromExclusive, toInclusive);
+        return jdbcTemplate.update(MIGRATE_CHUNK, fromExclusive, toInclusive);
+    }
+
+    // NOT NULL через проверенный CHECK: VALIDATE не блокирует запись, а SET NOT NULL использует проверенное
+    // ограничение вместо полного сканирования под эксклюзивной блокировкой. Индекс пересоздается целиком:
+    // после прерванного CREATE INDEX CONCURRENTLY остается невалидный индекс, который IF NOT EXISTS пропустил бы
+    @Override
+    public List<Step> finalizeSteps() {
+        return List.of(
+                Step.of("check that every row is filled",
+                        """
+                        ALTER TABLE users DROP CONSTRAINT IF EXISTS chk_users_citizenship_id_not_null,
+                            ADD CONSTRAINT chk_users_citizenship_id_not_null CHECK (citizenship_id IS NOT NULL) NOT VALID
+                        """,
+                        "ALTER TABLE users VALIDATE CONSTRAINT chk_users_citizenship_id_not_null"),
+                Step.of("set not null",
+                        "ALTER TABLE users ALTER COLUMN citizenship_id SET NOT NULL",
+                        "ALTER TABLE users DROP CONSTRAINT IF EXISTS chk_users_citizenship_id_not_null"),
+                Step.of("validate foreign key", "ALTER TABLE users VALIDATE CONSTRAINT fk_users_citizenship"),
+                // findByCitizenship*, countByCitizenship: ключ (smallint, bigint) вместо (varchar, bigint)
+                Step.of("index (citizenship_id, id)",
+                        "DROP INDEX CONCURRENTLY IF EXISTS idx_users_citizenship_ref_id",
+                        "CREATE INDEX CONCURRENTLY idx_users_citizenship_ref_id ON users (citizenship_id, id)"));
+    }
+}
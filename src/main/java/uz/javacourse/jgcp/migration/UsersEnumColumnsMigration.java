@@ -0,0 +1,97 @@
+package uz.javacourse.jgcp.migration;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// переводит users.gender и users.document_type со строк на enum postgresql (V13 добавила столбцы *_enum
+// и триггер двойной записи). После заполнения столбцы меняются местами одной транзакцией: приложение
+// передает значения перечислений без указания типа (Types.OTHER), поэтому одинаково работает
+// и со строковыми столбцами, и с enum
+@Component
+public class UsersEnumColumnsMigration implements OnlineMigration {
+
+    private static final String MIGRATE_CHUNK = """
+            UPDATE users
+            SET gender_enum = CAST(gender AS gender),
+                document_type_enum = CAST(document_type AS document_type)
+            WHERE id > ? AND id <= ?
+              AND (gender_enum IS NULL OR document_type_enum IS NULL)
+            """;
+
+    // замена под короткой эксклюзивной блокировкой: SET NOT NULL опирается на проверенный CHECK
+    // и не сканирует таблицу, удаление и переименование столбцов меняют только каталог. Вместе со строковыми
+    // столбцами удаляются их индексы, новые индексы построены заранее и получают прежние имена.
+    // Повторный запуск после успешной замены ничего не делает
+    private static final String SWAP_COLUMNS = """
+            DO $$
+            BEGIN
+                IF NOT EXISTS (SELECT 1 FROM pg_attribute
+                               WHERE attrelid = 'users'::regclass AND attname = 'gender_enum' AND NOT attisdropped) THEN
+                    RETURN;
+                END IF;
+                ALTER TABLE users ALTER COLUMN gender_enum SET NOT NULL,
+                                  ALTER COLUMN document_type_enum SET NOT NULL;
+                DROP TRIGGER users_sync_enum_columns ON users;
+                DROP FUNCTION users_sync_enum_columns();
+                ALTER TABLE users DROP CONSTRAINT chk_users_enum_columns_not_null,
+                                  DROP COLUMN gender,
+                                  DROP COLUMN document_type;
+                ALTER TABLE users RENAME COLUMN gender_enum TO gender;
+                ALTER TABLE users RENAME COLUMN document_type_enum TO document_type;
+                ALTER INDEX idx_users_gender_enum_id RENAME TO idx_users_gender_id;
+                ALTER INDEX idx_users_gender_enum_age_id RENAME TO idx_users_gender_age_id;
+                ALTER INDEX idx_users_document_type_enum_id RENAME TO idx_users_document_type_id;
+            END;
+            $$
+            """;
+
+    @Override
+    public String name() {
+        return "users-enum-columns";
+    }
+
+    // после замены столбцы gender и document_type возвращаются как enum, а не varchar
+    @Override
+    public boolean changesResultTypes() {
+        return true;
+    }
+
+    @Override
+    public long maxKey(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM users", Long.class);
+    }
+
+    @Override
+    public int migrateChunk(JdbcTemplate jdbcTemplate, long fromExclusive, long toInclusive) {
+        return jdbcTemplate.update(MIGRATE_CHUNK, fromExclusive, toInclusive);
+    }
+
+    // шаг повторяется только до сохранения следующего номера шага, поэтому все шаги, кроме замены, выполняются
+    // до нее. Индексы пересоздаются целиком: после прерванного CREATE INDEX CONCURRENTLY остается невалидный
+    // индекс, который IF NOT EXISTS пропустил бы
+    @Override
+    public List<Step> finalizeSteps() {
+        return List.of(
+                // NOT VALID берет эксклюзивную блокировку на мгновение, проверка идет отдельным оператором
+                // под блокировкой, которая не мешает записи
+                Step.of("check that every row is filled",
+                        """
+                        ALTER TABLE users DROP CONSTRAINT IF EXISTS chk_users_enum_columns_not_null,
+                            ADD CONSTRAINT chk_users_enum_columns_not_null
+                                CHECK (gender_enum IS NOT NULL AND document_type_enum IS NOT NULL) NOT VALID
+                        """,
+                        "ALTER TABLE users VALIDATE CONSTRAINT chk_users_enum_columns_not_null"),
+                Step.of("index (gender, id)",
+                        "DROP INDEX CONCURRENTLY IF EXISTS idx_users_gender_enum_id",
+                        "CREATE INDEX CONCURRENTLY idx_users_gender_enum_id ON users (gender_enum, id)"),
+                Step.of("index (gender, age, id)",
+                        "DROP INDEX CONCURRENTLY IF EXISTS idx_users_gender_enum_age_id",
+                        "CREATE INDEX CONCURRENTLY idx_users_gender_enum_age_id ON users (gender_enum, age, id)"),
+                Step.of("index (document_type, id)",
+                        "DROP INDEX CONCURRENTLY IF EXISTS idx_users_document_type_enum_id",
+                        "CREATE INDEX CONCURRENTLY idx_users_document_type_enum_id ON users (document_type_enum, id)"),
+                Step.of("swap columns", SWAP_COLUMNS));
+    }
+}
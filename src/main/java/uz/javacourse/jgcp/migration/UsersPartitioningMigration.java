@@ -0,0 +1,154 @@
+package uz.javacourse.jgcp.migration;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// переносит users в секционированную по хешу pinfl таблицу users_p (V14) и меняет таблицы местами.
+// Новые и измененные строки users_p получает триггером users_mirror_to_partitioned, поэтому копируются
+// только строки с id до maxKey, а уже скопированные триггером пропускаются по ON CONFLICT. Триггеры создает
+// подготовительный шаг, а не flyway: до запуска миграции запись в users не удваивается.
+// Старая таблица остается под именем users_v1 для возврата и удаляется миграцией users-v1-cleanup
+@Component
+public class UsersPartitioningMigration implements OnlineMigration {
+
+    public static final String NAME = "users-partitioning";
+
+    private static final String COPY_CHUNK = """
+            INSERT INTO users_p (id, full_name, address, phone_number, email, photo_url, pinfl, age, gender,
+                                 document_type, issue_date, expiry_date, citizenship_id, death_date)
+            SELECT id, full_name, address, phone_number, email, photo_url, pinfl, age,
+                   CAST(gender::text AS gender), CAST(document_type::text AS document_type),
+                   issue_date, expiry_date, citizenship_id, death_date
+            FROM users
+            WHERE id > ? AND id <= ?
+            ON CONFLICT (pinfl) DO NOTHING
+            """;
+
+    // сверка скопированной пачки в той же транзакции: три коротких чтения по индексам id вместо полного
+    // подсчета трех таблиц перед заменой. Триггер держит таблицы одинаковыми, поэтому расхождение означает
+    // ручную правку в обход него. Один оператор - один снимок, параллельные записи не дают ложных расхождений
+    private static final String VERIFY_CHUNK = """
+            SELECT (SELECT COUNT(*) FROM users WHERE id > ? AND id <= ?) AS source_rows,
+                   (SELECT COUNT(*) FROM users_p WHERE id > ? AND id <= ?) AS copied_rows,
+                   (SELECT COUNT(*) FROM user_keys WHERE id > ? AND id <= ?) AS key_rows
+            """;
+
+    // users_p очищается от строк прошлой попытки до включения триггеров: сначала снимается двойная запись,
+    // последней включается запись из users. CREATE TRIGGER ждет идущие записи в users, поэтому строки,
+    // не повторенные триггером, имеют id не больше maxKey, который читается после этого шага
+    private static final String[] CREATE_TRIGGERS = {
+            "DROP TRIGGER IF EXISTS users_mirror_to_partitioned ON users",
+            "DROP TRIGGER IF EXISTS users_p_sync_keys_insert ON users_p",
+            "DROP TRIGGER IF EXISTS users_p_sync_keys_update ON users_p",
+            "TRUNCATE users_p, user_keys",
+            """
+            CREATE TRIGGER users_p_sync_keys_insert
+                AFTER INSERT OR DELETE ON users_p
+                FOR EACH ROW EXECUTE FUNCTION users_p_sync_keys()
+            """,
+            """
+            CREATE TRIGGER users_p_sync_keys_update
+                AFTER UPDATE ON users_p
+                FOR EACH ROW
+                WHEN (OLD.id IS DISTINCT FROM NEW.id OR OLD.pinfl IS DISTINCT FROM NEW.pinfl
+                      OR OLD.email IS DISTINCT FROM NEW.email OR OLD.phone_number IS DISTINCT FROM NEW.phone_number)
+                EXECUTE FUNCTION users_p_sync_keys()
+            """,
+            // список столбцов и причина отсутствия в нем пола и типа документа - в V14
+            """
+            CREATE TRIGGER users_mirror_to_partitioned
+                AFTER INSERT OR DELETE OR UPDATE OF full_name, address, phone_number, email, photo_url, pinfl, age,
+                    issue_date, expiry_date, citizenship_id, death_date ON users
+                FOR EACH ROW EXECUTE FUNCTION users_mirror_to_partitioned()
+            """
+    };
+
+    // после замены отменять нечего: users уже секционирована, а users_v1 перестала получать новые строки
+    private static final String REFUSE_AFTER_SWAP = """
+            DO $$
+            BEGIN
+                IF (SELECT relkind FROM pg_class WHERE oid = 'users'::regclass) = 'p' THEN
+                    RAISE EXCEPTION 'users is already partitioned, users-partitioning cannot be abandoned';
+                END IF;
+            END;
+            $$
+            """;
+
+    // под эксклюзивной блокировкой меняется только каталог. Новые записи больше не копируются триггером,
+    // поэтому возврат к users_v1 требует обратного копирования строк, созданных после замены
+    private static final String SWAP_TABLES = """
+            DO $$
+            BEGIN
+                IF (SELECT relkind FROM pg_class WHERE oid = 'users'::regclass) = 'p' THEN
+                    RETURN;
+                END IF;
+                LOCK TABLE users IN ACCESS EXCLUSIVE MODE;
+                DROP TRIGGER users_mirror_to_partitioned ON users;
+                DROP FUNCTION users_mirror_to_partitioned();
+                ALTER TABLE users RENAME TO users_v1;
+                ALTER TABLE users_p RENAME TO users;
+                ALTER SEQUENCE users_id_seq OWNED BY users.id;
+            END;
+            $$
+            """;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    // копирование читает строки с уже замененными столбцами пола и типа документа и заполненным ключом
+    // гражданства, а замена таблиц не должна случиться посреди заполнения старой таблицы. В users_p нет
+    // строкового столбца гражданства, поэтому к замене узлы предыдущей версии должны быть остановлены
+    @Override
+    public List<String> dependsOn() {
+        return List.of("users-enum-columns", "users-citizenship-id");
+    }
+
+    @Override
+    public List<Step> prepareSteps() {
+        return List.of(Step.of("create mirror triggers", CREATE_TRIGGERS));
+    }
+
+    // копия удаляется вместе с триггерами: без них users_p отстает от users, а копирование пропускает
+    // уже существующие строки
+    @Override
+    public List<Step> abandonSteps() {
+        return List.of(Step.of("drop mirror triggers",
+                REFUSE_AFTER_SWAP,
+                "DROP TRIGGER IF EXISTS users_mirror_to_partitioned ON users",
+                "DROP TRIGGER IF EXISTS users_p_sync_keys_insert ON users_p",
+                "DROP TRIGGER IF EXISTS users_p_sync_keys_update ON users_p",
+                "TRUNCATE users_p, user_keys"));
+    }
+
+    @Override
+    public long maxKey(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM users", Long.class);
+    }
+
+    @Override
+    public int migrateChunk(JdbcTemplate jdbcTemplate, long fromExclusive, long toInclusive) {
+        int copied = jdbcTemplate.update(COPY_CHUNK, fromExclusive, toInclusive);
+        jdbcTemplate.query(VERIFY_CHUNK, rs -> {
+            long sourceRows = rs.getLong("source_rows");
+            long copiedRows = rs.getLong("copied_rows");
+            long keyRows = rs.getLong("key_rows");
+            if (sourceRows != copiedRows || sourceRows != keyRows) {
+                throw new IllegalStateException("users has %d rows in (%d, %d], users_p %d and user_keys %d"
+                        .formatted(sourceRows, fromExclusive, toInclusive, copiedRows, keyRows));
+            }
+        }, fromExclusive, toInclusive, fromExclusive, toInclusive, fromExclusive, toInclusive);
+        return copied;
+    }
+
+    @Override
+    public List<Step> finalizeSteps() {
+        return List.of(
+                // статистика нужна до переключения запросов, иначе первые планы строятся по пустой таблице
+                Step.of("analyze users_p", "ANALYZE users_p", "ANALYZE user_keys"),
+                Step.of("swap tables", SWAP_TABLES));
+    }
+}
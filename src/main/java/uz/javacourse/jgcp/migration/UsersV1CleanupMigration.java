@@ -0,0 +1,42 @@
+package uz.javacourse.jgcp.migration;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// удаляет users_v1, оставленную users-partitioning для возврата к несекционированной таблице. Запускается
+// вручную (POST /api/gcp/migrations/users-v1-cleanup/start), когда работа на секционированной таблице проверена:
+// после удаления вернуться можно только из резервной копии. Заполнения нет, только один шаг
+@Component
+public class UsersV1CleanupMigration implements OnlineMigration {
+
+    @Override
+    public String name() {
+        return "users-v1-cleanup";
+    }
+
+    @Override
+    public List<String> dependsOn() {
+        return List.of(UsersPartitioningMigration.NAME);
+    }
+
+    @Override
+    public long maxKey(JdbcTemplate jdbcTemplate) {
+        return 0;
+    }
+
+    @Override
+    public int migrateChunk(JdbcTemplate jdbcTemplate, long fromExclusive, long toInclusive) {
+        return 0;
+    }
+
+    // блокировка берется только на users_v1, которую приложение уже не читает; вместе с таблицей удаляются ее
+    // индексы и триггер двойной записи гражданства (V9), функция которого больше нигде не используется
+    @Override
+    public List<Step> finalizeSteps() {
+        return List.of(Step.of("drop users_v1",
+                "DROP TABLE IF EXISTS users_v1",
+                "DROP FUNCTION IF EXISTS users_sync_citizenship_id()"));
+    }
+}
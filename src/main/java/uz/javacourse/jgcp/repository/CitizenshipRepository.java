@@ -0,0 +1,36 @@
+package uz.javacourse.jgcp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class CitizenshipRepository {
+
+    private static final String FIND_ID_BY_NAME = "SELECT id FROM citizenships WHERE name = ?";
+
+    // ON CONFLICT расходует значение identity и при конфликте, поэтому вызывать только после неудачного поиска
+    private static final String INSERT = "INSERT INTO citizenships (name) VALUES (?) ON CONFLICT (name) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Short findIdByName(String name) {
+        List<Short> ids = jdbcTemplate.queryForList(FIND_ID_BY_NAME, Short.class, name);
+        return ids.isEmpty() ? null : ids.getFirst();
+    }
+
+    // id существующей или только что добавленной записи; при параллельной вставке того же имени
+    // ON CONFLICT ждет ее коммита, и повторный поиск уже видит запись
+    public short insertIfAbsent(String name) {
+        jdbcTemplate.update(INSERT, name);
+        return findIdByName(name);
+    }
+
+    public void findAll(RowCallbackHandler handler) {
+        jdbcTemplate.query("SELECT id, name FROM citizenships", handler);
+    }
+}
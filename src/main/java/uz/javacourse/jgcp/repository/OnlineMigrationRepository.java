@@ -0,0 +1,150 @@
+package uz.javacourse.jgcp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import uz.javacourse.jgcp.constant.enums.OnlineMigrationStatus;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class OnlineMigrationRepository {
+
+    private static final String REGISTER = "INSERT INTO online_migrations (name) VALUES (?) ON CONFLICT (name) DO NOTHING";
+
+    // захват аренды: миграцию можно забрать, если она не выполняется или ее владелец перестал отмечаться
+    private static final String CLAIM = """
+            UPDATE online_migrations
+            SET status = 'RUNNING', owner = ?, heartbeat_at = now(), started_at = COALESCE(started_at, now()), error = NULL
+            WHERE name = ?
+              AND (status IN ('PENDING', 'PAUSED', 'FAILED')
+                   OR status = 'RUNNING' AND (owner = ? OR heartbeat_at < now() - make_interval(secs => ?)))
+            """;
+
+    private static final String INIT_MAX_KEY = "UPDATE online_migrations SET max_key = ? WHERE name = ? AND max_key IS NULL";
+
+    // выполняется в транзакции пачки: если аренду забрали или миграцию поставили на паузу, пачка откатывается
+    private static final String SAVE_PROGRESS = """
+            UPDATE online_migrations
+            SET last_key = ?, rows_migrated = rows_migrated + ?, heartbeat_at = now()
+            WHERE name = ? AND owner = ? AND status = 'RUNNING'
+            """;
+
+    private static final String SAVE_FINALIZE_STEP = """
+            UPDATE online_migrations SET finalize_step = ?, heartbeat_at = now()
+            WHERE name = ? AND owner = ? AND status = 'RUNNING'
+            """;
+
+    private static final String HEARTBEAT = """
+            UPDATE online_migrations SET heartbeat_at = now() WHERE name = ? AND owner = ? AND status = 'RUNNING'
+            """;
+
+    private static final String MARK_DONE = """
+            UPDATE online_migrations SET status = 'DONE', finished_at = now(), owner = NULL
+            WHERE name = ? AND owner = ? AND status = 'RUNNING'
+            """;
+
+    private static final String MARK_FAILED = """
+            UPDATE online_migrations SET status = 'FAILED', error = ?, owner = NULL
+            WHERE name = ? AND owner = ? AND status = 'RUNNING'
+            """;
+
+    private static final String PAUSE = """
+            UPDATE online_migrations SET status = 'PAUSED', owner = NULL WHERE name = ? AND status IN ('PENDING', 'RUNNING')
+            """;
+
+    // после отмены миграция остановлена (автозапуск ее не продолжит) и начнется с начала
+    private static final String RESET = """
+            UPDATE online_migrations
+            SET status = 'PAUSED', owner = NULL, last_key = 0, max_key = NULL, rows_migrated = 0, finalize_step = 0,
+                heartbeat_at = NULL, started_at = NULL, finished_at = NULL, error = NULL
+            WHERE name = ? AND owner = ? AND status = 'RUNNING'
+            """;
+
+    private static final String SELECT = """
+            SELECT name, status, last_key, max_key, rows_migrated, finalize_step, owner,
+                   heartbeat_at, started_at, finished_at, error
+            FROM online_migrations
+            """;
+
+    private static final RowMapper<MigrationState> STATE_MAPPER = (rs, rowNum) -> new MigrationState(
+            rs.getString("name"),
+            OnlineMigrationStatus.valueOf(rs.getString("status")),
+            rs.getLong("last_key"),
+            rs.getObject("max_key", Long.class),
+            rs.getLong("rows_migrated"),
+            rs.getInt("finalize_step"),
+            rs.getString("owner"),
+            toInstant(rs.getTimestamp("heartbeat_at")),
+            toInstant(rs.getTimestamp("started_at")),
+            toInstant(rs.getTimestamp("finished_at")),
+            rs.getString("error"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void register(String name) {
+        jdbcTemplate.update(REGISTER, name);
+    }
+
+    // true если аренда получена этим узлом
+    public boolean claim(String name, String owner, Duration leaseTimeout) {
+        return jdbcTemplate.update(CLAIM, owner, name, owner, leaseTimeout.toSeconds()) == 1;
+    }
+
+    public void initMaxKey(String name, long maxKey) {
+        jdbcTemplate.update(INIT_MAX_KEY, maxKey, name);
+    }
+
+    // false если аренда потеряна или миграция остановлена
+    public boolean saveProgress(String name, String owner, long lastKey, long rowsMigrated) {
+        return jdbcTemplate.update(SAVE_PROGRESS, lastKey, rowsMigrated, name, owner) == 1;
+    }
+
+    public boolean saveFinalizeStep(String name, String owner, int step) {
+        return jdbcTemplate.update(SAVE_FINALIZE_STEP, step, name, owner) == 1;
+    }
+
+    public boolean heartbeat(String name, String owner) {
+        return jdbcTemplate.update(HEARTBEAT, name, owner) == 1;
+    }
+
+    public void markDone(String name, String owner) {
+        jdbcTemplate.update(MARK_DONE, name, owner);
+    }
+
+    public void markFailed(String name, String owner, String error) {
+        jdbcTemplate.update(MARK_FAILED, error, name, owner);
+    }
+
+    public boolean pause(String name) {
+        return jdbcTemplate.update(PAUSE, name) == 1;
+    }
+
+    public boolean reset(String name, String owner) {
+        return jdbcTemplate.update(RESET, name, owner) == 1;
+    }
+
+    public Optional<MigrationState> find(String name) {
+        return jdbcTemplate.query(SELECT + " WHERE name = ?", STATE_MAPPER, name).stream().findFirst();
+    }
+
+    public List<MigrationState> findAll() {
+        return jdbcTemplate.query(SELECT + " ORDER BY name", STATE_MAPPER);
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+
+    // maxKey равен null, пока миграция ни разу не запускалась
+    public record MigrationState(String name, OnlineMigrationStatus status, long lastKey, Long maxKey,
+                                 long rowsMigrated, int finalizeStep, String owner, Instant heartbeatAt,
+                                 Instant startedAt, Instant finishedAt, String error) {
+    }
+}
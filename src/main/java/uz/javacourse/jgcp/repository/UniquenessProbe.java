@@ -0,0 +1,11 @@
+package uz.javacourse.jgcp.repository;
+
+// результат UserRepository.probeUniqueness: какие из проверяемых значений уже заняты
+public interface UniquenessProbe {
+
+    boolean getPinflTaken();
+
+    boolean getEmailTaken();
+
+    boolean getPhoneNumberTaken();
+}
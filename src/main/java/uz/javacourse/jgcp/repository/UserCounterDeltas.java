@@ -0,0 +1,61 @@
+package uz.javacourse.jgcp.repository;
+
+import uz.javacourse.jgcp.constant.enums.CounterDimension;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+// накопленные изменения счетчиков для одной транзакции; ключи отсортированы,
+// поэтому все транзакции блокируют строки счетчиков в одном порядке и не попадают в deadlock
+public class UserCounterDeltas {
+
+    private final Map<String, Long> counters = new TreeMap<>();
+    private final Map<Integer, Long> ages = new TreeMap<>();
+
+    // новый пользователь попадает во все измерения
+    public UserCounterDeltas addCreated(Gender gender, DocumentType documentType, String citizenship,
+                                        Integer age, LocalDate deathDate) {
+        add(CounterDimension.STATUS, deathDate == null ? "ALIVE" : "DECEASED", 1);
+        add(CounterDimension.GENDER, gender.name(), 1);
+        add(CounterDimension.DOCUMENT_TYPE, documentType.name(), 1);
+        add(CounterDimension.CITIZENSHIP, citizenship, 1);
+        ages.merge(age, 1L, Long::sum);
+        return this;
+    }
+
+    // пользователь переходит из живых в умершие, остальные измерения не меняются
+    public UserCounterDeltas addDeceased() {
+        add(CounterDimension.STATUS, "ALIVE", -1);
+        add(CounterDimension.STATUS, "DECEASED", 1);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return counters.isEmpty() && ages.isEmpty();
+    }
+
+    // количество изменяемых счетчиков и корзин гистограммы
+    public int size() {
+        return counters.size() + ages.size();
+    }
+
+    // ключ имеет вид DIMENSION|bucket
+    Map<String, Long> counters() {
+        return counters;
+    }
+
+    Map<Integer, Long> ages() {
+        return ages;
+    }
+
+    void add(CounterDimension dimension, String bucket, long delta) {
+        counters.merge(dimension.name() + "|" + bucket, delta, Long::sum);
+    }
+
+    void addAge(int age, long delta) {
+        ages.merge(age, delta, Long::sum);
+    }
+}
@@ -0,0 +1,137 @@
+package uz.javacourse.jgcp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import uz.javacourse.jgcp.constant.enums.UserSortKey;
+import uz.javacourse.jgcp.dto.request.UserFilterDto;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.mapper.UserRowMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// запросы фильтра пользователей: keyset-страница по составному ключу (столбец сортировки, id),
+// точное количество строк и его оценки по статистике, выборке и плану
+@Repository
+@RequiredArgsConstructor
+public class UserFilterRepository {
+
+    private static final Pattern PLAN_ROWS = Pattern.compile("rows=(\\d+)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRowMapper userRowMapper;
+    private final Map<PageShape, String> pageSqlByShape = new ConcurrentHashMap<>();
+    private final Map<Integer, String> countSqlByShape = new ConcurrentHashMap<>();
+    private final Map<Integer, String> sampleSqlByShape = new ConcurrentHashMap<>();
+
+    // строки после after (или с начала, если after == null) в порядке (sort, id), не больше limit;
+    // ascending = false читает в обратном порядке - так же по индексу, только с другого конца
+    public List<UserResponseDto> findPage(UserFilterDto filter, UserSortKey sort, boolean ascending,
+                                          Keyset after, int limit) {
+        UserFilterSql.Where where = UserFilterSql.where(filter);
+        PageShape shape = new PageShape(where.shape(), sort, ascending, after != null);
+        String sql = pageSqlByShape.computeIfAbsent(shape, s -> buildPageSql(where.sql(), s));
+
+        List<Object> args = new ArrayList<>(where.args());
+        if (after != null) {
+            if (sort != UserSortKey.ID) {
+                args.add(after.value());
+            }
+            args.add(after.id());
+        }
+        args.add(limit);
+        return jdbcTemplate.query(sql, userRowMapper, args.toArray());
+    }
+
+    public long count(UserFilterDto filter) {
+        UserFilterSql.Where where = UserFilterSql.where(filter);
+        String sql = countSqlByShape.computeIfAbsent(where.shape(),
+                shape -> "SELECT COUNT(*) FROM users WHERE " + where.sql());
+        return jdbcTemplate.queryForObject(sql, Long.class, where.args().toArray());
+    }
+
+    // размер таблицы по статистике планировщика: reltuples/relpages с последнего ANALYZE, пересчитанные на текущее
+    // число страниц (так же оценивает планировщик). Для секционированной users сумма по секциям: статистику
+    // родителя autovacuum не обновляет. null - если таблицу или одну из секций еще ни разу не анализировали
+    public TableStats tableStats() {
+        return jdbcTemplate.queryForObject("""
+                SELECT bool_or(c.reltuples < 0) AS unanalyzed,
+                       SUM(CASE WHEN c.relpages > 0
+                                THEN c.reltuples / c.relpages * (pg_relation_size(c.oid) / current_setting('block_size')::int)
+                                ELSE c.reltuples END) AS rows,
+                       SUM(COALESCE(s.n_mod_since_analyze, 0)) AS modified
+                FROM pg_partition_tree('users') t
+                JOIN pg_class c ON c.oid = t.relid
+                LEFT JOIN pg_stat_user_tables s ON s.relid = c.oid
+                WHERE t.isleaf
+                """, (rs, rowNum) -> {
+            if (rs.getBoolean("unanalyzed")) {
+                return null;
+            }
+            return new TableStats(Math.round(rs.getDouble("rows")), rs.getLong("modified"));
+        });
+    }
+
+    // читает percent процентов страниц таблицы и считает в них все строки и строки, подходящие под фильтр
+    public Sample sample(UserFilterDto filter, double percent) {
+        UserFilterSql.Where where = UserFilterSql.where(filter);
+        String sql = sampleSqlByShape.computeIfAbsent(where.shape(), shape ->
+                "SELECT COUNT(*) AS sampled, COUNT(*) FILTER (WHERE " + where.sql() + ") AS matched"
+                        + " FROM users TABLESAMPLE SYSTEM (?)");
+        List<Object> args = new ArrayList<>(where.args());
+        args.add(percent);
+        return jdbcTemplate.queryForObject(sql,
+                (rs, rowNum) -> new Sample(rs.getLong("sampled"), rs.getLong("matched")), args.toArray());
+    }
+
+    // оценка числа строк из первой строки плана: "Seq Scan on users  (cost=... rows=N width=...)"
+    public long plannerRows(UserFilterDto filter) {
+        UserFilterSql.Where where = UserFilterSql.where(filter);
+        List<String> plan = jdbcTemplate.queryForList(
+                "EXPLAIN SELECT 1 FROM users WHERE " + where.sql(), String.class, where.args().toArray());
+        Matcher matcher = PLAN_ROWS.matcher(plan.getFirst());
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+
+    // сравнение строк (col, id) > (?, ?) postgres выполняет как одну границу составного индекса
+    private static String buildPageSql(String where, PageShape shape) {
+        String direction = shape.ascending() ? "ASC" : "DESC";
+        String comparison = shape.ascending() ? ">" : "<";
+        StringBuilder sql = new StringBuilder("SELECT * FROM users WHERE ").append(where);
+        if (shape.sort() == UserSortKey.DEATH_DATE) {
+            sql.append(" AND death_date IS NOT NULL");
+        }
+        if (shape.sort() == UserSortKey.ID) {
+            if (shape.keyset()) {
+                sql.append(" AND id ").append(comparison).append(" ?");
+            }
+            sql.append(" ORDER BY id ").append(direction);
+        } else {
+            String column = shape.sort().getColumn();
+            if (shape.keyset()) {
+                sql.append(" AND (").append(column).append(", id) ").append(comparison).append(" (?, ?)");
+            }
+            sql.append(" ORDER BY ").append(column).append(' ').append(direction).append(", id ").append(direction);
+        }
+        return sql.append(" LIMIT ?").toString();
+    }
+
+    // последняя прочитанная строка: значение столбца сортировки и id (для ID value не используется)
+    public record Keyset(Object value, long id) {
+    }
+
+    // rows - оценка размера таблицы, modified - сколько строк изменено после последнего ANALYZE
+    public record TableStats(long rows, long modified) {
+    }
+
+    public record Sample(long sampled, long matched) {
+    }
+
+    private record PageShape(int filterShape, UserSortKey sort, boolean ascending, boolean keyset) {
+    }
+}
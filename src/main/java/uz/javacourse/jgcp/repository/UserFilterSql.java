@@ -0,0 +1,91 @@
+package uz.javacourse.jgcp.repository;
+
+import org.springframework.jdbc.core.SqlParameterValue;
+import uz.javacourse.jgcp.dto.request.UserFilterDto;
+import uz.javacourse.jgcp.util.LikePatterns;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// строит условие WHERE для UserFilterDto. Набор заданных условий (форма фильтра) кодируется битовой маской,
+// и для одной маски SQL всегда один и тот же - меняются только значения параметров. Поэтому драйвер
+// postgresql переиспользует серверный prepared statement, а сервер - его план (prepareThreshold)
+public final class UserFilterSql {
+
+    // порядок констант задает порядок условий и параметров в SQL
+    private enum Predicate {
+        GENDER("gender = ?", filter -> filter.gender() == null ? null : untyped(filter.gender())),
+        MIN_AGE("age >= ?", UserFilterDto::minAge),
+        MAX_AGE("age <= ?", UserFilterDto::maxAge),
+        // подзапрос к справочнику выполняется один раз (InitPlan), дальше работает индекс (citizenship_id, id)
+        CITIZENSHIP("citizenship_id = (SELECT id FROM citizenships WHERE name = ?)", UserFilterDto::citizenship),
+        DOCUMENT_TYPE("document_type = ?", filter -> filter.documentType() == null ? null : untyped(filter.documentType())),
+        EXPIRY_FROM("expiry_date >= ?", UserFilterDto::expiryFrom),
+        EXPIRY_TO("expiry_date <= ?", UserFilterDto::expiryTo),
+        DEATH_FROM("death_date >= ?", UserFilterDto::deathFrom),
+        DEATH_TO("death_date <= ?", UserFilterDto::deathTo),
+        ALIVE("death_date IS NULL", filter -> Boolean.TRUE.equals(filter.alive()) ? Boolean.TRUE : null),
+        DECEASED("death_date IS NOT NULL", filter -> Boolean.FALSE.equals(filter.alive()) ? Boolean.TRUE : null),
+        NAME("lower(full_name) LIKE ? ESCAPE '!'", filter -> filter.name() == null ? null : LikePatterns.contains(filter.name()));
+
+        private final String sql;
+        private final Function<UserFilterDto, Object> value;
+
+        Predicate(String sql, Function<UserFilterDto, Object> value) {
+            this.sql = sql;
+            this.value = value;
+        }
+
+        private boolean bindsValue() {
+            return sql.indexOf('?') >= 0;
+        }
+    }
+
+    private static final Predicate[] PREDICATES = Predicate.values();
+    private static final Map<Integer, String> WHERE_BY_SHAPE = new ConcurrentHashMap<>();
+
+    private UserFilterSql() {
+    }
+
+    // условие без ведущего WHERE и значения его параметров по порядку
+    public static Where where(UserFilterDto filter) {
+        int shape = 0;
+        List<Object> args = new ArrayList<>(PREDICATES.length);
+        for (Predicate predicate : PREDICATES) {
+            Object value = predicate.value.apply(filter);
+            if (value == null) {
+                continue;
+            }
+            shape |= 1 << predicate.ordinal();
+            if (predicate.bindsValue()) {
+                args.add(value);
+            }
+        }
+        return new Where(shape, WHERE_BY_SHAPE.computeIfAbsent(shape, UserFilterSql::buildWhere), args);
+    }
+
+    // значение без типа: сервер выводит его из столбца, поэтому условие одинаково работает
+    // со строковым столбцом и с enum postgresql (см. UsersEnumColumnsMigration)
+    private static SqlParameterValue untyped(Enum<?> value) {
+        return new SqlParameterValue(Types.OTHER, value.name());
+    }
+
+    private static String buildWhere(int shape) {
+        StringBuilder sql = new StringBuilder();
+        for (Predicate predicate : PREDICATES) {
+            if ((shape & (1 << predicate.ordinal())) == 0) {
+                continue;
+            }
+            sql.append(sql.isEmpty() ? "" : " AND ").append(predicate.sql);
+        }
+        return sql.isEmpty() ? "TRUE" : sql.toString();
+    }
+
+    // shape - битовая маска заданных условий, по ней вызывающий код кэширует собранные запросы
+    public record Where(int shape, String sql, List<Object> args) {
+    }
+}
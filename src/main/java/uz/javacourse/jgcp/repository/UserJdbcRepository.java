@@ -0,0 +1,413 @@
+package uz.javacourse.jgcp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import uz.javacourse.jgcp.cache.CitizenshipDictionary;
+import uz.javacourse.jgcp.dto.request.UserRequestDto;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.mapper.UserRowMapper;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// запросы, которые не выражаются через spring data: COPY, массивы в параметрах, set-based операции
+@Repository
+@RequiredArgsConstructor
+public class UserJdbcRepository {
+
+    private static final String CREATE_IMPORT_STAGE = """
+            CREATE TEMP TABLE IF NOT EXISTS users_import_stage (
+                line_number BIGINT NOT NULL,
+                full_name VARCHAR(255),
+                address VARCHAR(500),
+                phone_number VARCHAR(20),
+                email VARCHAR(255),
+                photo_url VARCHAR(500),
+                pinfl VARCHAR(14),
+                age INTEGER,
+                gender gender,
+                document_type document_type,
+                issue_date DATE,
+                expiry_date DATE,
+                citizenship_id SMALLINT,
+                death_date DATE
+            ) ON COMMIT DELETE ROWS
+            """;
+
+    private static final String COPY_IMPORT_STAGE = """
+            COPY users_import_stage (line_number, full_name, address, phone_number, email, photo_url, pinfl,
+                                     age, gender, document_type, issue_date, expiry_date, citizenship_id, death_date)
+            FROM STDIN WITH (FORMAT csv)
+            """;
+
+    // ON CONFLICT закрывает гонку с параллельными вставками по pinfl, email и телефону
+    private static final String INSERT_FROM_IMPORT_STAGE = """
+            INSERT INTO users (full_name, address, phone_number, email, photo_url, pinfl,
+                               age, gender, document_type, issue_date, expiry_date, citizenship_id, death_date)
+            SELECT s.full_name, s.address, s.phone_number, s.email, s.photo_url, s.pinfl,
+                   s.age, s.gender, s.document_type, s.issue_date, s.expiry_date, s.citizenship_id, s.death_date
+            FROM users_import_stage s
+            ORDER BY s.line_number
+            ON CONFLICT DO NOTHING
+            RETURNING pinfl, id
+            """;
+
+    private static final String STREAM_UNIQUE_KEYS = "SELECT pinfl, email, phone_number FROM users";
+
+    private static final String STREAM_STATUSES = "SELECT id, pinfl, death_date IS NOT NULL AS deceased FROM users";
+
+    private static final String STREAM_SNAPSHOT_ROWS =
+            "SELECT id, gender, document_type, age, citizenship_id, expiry_date, death_date FROM users";
+
+    private static final String FIND_ALIVE_BY_PINFLS =
+            "SELECT pinfl, death_date IS NULL AS alive FROM users WHERE pinfl = ANY (?)";
+
+    // сколько строк забирать с серверного курсора за раз при полном сканировании
+    private static final int SCAN_FETCH_SIZE = 10_000;
+
+    // входные пары (pinfl, дата смерти) уже без повторов; строки блокируются в порядке id, поэтому
+    // параллельные пачки с пересекающимися pinfl не попадают в deadlock, а уже умершие не меняются.
+    // UPDATE ищет строку по pinfl: в секционированной users это ключ секционирования
+    private static final String MARK_DECEASED_BY_PINFL = """
+            WITH input AS (
+                SELECT * FROM unnest(CAST(? AS varchar[]), CAST(? AS date[])) AS t(pinfl, death_date)
+            ), locked AS (
+                SELECT u.id, u.pinfl, i.death_date
+                FROM users u
+                JOIN input i ON i.pinfl = u.pinfl
+                WHERE u.death_date IS NULL
+                ORDER BY u.id
+                FOR UPDATE OF u
+            )
+            UPDATE users u
+            SET death_date = l.death_date
+            FROM locked l
+            WHERE u.pinfl = l.pinfl
+            RETURNING u.id, u.pinfl, u.death_date
+            """;
+
+    // то же для пар (id, дата смерти)
+    private static final String MARK_DECEASED_BY_ID = """
+            WITH input AS (
+                SELECT * FROM unnest(CAST(? AS bigint[]), CAST(? AS date[])) AS t(id, death_date)
+            ), locked AS (
+                SELECT u.id, i.death_date
+                FROM users u
+                JOIN input i ON i.id = u.id
+                WHERE u.death_date IS NULL
+                ORDER BY u.id
+                FOR UPDATE OF u
+            )
+            UPDATE users u
+            SET death_date = l.death_date
+            FROM locked l
+            WHERE u.id = l.id
+            RETURNING u.id, u.pinfl, u.death_date
+            """;
+
+    // варианты для секционированной users (см. UserTableLayout): id переводится в pinfl через user_keys,
+    // и каждая строка читается и обновляется в своей секции по ключу секционирования
+    private static final String MARK_DECEASED_BY_ID_PARTITIONED = """
+            WITH input AS (
+                SELECT * FROM unnest(CAST(? AS bigint[]), CAST(? AS date[])) AS t(id, death_date)
+            ), locked AS (
+                SELECT u.id, u.pinfl, i.death_date
+                FROM input i
+                JOIN user_keys k ON k.id = i.id
+                JOIN users u ON u.pinfl = k.pinfl
+                WHERE u.death_date IS NULL
+                ORDER BY u.id
+                FOR UPDATE OF u
+            )
+            UPDATE users u
+            SET death_date = l.death_date
+            FROM locked l
+            WHERE u.pinfl = l.pinfl
+            RETURNING u.id, u.pinfl, u.death_date
+            """;
+
+    private static final String FIND_EXISTING_IDS = "SELECT id FROM users WHERE id = ANY (?)";
+
+    private static final String FIND_EXISTING_IDS_PARTITIONED = "SELECT id FROM user_keys WHERE id = ANY (?)";
+
+    private static final String FIND_BY_IDS = "SELECT * FROM users WHERE id = ANY (?)";
+
+    private static final String FIND_BY_IDS_PARTITIONED =
+            "SELECT u.* FROM user_keys k JOIN users u ON u.pinfl = k.pinfl WHERE k.id = ANY (?)";
+
+    private static final String FIND_BY_PINFLS = "SELECT * FROM users WHERE pinfl = ANY (?)";
+
+    private static final String FIND_EXISTING_PINFLS = "SELECT pinfl FROM users WHERE pinfl = ANY (?)";
+
+    private static final String FIND_EXISTING_KEYS = """
+            SELECT pinfl, email, phone_number
+            FROM users
+            WHERE pinfl = ANY (?) OR email = ANY (?) OR phone_number = ANY (?)
+            """;
+
+    // в секционированной users email и телефон индексированы только в user_keys
+    private static final String FIND_EXISTING_KEYS_PARTITIONED = """
+            SELECT pinfl, email, phone_number
+            FROM user_keys
+            WHERE pinfl = ANY (?) OR email = ANY (?) OR phone_number = ANY (?)
+            """;
+
+    // ранжированный поиск: оператор % отбирает кандидатов по trigram-индексу, порядок (score DESC, id ASC)
+    // стабилен, поэтому следующая страница продолжается строго после пары (score, id) последней строки
+    private static final String SEARCH_BY_SIMILARITY_FIRST = """
+            SELECT u.*, similarity(lower(u.full_name), ?) AS score
+            FROM users u
+            WHERE lower(u.full_name) % ?
+            ORDER BY score DESC, u.id ASC
+            LIMIT ?
+            """;
+
+    private static final String SEARCH_BY_SIMILARITY_NEXT = """
+            SELECT *
+            FROM (SELECT u.*, similarity(lower(u.full_name), ?) AS score
+                  FROM users u
+                  WHERE lower(u.full_name) % ?) ranked
+            WHERE ranked.score < CAST(? AS real) OR (ranked.score = CAST(? AS real) AND ranked.id > ?)
+            ORDER BY ranked.score DESC, ranked.id ASC
+            LIMIT ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRowMapper userRowMapper;
+    private final CitizenshipDictionary citizenshipDictionary;
+    private final UserTableLayout userTableLayout;
+
+    // поиск похожих имен, отсортированный по убыванию похожести; afterScore/afterId - позиция последней строки
+    // предыдущей страницы (null для первой страницы)
+    public List<ScoredUser> searchBySimilarity(String query, Float afterScore, Long afterId, int limit) {
+        RowMapper<ScoredUser> mapper = (rs, rowNum) ->
+                new ScoredUser(userRowMapper.mapRow(rs, rowNum), rs.getFloat("score"));
+        if (afterScore == null) {
+            return jdbcTemplate.query(SEARCH_BY_SIMILARITY_FIRST, mapper, query, query, limit);
+        }
+        return jdbcTemplate.query(SEARCH_BY_SIMILARITY_NEXT, mapper,
+                query, query, afterScore, afterScore, afterId, limit);
+    }
+
+    // одним запросом находит, какие из переданных pinfl, email и телефонов уже заняты
+    public ExistingKeys findExistingKeys(Collection<String> pinfls,
+                                         Collection<String> emails,
+                                         Collection<String> phoneNumbers) {
+        ExistingKeys existing = new ExistingKeys(new HashSet<>(), new HashSet<>(), new HashSet<>());
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(byLayout(FIND_EXISTING_KEYS, FIND_EXISTING_KEYS_PARTITIONED));
+            ps.setArray(1, con.createArrayOf("varchar", pinfls.toArray()));
+            ps.setArray(2, con.createArrayOf("varchar", emails.toArray()));
+            ps.setArray(3, con.createArrayOf("varchar", phoneNumbers.toArray()));
+            return ps;
+        }, rs -> {
+            String pinfl = rs.getString("pinfl");
+            String email = rs.getString("email");
+            String phoneNumber = rs.getString("phone_number");
+            if (pinfls.contains(pinfl)) {
+                existing.pinfls().add(pinfl);
+            }
+            if (emails.contains(email)) {
+                existing.emails().add(email);
+            }
+            if (phoneNumbers.contains(phoneNumber)) {
+                existing.phoneNumbers().add(phoneNumber);
+            }
+        });
+        return existing;
+    }
+
+    // отмечает смерть одним UPDATE на всю пачку, возвращает только реально измененные строки;
+    // pinfls и deathDates сопоставляются по индексу
+    public List<DeceasedUser> markDeceasedByPinfl(List<String> pinfls, List<LocalDate> deathDates) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(MARK_DECEASED_BY_PINFL);
+            ps.setArray(1, con.createArrayOf("varchar", pinfls.toArray()));
+            ps.setArray(2, con.createArrayOf("date", deathDates.stream().map(Date::valueOf).toArray()));
+            return ps;
+        }, (rs, rowNum) -> new DeceasedUser(
+                rs.getLong("id"),
+                rs.getString("pinfl"),
+                toLocalDate(rs.getDate("death_date"))));
+    }
+
+    public List<DeceasedUser> markDeceasedById(List<Long> ids, List<LocalDate> deathDates) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(byLayout(MARK_DECEASED_BY_ID, MARK_DECEASED_BY_ID_PARTITIONED));
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            ps.setArray(2, con.createArrayOf("date", deathDates.stream().map(Date::valueOf).toArray()));
+            return ps;
+        }, (rs, rowNum) -> new DeceasedUser(
+                rs.getLong("id"),
+                rs.getString("pinfl"),
+                toLocalDate(rs.getDate("death_date"))));
+    }
+
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        return new HashSet<>(jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(byLayout(FIND_EXISTING_IDS, FIND_EXISTING_IDS_PARTITIONED));
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        }, (rs, rowNum) -> rs.getLong("id")));
+    }
+
+    // один запрос на весь список: план с массивом в параметре не зависит от его длины
+    public List<UserResponseDto> findByIds(Collection<Long> ids) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(byLayout(FIND_BY_IDS, FIND_BY_IDS_PARTITIONED));
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        }, userRowMapper);
+    }
+
+    public List<UserResponseDto> findByPinfls(Collection<String> pinfls) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FIND_BY_PINFLS);
+            ps.setArray(1, con.createArrayOf("varchar", pinfls.toArray()));
+            return ps;
+        }, userRowMapper);
+    }
+
+    public Set<String> findExistingPinfls(Collection<String> pinfls) {
+        return new HashSet<>(jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FIND_EXISTING_PINFLS);
+            ps.setArray(1, con.createArrayOf("varchar", pinfls.toArray()));
+            return ps;
+        }, (rs, rowNum) -> rs.getString("pinfl")));
+    }
+
+    // потоково читает pinfl, email и телефоны всех пользователей; серверный курсор postgresql
+    // работает только при выключенном autocommit, поэтому вызывать внутри транзакции
+    public void streamUniqueKeys(RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(STREAM_UNIQUE_KEYS);
+            ps.setFetchSize(SCAN_FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+
+    // потоково читает id, pinfl и признак смерти всех пользователей; вызывать внутри транзакции (см. streamUniqueKeys)
+    public void streamStatuses(RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(STREAM_STATUSES);
+            ps.setFetchSize(SCAN_FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+
+    // потоково читает измерения демографических подсчетов всех пользователей; вызывать внутри транзакции
+    public void streamSnapshotRows(RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(STREAM_SNAPSHOT_ROWS);
+            ps.setFetchSize(SCAN_FETCH_SIZE);
+            return ps;
+        }, handler);
+    }
+
+    // pinfl -> жив ли пользователь, ненайденных pinfl в результате нет
+    public Map<String, Boolean> findAliveByPinfls(Collection<String> pinfls) {
+        Map<String, Boolean> alive = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FIND_ALIVE_BY_PINFLS);
+            ps.setArray(1, con.createArrayOf("varchar", pinfls.toArray()));
+            return ps;
+        }, (RowCallbackHandler) rs -> alive.put(rs.getString("pinfl"), rs.getBoolean("alive")));
+        return alive;
+    }
+
+    // записывает строки во временную таблицу через COPY и переносит их в users одним INSERT ... SELECT,
+    // возвращает id реально вставленных строк по pinfl; должен вызываться внутри транзакции.
+    // Новые гражданства добавляются в справочник в этой же транзакции
+    public Map<String, Long> copyInsert(List<StagedUser> rows) {
+        Map<String, Short> citizenshipIds = new HashMap<>();
+        for (StagedUser row : rows) {
+            citizenshipIds.computeIfAbsent(row.user().citizenship(), citizenshipDictionary::register);
+        }
+        jdbcTemplate.execute(CREATE_IMPORT_STAGE);
+        jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+            try {
+                return con.unwrap(PGConnection.class)
+                        .getCopyAPI()
+                        .copyIn(COPY_IMPORT_STAGE, new StringReader(toCopyCsv(rows, citizenshipIds)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        Map<String, Long> inserted = new HashMap<>(rows.size() * 2);
+        jdbcTemplate.query(INSERT_FROM_IMPORT_STAGE, rs -> {
+            inserted.put(rs.getString("pinfl"), rs.getLong("id"));
+        });
+        return inserted;
+    }
+
+    private String toCopyCsv(List<StagedUser> rows, Map<String, Short> citizenshipIds) {
+        StringBuilder csv = new StringBuilder(rows.size() * 256);
+        for (StagedUser row : rows) {
+            UserRequestDto dto = row.user();
+            csv.append(row.lineNumber());
+            appendCopyField(csv, dto.fullName());
+            appendCopyField(csv, dto.address());
+            appendCopyField(csv, dto.phoneNumber());
+            appendCopyField(csv, dto.email());
+            appendCopyField(csv, dto.photoUrl());
+            appendCopyField(csv, dto.pinfl());
+            appendCopyField(csv, dto.age());
+            appendCopyField(csv, dto.gender());
+            appendCopyField(csv, dto.documentType());
+            appendCopyField(csv, dto.issueDate());
+            appendCopyField(csv, dto.expiryDate());
+            appendCopyField(csv, citizenshipIds.get(dto.citizenship()));
+            appendCopyField(csv, dto.deathDate());
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+
+    // в формате COPY csv пустое поле без кавычек означает NULL, поэтому непустые значения всегда в кавычках
+    private void appendCopyField(StringBuilder csv, Object value) {
+        csv.append(',');
+        if (value == null) {
+            return;
+        }
+        csv.append('"').append(value.toString().replace("\"", "\"\"")).append('"');
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date == null ? null : date.toLocalDate();
+    }
+
+    private String byLayout(String plain, String partitioned) {
+        return userTableLayout.isPartitioned() ? partitioned : plain;
+    }
+
+    // пользователь вместе с оценкой похожести имени
+    public record ScoredUser(UserResponseDto user, float score) {
+    }
+
+    // пользователь, которому только что проставлена дата смерти
+    public record DeceasedUser(Long id, String pinfl, LocalDate deathDate) {
+    }
+
+    // строка импорта вместе с номером строки во входном файле
+    public record StagedUser(long lineNumber, UserRequestDto user) {
+    }
+
+    // pinfl, email и телефоны, которые уже есть в базе данных
+    public record ExistingKeys(Set<String> pinfls, Set<String> emails, Set<String> phoneNumbers) {
+    }
+}
@@ -0,0 +1,107 @@
+package uz.javacourse.jgcp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class UserOutboxRepository {
+
+    private static final String INSERT = """
+            INSERT INTO user_outbox (topic, message_key, payload) VALUES (?, ?, CAST(? AS jsonb))
+            """;
+
+    // пачки забираются по очереди, в каждый момент публикует один узел и порядок по ключу сохраняется
+    private static final String TRY_LOCK_RELAY = "SELECT pg_try_advisory_xact_lock(hashtext('user_outbox_relay'))";
+
+    // пачку держит другой узел: ее нельзя обгонять, иначе нарушится порядок событий по ключу
+    private static final String CLAIMED_BY_OTHERS = """
+            SELECT EXISTS (SELECT 1 FROM user_outbox WHERE claimed_until > now() AND claimed_by <> ?)
+            """;
+
+    // голова очереди, включая пачки с истекшей арендой
+    private static final String CLAIM_BATCH = """
+            UPDATE user_outbox o
+            SET claimed_by = ?, claimed_until = now() + CAST(? AS interval)
+            FROM (SELECT id FROM user_outbox ORDER BY id LIMIT ?) head
+            WHERE o.id = head.id
+            RETURNING o.id, o.topic, o.message_key, o.payload::text AS payload
+            """;
+
+    private static final String RELEASE = """
+            UPDATE user_outbox SET claimed_by = NULL, claimed_until = NULL WHERE id = ANY (?) AND claimed_by = ?
+            """;
+
+    private static final String DELETE = "DELETE FROM user_outbox WHERE id = ANY (?) AND claimed_by = ?";
+
+    private static final String OLDEST_CREATED_AT = "SELECT created_at FROM user_outbox ORDER BY id LIMIT 1";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // добавляет сообщения в текущую транзакцию
+    public void append(List<OutboxMessage> messages) {
+        jdbcTemplate.batchUpdate(INSERT, messages, messages.size(), (ps, message) -> {
+            ps.setString(1, message.topic());
+            ps.setString(2, message.key());
+            ps.setString(3, message.payload());
+        });
+    }
+
+    // блокировка держится до конца транзакции и только упорядочивает забор пачек узлами
+    public boolean tryLockRelay() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK_RELAY, Boolean.class));
+    }
+
+    // забирает следующую пачку на claimTimeout, вызывать под tryLockRelay; пустой список, если
+    // незавершенная пачка есть у другого узла. Сообщения возвращаются в порядке id
+    public List<OutboxMessage> claimBatch(String owner, Duration claimTimeout, int limit) {
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(CLAIMED_BY_OTHERS, Boolean.class, owner))) {
+            return List.of();
+        }
+        List<OutboxMessage> batch = new ArrayList<>(jdbcTemplate.query(CLAIM_BATCH, (rs, rowNum) -> new OutboxMessage(
+                rs.getLong("id"),
+                rs.getString("topic"),
+                rs.getString("message_key"),
+                rs.getString("payload")), owner, claimTimeout.toMillis() + " milliseconds", limit));
+        batch.sort(Comparator.comparing(OutboxMessage::id));
+        return batch;
+    }
+
+    // возвращает пачку в очередь после неудачной отправки
+    public void release(List<Long> ids, String owner) {
+        updateClaimed(RELEASE, ids, owner);
+    }
+
+    // удаляет опубликованные сообщения, если пачку за это время не забрал другой узел
+    public void delete(List<Long> ids, String owner) {
+        updateClaimed(DELETE, ids, owner);
+    }
+
+    private void updateClaimed(String sql, List<Long> ids, String owner) {
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            ps.setString(2, owner);
+            return ps;
+        });
+    }
+
+    // время создания самого старого неопубликованного события или null, если outbox пуст
+    public Instant oldestCreatedAt() {
+        List<Timestamp> oldest = jdbcTemplate.queryForList(OLDEST_CREATED_AT, Timestamp.class);
+        return oldest.isEmpty() ? null : oldest.getFirst().toInstant();
+    }
+
+    // id равен null, пока сообщение не записано
+    public record OutboxMessage(Long id, String topic, String key, String payload) {
+    }
+}
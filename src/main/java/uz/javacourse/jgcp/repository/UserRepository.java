@@ -1,46 +1,109 @@
 package uz.javacourse.jgcp.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import uz.javacourse.jgcp.constant.enums.DocumentType;
 import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
 import uz.javacourse.jgcp.entity.User;
 
 import java.time.LocalDate;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
-    // основные методы поиска
-    @Query("SELECT u FROM User u WHERE u.pinfl = :pinfl")
-    Optional<User> findByPinfl(@Param("pinfl") String pinfl);
-
-    // проверка уникальности
-    @Query("SELECT CASE WHEN COUNT(u) > 0 THEN true ELSE false END FROM User u WHERE u.pinfl = :pinfl")
-    boolean existsByPinfl(@Param("pinfl") String pinfl);
-
-    @Query("SELECT CASE WHEN COUNT(u) > 0 THEN true ELSE false END FROM User u WHERE u.email = :email")
-    boolean existsByEmail(@Param("email") String email);
-
-    @Query("SELECT CASE WHEN COUNT(u) > 0 THEN true ELSE false END FROM User u WHERE u.phoneNumber = :phoneNumber")
-    boolean existsByPhoneNumber(@Param("phoneNumber") String phoneNumber);
-
-    // поиск по имени с пагинацией
-    @Query("SELECT u FROM User u WHERE LOWER(u.fullName) LIKE LOWER(CONCAT('%', :name, '%'))")
-    Slice<User> findByFullNameContainingIgnoreCase(@Param("name") String name, Pageable pageable);
+    // сколько строк драйвер забирает с серверного курсора за один раз при потоковой выгрузке
+    String STREAM_FETCH_SIZE = "1000";
+
+    // чтение сразу в UserResponseDto: hibernate не создает управляемые сущности, не хранит их снимки
+    // для dirty checking и не нужен маппер; используется всеми методами чтения, кроме потоковой выгрузки
+    String RESPONSE_SELECT = """
+            SELECT new uz.javacourse.jgcp.dto.response.UserResponseDto(
+                u.id, u.fullName, u.address, u.phoneNumber, u.email, u.photoUrl, u.pinfl, u.age,
+                u.gender, u.documentType, u.issueDate, u.expiryDate, u.citizenship, u.deathDate)
+            FROM User u""";
+
+    // основные методы поиска; вызываются при промахе кэша вне транзакции сервиса,
+    // поэтому read-only транзакция объявлена здесь
+    @Transactional(readOnly = true)
+    @Query(RESPONSE_SELECT + " WHERE u.id = :id")
+    Optional<UserResponseDto> findResponseById(@Param("id") Long id);
+
+    @Transactional(readOnly = true)
+    @Query(RESPONSE_SELECT + " WHERE u.pinfl = :pinfl")
+    Optional<UserResponseDto> findResponseByPinfl(@Param("pinfl") String pinfl);
+
+    @Query("SELECT CASE WHEN u.deathDate IS NULL THEN true ELSE false END FROM User u WHERE u.id = :id")
+    Optional<Boolean> findAliveById(@Param("id") Long id);
+
+    // варианты поиска по id для секционированной users (см. UserTableLayout): pinfl из user_keys вычисляется
+    // до чтения users, поэтому postgresql отсекает все секции, кроме одной, уже при выполнении запроса
+    String BY_ID_VIA_KEYS = " WHERE u.pinfl = (SELECT k.pinfl FROM UserKey k WHERE k.id = :id) AND u.id = :id";
+
+    @Transactional(readOnly = true)
+    @Query(RESPONSE_SELECT + BY_ID_VIA_KEYS)
+    Optional<UserResponseDto> findResponseByIdViaKeys(@Param("id") Long id);
+
+    @Query("SELECT CASE WHEN u.deathDate IS NULL THEN true ELSE false END FROM User u" + BY_ID_VIA_KEYS)
+    Optional<Boolean> findAliveByIdViaKeys(@Param("id") Long id);
+
+    @Query("SELECT u FROM User u" + BY_ID_VIA_KEYS)
+    Optional<User> findByIdViaKeys(@Param("id") Long id);
+
+    // изменение с ключом секционирования вместо сохранения сущности: hibernate обновляет строку по одному id,
+    // и в секционированной users такой UPDATE проверяет все 16 секций. Контекст очищается, чтобы загруженная
+    // сущность не записалась повторно при сбросе; 0 - строку уже изменила параллельная транзакция
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.deathDate = :deathDate WHERE u.pinfl = :pinfl AND u.id = :id AND u.deathDate IS NULL")
+    int markDeceased(@Param("id") Long id, @Param("pinfl") String pinfl, @Param("deathDate") LocalDate deathDate);
+
+    // проверка уникальности pinfl, email и телефона одним запросом по трем уникальным индексам
+    @Query(value = """
+            SELECT COALESCE(bool_or(pinfl = :pinfl), false) AS "pinflTaken",
+                   COALESCE(bool_or(email = :email), false) AS "emailTaken",
+                   COALESCE(bool_or(phone_number = :phoneNumber), false) AS "phoneNumberTaken"
+            FROM users
+            WHERE pinfl = :pinfl OR email = :email OR phone_number = :phoneNumber
+            """, nativeQuery = true)
+    UniquenessProbe probeUniqueness(@Param("pinfl") String pinfl,
+                                    @Param("email") String email,
+                                    @Param("phoneNumber") String phoneNumber);
+
+    // то же для секционированной users: email и телефон индексированы только в user_keys
+    @Query(value = """
+            SELECT COALESCE(bool_or(pinfl = :pinfl), false) AS "pinflTaken",
+                   COALESCE(bool_or(email = :email), false) AS "emailTaken",
+                   COALESCE(bool_or(phone_number = :phoneNumber), false) AS "phoneNumberTaken"
+            FROM user_keys
+            WHERE pinfl = :pinfl OR email = :email OR phone_number = :phoneNumber
+            """, nativeQuery = true)
+    UniquenessProbe probeUniquenessViaKeys(@Param("pinfl") String pinfl,
+                                           @Param("email") String email,
+                                           @Param("phoneNumber") String phoneNumber);
+
+    // поиск по имени с пагинацией; pattern строится через LikePatterns (уже в нижнем регистре и экранирован),
+    // чтобы условие совпадало с выражением trigram-индекса idx_users_full_name_trgm
+    @Query(RESPONSE_SELECT + " WHERE LOWER(u.fullName) LIKE :pattern ESCAPE '!'")
+    Slice<UserResponseDto> findByFullNameLike(@Param("pattern") String pattern, Pageable pageable);
 
     // живые пользователи с пагинацией
-    @Query("SELECT u FROM User u WHERE u.deathDate IS NULL")
-    Slice<User> findByDeathDateIsNull(Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.deathDate IS NULL")
+    Slice<UserResponseDto> findByDeathDateIsNull(Pageable pageable);
 
     // умершие пользователи с пагинацией
-    @Query("SELECT u FROM User u WHERE u.deathDate IS NOT NULL")
-    Slice<User> findByDeathDateIsNotNull(Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.deathDate IS NOT NULL")
+    Slice<UserResponseDto> findByDeathDateIsNotNull(Pageable pageable);
 
     @Query("SELECT COUNT(u) FROM User u WHERE u.deathDate IS NULL")
     long countByDeathDateIsNull();
@@ -49,95 +112,100 @@ public interface UserRepository extends JpaRepository<User, Long> {
     long countByDeathDateIsNotNull();
 
     // поиск по дате смерти с пагинацией
-    @Query("SELECT u FROM User u WHERE u.deathDate BETWEEN :start AND :end")
-    Slice<User> findByDeathDateBetween(@Param("start") LocalDate start,
+    @Query(RESPONSE_SELECT + " WHERE u.deathDate BETWEEN :start AND :end")
+    Slice<UserResponseDto> findByDeathDateBetween(@Param("start") LocalDate start,
                                       @Param("end") LocalDate end,
                                       Pageable pageable);
 
     // документы
-    @Query("SELECT u FROM User u WHERE u.expiryDate < :date")
-    Slice<User> findByExpiryDateBefore(@Param("date") LocalDate date, Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.expiryDate < :date")
+    Slice<UserResponseDto> findByExpiryDateBefore(@Param("date") LocalDate date, Pageable pageable);
 
-    @Query("SELECT u FROM User u WHERE u.expiryDate BETWEEN :start AND :end")
-    Slice<User> findByExpiryDateBetween(@Param("start") LocalDate start,
+    @Query(RESPONSE_SELECT + " WHERE u.expiryDate BETWEEN :start AND :end")
+    Slice<UserResponseDto> findByExpiryDateBetween(@Param("start") LocalDate start,
                                        @Param("end") LocalDate end,
                                        Pageable pageable);
 
-    @Query("SELECT u FROM User u WHERE u.documentType = :documentType")
-    Slice<User> findByDocumentType(@Param("documentType") DocumentType documentType, Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.documentType = :documentType")
+    Slice<UserResponseDto> findByDocumentType(@Param("documentType") DocumentType documentType, Pageable pageable);
 
     // демографическая статистика
-    @Query("SELECT u FROM User u WHERE u.gender = :gender")
-    Slice<User> findByGender(@Param("gender") Gender gender, Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.gender = :gender")
+    Slice<UserResponseDto> findByGender(@Param("gender") Gender gender, Pageable pageable);
 
     @Query("SELECT COUNT(u) FROM User u WHERE u.gender = :gender")
     long countByGender(@Param("gender") Gender gender);
 
-    @Query("SELECT u FROM User u WHERE u.citizenship = :citizenship")
-    Slice<User> findByCitizenship(@Param("citizenship") String citizenship, Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.citizenship = :citizenship")
+    Slice<UserResponseDto> findByCitizenship(@Param("citizenship") String citizenship, Pageable pageable);
 
     @Query("SELECT COUNT(u) FROM User u WHERE u.citizenship = :citizenship")
     long countByCitizenship(@Param("citizenship") String citizenship);
 
-    @Query("SELECT u FROM User u WHERE u.age BETWEEN :minAge AND :maxAge")
-    Slice<User> findByAgeBetween(@Param("minAge") Integer minAge,
+    @Query(RESPONSE_SELECT + " WHERE u.age BETWEEN :minAge AND :maxAge")
+    Slice<UserResponseDto> findByAgeBetween(@Param("minAge") Integer minAge,
                                 @Param("maxAge") Integer maxAge,
                                 Pageable pageable);
 
     // комбинированные запросы
-    @Query("SELECT u FROM User u WHERE u.deathDate IS NULL AND u.expiryDate < :date")
-    Slice<User> findByDeathDateIsNullAndExpiryDateBefore(@Param("date") LocalDate date, Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.deathDate IS NULL AND u.expiryDate < :date")
+    Slice<UserResponseDto> findByDeathDateIsNullAndExpiryDateBefore(@Param("date") LocalDate date, Pageable pageable);
 
-    @Query("SELECT u FROM User u WHERE u.gender = :gender AND u.age BETWEEN :minAge AND :maxAge")
-    Slice<User> findByGenderAndAgeBetween(@Param("gender") Gender gender,
+    @Query(RESPONSE_SELECT + " WHERE u.gender = :gender AND u.age BETWEEN :minAge AND :maxAge")
+    Slice<UserResponseDto> findByGenderAndAgeBetween(@Param("gender") Gender gender,
                                          @Param("minAge") Integer minAge,
                                          @Param("maxAge") Integer maxAge,
                                          Pageable pageable);
 
     // метод для получения всех пользователей с пагинацией
-    Slice<User> findAllBy(Pageable pageable);
+    @Query(RESPONSE_SELECT)
+    Slice<UserResponseDto> findAllBy(Pageable pageable);
 
     //  KEYSET (CURSOR-BASED) ПАГИНАЦИЯ
     // Быстрая пагинация через afterId - не зависит от глубины страницы
 
-    @Query("SELECT u FROM User u WHERE u.id > :afterId ORDER BY u.id ASC")
-    Slice<User> findAllByIdGreaterThan(@Param("afterId") Long afterId, Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.id > :afterId ORDER BY u.id ASC")
+    Slice<UserResponseDto> findAllByIdGreaterThan(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query(RESPONSE_SELECT + " WHERE LOWER(u.fullName) LIKE :pattern ESCAPE '!' AND u.id > :afterId ORDER BY u.id ASC")
+    Slice<UserResponseDto> findByFullNameLikeAndIdGreaterThan(@Param("pattern") String pattern, @Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT u FROM User u WHERE LOWER(u.fullName) LIKE LOWER(CONCAT('%', :name, '%')) AND u.id > :afterId ORDER BY u.id ASC")
-    Slice<User> findByFullNameContainingIgnoreCaseAndIdGreaterThan(@Param("name") String name, @Param("afterId") Long afterId, Pageable pageable);
+    // поиск по началу имени, использует тот же trigram-индекс
+    @Query(RESPONSE_SELECT + " WHERE LOWER(u.fullName) LIKE :prefixPattern ESCAPE '!' AND u.id > :afterId ORDER BY u.id ASC")
+    Slice<UserResponseDto> findByFullNameStartingWithAndIdGreaterThan(@Param("prefixPattern") String prefixPattern, @Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT u FROM User u WHERE u.deathDate IS NULL AND u.id > :afterId ORDER BY u.id ASC")
-    Slice<User> findByDeathDateIsNullAndIdGreaterThan(@Param("afterId") Long afterId, Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.deathDate IS NULL AND u.id > :afterId ORDER BY u.id ASC")
+    Slice<UserResponseDto> findByDeathDateIsNullAndIdGreaterThan(@Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT u FROM User u WHERE u.deathDate IS NOT NULL AND u.id > :afterId ORDER BY u.id ASC")
-    Slice<User> findByDeathDateIsNotNullAndIdGreaterThan(@Param("afterId") Long afterId, Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.deathDate IS NOT NULL AND u.id > :afterId ORDER BY u.id ASC")
+    Slice<UserResponseDto> findByDeathDateIsNotNullAndIdGreaterThan(@Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT u FROM User u WHERE u.deathDate BETWEEN :start AND :end AND u.id > :afterId ORDER BY u.id ASC")
-    Slice<User> findByDeathDateBetweenAndIdGreaterThan(@Param("start") LocalDate start, @Param("end") LocalDate end, @Param("afterId") Long afterId, Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.deathDate BETWEEN :start AND :end AND u.id > :afterId ORDER BY u.id ASC")
+    Slice<UserResponseDto> findByDeathDateBetweenAndIdGreaterThan(@Param("start") LocalDate start, @Param("end") LocalDate end, @Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT u FROM User u WHERE u.expiryDate < :date AND u.id > :afterId ORDER BY u.id ASC")
-    Slice<User> findByExpiryDateBeforeAndIdGreaterThan(@Param("date") LocalDate date, @Param("afterId") Long afterId, Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.expiryDate < :date AND u.id > :afterId ORDER BY u.id ASC")
+    Slice<UserResponseDto> findByExpiryDateBeforeAndIdGreaterThan(@Param("date") LocalDate date, @Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT u FROM User u WHERE u.expiryDate BETWEEN :start AND :end AND u.id > :afterId ORDER BY u.id ASC")
-    Slice<User> findByExpiryDateBetweenAndIdGreaterThan(@Param("start") LocalDate start, @Param("end") LocalDate end, @Param("afterId") Long afterId, Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.expiryDate BETWEEN :start AND :end AND u.id > :afterId ORDER BY u.id ASC")
+    Slice<UserResponseDto> findByExpiryDateBetweenAndIdGreaterThan(@Param("start") LocalDate start, @Param("end") LocalDate end, @Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT u FROM User u WHERE u.documentType = :documentType AND u.id > :afterId ORDER BY u.id ASC")
-    Slice<User> findByDocumentTypeAndIdGreaterThan(@Param("documentType") DocumentType documentType, @Param("afterId") Long afterId, Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.documentType = :documentType AND u.id > :afterId ORDER BY u.id ASC")
+    Slice<UserResponseDto> findByDocumentTypeAndIdGreaterThan(@Param("documentType") DocumentType documentType, @Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT u FROM User u WHERE u.gender = :gender AND u.id > :afterId ORDER BY u.id ASC")
-    Slice<User> findByGenderAndIdGreaterThan(@Param("gender") Gender gender, @Param("afterId") Long afterId, Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.gender = :gender AND u.id > :afterId ORDER BY u.id ASC")
+    Slice<UserResponseDto> findByGenderAndIdGreaterThan(@Param("gender") Gender gender, @Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT u FROM User u WHERE u.citizenship = :citizenship AND u.id > :afterId ORDER BY u.id ASC")
-    Slice<User> findByCitizenshipAndIdGreaterThan(@Param("citizenship") String citizenship, @Param("afterId") Long afterId, Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.citizenship = :citizenship AND u.id > :afterId ORDER BY u.id ASC")
+    Slice<UserResponseDto> findByCitizenshipAndIdGreaterThan(@Param("citizenship") String citizenship, @Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT u FROM User u WHERE u.age BETWEEN :minAge AND :maxAge AND u.id > :afterId ORDER BY u.id ASC")
-    Slice<User> findByAgeBetweenAndIdGreaterThan(@Param("minAge") Integer minAge, @Param("maxAge") Integer maxAge, @Param("afterId") Long afterId, Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.age BETWEEN :minAge AND :maxAge AND u.id > :afterId ORDER BY u.id ASC")
+    Slice<UserResponseDto> findByAgeBetweenAndIdGreaterThan(@Param("minAge") Integer minAge, @Param("maxAge") Integer maxAge, @Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT u FROM User u WHERE u.deathDate IS NULL AND u.expiryDate < :date AND u.id > :afterId ORDER BY u.id ASC")
-    Slice<User> findByDeathDateIsNullAndExpiryDateBeforeAndIdGreaterThan(@Param("date") LocalDate date, @Param("afterId") Long afterId, Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.deathDate IS NULL AND u.expiryDate < :date AND u.id > :afterId ORDER BY u.id ASC")
+    Slice<UserResponseDto> findByDeathDateIsNullAndExpiryDateBeforeAndIdGreaterThan(@Param("date") LocalDate date, @Param("afterId") Long afterId, Pageable pageable);
 
-    @Query("SELECT u FROM User u WHERE u.gender = :gender AND u.age BETWEEN :minAge AND :maxAge AND u.id > :afterId ORDER BY u.id ASC")
-    Slice<User> findByGenderAndAgeBetweenAndIdGreaterThan(@Param("gender") Gender gender, @Param("minAge") Integer minAge, @Param("maxAge") Integer maxAge, @Param("afterId") Long afterId, Pageable pageable);
+    @Query(RESPONSE_SELECT + " WHERE u.gender = :gender AND u.age BETWEEN :minAge AND :maxAge AND u.id > :afterId ORDER BY u.id ASC")
+    Slice<UserResponseDto> findByGenderAndAgeBetweenAndIdGreaterThan(@Param("gender") Gender gender, @Param("minAge") Integer minAge, @Param("maxAge") Integer maxAge, @Param("afterId") Long afterId, Pageable pageable);
 
     // статистика - count методы
     @Query("SELECT COUNT(u) FROM User u WHERE u.expiryDate < :date")
@@ -160,4 +228,72 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     @Query("SELECT COUNT(u) FROM User u WHERE u.gender = :gender AND u.age BETWEEN :minAge AND :maxAge")
     long countByGenderAndAgeBetween(@Param("gender") Gender gender, @Param("minAge") Integer minAge, @Param("maxAge") Integer maxAge);
+
+    // ПОТОКОВАЯ ВЫГРУЗКА
+    // Stream читается через серверный курсор (forward-only), поэтому вызывать только внутри read-only транзакции
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u FROM User u ORDER BY u.id")
+    Stream<User> streamAllBy();
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u FROM User u WHERE LOWER(u.fullName) LIKE :pattern ESCAPE '!' ORDER BY u.id")
+    Stream<User> streamByFullNameLike(@Param("pattern") String pattern);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u FROM User u WHERE u.deathDate IS NULL ORDER BY u.id")
+    Stream<User> streamByDeathDateIsNull();
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u FROM User u WHERE u.deathDate IS NOT NULL ORDER BY u.id")
+    Stream<User> streamByDeathDateIsNotNull();
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u FROM User u WHERE u.deathDate BETWEEN :start AND :end ORDER BY u.id")
+    Stream<User> streamByDeathDateBetween(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u FROM User u WHERE u.expiryDate < :date ORDER BY u.id")
+    Stream<User> streamByExpiryDateBefore(@Param("date") LocalDate date);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u FROM User u WHERE u.expiryDate BETWEEN :start AND :end ORDER BY u.id")
+    Stream<User> streamByExpiryDateBetween(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u FROM User u WHERE u.documentType = :documentType ORDER BY u.id")
+    Stream<User> streamByDocumentType(@Param("documentType") DocumentType documentType);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u FROM User u WHERE u.gender = :gender ORDER BY u.id")
+    Stream<User> streamByGender(@Param("gender") Gender gender);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u FROM User u WHERE u.citizenship = :citizenship ORDER BY u.id")
+    Stream<User> streamByCitizenship(@Param("citizenship") String citizenship);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u FROM User u WHERE u.age BETWEEN :minAge AND :maxAge ORDER BY u.id")
+    Stream<User> streamByAgeBetween(@Param("minAge") Integer minAge, @Param("maxAge") Integer maxAge);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u FROM User u WHERE u.deathDate IS NULL AND u.expiryDate < :date ORDER BY u.id")
+    Stream<User> streamByDeathDateIsNullAndExpiryDateBefore(@Param("date") LocalDate date);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT u FROM User u WHERE u.gender = :gender AND u.age BETWEEN :minAge AND :maxAge ORDER BY u.id")
+    Stream<User> streamByGenderAndAgeBetween(@Param("gender") Gender gender, @Param("minAge") Integer minAge, @Param("maxAge") Integer maxAge);
 }
@@ -0,0 +1,113 @@
+package uz.javacourse.jgcp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import uz.javacourse.jgcp.constant.enums.CounterDimension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class UserStatCounterRepository {
+
+    private static final String UPSERT_COUNTER = """
+            INSERT INTO user_stat_counters (dimension, bucket, slot, value) VALUES (?, ?, ?, ?)
+            ON CONFLICT (dimension, bucket, slot) DO UPDATE SET value = user_stat_counters.value + EXCLUDED.value
+            """;
+
+    private static final String UPSERT_AGE = """
+            INSERT INTO user_age_histogram (age, slot, value) VALUES (?, ?, ?)
+            ON CONFLICT (age, slot) DO UPDATE SET value = user_age_histogram.value + EXCLUDED.value
+            """;
+
+    private static final String SUM_COUNTER =
+            "SELECT COALESCE(SUM(value), 0) FROM user_stat_counters WHERE dimension = ? AND bucket = ?";
+
+    private static final String SUM_DIMENSION =
+            "SELECT COALESCE(SUM(value), 0) FROM user_stat_counters WHERE dimension = ?";
+
+    private static final String SUM_AGES =
+            "SELECT COALESCE(SUM(value), 0) FROM user_age_histogram WHERE age BETWEEN ? AND ?";
+
+    // псевдоизмерение гистограммы возрастов в FIND_DRIFT
+    private static final String AGE_DIMENSION = "AGE";
+
+    // маска GROUPING: бит набора, по которому сгруппирована строка, равен нулю
+    private static final String FIND_DRIFT = """
+            WITH grouped AS (
+                SELECT death_date IS NULL AS alive, gender::text AS gender, document_type::text AS document_type,
+                       citizenship_id, age, COUNT(*) AS value,
+                       GROUPING(death_date IS NULL, gender, document_type, citizenship_id, age) AS grouping_id
+                FROM users
+                GROUP BY GROUPING SETS ((death_date IS NULL), (gender), (document_type), (citizenship_id), (age))
+            ), actual AS (
+                SELECT 'STATUS' AS dimension, CASE WHEN alive THEN 'ALIVE' ELSE 'DECEASED' END AS bucket, value
+                FROM grouped WHERE grouping_id = 15
+                UNION ALL SELECT 'GENDER', gender, value FROM grouped WHERE grouping_id = 23
+                UNION ALL SELECT 'DOCUMENT_TYPE', document_type, value FROM grouped WHERE grouping_id = 27
+                UNION ALL SELECT 'CITIZENSHIP', c.name, g.value
+                FROM grouped g JOIN citizenships c ON c.id = g.citizenship_id WHERE g.grouping_id = 29
+                UNION ALL SELECT 'AGE', age::text, value FROM grouped WHERE grouping_id = 30
+            ), stored AS (
+                SELECT dimension, bucket, SUM(value) AS value FROM user_stat_counters GROUP BY dimension, bucket
+                UNION ALL SELECT 'AGE', age::text, SUM(value) FROM user_age_histogram GROUP BY age
+            )
+            SELECT COALESCE(a.dimension, s.dimension) AS dimension, COALESCE(a.bucket, s.bucket) AS bucket,
+                   COALESCE(a.value, 0) - COALESCE(s.value, 0) AS delta
+            FROM actual a FULL JOIN stored s ON a.dimension = s.dimension AND a.bucket = s.bucket
+            WHERE COALESCE(a.value, 0) <> COALESCE(s.value, 0)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // применяет изменения в текущей транзакции, все строки пишутся в один слот
+    public void apply(UserCounterDeltas deltas, int slot) {
+        List<Object[]> counterArgs = new ArrayList<>(deltas.counters().size());
+        for (Map.Entry<String, Long> entry : deltas.counters().entrySet()) {
+            String[] key = entry.getKey().split("\\|", 2);
+            counterArgs.add(new Object[]{key[0], key[1], slot, entry.getValue()});
+        }
+        List<Object[]> ageArgs = new ArrayList<>(deltas.ages().size());
+        for (Map.Entry<Integer, Long> entry : deltas.ages().entrySet()) {
+            ageArgs.add(new Object[]{entry.getKey(), slot, entry.getValue()});
+        }
+        if (!counterArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_COUNTER, counterArgs);
+        }
+        if (!ageArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_AGE, ageArgs);
+        }
+    }
+
+    public long sum(CounterDimension dimension, String bucket) {
+        return jdbcTemplate.queryForObject(SUM_COUNTER, Long.class, dimension.name(), bucket);
+    }
+
+    public long sum(CounterDimension dimension) {
+        return jdbcTemplate.queryForObject(SUM_DIMENSION, Long.class, dimension.name());
+    }
+
+    public long sumAges(int minAge, int maxAge) {
+        return jdbcTemplate.queryForObject(SUM_AGES, Long.class, minAge, maxAge);
+    }
+
+    // расхождение счетчиков с таблицей users: фактическое значение минус сохраненное по каждому счетчику
+    // и корзине гистограммы (AGE), только ненулевые. users читается одним проходом через GROUPING SETS.
+    // Вызывать в транзакции REPEATABLE READ: регистрация меняет users и счетчики одной транзакцией,
+    // поэтому в одном снимке разница не зависит от параллельных регистраций и ее можно прибавить позже
+    public UserCounterDeltas findDrift() {
+        UserCounterDeltas drift = new UserCounterDeltas();
+        jdbcTemplate.query(FIND_DRIFT, rs -> {
+            String dimension = rs.getString("dimension");
+            if (AGE_DIMENSION.equals(dimension)) {
+                drift.addAge(Integer.parseInt(rs.getString("bucket")), rs.getLong("delta"));
+            } else {
+                drift.add(CounterDimension.valueOf(dimension), rs.getString("bucket"), rs.getLong("delta"));
+            }
+        });
+        return drift;
+    }
+}
@@ -0,0 +1,92 @@
+package uz.javacourse.jgcp.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import uz.javacourse.jgcp.cache.CitizenshipDictionary;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.response.UserStatsDto;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Repository
+@RequiredArgsConstructor
+public class UserStatsRepository {
+
+    // все агрегаты за один проход по таблице: строка с пустым набором группировки дает общие числа,
+    // остальные наборы - разбивку по полу, типу документа, гражданству и возрастным корзинам
+    private static final String STATS_QUERY = """
+            SELECT GROUPING(gender) AS g_gender,
+                   GROUPING(document_type) AS g_document_type,
+                   GROUPING(citizenship_id) AS g_citizenship,
+                   GROUPING(age / 10) AS g_age,
+                   gender,
+                   document_type,
+                   citizenship_id,
+                   (age / 10) * 10 AS age_from,
+                   COUNT(*) AS total,
+                   COUNT(*) FILTER (WHERE death_date IS NULL) AS alive,
+                   COUNT(*) FILTER (WHERE death_date IS NOT NULL) AS deceased,
+                   COUNT(*) FILTER (WHERE expiry_date < CAST(? AS date)) AS expired,
+                   COUNT(*) FILTER (WHERE death_date IS NULL AND expiry_date < CAST(? AS date)) AS alive_expired,
+                   COUNT(*) FILTER (WHERE expiry_date BETWEEN CAST(? AS date) AND CAST(? AS date)) AS expiring_between,
+                   COUNT(*) FILTER (WHERE death_date BETWEEN CAST(? AS date) AND CAST(? AS date)) AS deceased_between
+            FROM users
+            GROUP BY GROUPING SETS ((), (gender), (document_type), (citizenship_id), (age / 10))
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CitizenshipDictionary citizenshipDictionary;
+
+    public UserStatsDto calculate(LocalDate today,
+                                  LocalDate expiringStart, LocalDate expiringEnd,
+                                  LocalDate deceasedStart, LocalDate deceasedEnd) {
+        Map<Gender, Long> byGender = new EnumMap<>(Gender.class);
+        Map<DocumentType, Long> byDocumentType = new EnumMap<>(DocumentType.class);
+        Map<String, Long> byCitizenship = new TreeMap<>();
+        Map<Integer, Long> byAge = new TreeMap<>();
+        UserStatsDto.UserStatsDtoBuilder stats = UserStatsDto.builder();
+
+        jdbcTemplate.query(STATS_QUERY, rs -> {
+            long total = rs.getLong("total");
+            if (rs.getInt("g_gender") == 0) {
+                byGender.put(Gender.valueOf(rs.getString("gender")), total);
+            } else if (rs.getInt("g_document_type") == 0) {
+                byDocumentType.put(DocumentType.valueOf(rs.getString("document_type")), total);
+            } else if (rs.getInt("g_citizenship") == 0) {
+                byCitizenship.put(citizenshipDictionary.nameOf(rs.getShort("citizenship_id")), total);
+            } else if (rs.getInt("g_age") == 0) {
+                byAge.put(rs.getInt("age_from"), total);
+            } else {
+                stats.total(total)
+                        .alive(rs.getLong("alive"))
+                        .deceased(rs.getLong("deceased"))
+                        .expiredDocuments(rs.getLong("expired"))
+                        .aliveWithExpiredDocuments(rs.getLong("alive_expired"))
+                        .documentsExpiringBetween(expiringStart == null ? null : rs.getLong("expiring_between"))
+                        .deceasedBetween(deceasedStart == null ? null : rs.getLong("deceased_between"));
+            }
+        }, toDate(today), toDate(today), toDate(expiringStart), toDate(expiringEnd),
+                toDate(deceasedStart), toDate(deceasedEnd));
+
+        Map<String, Long> byAgeBucket = new LinkedHashMap<>();
+        byAge.forEach((from, count) -> byAgeBucket.put(from + "-" + (from + 9), count));
+        return stats.byGender(byGender)
+                .byDocumentType(byDocumentType)
+                .byCitizenship(byCitizenship)
+                .byAgeBucket(byAgeBucket)
+                .calculatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static Date toDate(LocalDate date) {
+        return date == null ? null : Date.valueOf(date);
+    }
+}
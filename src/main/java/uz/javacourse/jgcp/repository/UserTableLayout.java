@@ -0,0 +1,49 @@
+package uz.javacourse.jgcp.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import uz.javacourse.jgcp.migration.OnlineMigrationFinishedEvent;
+import uz.javacourse.jgcp.migration.UsersPartitioningMigration;
+
+// какая таблица сейчас стоит под именем users: обычная (V1) или секционированная по хешу pinfl (V14).
+// Запросы по id и по email/телефону в секционированной таблице идут через user_keys, которая до замены
+// заполнена не полностью, поэтому такие варианты включаются только после замены. Обычные запросы
+// корректны в обоих вариантах, поэтому задержка обнаружения влияет только на скорость. Узел, выполнивший
+// замену, переключается сразу после нее, остальные - когда узнают о завершении users-partitioning
+// (app.online-migrations.heartbeat-interval); периодическая проверка остается для замены, сделанной вручную
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserTableLayout {
+
+    private static final String IS_PARTITIONED = "SELECT relkind = 'p' FROM pg_class WHERE oid = 'users'::regclass";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile boolean partitioned;
+
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    @EventListener(OnlineMigrationFinishedEvent.class)
+    public void onMigrationFinished(OnlineMigrationFinishedEvent event) {
+        if (UsersPartitioningMigration.NAME.equals(event.name())) {
+            refresh();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.partitioning.layout-check-interval}")
+    public void refresh() {
+        boolean current = Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED, Boolean.class));
+        if (current != partitioned) {
+            log.info("Table users is {}", current ? "partitioned by pinfl" : "not partitioned");
+            partitioned = current;
+        }
+    }
+}
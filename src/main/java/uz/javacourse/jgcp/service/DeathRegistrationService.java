@@ -0,0 +1,18 @@
+package uz.javacourse.jgcp.service;
+
+import uz.javacourse.jgcp.constant.enums.DeathRegistrationOutcome;
+import uz.javacourse.jgcp.dto.event.DeathRecordEvent;
+import uz.javacourse.jgcp.dto.request.BulkMarkDeceasedRequestDto;
+import uz.javacourse.jgcp.dto.response.BulkMarkDeceasedResponseDto;
+
+import java.util.List;
+import java.util.Map;
+
+public interface DeathRegistrationService {
+
+    // отмечает смерть пачкой в одной транзакции, результат по каждому pinfl в порядке входа
+    Map<String, DeathRegistrationOutcome> registerByPinfl(List<DeathRecordEvent> records);
+
+    // отмечает смерть по id или pinfl пачками, каждая пачка - отдельная транзакция
+    BulkMarkDeceasedResponseDto markDeceased(BulkMarkDeceasedRequestDto request);
+}
@@ -0,0 +1,20 @@
+package uz.javacourse.jgcp.service;
+
+import uz.javacourse.jgcp.dto.response.OnlineMigrationDto;
+
+import java.util.List;
+
+public interface OnlineMigrationService {
+
+    List<OnlineMigrationDto> getMigrations();
+
+    OnlineMigrationDto start(String name);
+
+    OnlineMigrationDto pause(String name);
+
+    // отмена незавершенной и не выполняющейся миграции: после нее миграция остановлена и начнется с начала
+    OnlineMigrationDto abandon(String name);
+
+    // завершены ли все миграции с requiredBeforeServing, в том числе выполненные другими узлами
+    boolean requiredMigrationsDone();
+}
@@ -0,0 +1,9 @@
+package uz.javacourse.jgcp.service;
+
+import uz.javacourse.jgcp.dto.request.UserBatchLookupRequestDto;
+import uz.javacourse.jgcp.dto.response.UserBatchLookupResponseDto;
+
+public interface UserBatchLookupService {
+
+    UserBatchLookupResponseDto lookupUsers(UserBatchLookupRequestDto request);
+}
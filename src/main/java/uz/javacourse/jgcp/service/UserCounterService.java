@@ -0,0 +1,34 @@
+package uz.javacourse.jgcp.service;
+
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.entity.User;
+import uz.javacourse.jgcp.repository.UserCounterDeltas;
+
+public interface UserCounterService {
+
+    // изменения счетчиков применяются в транзакции вызывающего метода
+    void recordCreated(User user);
+
+    void recordDeceased();
+
+    void apply(UserCounterDeltas deltas);
+
+    // чтение счетчиков
+    long getTotalCount();
+
+    long getAliveCount();
+
+    long getDeceasedCount();
+
+    long getCountByGender(Gender gender);
+
+    long getCountByDocumentType(DocumentType documentType);
+
+    long getCountByCitizenship(String citizenship);
+
+    long getCountByAgeBetween(Integer minAge, Integer maxAge);
+
+    // сверка с таблицей users, возвращает количество исправленных счетчиков
+    int reconcile();
+}
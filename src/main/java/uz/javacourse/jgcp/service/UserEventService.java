@@ -0,0 +1,17 @@
+package uz.javacourse.jgcp.service;
+
+import uz.javacourse.jgcp.entity.User;
+import uz.javacourse.jgcp.repository.UserJdbcRepository.DeceasedUser;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface UserEventService {
+
+    // события записываются в user_outbox в транзакции вызывающего метода
+    void recordCreated(List<User> users);
+
+    void recordDeceased(Long userId, String pinfl, LocalDate deathDate);
+
+    void recordDeceased(List<DeceasedUser> users);
+}
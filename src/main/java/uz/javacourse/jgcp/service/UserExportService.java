@@ -0,0 +1,37 @@
+package uz.javacourse.jgcp.service;
+
+import uz.javacourse.jgcp.constant.enums.DataFormat;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+public interface UserExportService {
+
+    void exportAllUsers(DataFormat format, OutputStream out);
+
+    void exportByName(String name, DataFormat format, OutputStream out);
+
+    void exportAliveUsers(DataFormat format, OutputStream out);
+
+    void exportDeceasedUsers(DataFormat format, OutputStream out);
+
+    void exportUsersDeceasedBetween(LocalDate start, LocalDate end, DataFormat format, OutputStream out);
+
+    void exportUsersWithExpiredDocuments(DataFormat format, OutputStream out);
+
+    void exportUsersWithDocumentsExpiringBetween(LocalDate start, LocalDate end, DataFormat format, OutputStream out);
+
+    void exportUsersByDocumentType(DocumentType documentType, DataFormat format, OutputStream out);
+
+    void exportUsersByGender(Gender gender, DataFormat format, OutputStream out);
+
+    void exportUsersByCitizenship(String citizenship, DataFormat format, OutputStream out);
+
+    void exportUsersByAgeRange(Integer minAge, Integer maxAge, DataFormat format, OutputStream out);
+
+    void exportAliveUsersWithExpiredDocuments(DataFormat format, OutputStream out);
+
+    void exportUsersByGenderAndAgeRange(Gender gender, Integer minAge, Integer maxAge, DataFormat format, OutputStream out);
+}
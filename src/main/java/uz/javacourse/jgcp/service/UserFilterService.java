@@ -0,0 +1,24 @@
+package uz.javacourse.jgcp.service;
+
+import org.springframework.data.domain.Sort;
+import uz.javacourse.jgcp.constant.enums.UserSortKey;
+import uz.javacourse.jgcp.dto.request.UserFilterDto;
+import uz.javacourse.jgcp.dto.response.CountEstimateDto;
+import uz.javacourse.jgcp.dto.response.CursorPageDto;
+import uz.javacourse.jgcp.dto.response.SnapshotCountDto;
+import uz.javacourse.jgcp.dto.response.SnapshotInfoDto;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+
+public interface UserFilterService {
+
+    CursorPageDto<UserResponseDto> filterUsers(UserFilterDto filter, UserSortKey sort, Sort.Direction direction,
+                                               String cursor, int size);
+
+    long countUsers(UserFilterDto filter);
+
+    CountEstimateDto estimateUsersCount(UserFilterDto filter);
+
+    SnapshotCountDto countUsersFromSnapshot(UserFilterDto filter);
+
+    SnapshotInfoDto getSnapshotInfo();
+}
@@ -0,0 +1,11 @@
+package uz.javacourse.jgcp.service;
+
+import uz.javacourse.jgcp.constant.enums.DataFormat;
+import uz.javacourse.jgcp.dto.response.ImportReportDto;
+
+import java.io.InputStream;
+
+public interface UserImportService {
+
+    ImportReportDto importUsers(InputStream body, DataFormat format);
+}
@@ -5,6 +5,7 @@ import org.springframework.data.domain.Slice;
 import uz.javacourse.jgcp.constant.enums.DocumentType;
 import uz.javacourse.jgcp.constant.enums.Gender;
 import uz.javacourse.jgcp.dto.request.UserRequestDto;
+import uz.javacourse.jgcp.dto.response.CursorPageDto;
 import uz.javacourse.jgcp.dto.response.MarkDeceasedResponseDto;
 import uz.javacourse.jgcp.dto.response.UserResponseDto;
 
@@ -27,6 +28,9 @@ public interface UserService {
     // поиск по имени с пагинацией
     Slice<UserResponseDto> searchByName(String name, Pageable pageable);
 
+    // поиск по похожести имени, отсортированный по убыванию похожести
+    CursorPageDto<UserResponseDto> searchByNameRanked(String name, String cursor, int size);
+
     // живые vs умершие пользователи с пагинацией
     Slice<UserResponseDto> getAllAliveUsers(Pageable pageable);
 
@@ -86,6 +90,8 @@ public interface UserService {
 
     Slice<UserResponseDto> searchByNameAfter(String name, Long afterId, int size);
 
+    Slice<UserResponseDto> searchByNamePrefixAfter(String prefix, Long afterId, int size);
+
     Slice<UserResponseDto> getAllAliveUsersAfter(Long afterId, int size);
 
     Slice<UserResponseDto> getAllDeceasedUsersAfter(Long afterId, int size);
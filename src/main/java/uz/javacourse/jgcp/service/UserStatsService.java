@@ -0,0 +1,11 @@
+package uz.javacourse.jgcp.service;
+
+import uz.javacourse.jgcp.dto.response.UserStatsDto;
+
+import java.time.LocalDate;
+
+public interface UserStatsService {
+
+    UserStatsDto getStats(LocalDate expiringStart, LocalDate expiringEnd,
+                          LocalDate deceasedStart, LocalDate deceasedEnd);
+}
@@ -0,0 +1,11 @@
+package uz.javacourse.jgcp.service;
+
+import uz.javacourse.jgcp.dto.request.AliveCheckRequestDto;
+import uz.javacourse.jgcp.dto.response.AliveCheckResultDto;
+
+import java.util.List;
+
+public interface UserStatusService {
+
+    List<AliveCheckResultDto> checkAliveByPinfl(AliveCheckRequestDto request);
+}
@@ -1,8 +1,15 @@
 package uz.javacourse.jgcp.service;
 
+import org.springframework.dao.DataIntegrityViolationException;
 import uz.javacourse.jgcp.dto.request.UserRequestDto;
 
 public interface UserValidationService {
 
     void validateUniqueness(UserRequestDto requestDto);
+
+    // запоминает занятые значения после успешной вставки
+    void registerKeys(String pinfl, String email, String phoneNumber);
+
+    // преобразует нарушение уникального ограничения базы данных в понятный ConflictException
+    RuntimeException translateUniqueViolation(DataIntegrityViolationException e);
 }
@@ -0,0 +1,221 @@
+package uz.javacourse.jgcp.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import uz.javacourse.jgcp.cache.UserCache;
+import uz.javacourse.jgcp.config.DeathRecordProperties;
+import uz.javacourse.jgcp.constant.enums.DeathRegistrationOutcome;
+import uz.javacourse.jgcp.datasource.ReadYourWrites;
+import uz.javacourse.jgcp.dto.event.DeathRecordEvent;
+import uz.javacourse.jgcp.dto.request.BulkMarkDeceasedRequestDto;
+import uz.javacourse.jgcp.dto.request.DeathRecordItemDto;
+import uz.javacourse.jgcp.dto.response.BulkMarkDeceasedResponseDto;
+import uz.javacourse.jgcp.dto.response.DeathRecordResultDto;
+import uz.javacourse.jgcp.exception.BusinessException;
+import uz.javacourse.jgcp.index.UserStatusIndex;
+import uz.javacourse.jgcp.repository.UserCounterDeltas;
+import uz.javacourse.jgcp.repository.UserJdbcRepository;
+import uz.javacourse.jgcp.repository.UserJdbcRepository.DeceasedUser;
+import uz.javacourse.jgcp.service.DeathRegistrationService;
+import uz.javacourse.jgcp.service.UserCounterService;
+import uz.javacourse.jgcp.service.UserEventService;
+import uz.javacourse.jgcp.snapshot.UserColumnarSnapshot;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DeathRegistrationServiceImpl implements DeathRegistrationService {
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final UserCounterService userCounterService;
+    private final UserEventService userEventService;
+    private final UserStatusIndex userStatusIndex;
+    private final UserColumnarSnapshot userColumnarSnapshot;
+    private final UserCache userCache;
+    private final TransactionTemplate transactionTemplate;
+    private final DeathRecordProperties deathRecordProperties;
+    private final ObjectProvider<ReadYourWrites> readYourWrites;
+
+    // повторы pinfl в пачке схлопываются (берется самая ранняя дата), уже умершие не меняются,
+    // поэтому повторная доставка той же пачки ничего не меняет
+    @Override
+    @Transactional
+    public Map<String, DeathRegistrationOutcome> registerByPinfl(List<DeathRecordEvent> records) {
+        Map<String, LocalDate> deathDates = new LinkedHashMap<>();
+        for (DeathRecordEvent record : records) {
+            deathDates.merge(record.pinfl(), record.deathDate(), DeathRegistrationServiceImpl::earliest);
+        }
+        return registerByPinfl(deathDates);
+    }
+
+    // повторы id и pinfl схлопываются по всему запросу до деления на пачки: ключ применяется один раз
+    // с самой ранней датой, первая запись ключа получает его результат, остальные - DUPLICATE.
+    // Ключи делятся на пачки по app.death-records.bulk-chunk-size, каждая пачка применяется двумя
+    // UPDATE ... WHERE death_date IS NULL RETURNING (по id и по pinfl) в своей транзакции.
+    // Откат пачки не отменяет уже примененные: ее записи возвращаются как FAILED, и весь запрос
+    // можно повторить - примененные записи вернутся как ALREADY_DECEASED
+    @Override
+    public BulkMarkDeceasedResponseDto markDeceased(BulkMarkDeceasedRequestDto request) {
+        List<DeathRecordItemDto> records = request.records();
+        if (records.size() > deathRecordProperties.bulkMaxRecords()) {
+            throw new BusinessException("At most " + deathRecordProperties.bulkMaxRecords()
+                    + " records can be marked at once");
+        }
+        for (int i = 0; i < records.size(); i++) {
+            DeathRecordItemDto record = records.get(i);
+            if ((record.id() == null) == (record.pinfl() == null)) {
+                throw new BusinessException("records[" + i + "]: exactly one of id or pinfl must be provided");
+            }
+        }
+
+        // ключ записи -> самая ранняя дата среди его повторов, в порядке первого появления
+        Map<Object, LocalDate> deathDates = new LinkedHashMap<>();
+        for (DeathRecordItemDto record : records) {
+            deathDates.merge(keyOf(record), record.deathDate(), DeathRegistrationServiceImpl::earliest);
+        }
+        List<Object> keys = new ArrayList<>(deathDates.keySet());
+        Map<Object, DeathRegistrationOutcome> outcomes = new HashMap<>();
+        int chunkSize = deathRecordProperties.bulkChunkSize();
+        for (int from = 0; from < keys.size(); from += chunkSize) {
+            List<Object> chunk = keys.subList(from, Math.min(from + chunkSize, keys.size()));
+            outcomes.putAll(markChunk(chunk, deathDates));
+        }
+
+        List<DeathRecordResultDto> results = new ArrayList<>(records.size());
+        Map<DeathRegistrationOutcome, Integer> totals = new EnumMap<>(DeathRegistrationOutcome.class);
+        Set<Object> reported = new HashSet<>();
+        for (DeathRecordItemDto record : records) {
+            Object key = keyOf(record);
+            DeathRegistrationOutcome outcome = reported.add(key)
+                    ? outcomes.get(key)
+                    : DeathRegistrationOutcome.DUPLICATE;
+            results.add(DeathRecordResultDto.builder()
+                    .id(record.id())
+                    .pinfl(record.pinfl())
+                    .deathDate(deathDates.get(key))
+                    .outcome(outcome)
+                    .build());
+            totals.merge(outcome, 1, Integer::sum);
+        }
+        return BulkMarkDeceasedResponseDto.builder()
+                .results(results)
+                .updated(totals.getOrDefault(DeathRegistrationOutcome.UPDATED, 0))
+                .alreadyDeceased(totals.getOrDefault(DeathRegistrationOutcome.ALREADY_DECEASED, 0))
+                .notFound(totals.getOrDefault(DeathRegistrationOutcome.NOT_FOUND, 0))
+                .duplicate(totals.getOrDefault(DeathRegistrationOutcome.DUPLICATE, 0))
+                .failed(totals.getOrDefault(DeathRegistrationOutcome.FAILED, 0))
+                .build();
+    }
+
+    // ключи пачки (Long id или String pinfl) -> результат по каждому ключу
+    private Map<Object, DeathRegistrationOutcome> markChunk(List<Object> chunk, Map<Object, LocalDate> deathDates) {
+        Map<Long, LocalDate> byId = new LinkedHashMap<>();
+        Map<String, LocalDate> byPinfl = new LinkedHashMap<>();
+        for (Object key : chunk) {
+            if (key instanceof Long id) {
+                byId.put(id, deathDates.get(key));
+            } else {
+                byPinfl.put((String) key, deathDates.get(key));
+            }
+        }
+
+        Map<Object, DeathRegistrationOutcome> outcomes = new HashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                readYourWrites.ifAvailable(ReadYourWrites::recordWrite);
+                outcomes.putAll(registerById(byId));
+                outcomes.putAll(registerByPinfl(byPinfl));
+            });
+        } catch (RuntimeException e) {
+            log.warn("Bulk death registration chunk of {} records rolled back: {}", chunk.size(), e.getMessage());
+            outcomes.clear();
+            for (Object key : chunk) {
+                outcomes.put(key, DeathRegistrationOutcome.FAILED);
+            }
+        }
+        return outcomes;
+    }
+
+    private Map<String, DeathRegistrationOutcome> registerByPinfl(Map<String, LocalDate> deathDates) {
+        return register(deathDates, userJdbcRepository::markDeceasedByPinfl,
+                userJdbcRepository::findExistingPinfls, DeceasedUser::pinfl);
+    }
+
+    private Map<Long, DeathRegistrationOutcome> registerById(Map<Long, LocalDate> deathDates) {
+        return register(deathDates, userJdbcRepository::markDeceasedById,
+                userJdbcRepository::findExistingIds, DeceasedUser::id);
+    }
+
+    // ключи без повторов -> результат по каждому ключу в порядке входа; вызывается внутри транзакции
+    private <K> Map<K, DeathRegistrationOutcome> register(Map<K, LocalDate> deathDates,
+                                                         BiFunction<List<K>, List<LocalDate>, List<DeceasedUser>> mark,
+                                                         Function<Collection<K>, Set<K>> findExisting,
+                                                         Function<DeceasedUser, K> keyOf) {
+        Map<K, DeathRegistrationOutcome> outcomes = new LinkedHashMap<>();
+        if (deathDates.isEmpty()) {
+            return outcomes;
+        }
+
+        List<DeceasedUser> updated = mark.apply(new ArrayList<>(deathDates.keySet()), new ArrayList<>(deathDates.values()));
+        Set<K> notUpdated = new HashSet<>(deathDates.keySet());
+        for (DeceasedUser user : updated) {
+            notUpdated.remove(keyOf.apply(user));
+        }
+        Set<K> existing = notUpdated.isEmpty() ? Set.of() : findExisting.apply(notUpdated);
+
+        for (K key : deathDates.keySet()) {
+            outcomes.put(key, DeathRegistrationOutcome.NOT_FOUND);
+        }
+        for (DeceasedUser user : updated) {
+            outcomes.put(keyOf.apply(user), DeathRegistrationOutcome.UPDATED);
+        }
+        for (K key : existing) {
+            outcomes.put(key, DeathRegistrationOutcome.ALREADY_DECEASED);
+        }
+
+        applyUpdated(updated);
+        return outcomes;
+    }
+
+    // счетчики, события, индекс статусов, снимок и кэш для измененных строк - так же, как при одиночной отметке смерти
+    private void applyUpdated(List<DeceasedUser> updated) {
+        if (updated.isEmpty()) {
+            return;
+        }
+        UserCounterDeltas deltas = new UserCounterDeltas();
+        for (DeceasedUser user : updated) {
+            deltas.addDeceased();
+            userStatusIndex.recordDeceased(user.id(), user.pinfl());
+            userColumnarSnapshot.recordDeceased(user.id(), user.deathDate());
+            userCache.evict(user.id(), user.pinfl());
+        }
+        userCounterService.apply(deltas);
+        userEventService.recordDeceased(updated);
+    }
+
+    // id и pinfl - разные типы, поэтому их ключи не пересекаются
+    private static Object keyOf(DeathRecordItemDto record) {
+        return record.id() != null ? record.id() : record.pinfl();
+    }
+
+    private static LocalDate earliest(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,408 @@
+package uz.javacourse.jgcp.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import uz.javacourse.jgcp.config.OnlineMigrationProperties;
+import uz.javacourse.jgcp.constant.enums.OnlineMigrationStatus;
+import uz.javacourse.jgcp.datasource.ConnectionPools;
+import uz.javacourse.jgcp.dto.response.OnlineMigrationDto;
+import uz.javacourse.jgcp.exception.ConflictException;
+import uz.javacourse.jgcp.exception.ResourceNotFoundException;
+import uz.javacourse.jgcp.migration.OnlineMigration;
+import uz.javacourse.jgcp.migration.OnlineMigrationFinishedEvent;
+import uz.javacourse.jgcp.repository.OnlineMigrationRepository;
+import uz.javacourse.jgcp.repository.OnlineMigrationRepository.MigrationState;
+import uz.javacourse.jgcp.service.OnlineMigrationService;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// выполняет OnlineMigration в фоне, вне запуска flyway: старт приложения не ждет заполнения, а таблица
+// не блокируется дольше одной короткой пачки или одного шага. Состояние хранится в online_migrations,
+// поэтому после перезапуска или падения узла миграция продолжается с последней подтвержденной пачки,
+// в том числе на другом узле, когда истечет аренда
+@Slf4j
+@Service
+public class OnlineMigrationServiceImpl implements OnlineMigrationService {
+
+    private final Map<String, OnlineMigration> migrations = new LinkedHashMap<>();
+    private final OnlineMigrationRepository onlineMigrationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OnlineMigrationProperties properties;
+    private final ConnectionPools connectionPools;
+    private final ApplicationEventPublisher eventPublisher;
+    // миграции, которые выполняет этот узел, и их прогресс для метрики
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    private final Map<String, Double> progress = new ConcurrentHashMap<>();
+    // завершенные миграции, о которых этот узел уже знает: пулы заменены, событие опубликовано
+    private final Set<String> finished = ConcurrentHashMap.newKeySet();
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+    // завершенная миграция не возвращается в другие состояния, поэтому после первого true база больше не читается
+    private volatile boolean requiredDone;
+
+    public OnlineMigrationServiceImpl(List<OnlineMigration> onlineMigrations,
+                                      OnlineMigrationRepository onlineMigrationRepository,
+                                      JdbcTemplate jdbcTemplate,
+                                      TransactionTemplate transactionTemplate,
+                                      OnlineMigrationProperties onlineMigrationProperties,
+                                      ConnectionPools connectionPools,
+                                      ApplicationEventPublisher eventPublisher,
+                                      MeterRegistry meterRegistry) {
+        this.onlineMigrationRepository = onlineMigrationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = onlineMigrationProperties;
+        this.connectionPools = connectionPools;
+        this.eventPublisher = eventPublisher;
+        for (OnlineMigration migration : onlineMigrations) {
+            String name = migration.name();
+            migrations.put(name, migration);
+            Gauge.builder("online-migrations.progress", progress, values -> values.getOrDefault(name, 0.0))
+                    .tag("name", name)
+                    .baseUnit("percent")
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public List<OnlineMigrationDto> getMigrations() {
+        return onlineMigrationRepository.findAll().stream()
+                .filter(state -> migrations.containsKey(state.name()))
+                .map(this::toDto)
+                .toList();
+    }
+
+    @Override
+    public OnlineMigrationDto start(String name) {
+        OnlineMigration migration = findMigration(name);
+        if (!running.contains(name)) {
+            String pending = pendingDependency(migration);
+            if (pending != null) {
+                throw new ConflictException("Online migration " + name + " waits for " + pending);
+            }
+            if (!onlineMigrationRepository.claim(name, owner, properties.leaseTimeout())) {
+                MigrationState state = findState(name);
+                throw new ConflictException(state.status() == OnlineMigrationStatus.DONE
+                        ? "Online migration is already done: " + name
+                        : "Online migration is running on another node: " + name);
+            }
+            launch(migration);
+        }
+        return toDto(findState(name));
+    }
+
+    // выполняющий узел остановится, когда не сможет сохранить следующую пачку или шаг
+    @Override
+    public OnlineMigrationDto pause(String name) {
+        findMigration(name);
+        if (!onlineMigrationRepository.pause(name)) {
+            throw new ConflictException("Online migration is not running: " + name);
+        }
+        return toDto(findState(name));
+    }
+
+    // отмена выполняется под арендой, чтобы ни один узел не запустил миграцию во время отмены
+    @Override
+    public OnlineMigrationDto abandon(String name) {
+        OnlineMigration migration = findMigration(name);
+        if (running.contains(name) || !onlineMigrationRepository.claim(name, owner, properties.leaseTimeout())) {
+            MigrationState state = findState(name);
+            throw new ConflictException(state.status() == OnlineMigrationStatus.DONE
+                    ? "Online migration is already done: " + name
+                    : "Online migration is running, pause it first: " + name);
+        }
+        running.add(name);
+        try {
+            for (OnlineMigration.Step step : migration.abandonSteps()) {
+                executeStep(step);
+            }
+            onlineMigrationRepository.reset(name, owner);
+            progress.put(name, 0.0);
+            log.info("Online migration {} abandoned", name);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            onlineMigrationRepository.markFailed(name, owner, "abandon interrupted");
+            throw new IllegalStateException("Interrupted while abandoning online migration " + name, e);
+        } catch (RuntimeException e) {
+            log.error("Online migration {} could not be abandoned", name, e);
+            onlineMigrationRepository.markFailed(name, owner, String.valueOf(e.getMessage()));
+            throw e;
+        } finally {
+            running.remove(name);
+        }
+        return toDto(findState(name));
+    }
+
+    @Override
+    public boolean requiredMigrationsDone() {
+        if (!requiredDone) {
+            requiredDone = migrations.values().stream()
+                    .filter(OnlineMigration::requiredBeforeServing)
+                    .allMatch(migration -> onlineMigrationRepository.find(migration.name())
+                            .map(state -> state.status() == OnlineMigrationStatus.DONE)
+                            .orElse(false));
+        }
+        return requiredDone;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerMigrations() {
+        for (OnlineMigration migration : migrations.values()) {
+            onlineMigrationRepository.register(migration.name());
+            MigrationState state = findState(migration.name());
+            progress.put(migration.name(), progressPercent(state));
+            // соединения открыты и состояние прочитано уже после завершения
+            if (state.status() == OnlineMigrationStatus.DONE) {
+                finished.add(migration.name());
+            }
+        }
+        autoStart();
+    }
+
+    // продлевает аренду, пока шаг выполняется дольше heartbeat-interval (например, CREATE INDEX CONCURRENTLY)
+    @Scheduled(fixedDelayString = "${app.online-migrations.heartbeat-interval}")
+    public void heartbeat() {
+        for (String name : running) {
+            if (!onlineMigrationRepository.heartbeat(name, owner)) {
+                log.info("Online migration {} lease is no longer held by this node", name);
+            }
+        }
+    }
+
+    // миграцию, завершенную другим узлом, этот узел видит с задержкой до heartbeat-interval. До замены пула
+    // каждое старое соединение может один раз ответить ошибкой, после которой pgjdbc сбрасывает свои подготовленные
+    // запросы
+    @Scheduled(fixedDelayString = "${app.online-migrations.heartbeat-interval}")
+    public void watchFinished() {
+        for (OnlineMigration migration : migrations.values()) {
+            if (!finished.contains(migration.name())
+                    && onlineMigrationRepository.find(migration.name())
+                            .map(state -> state.status() == OnlineMigrationStatus.DONE)
+                            .orElse(false)) {
+                onFinished(migration);
+            }
+        }
+    }
+
+    // выполняется на каждом узле один раз: сразу после последнего шага на выполнявшем узле, на остальных - из
+    // watchFinished
+    private void onFinished(OnlineMigration migration) {
+        if (!finished.add(migration.name())) {
+            return;
+        }
+        if (migration.changesResultTypes()) {
+            log.info("Online migration {} changed column types, replacing pooled connections", migration.name());
+            connectionPools.softEvictConnections();
+        }
+        eventPublisher.publishEvent(new OnlineMigrationFinishedEvent(migration.name()));
+    }
+
+    // без auto-start запускаются только миграции, без которых узел не готов принимать запросы. Остановленные
+    // вручную и упавшие миграции запускаются только явно, зависимые - после завершения зависимостей
+    private void autoStart() {
+        for (OnlineMigration migration : migrations.values()) {
+            if (!properties.autoStart() && !migration.requiredBeforeServing()) {
+                continue;
+            }
+            MigrationState state = findState(migration.name());
+            boolean resumable = state.status() == OnlineMigrationStatus.PENDING
+                    || state.status() == OnlineMigrationStatus.RUNNING;
+            if (resumable && !running.contains(state.name()) && pendingDependency(migration) == null
+                    && onlineMigrationRepository.claim(state.name(), owner, properties.leaseTimeout())) {
+                launch(migration);
+            }
+        }
+    }
+
+    // первая незавершенная зависимость или null
+    private String pendingDependency(OnlineMigration migration) {
+        for (String dependency : migration.dependsOn()) {
+            boolean done = onlineMigrationRepository.find(dependency)
+                    .map(state -> state.status() == OnlineMigrationStatus.DONE)
+                    .orElse(false);
+            if (!done) {
+                return dependency;
+            }
+        }
+        return null;
+    }
+
+    private void launch(OnlineMigration migration) {
+        if (!running.add(migration.name())) {
+            return;
+        }
+        Thread.ofVirtual().name("online-migration-" + migration.name()).start(() -> {
+            boolean done = false;
+            try {
+                done = run(migration);
+            } catch (Exception e) {
+                log.error("Online migration {} failed", migration.name(), e);
+                onlineMigrationRepository.markFailed(migration.name(), owner, String.valueOf(e.getMessage()));
+            } finally {
+                running.remove(migration.name());
+            }
+            if (done) {
+                autoStart();
+            }
+        });
+    }
+
+    // true если миграция завершена этим узлом
+    private boolean run(OnlineMigration migration) throws InterruptedException {
+        String name = migration.name();
+        MigrationState state = findState(name);
+        if (state.maxKey() == null) {
+            for (OnlineMigration.Step step : migration.prepareSteps()) {
+                executeStep(step);
+                log.info("Online migration {} prepared: {}", name, step.description());
+            }
+            onlineMigrationRepository.initMaxKey(name, migration.maxKey(jdbcTemplate));
+            state = findState(name);
+        }
+        long maxKey = state.maxKey();
+        long lastKey = state.lastKey();
+        long startedAt = System.currentTimeMillis();
+        log.info("Online migration {} started from key {} of {}", name, lastKey, maxKey);
+
+        while (lastKey < maxKey) {
+            long to = Math.min(lastKey + properties.chunkSize(), maxKey);
+            if (!migrateChunk(migration, lastKey, to)) {
+                log.info("Online migration {} stopped at key {}", name, lastKey);
+                return false;
+            }
+            lastKey = to;
+            progress.put(name, lastKey * 100.0 / maxKey);
+            Thread.sleep(properties.pause());
+        }
+        progress.put(name, 100.0);
+
+        List<OnlineMigration.Step> steps = migration.finalizeSteps();
+        for (int i = state.finalizeStep(); i < steps.size(); i++) {
+            if (!onlineMigrationRepository.heartbeat(name, owner)) {
+                log.info("Online migration {} stopped before step '{}'", name, steps.get(i).description());
+                return false;
+            }
+            long stepStartedAt = System.currentTimeMillis();
+            executeStep(steps.get(i));
+            // после последнего шага (замены), не дожидаясь сохранения его номера
+            if (i == steps.size() - 1) {
+                onFinished(migration);
+            }
+            log.info("Online migration {} step '{}' took {} ms",
+                    name, steps.get(i).description(), System.currentTimeMillis() - stepStartedAt);
+            if (!onlineMigrationRepository.saveFinalizeStep(name, owner, i + 1)) {
+                return false;
+            }
+        }
+        onlineMigrationRepository.markDone(name, owner);
+        onFinished(migration);
+        log.info("Online migration {} done, took {} ms", name, System.currentTimeMillis() - startedAt);
+        return true;
+    }
+
+    // пачка и прогресс фиксируются одной транзакцией; false если миграцию остановили или забрали
+    private boolean migrateChunk(OnlineMigration migration, long from, long to) throws InterruptedException {
+        while (true) {
+            try {
+                return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    jdbcTemplate.execute("SET LOCAL lock_timeout = " + properties.lockTimeout().toMillis());
+                    jdbcTemplate.execute("SET LOCAL statement_timeout = " + properties.statementTimeout().toMillis());
+                    int rows = migration.migrateChunk(jdbcTemplate, from, to);
+                    if (!onlineMigrationRepository.saveProgress(migration.name(), owner, to, rows)) {
+                        status.setRollbackOnly();
+                        return false;
+                    }
+                    return true;
+                }));
+            } catch (CannotAcquireLockException e) {
+                // строки пачки держит чужая транзакция: уступаем ей и повторяем
+                log.warn("Online migration {} chunk ({}, {}] waits for locks, retrying", migration.name(), from, to);
+                Thread.sleep(properties.pause());
+            }
+        }
+    }
+
+    // операторы шага выполняются в режиме autocommit, иначе CONCURRENTLY недоступен; lock_timeout не дает
+    // шагу, ждущему эксклюзивную блокировку, остановить все запросы к таблице, которые встали за ним
+    private void executeStep(OnlineMigration.Step step) throws InterruptedException {
+        while (true) {
+            try {
+                jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("SET lock_timeout = " + properties.lockTimeout().toMillis());
+                        try {
+                            for (String sql : step.statements()) {
+                                statement.execute(sql);
+                            }
+                        } finally {
+                            statement.execute("RESET lock_timeout");
+                        }
+                    }
+                    return null;
+                });
+                return;
+            } catch (CannotAcquireLockException e) {
+                log.warn("Online migration step '{}' waits for locks, retrying", step.description());
+                Thread.sleep(properties.pause());
+            }
+        }
+    }
+
+    private OnlineMigration findMigration(String name) {
+        OnlineMigration migration = migrations.get(name);
+        if (migration == null) {
+            throw new ResourceNotFoundException("Online migration not found: " + name);
+        }
+        return migration;
+    }
+
+    private MigrationState findState(String name) {
+        return onlineMigrationRepository.find(name)
+                .orElseThrow(() -> new ResourceNotFoundException("Online migration not found: " + name));
+    }
+
+    private OnlineMigrationDto toDto(MigrationState state) {
+        return OnlineMigrationDto.builder()
+                .name(state.name())
+                .status(state.status())
+                .lastKey(state.lastKey())
+                .maxKey(state.maxKey())
+                .rowsMigrated(state.rowsMigrated())
+                .progressPercent(progressPercent(state))
+                .finalizeStep(state.finalizeStep())
+                .finalizeSteps(migrations.get(state.name()).finalizeSteps().size())
+                .owner(state.owner())
+                .heartbeatAt(state.heartbeatAt())
+                .startedAt(state.startedAt())
+                .finishedAt(state.finishedAt())
+                .error(state.error())
+                .build();
+    }
+
+    private static double progressPercent(MigrationState state) {
+        if (state.status() == OnlineMigrationStatus.DONE) {
+            return 100.0;
+        }
+        if (state.maxKey() == null) {
+            return 0.0;
+        }
+        return state.maxKey() == 0 ? 100.0 : Math.min(100.0, state.lastKey() * 100.0 / state.maxKey());
+    }
+}
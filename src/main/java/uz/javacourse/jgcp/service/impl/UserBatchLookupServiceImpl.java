@@ -0,0 +1,116 @@
+package uz.javacourse.jgcp.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import uz.javacourse.jgcp.cache.UserCache;
+import uz.javacourse.jgcp.config.BatchLookupProperties;
+import uz.javacourse.jgcp.dto.request.UserBatchLookupRequestDto;
+import uz.javacourse.jgcp.dto.response.UserBatchLookupResponseDto;
+import uz.javacourse.jgcp.dto.response.UserLookupResultDto;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.exception.BusinessException;
+import uz.javacourse.jgcp.repository.UserJdbcRepository;
+import uz.javacourse.jgcp.service.UserBatchLookupService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+@Service
+public class UserBatchLookupServiceImpl implements UserBatchLookupService {
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final UserCache userCache;
+    private final BatchLookupProperties batchLookupProperties;
+    private final Counter cacheHits;
+    private final Counter databaseHits;
+    private final Counter notFound;
+
+    public UserBatchLookupServiceImpl(UserJdbcRepository userJdbcRepository,
+                                      UserCache userCache,
+                                      BatchLookupProperties batchLookupProperties,
+                                      MeterRegistry meterRegistry) {
+        this.userJdbcRepository = userJdbcRepository;
+        this.userCache = userCache;
+        this.batchLookupProperties = batchLookupProperties;
+        this.cacheHits = meterRegistry.counter("users.batch-lookup.keys", "source", "cache");
+        this.databaseHits = meterRegistry.counter("users.batch-lookup.keys", "source", "database");
+        this.notFound = meterRegistry.counter("users.batch-lookup.keys", "source", "not-found");
+    }
+
+    // без транзакции, как и одиночные чтения: попадания в кэш не занимают соединение,
+    // а каждая пачка промахов читается отдельным коротким запросом
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public UserBatchLookupResponseDto lookupUsers(UserBatchLookupRequestDto request) {
+        boolean byIds = request.ids() != null && !request.ids().isEmpty();
+        boolean byPinfls = request.pinfls() != null && !request.pinfls().isEmpty();
+        if (byIds == byPinfls) {
+            throw new BusinessException("Exactly one of ids or pinfls must be provided");
+        }
+        int size = byIds ? request.ids().size() : request.pinfls().size();
+        if (size > batchLookupProperties.maxKeys()) {
+            throw new BusinessException("At most " + batchLookupProperties.maxKeys() + " keys can be looked up at once");
+        }
+
+        return byIds
+                ? lookup(request.ids(), userCache::getIfPresent, userJdbcRepository::findByIds, UserResponseDto::id)
+                : lookup(request.pinfls(), userCache::getIfPresentByPinfl, userJdbcRepository::findByPinfls,
+                UserResponseDto::pinfl);
+    }
+
+    // уникальные ключи сначала ищутся в локальном кэше (только уже загруженные записи, без ожидания),
+    // остальные - в базе пачками по app.batch-lookup.chunk-size. Общий кэш redis не опрашивается:
+    // отдельный запрос на каждый ключ свел бы выигрыш от пакетного чтения на нет
+    private <K> UserBatchLookupResponseDto lookup(List<K> keys,
+                                                  Function<K, UserResponseDto> cached,
+                                                  Function<List<K>, List<UserResponseDto>> loader,
+                                                  Function<UserResponseDto, K> keyOf) {
+        Map<K, UserResponseDto> resolved = new HashMap<>();
+        List<K> missing = new ArrayList<>();
+        for (K key : new LinkedHashSet<>(keys)) {
+            UserResponseDto user = cached.apply(key);
+            if (user != null) {
+                resolved.put(key, user);
+            } else {
+                missing.add(key);
+            }
+        }
+        cacheHits.increment(resolved.size());
+
+        int chunkSize = batchLookupProperties.chunkSize();
+        for (int from = 0; from < missing.size(); from += chunkSize) {
+            List<UserResponseDto> loaded = loader.apply(missing.subList(from, Math.min(from + chunkSize, missing.size())));
+            for (UserResponseDto user : loaded) {
+                resolved.put(keyOf.apply(user), user);
+            }
+            databaseHits.increment(loaded.size());
+        }
+
+        List<UserLookupResultDto> results = new ArrayList<>(keys.size());
+        int found = 0;
+        for (K key : keys) {
+            UserResponseDto user = resolved.get(key);
+            if (user != null) {
+                found++;
+            }
+            results.add(UserLookupResultDto.builder()
+                    .key(String.valueOf(key))
+                    .found(user != null)
+                    .user(user)
+                    .build());
+        }
+        notFound.increment(keys.size() - found);
+        return UserBatchLookupResponseDto.builder()
+                .results(results)
+                .found(found)
+                .notFound(keys.size() - found)
+                .build();
+    }
+}
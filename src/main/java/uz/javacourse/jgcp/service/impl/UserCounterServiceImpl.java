@@ -0,0 +1,110 @@
+package uz.javacourse.jgcp.service.impl;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import uz.javacourse.jgcp.config.CounterProperties;
+import uz.javacourse.jgcp.constant.enums.CounterDimension;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.entity.User;
+import uz.javacourse.jgcp.repository.UserCounterDeltas;
+import uz.javacourse.jgcp.repository.UserStatCounterRepository;
+import uz.javacourse.jgcp.service.UserCounterService;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+@Service
+public class UserCounterServiceImpl implements UserCounterService {
+
+    private final UserStatCounterRepository userStatCounterRepository;
+    private final CounterProperties counterProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTransactionTemplate;
+
+    public UserCounterServiceImpl(UserStatCounterRepository userStatCounterRepository,
+                                  CounterProperties counterProperties,
+                                  TransactionTemplate transactionTemplate) {
+        this.userStatCounterRepository = userStatCounterRepository;
+        this.counterProperties = counterProperties;
+        this.transactionTemplate = transactionTemplate;
+        this.snapshotTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransactionTemplate.setReadOnly(true);
+    }
+
+    // учитывает нового пользователя во всех измерениях
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(User user) {
+        apply(new UserCounterDeltas().addCreated(user.getGender(), user.getDocumentType(),
+                user.getCitizenship(), user.getAge(), user.getDeathDate()));
+    }
+
+    // переносит пользователя из живых в умершие
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeceased() {
+        apply(new UserCounterDeltas().addDeceased());
+    }
+
+    // записывает изменения в случайный слот, чтобы параллельные транзакции не блокировали друг друга
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(UserCounterDeltas deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        int slot = ThreadLocalRandom.current().nextInt(counterProperties.slots());
+        userStatCounterRepository.apply(deltas, slot);
+    }
+
+    @Override
+    public long getTotalCount() {
+        return userStatCounterRepository.sum(CounterDimension.STATUS);
+    }
+
+    @Override
+    public long getAliveCount() {
+        return userStatCounterRepository.sum(CounterDimension.STATUS, "ALIVE");
+    }
+
+    @Override
+    public long getDeceasedCount() {
+        return userStatCounterRepository.sum(CounterDimension.STATUS, "DECEASED");
+    }
+
+    @Override
+    public long getCountByGender(Gender gender) {
+        return userStatCounterRepository.sum(CounterDimension.GENDER, gender.name());
+    }
+
+    @Override
+    public long getCountByDocumentType(DocumentType documentType) {
+        return userStatCounterRepository.sum(CounterDimension.DOCUMENT_TYPE, documentType.name());
+    }
+
+    @Override
+    public long getCountByCitizenship(String citizenship) {
+        return userStatCounterRepository.sum(CounterDimension.CITIZENSHIP, citizenship);
+    }
+
+    // сумма корзин гистограммы в диапазоне возрастов
+    @Override
+    public long getCountByAgeBetween(Integer minAge, Integer maxAge) {
+        return userStatCounterRepository.sumAges(minAge, maxAge);
+    }
+
+    // расхождение считается в снимке REPEATABLE READ без блокировок, а исправляется короткой транзакцией
+    // с теми же прибавлениями, что делает регистрация: таблицы счетчиков не блокируются на время подсчета
+    @Override
+    public int reconcile() {
+        UserCounterDeltas drift = snapshotTransactionTemplate.execute(status -> userStatCounterRepository.findDrift());
+        if (!drift.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> userStatCounterRepository.apply(drift, 0));
+        }
+        return drift.size();
+    }
+}
@@ -0,0 +1,86 @@
+package uz.javacourse.jgcp.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.ObjectMapper;
+import uz.javacourse.jgcp.config.OutboxProperties;
+import uz.javacourse.jgcp.dto.event.UserCreatedEvent;
+import uz.javacourse.jgcp.dto.event.UserDeceasedEvent;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.entity.User;
+import uz.javacourse.jgcp.mapper.UserMapper;
+import uz.javacourse.jgcp.repository.UserJdbcRepository.DeceasedUser;
+import uz.javacourse.jgcp.repository.UserOutboxRepository;
+import uz.javacourse.jgcp.repository.UserOutboxRepository.OutboxMessage;
+import uz.javacourse.jgcp.service.UserEventService;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class UserEventServiceImpl implements UserEventService {
+
+    private final UserOutboxRepository userOutboxRepository;
+    private final UserMapper userMapper;
+    private final ObjectMapper objectMapper;
+    private final OutboxProperties outboxProperties;
+
+    // записывает событие user.created для каждого нового пользователя
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(List<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<OutboxMessage> messages = new ArrayList<>(users.size());
+        for (User user : users) {
+            UserResponseDto dto = userMapper.toResponseDto(user);
+            UserCreatedEvent event = UserCreatedEvent.builder()
+                    .eventId(UUID.randomUUID().toString())
+                    .occurredAt(now)
+                    .user(dto)
+                    .build();
+            messages.add(message(outboxProperties.topics().userCreated(), user.getPinfl(), event));
+        }
+        userOutboxRepository.append(messages);
+    }
+
+    // записывает событие user.deceased
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeceased(Long userId, String pinfl, LocalDate deathDate) {
+        recordDeceased(List.of(new DeceasedUser(userId, pinfl, deathDate)));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeceased(List<DeceasedUser> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<OutboxMessage> messages = new ArrayList<>(users.size());
+        for (DeceasedUser user : users) {
+            UserDeceasedEvent event = UserDeceasedEvent.builder()
+                    .eventId(UUID.randomUUID().toString())
+                    .occurredAt(now)
+                    .userId(user.id())
+                    .pinfl(user.pinfl())
+                    .deathDate(user.deathDate())
+                    .build();
+            messages.add(message(outboxProperties.topics().userDeceased(), user.pinfl(), event));
+        }
+        userOutboxRepository.append(messages);
+    }
+
+    private OutboxMessage message(String topic, String key, Object event) {
+        return new OutboxMessage(null, topic, key, objectMapper.writeValueAsString(event));
+    }
+}
@@ -0,0 +1,136 @@
+package uz.javacourse.jgcp.service.impl;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.ObjectMapper;
+import uz.javacourse.jgcp.constant.enums.DataFormat;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.entity.User;
+import uz.javacourse.jgcp.mapper.UserCsvMapper;
+import uz.javacourse.jgcp.mapper.UserMapper;
+import uz.javacourse.jgcp.repository.UserRepository;
+import uz.javacourse.jgcp.service.UserExportService;
+import uz.javacourse.jgcp.util.LikePatterns;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// каждая выгрузка идет в read-only транзакции: курсор postgresql работает только при выключенном autocommit
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class UserExportServiceImpl implements UserExportService {
+
+    // через сколько строк сбрасывать буфер в ответ, чтобы клиент получал данные частями
+    private static final int FLUSH_EVERY_ROWS = 500;
+
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final UserCsvMapper userCsvMapper;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+
+    @Override
+    public void exportAllUsers(DataFormat format, OutputStream out) {
+        write(userRepository.streamAllBy(), format, out);
+    }
+
+    @Override
+    public void exportByName(String name, DataFormat format, OutputStream out) {
+        write(userRepository.streamByFullNameLike(LikePatterns.contains(name)), format, out);
+    }
+
+    @Override
+    public void exportAliveUsers(DataFormat format, OutputStream out) {
+        write(userRepository.streamByDeathDateIsNull(), format, out);
+    }
+
+    @Override
+    public void exportDeceasedUsers(DataFormat format, OutputStream out) {
+        write(userRepository.streamByDeathDateIsNotNull(), format, out);
+    }
+
+    @Override
+    public void exportUsersDeceasedBetween(LocalDate start, LocalDate end, DataFormat format, OutputStream out) {
+        write(userRepository.streamByDeathDateBetween(start, end), format, out);
+    }
+
+    @Override
+    public void exportUsersWithExpiredDocuments(DataFormat format, OutputStream out) {
+        write(userRepository.streamByExpiryDateBefore(LocalDate.now()), format, out);
+    }
+
+    @Override
+    public void exportUsersWithDocumentsExpiringBetween(LocalDate start, LocalDate end, DataFormat format, OutputStream out) {
+        write(userRepository.streamByExpiryDateBetween(start, end), format, out);
+    }
+
+    @Override
+    public void exportUsersByDocumentType(DocumentType documentType, DataFormat format, OutputStream out) {
+        write(userRepository.streamByDocumentType(documentType), format, out);
+    }
+
+    @Override
+    public void exportUsersByGender(Gender gender, DataFormat format, OutputStream out) {
+        write(userRepository.streamByGender(gender), format, out);
+    }
+
+    @Override
+    public void exportUsersByCitizenship(String citizenship, DataFormat format, OutputStream out) {
+        write(userRepository.streamByCitizenship(citizenship), format, out);
+    }
+
+    @Override
+    public void exportUsersByAgeRange(Integer minAge, Integer maxAge, DataFormat format, OutputStream out) {
+        write(userRepository.streamByAgeBetween(minAge, maxAge), format, out);
+    }
+
+    @Override
+    public void exportAliveUsersWithExpiredDocuments(DataFormat format, OutputStream out) {
+        write(userRepository.streamByDeathDateIsNullAndExpiryDateBefore(LocalDate.now()), format, out);
+    }
+
+    @Override
+    public void exportUsersByGenderAndAgeRange(Gender gender, Integer minAge, Integer maxAge, DataFormat format, OutputStream out) {
+        write(userRepository.streamByGenderAndAgeBetween(gender, minAge, maxAge), format, out);
+    }
+
+    // пишет строки в ответ по мере чтения курсора; каждая сущность сразу отсоединяется,
+    // поэтому persistence context не растет и память не зависит от размера выгрузки
+    private void write(Stream<User> users, DataFormat format, OutputStream out) {
+        try (users) {
+            if (format == DataFormat.CSV) {
+                out.write(userCsvMapper.exportHeader().getBytes(StandardCharsets.UTF_8));
+            }
+            long rows = 0;
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                User user = iterator.next();
+                UserResponseDto dto = userMapper.toResponseDto(user);
+                entityManager.detach(user);
+
+                if (format == DataFormat.CSV) {
+                    out.write(userCsvMapper.toCsvLine(dto).getBytes(StandardCharsets.UTF_8));
+                } else {
+                    out.write(objectMapper.writeValueAsBytes(dto));
+                    out.write('\n');
+                }
+                if (++rows % FLUSH_EVERY_ROWS == 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
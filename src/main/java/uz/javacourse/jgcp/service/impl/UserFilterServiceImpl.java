@@ -0,0 +1,205 @@
+package uz.javacourse.jgcp.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import uz.javacourse.jgcp.config.CountEstimateProperties;
+import uz.javacourse.jgcp.constant.enums.CountMethod;
+import uz.javacourse.jgcp.constant.enums.UserSortKey;
+import uz.javacourse.jgcp.dto.request.UserFilterDto;
+import uz.javacourse.jgcp.dto.response.CountEstimateDto;
+import uz.javacourse.jgcp.dto.response.CursorPageDto;
+import uz.javacourse.jgcp.dto.response.SnapshotCountDto;
+import uz.javacourse.jgcp.dto.response.SnapshotInfoDto;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.exception.BusinessException;
+import uz.javacourse.jgcp.exception.ServiceUnavailableException;
+import uz.javacourse.jgcp.repository.UserFilterRepository;
+import uz.javacourse.jgcp.repository.UserFilterRepository.Keyset;
+import uz.javacourse.jgcp.repository.UserFilterRepository.Sample;
+import uz.javacourse.jgcp.repository.UserFilterRepository.TableStats;
+import uz.javacourse.jgcp.service.UserFilterService;
+import uz.javacourse.jgcp.snapshot.UserColumnarSnapshot;
+import uz.javacourse.jgcp.util.CursorSigner;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class UserFilterServiceImpl implements UserFilterService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final String FORWARD = "F";
+    private static final String BACKWARD = "B";
+    private static final UserFilterDto EMPTY_FILTER = UserFilterDto.builder().build();
+
+    private final UserFilterRepository userFilterRepository;
+    private final CursorSigner cursorSigner;
+    private final CountEstimateProperties countEstimateProperties;
+    private final UserColumnarSnapshot userColumnarSnapshot;
+
+    // одна страница фильтра по ключу (sort, id); запрашивается на одну строку больше, чтобы узнать,
+    // есть ли еще строки в направлении чтения. Курсор хранит ключ крайней строки и направление:
+    // nextCursor читает дальше, prevCursor - назад от первой строки страницы
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDto<UserResponseDto> filterUsers(UserFilterDto filter, UserSortKey sort, Sort.Direction direction,
+                                                      String cursor, int size) {
+        validate(filter);
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BusinessException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (sort == UserSortKey.DEATH_DATE && Boolean.TRUE.equals(filter.alive())) {
+            throw new BusinessException("Sorting by death date cannot be combined with alive=true");
+        }
+
+        String context = sort + "|" + direction + "|" + filter;
+        boolean forward = true;
+        Keyset after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String payload = cursorSigner.verify(cursor, context);
+            if (payload == null) {
+                throw new BusinessException("Cursor is invalid or was issued for a different filter or sort");
+            }
+            forward = payload.startsWith(FORWARD);
+            after = decode(payload, sort);
+        }
+
+        boolean ascending = (direction == Sort.Direction.ASC) == forward;
+        List<UserResponseDto> rows = userFilterRepository.findPage(filter, sort, ascending, after, size + 1);
+        boolean more = rows.size() > size;
+        List<UserResponseDto> content = new ArrayList<>(more ? rows.subList(0, size) : rows);
+        if (!forward) {
+            Collections.reverse(content);
+        }
+
+        // вперед: следующая страница есть, если прочитана лишняя строка, предыдущая - если пришли по курсору;
+        // назад - наоборот
+        boolean hasNext = forward ? more : after != null;
+        boolean hasPrev = forward ? after != null : more;
+        return CursorPageDto.<UserResponseDto>builder()
+                .content(content)
+                .nextCursor(hasNext && !content.isEmpty() ? encode(FORWARD, content.getLast(), sort, context) : null)
+                .hasNext(hasNext && !content.isEmpty())
+                .prevCursor(hasPrev && !content.isEmpty() ? encode(BACKWARD, content.getFirst(), sort, context) : null)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countUsers(UserFilterDto filter) {
+        validate(filter);
+        return userFilterRepository.count(filter);
+    }
+
+    // оценка для счетчиков, где точное число не нужно: без условий - статистика таблицы,
+    // с условиями - выборка страниц TABLESAMPLE, при слишком редких совпадениях - оценка планировщика.
+    // Небольшие таблицы и таблицы без статистики считаются точно
+    @Override
+    @Transactional(readOnly = true)
+    public CountEstimateDto estimateUsersCount(UserFilterDto filter) {
+        validate(filter);
+        TableStats stats = userFilterRepository.tableStats();
+        if (stats == null || stats.rows() < countEstimateProperties.exactBelow()) {
+            return CountEstimateDto.builder()
+                    .count(userFilterRepository.count(filter))
+                    .method(CountMethod.EXACT)
+                    .errorBound(0L)
+                    .build();
+        }
+        if (EMPTY_FILTER.equals(filter)) {
+            return CountEstimateDto.builder()
+                    .count(stats.rows())
+                    .method(CountMethod.STATISTICS)
+                    .errorBound(stats.modified())
+                    .build();
+        }
+
+        Sample sample = userFilterRepository.sample(filter, countEstimateProperties.samplePercent());
+        if (sample.matched() >= countEstimateProperties.minSampleMatches()) {
+            // доля p по выборке из n строк: стандартная ошибка N * sqrt(p(1-p)/n), граница - 1.96 ошибки.
+            // SYSTEM выбирает страницы целиком, и при сильной корреляции условия с физическим
+            // порядком строк реальный разброс больше
+            double share = (double) sample.matched() / sample.sampled();
+            double standardError = stats.rows() * Math.sqrt(share * (1 - share) / sample.sampled());
+            return CountEstimateDto.builder()
+                    .count(Math.round(share * stats.rows()))
+                    .method(CountMethod.SAMPLE)
+                    .errorBound((long) Math.ceil(1.96 * standardError))
+                    .build();
+        }
+        return CountEstimateDto.builder()
+                .count(userFilterRepository.plannerRows(filter))
+                .method(CountMethod.PLANNER)
+                .build();
+    }
+
+    // подсчет по колоночному снимку в памяти без обращения к базе; отстает от базы на время доставки
+    // изменений с других узлов, возраст снимка возвращается вместе с результатом
+    @Override
+    public SnapshotCountDto countUsersFromSnapshot(UserFilterDto filter) {
+        validate(filter);
+        if (filter.name() != null) {
+            throw new BusinessException("Name filter is not supported by the snapshot");
+        }
+        if (!userColumnarSnapshot.isReady()) {
+            throw new ServiceUnavailableException("User snapshot is not built yet, please retry later");
+        }
+        return SnapshotCountDto.builder()
+                .count(userColumnarSnapshot.count(filter))
+                .snapshotBuiltAt(userColumnarSnapshot.builtAt())
+                .snapshotUpdatedAt(userColumnarSnapshot.updatedAt())
+                .snapshotAgeMillis(userColumnarSnapshot.ageMillis())
+                .build();
+    }
+
+    @Override
+    public SnapshotInfoDto getSnapshotInfo() {
+        return SnapshotInfoDto.builder()
+                .ready(userColumnarSnapshot.isReady())
+                .rows(userColumnarSnapshot.rows())
+                .builtAt(userColumnarSnapshot.builtAt())
+                .updatedAt(userColumnarSnapshot.updatedAt())
+                .ageMillis(userColumnarSnapshot.ageMillis())
+                .buildMillis(userColumnarSnapshot.buildMillis())
+                .sizeInBytes(userColumnarSnapshot.sizeInBytes())
+                .build();
+    }
+
+    // формат payload: направление|id|значение ключа сортировки (значение последним, в имени может быть '|')
+    private String encode(String way, UserResponseDto row, UserSortKey sort, String context) {
+        return cursorSigner.sign(way + "|" + row.id() + "|" + sort.valueOf(row), context);
+    }
+
+    private Keyset decode(String payload, UserSortKey sort) {
+        String[] parts = payload.split("\\|", 3);
+        try {
+            return new Keyset(sort.parse(parts[2]), Long.parseLong(parts[1]));
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException | DateTimeParseException e) {
+            throw new BusinessException("Cursor is invalid or was issued for a different filter or sort");
+        }
+    }
+
+    // противоречивые условия отклоняются сразу, а не превращаются в заведомо пустой запрос к базе
+    private void validate(UserFilterDto filter) {
+        if (filter.minAge() != null && filter.maxAge() != null && filter.minAge() > filter.maxAge()) {
+            throw new BusinessException("minAge must not be greater than maxAge");
+        }
+        checkWindow(filter.expiryFrom(), filter.expiryTo(), "expiry");
+        checkWindow(filter.deathFrom(), filter.deathTo(), "death");
+        if (Boolean.TRUE.equals(filter.alive()) && (filter.deathFrom() != null || filter.deathTo() != null)) {
+            throw new BusinessException("Death date window cannot be combined with alive=true");
+        }
+    }
+
+    private void checkWindow(LocalDate from, LocalDate to, String name) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new BusinessException(name + "From must not be after " + name + "To");
+        }
+    }
+}
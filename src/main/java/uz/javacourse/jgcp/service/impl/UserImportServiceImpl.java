@@ -0,0 +1,272 @@
+package uz.javacourse.jgcp.service.impl;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+import uz.javacourse.jgcp.config.ImportProperties;
+import uz.javacourse.jgcp.constant.enums.DataFormat;
+import uz.javacourse.jgcp.dto.request.UserRequestDto;
+import uz.javacourse.jgcp.dto.response.ImportRejectionDto;
+import uz.javacourse.jgcp.dto.response.ImportReportDto;
+import uz.javacourse.jgcp.entity.User;
+import uz.javacourse.jgcp.index.UserStatusIndex;
+import uz.javacourse.jgcp.mapper.UserCsvMapper;
+import uz.javacourse.jgcp.mapper.UserMapper;
+import uz.javacourse.jgcp.repository.UserCounterDeltas;
+import uz.javacourse.jgcp.repository.UserJdbcRepository;
+import uz.javacourse.jgcp.repository.UserJdbcRepository.ExistingKeys;
+import uz.javacourse.jgcp.repository.UserJdbcRepository.StagedUser;
+import uz.javacourse.jgcp.service.UserCounterService;
+import uz.javacourse.jgcp.service.UserEventService;
+import uz.javacourse.jgcp.service.UserImportService;
+import uz.javacourse.jgcp.service.UserValidationService;
+import uz.javacourse.jgcp.snapshot.UserColumnarSnapshot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserImportServiceImpl implements UserImportService {
+
+    // попытки записать пачку, которую роняет параллельная запись того же email или телефона
+    private static final int UNIQUE_CONFLICT_ATTEMPTS = 3;
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final UserCsvMapper userCsvMapper;
+    private final UserMapper userMapper;
+    private final UserCounterService userCounterService;
+    private final UserValidationService userValidationService;
+    private final UserEventService userEventService;
+    private final UserStatusIndex userStatusIndex;
+    private final UserColumnarSnapshot userColumnarSnapshot;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final ImportProperties importProperties;
+
+    // читает тело запроса построчно и записывает пользователей пачками по app.import.chunk-size,
+    // в памяти одновременно находится только одна пачка, поэтому размер файла не ограничен
+    @Override
+    public ImportReportDto importUsers(InputStream body, DataFormat format) {
+        long startedAt = System.nanoTime();
+        ImportState state = new ImportState(importProperties.maxRejections());
+        List<StagedUser> chunk = new ArrayList<>(importProperties.chunkSize());
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            Map<String, Integer> csvHeader = null;
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == DataFormat.CSV && csvHeader == null) {
+                    csvHeader = userCsvMapper.parseHeader(line);
+                    continue;
+                }
+
+                state.totalRows++;
+                UserRequestDto dto;
+                try {
+                    dto = format == DataFormat.CSV
+                            ? userCsvMapper.toRequestDto(csvHeader, line)
+                            : objectMapper.readValue(line, UserRequestDto.class);
+                } catch (RuntimeException e) {
+                    state.reject(lineNumber, null, "Malformed row: " + e.getMessage());
+                    continue;
+                }
+
+                Set<ConstraintViolation<UserRequestDto>> violations = validator.validate(dto);
+                if (!violations.isEmpty()) {
+                    state.reject(lineNumber, dto.pinfl(), violations.stream()
+                            .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                            .sorted()
+                            .collect(Collectors.joining(", ")));
+                    continue;
+                }
+
+                chunk.add(new StagedUser(lineNumber, dto));
+                if (chunk.size() >= importProperties.chunkSize()) {
+                    writeChunk(chunk, state);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(chunk, state);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long elapsedNanos = System.nanoTime() - startedAt;
+        return ImportReportDto.builder()
+                .totalRows(state.totalRows)
+                .importedRows(state.importedRows)
+                .rejectedRows(state.rejectedRows)
+                .rejections(state.rejections)
+                .rejectionsTruncated(state.rejectedRows > state.rejections.size())
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .rowsPerSecond(elapsedNanos == 0 ? 0 : state.importedRows * 1_000_000_000L / elapsedNanos)
+                .build();
+    }
+
+    // проверяет уникальность пачки целиком (внутри пачки и против базы) и записывает ее в одной транзакции;
+    // отчет меняется только после коммита, а пачка, которую не удалось записать, целиком уходит в отказы,
+    // не прерывая импорт и не теряя отчет по уже записанным пачкам
+    private void writeChunk(List<StagedUser> chunk, ImportState state) {
+        Set<String> pinfls = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        Set<String> phoneNumbers = new HashSet<>();
+        List<StagedUser> unique = new ArrayList<>(chunk.size());
+        for (StagedUser row : chunk) {
+            UserRequestDto dto = row.user();
+            if (pinfls.contains(dto.pinfl())) {
+                state.reject(row.lineNumber(), dto.pinfl(), "Duplicate PINFL within import");
+            } else if (emails.contains(dto.email())) {
+                state.reject(row.lineNumber(), dto.pinfl(), "Duplicate email within import");
+            } else if (phoneNumbers.contains(dto.phoneNumber())) {
+                state.reject(row.lineNumber(), dto.pinfl(), "Duplicate phone number within import");
+            } else {
+                // ключи отклоненной строки не должны отклонять следующие строки
+                pinfls.add(dto.pinfl());
+                emails.add(dto.email());
+                phoneNumbers.add(dto.phoneNumber());
+                unique.add(row);
+            }
+        }
+        if (unique.isEmpty()) {
+            return;
+        }
+
+        ChunkResult result = null;
+        for (int attempt = 1; result == null; attempt++) {
+            try {
+                result = transactionTemplate.execute(status -> insertChunk(unique, pinfls, emails, phoneNumbers));
+            } catch (DuplicateKeyException e) {
+                // в секционированной users уникальность email и телефона держит user_keys, и ON CONFLICT ее
+                // не видит: ключ, занятый параллельной записью, роняет всю вставку. Повтор проверяет ключи заново,
+                // уже видит закоммиченную чужую строку и отклоняет только конфликтующие строки
+                if (attempt >= UNIQUE_CONFLICT_ATTEMPTS) {
+                    rejectChunk(unique, e, state);
+                    return;
+                }
+                log.info("Import chunk of {} rows hit a concurrent unique key, retrying: {}",
+                        unique.size(), e.getMostSpecificCause().getMessage());
+            } catch (RuntimeException e) {
+                rejectChunk(unique, e, state);
+                return;
+            }
+        }
+
+        state.importedRows += result.imported().size();
+        result.rejections().forEach(state::reject);
+        for (UserRequestDto dto : result.imported()) {
+            userValidationService.registerKeys(dto.pinfl(), dto.email(), dto.phoneNumber());
+        }
+    }
+
+    private static void rejectChunk(List<StagedUser> unique, RuntimeException e, ImportState state) {
+        log.warn("Import chunk of {} rows rolled back: {}", unique.size(), e.getMessage());
+        for (StagedUser row : unique) {
+            state.reject(row.lineNumber(), row.user().pinfl(), "Chunk was not written: " + e.getMessage());
+        }
+    }
+
+    // выполняется внутри транзакции пачки и ничего не меняет в отчете
+    private ChunkResult insertChunk(List<StagedUser> unique, Set<String> pinfls, Set<String> emails,
+                                    Set<String> phoneNumbers) {
+        ExistingKeys existing = userJdbcRepository.findExistingKeys(pinfls, emails, phoneNumbers);
+        List<ImportRejectionDto> rejections = new ArrayList<>();
+        List<StagedUser> accepted = new ArrayList<>(unique.size());
+        for (StagedUser row : unique) {
+            UserRequestDto dto = row.user();
+            if (existing.pinfls().contains(dto.pinfl())) {
+                rejections.add(new ImportRejectionDto(row.lineNumber(), dto.pinfl(),
+                        "User with this PINFL already exists"));
+            } else if (existing.emails().contains(dto.email())) {
+                rejections.add(new ImportRejectionDto(row.lineNumber(), dto.pinfl(),
+                        "User with this email already exists"));
+            } else if (existing.phoneNumbers().contains(dto.phoneNumber())) {
+                rejections.add(new ImportRejectionDto(row.lineNumber(), dto.pinfl(),
+                        "User with this phone number already exists"));
+            } else {
+                accepted.add(row);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return new ChunkResult(List.of(), rejections);
+        }
+
+        Map<String, Long> inserted = userJdbcRepository.copyInsert(accepted);
+        UserCounterDeltas deltas = new UserCounterDeltas();
+        List<User> created = new ArrayList<>(inserted.size());
+        List<UserRequestDto> imported = new ArrayList<>(inserted.size());
+        for (StagedUser row : accepted) {
+            UserRequestDto dto = row.user();
+            Long id = inserted.get(dto.pinfl());
+            if (id != null) {
+                User user = userMapper.toEntity(dto);
+                user.setId(id);
+                created.add(user);
+                imported.add(dto);
+                userStatusIndex.recordCreated(id, dto.pinfl(), dto.deathDate() != null);
+                userColumnarSnapshot.recordCreated(userMapper.toResponseDto(user));
+                deltas.addCreated(dto.gender(), dto.documentType(), dto.citizenship(), dto.age(), dto.deathDate());
+            } else {
+                // строку успела занять параллельная регистрация между проверкой и вставкой
+                rejections.add(new ImportRejectionDto(row.lineNumber(), dto.pinfl(),
+                        "User with this PINFL, email or phone number already exists"));
+            }
+        }
+        userCounterService.apply(deltas);
+        userEventService.recordCreated(created);
+        return new ChunkResult(imported, rejections);
+    }
+
+    // записанные строки и отказы одной пачки, применяются к отчету после коммита
+    private record ChunkResult(List<UserRequestDto> imported, List<ImportRejectionDto> rejections) {
+    }
+
+    // счетчики и ограниченный список отказов для отчета
+    private static final class ImportState {
+
+        private final int maxRejections;
+        private final List<ImportRejectionDto> rejections = new ArrayList<>();
+        private long totalRows;
+        private long importedRows;
+        private long rejectedRows;
+
+        private ImportState(int maxRejections) {
+            this.maxRejections = maxRejections;
+        }
+
+        private void reject(long line, String pinfl, String reason) {
+            reject(new ImportRejectionDto(line, pinfl, reason));
+        }
+
+        private void reject(ImportRejectionDto rejection) {
+            rejectedRows++;
+            if (rejections.size() < maxRejections) {
+                rejections.add(rejection);
+            }
+        }
+    }
+}
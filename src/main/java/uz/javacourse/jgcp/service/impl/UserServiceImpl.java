@@ -1,155 +1,256 @@
 package uz.javacourse.jgcp.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import uz.javacourse.jgcp.cache.CitizenshipDictionary;
+import uz.javacourse.jgcp.cache.UserCache;
+import uz.javacourse.jgcp.constant.enums.AliveStatus;
 import uz.javacourse.jgcp.constant.enums.DocumentType;
 import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.datasource.ReadYourWrites;
 import uz.javacourse.jgcp.dto.request.UserRequestDto;
+import uz.javacourse.jgcp.dto.response.CursorPageDto;
 import uz.javacourse.jgcp.dto.response.MarkDeceasedResponseDto;
 import uz.javacourse.jgcp.dto.response.UserResponseDto;
 import uz.javacourse.jgcp.entity.User;
 import uz.javacourse.jgcp.exception.BusinessException;
 import uz.javacourse.jgcp.exception.ResourceNotFoundException;
 import uz.javacourse.jgcp.exception.UserNotFoundException;
+import uz.javacourse.jgcp.index.UserStatusIndex;
 import uz.javacourse.jgcp.mapper.UserMapper;
+import uz.javacourse.jgcp.repository.UserJdbcRepository;
+import uz.javacourse.jgcp.repository.UserJdbcRepository.ScoredUser;
 import uz.javacourse.jgcp.repository.UserRepository;
+import uz.javacourse.jgcp.repository.UserTableLayout;
+import uz.javacourse.jgcp.service.UserCounterService;
+import uz.javacourse.jgcp.service.UserEventService;
 import uz.javacourse.jgcp.service.UserService;
 import uz.javacourse.jgcp.service.UserValidationService;
+import uz.javacourse.jgcp.snapshot.UserColumnarSnapshot;
+import uz.javacourse.jgcp.util.CursorSigner;
+import uz.javacourse.jgcp.util.LikePatterns;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
 
+// чтение идет в read-only транзакциях: hibernate переводит сессию в FlushMode.MANUAL и не проверяет
+// изменения сущностей, postgresql получает SET TRANSACTION READ ONLY; методы записи переопределяют это
 @Service
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class UserServiceImpl implements UserService {
 
+    // курсоры поиска по похожести подписываются отдельно от курсоров фильтра
+    private static final String RANKED_CURSOR_CONTEXT = "ranked-search:";
+
     private final UserRepository userRepository;
+    private final UserJdbcRepository userJdbcRepository;
+    private final UserTableLayout userTableLayout;
     private final UserMapper userMapper;
     private final UserValidationService userValidationService;
+    private final UserCache userCache;
+    private final CitizenshipDictionary citizenshipDictionary;
+    private final UserCounterService userCounterService;
+    private final UserEventService userEventService;
+    private final UserStatusIndex userStatusIndex;
+    private final UserColumnarSnapshot userColumnarSnapshot;
+    private final CursorSigner cursorSigner;
+    // есть только при включенном чтении с реплик
+    private final ObjectProvider<ReadYourWrites> readYourWrites;
 
     // создает нового пользователя в системе после проверки уникальности email и pinfl
     @Override
     @Transactional
     public UserResponseDto createUser(UserRequestDto requestDto) {
         userValidationService.validateUniqueness(requestDto);
+        // конвертер сущности только ищет ключ гражданства, новое гражданство нужно добавить в справочник заранее
+        citizenshipDictionary.register(requestDto.citizenship());
         User user = userMapper.toEntity(requestDto);
-        User savedUser = userRepository.save(user);
-        return userMapper.toResponseDto(savedUser);
+        User savedUser;
+        try {
+            // id генерируется базой данных, поэтому INSERT выполняется сразу и нарушение уникальности видно здесь
+            savedUser = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            throw userValidationService.translateUniqueViolation(e);
+        }
+        userValidationService.registerKeys(savedUser.getPinfl(), savedUser.getEmail(), savedUser.getPhoneNumber());
+        UserResponseDto responseDto = userMapper.toResponseDto(savedUser);
+        userCounterService.recordCreated(savedUser);
+        userEventService.recordCreated(List.of(savedUser));
+        // индекс статусов и снимок этого узла меняются после коммита, остальные узлы узнают о записи из kafka
+        userStatusIndex.recordCreated(savedUser.getId(), savedUser.getPinfl(), savedUser.getDeathDate() != null);
+        userColumnarSnapshot.recordCreated(responseDto);
+        userCache.evict(savedUser.getId(), savedUser.getPinfl());
+        readYourWrites.ifAvailable(ReadYourWrites::recordWrite);
+        return responseDto;
     }
 
     // возвращает список всех пользователей из базы данных с пагинацией
     @Override
     public Slice<UserResponseDto> getAllUsers(Pageable pageable) {
         // выполняем запрос в базу данных
-        Slice<User> users = userRepository.findAllBy(pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findAllBy(pageable);
     }
 
     // находит и возвращает пользователя по его уникальному идентификатору
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public UserResponseDto getUserById(Long id) {
-        // выполняем запрос в базу данных
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
-        // преобразуем user в dto и возвращаем
-        return userMapper.toResponseDto(user);
+        // метод без транзакции, чтобы попадание в кэш не занимало соединение из пула;
+        // при промахе кэша выполняем запрос в базу данных сразу в dto
+        return userCache.getById(id, () -> (userTableLayout.isPartitioned()
+                ? userRepository.findResponseByIdViaKeys(id)
+                : userRepository.findResponseById(id))
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", id)));
     }
 
     // находит и возвращает пользователя по его персональному идентификационному номеру (pinfl)
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public UserResponseDto getUserByPinfl(String pinfl) {
-        // выполняем запрос в базу данных
-        User user = userRepository.findByPinfl(pinfl)
-                .orElseThrow(() -> new UserNotFoundException("pinfl", pinfl));
-        // преобразуем user в dto и возвращаем
-        return userMapper.toResponseDto(user);
+        // метод без транзакции, чтобы попадание в кэш не занимало соединение из пула;
+        // при промахе кэша выполняем запрос в базу данных сразу в dto
+        return userCache.getByPinfl(pinfl, () -> userRepository.findResponseByPinfl(pinfl)
+                .orElseThrow(() -> new UserNotFoundException("pinfl", pinfl)));
     }
 
-    // проверяет жив ли пользователь (deathDate == null означает что пользователь жив)
+    // проверяет жив ли пользователь (deathDate == null означает что пользователь жив); без транзакции,
+    // чтобы ответ из индекса статусов не занимал соединение с базой данных
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public boolean isUserAlive(Long id) {
-        // выполняем запрос в базу данных
-        User user = userRepository.findById(id)
+        AliveStatus indexed = userStatusIndex.statusById(id);
+        if (indexed != null) {
+            return indexed == AliveStatus.ALIVE;
+        }
+        // читаем только признак deathDate IS NULL, без загрузки сущности
+        return (userTableLayout.isPartitioned()
+                ? userRepository.findAliveByIdViaKeys(id)
+                : userRepository.findAliveById(id))
                 .orElseThrow(() -> new ResourceNotFoundException("User with id " + id + " not found"));
-        // проверяем дату смерти и возвращаем результат
-        return user.getDeathDate() == null;
     }
 
     // отмечает пользователя как умершего, устанавливая дату смерти
     @Override
     @Transactional
     public MarkDeceasedResponseDto markUserAsDeceased(Long id, LocalDate deathDate) {
-        User user = userRepository.findById(id)
+        // в секционированной users поиск по id идет через user_keys, чтобы прочитать одну секцию
+        User user = (userTableLayout.isPartitioned()
+                ? userRepository.findByIdViaKeys(id)
+                : userRepository.findById(id))
                 .orElseThrow(() -> new UserNotFoundException(id));
 
         if (user.getDeathDate() != null) {
             throw new BusinessException("User already marked as deceased");
         }
 
+        if (userRepository.markDeceased(user.getId(), user.getPinfl(), deathDate) == 0) {
+            throw new BusinessException("User already marked as deceased");
+        }
+        // сущность уже отсоединена от контекста и используется только для ответа и событий
         user.setDeathDate(deathDate);
-        User updatedUser = userRepository.save(user);
+        userCounterService.recordDeceased();
+        userEventService.recordDeceased(user.getId(), user.getPinfl(), user.getDeathDate());
+        userStatusIndex.recordDeceased(user.getId(), user.getPinfl());
+        userColumnarSnapshot.recordDeceased(user.getId(), user.getDeathDate());
+        userCache.evict(user.getId(), user.getPinfl());
+        readYourWrites.ifAvailable(ReadYourWrites::recordWrite);
 
-        return userMapper.toMarkDeceasedResponseDto(updatedUser);
+        return userMapper.toMarkDeceasedResponseDto(user);
     }
 
     // ищет пользователей по части имени (без учета регистра) с пагинацией
     @Override
     public Slice<UserResponseDto> searchByName(String name, Pageable pageable) {
         // выполняем запрос в базу данных
-        Slice<User> users = userRepository.findByFullNameContainingIgnoreCase(name, pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByFullNameLike(LikePatterns.contains(name), pageable);
+    }
+
+    // ищет пользователей с похожими именами (pg_trgm), самые похожие первыми;
+    // курсор кодирует (score, id) последней строки, поэтому страницы не пересекаются. Курсор подписан
+    // вместе с искомым именем: подменить ключ или продолжить им другой поиск нельзя
+    @Override
+    public CursorPageDto<UserResponseDto> searchByNameRanked(String name, String cursor, int size) {
+        String query = name.toLowerCase(Locale.ROOT);
+        String context = RANKED_CURSOR_CONTEXT + query;
+        Float afterScore = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String payload = cursorSigner.verify(cursor, context);
+            if (payload == null) {
+                throw new BusinessException("Invalid search cursor");
+            }
+            try {
+                String[] parts = payload.split(":", 2);
+                afterScore = Float.parseFloat(parts[0]);
+                afterId = Long.parseLong(parts[1]);
+            } catch (RuntimeException e) {
+                throw new BusinessException("Invalid search cursor");
+            }
+        }
+        // запрашиваем на одну строку больше, чтобы узнать есть ли следующая страница
+        List<ScoredUser> rows = userJdbcRepository.searchBySimilarity(query, afterScore, afterId, size + 1);
+        boolean hasNext = rows.size() > size;
+        List<ScoredUser> page = hasNext ? rows.subList(0, size) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            ScoredUser last = page.get(page.size() - 1);
+            nextCursor = cursorSigner.sign(last.score() + ":" + last.user().id(), context);
+        }
+        return CursorPageDto.<UserResponseDto>builder()
+                .content(page.stream().map(ScoredUser::user).toList())
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .build();
     }
 
     // возвращает список всех живых пользователей с пагинацией
     @Override
     public Slice<UserResponseDto> getAllAliveUsers(Pageable pageable) {
         // выполняем запрос в базу данных
-        Slice<User> users = userRepository.findByDeathDateIsNull(pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByDeathDateIsNull(pageable);
     }
 
     // возвращает список всех умерших пользователей с пагинацией
     @Override
     public Slice<UserResponseDto> getAllDeceasedUsers(Pageable pageable) {
         // выполняем запрос в базу данных
-        Slice<User> users = userRepository.findByDeathDateIsNotNull(pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByDeathDateIsNotNull(pageable);
     }
 
     // возвращает количество живых пользователей
     @Override
     public long getAliveUsersCount() {
-        // просто возвращаем количество из репозитория
-        return userRepository.countByDeathDateIsNull();
+        // читаем поддерживаемый счетчик вместо COUNT(*) по таблице
+        return userCounterService.getAliveCount();
     }
 
     // возвращает количество умерших пользователей
     @Override
     public long getDeceasedUsersCount() {
-        // просто возвращаем количество из репозитория
-        return userRepository.countByDeathDateIsNotNull();
+        // читаем поддерживаемый счетчик вместо COUNT(*) по таблице
+        return userCounterService.getDeceasedCount();
     }
 
     // возвращает пользователей умерших в указанном периоде с пагинацией
     @Override
     public Slice<UserResponseDto> getUsersDeceasedBetween(LocalDate start, LocalDate end, Pageable pageable) {
         // выполняем запрос в базу данных
-        Slice<User> users = userRepository.findByDeathDateBetween(start, end, pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByDeathDateBetween(start, end, pageable);
     }
 
     // возвращает пользователей с истекшими документами
     @Override
     public Slice<UserResponseDto> getUsersWithExpiredDocuments(Pageable pageable) {
-        Slice<User> users = userRepository.findByExpiryDateBefore(LocalDate.now(),  pageable);
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByExpiryDateBefore(LocalDate.now(),  pageable);
 
     }
 
@@ -158,64 +259,58 @@ public class UserServiceImpl implements UserService {
     public Slice<UserResponseDto> getUsersWithDocumentsExpiringBetween(LocalDate start,
                                                                       LocalDate end,
                                                                       Pageable pageable) {
-        Slice<User> users = userRepository.findByExpiryDateBetween(start, end, pageable);
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByExpiryDateBetween(start, end, pageable);
     }
 
     // возвращает пользователей по типу документа
     @Override
     public Slice<UserResponseDto> getUsersByDocumentType(DocumentType documentType, Pageable pageable) {
-        Slice<User> users = userRepository.findByDocumentType(documentType, pageable);
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByDocumentType(documentType, pageable);
 
     }
 
     // возвращает пользователей по полу
     @Override
     public Slice<UserResponseDto> getUsersByGender(Gender gender, Pageable pageable) {
-        Slice<User> users = userRepository.findByGender(gender, pageable);
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByGender(gender, pageable);
     }
 
     // возвращает количество пользователей по полу
     @Override
     public long getUsersCountByGender(Gender gender) {
-        return userRepository.countByGender(gender);
+        return userCounterService.getCountByGender(gender);
     }
 
     // возвращает пользователей по гражданству
     @Override
     public Slice<UserResponseDto> getUsersByCitizenship(String citizenship, Pageable pageable) {
-        Slice<User> users = userRepository.findByCitizenship(citizenship, pageable);
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByCitizenship(citizenship, pageable);
     }
 
     // возвращает пользователей в указанном возрастном диапазоне
     @Override
     public Slice<UserResponseDto> getUsersByAgeRange(Integer minAge, Integer maxAge, Pageable pageable) {
-        Slice<User> users = userRepository.findByAgeBetween(minAge, maxAge, pageable);
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByAgeBetween(minAge, maxAge, pageable);
     }
 
     // возвращает живых пользователей с истекшими документами
     @Override
     public Slice<UserResponseDto> getAliveUsersWithExpiredDocuments(Pageable pageable) {
-        Slice<User> users = userRepository.findByDeathDateIsNullAndExpiryDateBefore(LocalDate.now(), pageable);
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByDeathDateIsNullAndExpiryDateBefore(LocalDate.now(), pageable);
 
     }
 
     // возвращает пользователей по полу и возрастному диапазону
     @Override
     public Slice<UserResponseDto> getUsersByGenderAndAgeRange(Gender gender, Integer minAge, Integer maxAge, Pageable pageable) {
-        Slice<User> users = userRepository.findByGenderAndAgeBetween(gender, minAge, maxAge, pageable);
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByGenderAndAgeBetween(gender, minAge, maxAge, pageable);
     }
 
     // статистика - count методы
+    // общее количество, пол, тип документа, гражданство и возраст читаются из счетчиков (UserCounterService)
     @Override
     public long getTotalUsersCount() {
-        return userRepository.count();
+        return userCounterService.getTotalCount();
     }
 
     @Override
@@ -230,12 +325,12 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public long getUsersByDocumentTypeCount(DocumentType documentType) {
-        return userRepository.countByDocumentType(documentType);
+        return userCounterService.getCountByDocumentType(documentType);
     }
 
     @Override
     public long getUsersByAgeRangeCount(Integer minAge, Integer maxAge) {
-        return userRepository.countByAgeBetween(minAge, maxAge);
+        return userCounterService.getCountByAgeBetween(minAge, maxAge);
     }
 
     @Override
@@ -255,7 +350,7 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public long getUsersByCitizenshipCount(String citizenship) {
-        return userRepository.countByCitizenship(citizenship);
+        return userCounterService.getCountByCitizenship(citizenship);
     }
 
     // === KEYSET (CURSOR-BASED) ПАГИНАЦИЯ ===
@@ -267,9 +362,7 @@ public class UserServiceImpl implements UserService {
         // создаем pageable с нужным размером страницы
         Pageable pageable = org.springframework.data.domain.PageRequest.of(0, size);
         // выполняем запрос используя id > afterId для быстрой пагинации
-        Slice<User> users = userRepository.findAllByIdGreaterThan(afterId, pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findAllByIdGreaterThan(afterId, pageable);
     }
 
     // ищет пользователей по имени после указанного id (для keyset пагинации)
@@ -278,9 +371,16 @@ public class UserServiceImpl implements UserService {
         // создаем pageable с нужным размером страницы
         Pageable pageable = org.springframework.data.domain.PageRequest.of(0, size);
         // выполняем поиск по имени используя id > afterId
-        Slice<User> users = userRepository.findByFullNameContainingIgnoreCaseAndIdGreaterThan(name, afterId, pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByFullNameLikeAndIdGreaterThan(LikePatterns.contains(name), afterId, pageable);
+    }
+
+    // ищет пользователей по началу имени после указанного id (для keyset пагинации)
+    @Override
+    public Slice<UserResponseDto> searchByNamePrefixAfter(String prefix, Long afterId, int size) {
+        // создаем pageable с нужным размером страницы
+        Pageable pageable = org.springframework.data.domain.PageRequest.of(0, size);
+        // выполняем поиск по началу имени используя id > afterId
+        return userRepository.findByFullNameStartingWithAndIdGreaterThan(LikePatterns.prefix(prefix), afterId, pageable);
     }
 
     // возвращает живых пользователей после указанного id (для keyset пагинации)
@@ -289,9 +389,7 @@ public class UserServiceImpl implements UserService {
         // создаем pageable с нужным размером страницы
         Pageable pageable = org.springframework.data.domain.PageRequest.of(0, size);
         // выполняем запрос для живых пользователей используя id > afterId
-        Slice<User> users = userRepository.findByDeathDateIsNullAndIdGreaterThan(afterId, pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByDeathDateIsNullAndIdGreaterThan(afterId, pageable);
     }
 
     // возвращает умерших пользователей после указанного id (для keyset пагинации)
@@ -300,9 +398,7 @@ public class UserServiceImpl implements UserService {
         // создаем pageable с нужным размером страницы
         Pageable pageable = org.springframework.data.domain.PageRequest.of(0, size);
         // выполняем запрос для умерших пользователей используя id > afterId
-        Slice<User> users = userRepository.findByDeathDateIsNotNullAndIdGreaterThan(afterId, pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByDeathDateIsNotNullAndIdGreaterThan(afterId, pageable);
     }
 
     // возвращает пользователей умерших в периоде после указанного id (для keyset пагинации)
@@ -311,9 +407,7 @@ public class UserServiceImpl implements UserService {
         // создаем pageable с нужным размером страницы
         Pageable pageable = org.springframework.data.domain.PageRequest.of(0, size);
         // выполняем запрос по периоду смерти используя id > afterId
-        Slice<User> users = userRepository.findByDeathDateBetweenAndIdGreaterThan(start, end, afterId, pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByDeathDateBetweenAndIdGreaterThan(start, end, afterId, pageable);
     }
 
     // возвращает пользователей с истекшими документами после указанного id (для keyset пагинации)
@@ -322,9 +416,7 @@ public class UserServiceImpl implements UserService {
         // создаем pageable с нужным размером страницы
         Pageable pageable = org.springframework.data.domain.PageRequest.of(0, size);
         // выполняем запрос для истекших документов используя id > afterId
-        Slice<User> users = userRepository.findByExpiryDateBeforeAndIdGreaterThan(LocalDate.now(), afterId, pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByExpiryDateBeforeAndIdGreaterThan(LocalDate.now(), afterId, pageable);
     }
 
     // возвращает пользователей с документами истекающими в периоде после указанного id (для keyset пагинации)
@@ -333,9 +425,7 @@ public class UserServiceImpl implements UserService {
         // создаем pageable с нужным размером страницы
         Pageable pageable = org.springframework.data.domain.PageRequest.of(0, size);
         // выполняем запрос по периоду истечения документов используя id > afterId
-        Slice<User> users = userRepository.findByExpiryDateBetweenAndIdGreaterThan(start, end, afterId, pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByExpiryDateBetweenAndIdGreaterThan(start, end, afterId, pageable);
     }
 
     // возвращает пользователей по типу документа после указанного id (для keyset пагинации)
@@ -344,9 +434,7 @@ public class UserServiceImpl implements UserService {
         // создаем pageable с нужным размером страницы
         Pageable pageable = org.springframework.data.domain.PageRequest.of(0, size);
         // выполняем запрос по типу документа используя id > afterId
-        Slice<User> users = userRepository.findByDocumentTypeAndIdGreaterThan(documentType, afterId, pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByDocumentTypeAndIdGreaterThan(documentType, afterId, pageable);
     }
 
     // возвращает пользователей по полу после указанного id (для keyset пагинации)
@@ -355,9 +443,7 @@ public class UserServiceImpl implements UserService {
         // создаем pageable с нужным размером страницы
         Pageable pageable = org.springframework.data.domain.PageRequest.of(0, size);
         // выполняем запрос по полу используя id > afterId
-        Slice<User> users = userRepository.findByGenderAndIdGreaterThan(gender, afterId, pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByGenderAndIdGreaterThan(gender, afterId, pageable);
     }
 
     // возвращает пользователей по гражданству после указанного id (для keyset пагинации)
@@ -366,9 +452,7 @@ public class UserServiceImpl implements UserService {
         // создаем pageable с нужным размером страницы
         Pageable pageable = org.springframework.data.domain.PageRequest.of(0, size);
         // выполняем запрос по гражданству используя id > afterId
-        Slice<User> users = userRepository.findByCitizenshipAndIdGreaterThan(citizenship, afterId, pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByCitizenshipAndIdGreaterThan(citizenship, afterId, pageable);
     }
 
     // возвращает пользователей в возрастном диапазоне после указанного id (для keyset пагинации)
@@ -377,9 +461,7 @@ public class UserServiceImpl implements UserService {
         // создаем pageable с нужным размером страницы
         Pageable pageable = org.springframework.data.domain.PageRequest.of(0, size);
         // выполняем запрос по возрасту используя id > afterId
-        Slice<User> users = userRepository.findByAgeBetweenAndIdGreaterThan(minAge, maxAge, afterId, pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByAgeBetweenAndIdGreaterThan(minAge, maxAge, afterId, pageable);
     }
 
     // возвращает живых пользователей с истекшими документами после указанного id (для keyset пагинации)
@@ -388,9 +470,7 @@ public class UserServiceImpl implements UserService {
         // создаем pageable с нужным размером страницы
         Pageable pageable = org.springframework.data.domain.PageRequest.of(0, size);
         // выполняем комбинированный запрос для живых с истекшими документами используя id > afterId
-        Slice<User> users = userRepository.findByDeathDateIsNullAndExpiryDateBeforeAndIdGreaterThan(LocalDate.now(), afterId, pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByDeathDateIsNullAndExpiryDateBeforeAndIdGreaterThan(LocalDate.now(), afterId, pageable);
     }
 
     // возвращает пользователей по полу и возрасту после указанного id (для keyset пагинации)
@@ -399,8 +479,6 @@ public class UserServiceImpl implements UserService {
         // создаем pageable с нужным размером страницы
         Pageable pageable = org.springframework.data.domain.PageRequest.of(0, size);
         // выполняем комбинированный запрос по полу и возрасту используя id > afterId
-        Slice<User> users = userRepository.findByGenderAndAgeBetweenAndIdGreaterThan(gender, minAge, maxAge, afterId, pageable);
-        // преобразуем каждого user в dto и возвращаем slice
-        return users.map(userMapper::toResponseDto);
+        return userRepository.findByGenderAndAgeBetweenAndIdGreaterThan(gender, minAge, maxAge, afterId, pageable);
     }
 }
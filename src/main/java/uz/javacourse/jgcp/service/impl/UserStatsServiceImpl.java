@@ -0,0 +1,89 @@
+package uz.javacourse.jgcp.service.impl;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import uz.javacourse.jgcp.config.StatsProperties;
+import uz.javacourse.jgcp.dto.response.UserStatsDto;
+import uz.javacourse.jgcp.exception.BusinessException;
+import uz.javacourse.jgcp.repository.UserStatsRepository;
+import uz.javacourse.jgcp.service.UserStatsService;
+
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@Service
+public class UserStatsServiceImpl implements UserStatsService {
+
+    private final UserStatsRepository userStatsRepository;
+    private final AsyncCache<StatsKey, UserStatsDto> cache;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    public UserStatsServiceImpl(UserStatsRepository userStatsRepository,
+                                StatsProperties statsProperties,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry) {
+        this.userStatsRepository = userStatsRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(statsProperties.cacheTtl())
+                .maximumSize(statsProperties.cacheMaximumSize())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users.stats");
+    }
+
+    // считает всю статистику одним запросом; одинаковые запросы в течение app.stats.cache-ttl
+    // получают уже посчитанный результат. Кэш асинхронный, как UserCache: первый промах кладет свой future
+    // и считает в текущем потоке, параллельные запросы того же ключа ждут future вне блокировки caffeine,
+    // не занимая поток-носитель. Read-only транзакцию открывает только считающий поток, ждущие не держат соединение
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public UserStatsDto getStats(LocalDate expiringStart, LocalDate expiringEnd,
+                                 LocalDate deceasedStart, LocalDate deceasedEnd) {
+        validatePeriod("expiring", expiringStart, expiringEnd);
+        validatePeriod("deceased", deceasedStart, deceasedEnd);
+
+        StatsKey key = new StatsKey(LocalDate.now(), expiringStart, expiringEnd, deceasedStart, deceasedEnd);
+        CompletableFuture<UserStatsDto> placeholder = new CompletableFuture<>();
+        CompletableFuture<UserStatsDto> cached = cache.get(key, (k, executor) -> placeholder);
+        if (cached != placeholder) {
+            try {
+                return cached.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        // future, завершенный исключением, caffeine удаляет сам: ошибка не кэшируется
+        try {
+            UserStatsDto stats = readOnlyTransactionTemplate.execute(status -> userStatsRepository.calculate(
+                    key.today(), key.expiringStart(), key.expiringEnd(), key.deceasedStart(), key.deceasedEnd()));
+            placeholder.complete(stats);
+            return stats;
+        } catch (RuntimeException e) {
+            placeholder.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void validatePeriod(String name, LocalDate start, LocalDate end) {
+        if ((start == null) != (end == null)) {
+            throw new BusinessException("Both " + name + "Start and " + name + "End must be provided");
+        }
+        if (start != null && start.isAfter(end)) {
+            throw new BusinessException(name + "Start must not be after " + name + "End");
+        }
+    }
+
+    private record StatsKey(LocalDate today,
+                            LocalDate expiringStart, LocalDate expiringEnd,
+                            LocalDate deceasedStart, LocalDate deceasedEnd) {
+    }
+}
@@ -0,0 +1,84 @@
+package uz.javacourse.jgcp.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import uz.javacourse.jgcp.config.BatchLookupProperties;
+import uz.javacourse.jgcp.constant.enums.AliveStatus;
+import uz.javacourse.jgcp.dto.request.AliveCheckRequestDto;
+import uz.javacourse.jgcp.dto.response.AliveCheckResultDto;
+import uz.javacourse.jgcp.exception.BusinessException;
+import uz.javacourse.jgcp.index.UserStatusIndex;
+import uz.javacourse.jgcp.repository.UserJdbcRepository;
+import uz.javacourse.jgcp.service.UserStatusService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class UserStatusServiceImpl implements UserStatusService {
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final UserStatusIndex userStatusIndex;
+    private final BatchLookupProperties batchLookupProperties;
+    private final Counter indexHits;
+    private final Counter databaseHits;
+
+    public UserStatusServiceImpl(UserJdbcRepository userJdbcRepository,
+                                 UserStatusIndex userStatusIndex,
+                                 BatchLookupProperties batchLookupProperties,
+                                 MeterRegistry meterRegistry) {
+        this.userJdbcRepository = userJdbcRepository;
+        this.userStatusIndex = userStatusIndex;
+        this.batchLookupProperties = batchLookupProperties;
+        this.indexHits = meterRegistry.counter("users.alive-check.keys", "source", "index");
+        this.databaseHits = meterRegistry.counter("users.alive-check.keys", "source", "database");
+    }
+
+    // статусы в порядке запроса (повторы pinfl сохраняются); известные индексу pinfl отвечаются из памяти,
+    // остальные (индекс не готов, запись с другого узла еще не доехала, pinfl не существует, ALIVE при
+    // app.status-index.trust-alive=false) - из базы пачками по app.batch-lookup.chunk-size
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<AliveCheckResultDto> checkAliveByPinfl(AliveCheckRequestDto request) {
+        if (request.pinfls().size() > batchLookupProperties.maxKeys()) {
+            throw new BusinessException("At most " + batchLookupProperties.maxKeys() + " PINFLs can be checked at once");
+        }
+
+        Map<String, AliveStatus> statuses = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String pinfl : new LinkedHashSet<>(request.pinfls())) {
+            AliveStatus status = userStatusIndex.statusByPinfl(pinfl);
+            if (status != null) {
+                statuses.put(pinfl, status);
+            } else {
+                missing.add(pinfl);
+            }
+        }
+        indexHits.increment(statuses.size());
+        databaseHits.increment(missing.size());
+
+        int chunkSize = batchLookupProperties.chunkSize();
+        for (int from = 0; from < missing.size(); from += chunkSize) {
+            List<String> chunk = missing.subList(from, Math.min(from + chunkSize, missing.size()));
+            Map<String, Boolean> alive = userJdbcRepository.findAliveByPinfls(chunk);
+            for (String pinfl : chunk) {
+                Boolean isAlive = alive.get(pinfl);
+                statuses.put(pinfl, isAlive == null
+                        ? AliveStatus.NOT_FOUND
+                        : isAlive ? AliveStatus.ALIVE : AliveStatus.DECEASED);
+            }
+        }
+
+        List<AliveCheckResultDto> results = new ArrayList<>(request.pinfls().size());
+        for (String pinfl : request.pinfls()) {
+            results.add(new AliveCheckResultDto(pinfl, statuses.get(pinfl)));
+        }
+        return results;
+    }
+}
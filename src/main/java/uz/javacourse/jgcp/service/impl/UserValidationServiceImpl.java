@@ -1,31 +1,92 @@
 package uz.javacourse.jgcp.service.impl;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import uz.javacourse.jgcp.dto.request.UserRequestDto;
 import uz.javacourse.jgcp.exception.ConflictException;
+import uz.javacourse.jgcp.index.UserKeyBloomFilter;
+import uz.javacourse.jgcp.repository.UniquenessProbe;
 import uz.javacourse.jgcp.repository.UserRepository;
+import uz.javacourse.jgcp.repository.UserTableLayout;
 import uz.javacourse.jgcp.service.UserValidationService;
 
 @Service
-@RequiredArgsConstructor
 public class UserValidationServiceImpl implements UserValidationService {
 
+    private static final String PINFL_TAKEN = "User with this PINFL already exists";
+    private static final String EMAIL_TAKEN = "User with this email already exists";
+    private static final String PHONE_NUMBER_TAKEN = "User with this phone number already exists";
+
     private final UserRepository userRepository;
+    private final UserKeyBloomFilter userKeyBloomFilter;
+    private final UserTableLayout userTableLayout;
+    private final Counter probeSkipped;
+    private final Counter probeExecuted;
+
+    public UserValidationServiceImpl(UserRepository userRepository,
+                                     UserKeyBloomFilter userKeyBloomFilter,
+                                     UserTableLayout userTableLayout,
+                                     MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.userKeyBloomFilter = userKeyBloomFilter;
+        this.userTableLayout = userTableLayout;
+        this.probeSkipped = meterRegistry.counter("users.uniqueness.probe", "result", "skipped");
+        this.probeExecuted = meterRegistry.counter("users.uniqueness.probe", "result", "probed");
+    }
 
-    // проверяет уникальность email, pinfl и номера телефона перед созданием нового пользователя
+    // проверяет уникальность email, pinfl и номера телефона перед созданием нового пользователя;
+    // если bloom-фильтр уверен что все значения новые, запрос в базу данных не выполняется,
+    // гонку двух одновременных регистраций закрывают уникальные ограничения (см. translateUniqueViolation)
     @Override
     public void validateUniqueness(UserRequestDto requestDto) {
-        if (userRepository.existsByPinfl(requestDto.pinfl())) {
-            throw new ConflictException("User with this PINFL already exists");
+        if (!userKeyBloomFilter.mightBeTaken(requestDto.pinfl(), requestDto.email(), requestDto.phoneNumber())) {
+            probeSkipped.increment();
+            return;
+        }
+        probeExecuted.increment();
+
+        UniquenessProbe probe = userTableLayout.isPartitioned()
+                ? userRepository.probeUniquenessViaKeys(requestDto.pinfl(), requestDto.email(), requestDto.phoneNumber())
+                : userRepository.probeUniqueness(requestDto.pinfl(), requestDto.email(), requestDto.phoneNumber());
+
+        if (probe.getPinflTaken()) {
+            throw new ConflictException(PINFL_TAKEN);
+        }
+
+        if (probe.getEmailTaken()) {
+            throw new ConflictException(EMAIL_TAKEN);
         }
 
-        if (userRepository.existsByEmail(requestDto.email())) {
-            throw new ConflictException("User with this email already exists");
+        if (probe.getPhoneNumberTaken()) {
+            throw new ConflictException(PHONE_NUMBER_TAKEN);
         }
+    }
 
-        if (userRepository.existsByPhoneNumber(requestDto.phoneNumber())) {
-            throw new ConflictException("User with this phone number already exists");
+    @Override
+    public void registerKeys(String pinfl, String email, String phoneNumber) {
+        userKeyBloomFilter.put(pinfl, email, phoneNumber);
+    }
+
+    // имена ограничений заданы миграциями V1 (users_pinfl_key, users_email_key) и V6 (uk_users_phone_number);
+    // в секционированной users (V14) повтор pinfl нарушает первичный ключ секции (users_p_NN_pkey),
+    // а повтор email и телефона - ограничения user_keys
+    @Override
+    public RuntimeException translateUniqueViolation(DataIntegrityViolationException e) {
+        if (!(e.getCause() instanceof ConstraintViolationException violation) || violation.getConstraintName() == null) {
+            return e;
+        }
+        String constraint = violation.getConstraintName();
+        if (constraint.startsWith("users_p_") && constraint.endsWith("_pkey")) {
+            return new ConflictException(PINFL_TAKEN);
         }
+        return switch (constraint) {
+            case "users_pinfl_key", "uk_user_keys_pinfl" -> new ConflictException(PINFL_TAKEN);
+            case "users_email_key", "uk_user_keys_email" -> new ConflictException(EMAIL_TAKEN);
+            case "uk_users_phone_number", "uk_user_keys_phone_number" -> new ConflictException(PHONE_NUMBER_TAKEN);
+            default -> e;
+        };
     }
 }
@@ -0,0 +1,405 @@
+package uz.javacourse.jgcp.snapshot;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import uz.javacourse.jgcp.cache.CitizenshipDictionary;
+import uz.javacourse.jgcp.config.SnapshotProperties;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.request.UserFilterDto;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.repository.UserJdbcRepository;
+import uz.javacourse.jgcp.service.OnlineMigrationService;
+import uz.javacourse.jgcp.util.LongIntHashMap;
+import uz.javacourse.jgcp.util.TransactionHooks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+// колоночный снимок таблицы users для демографических подсчетов: по одному примитивному массиву на измерение,
+// гражданство хранится ключом справочника citizenships, перечисления - номерами, даты - днями от эпохи.
+// Подсчет по UserFilterDto (кроме name) проверяет каждое измерение как диапазон [lo, hi] без ветвлений
+// и идет блоками по ядрам через общий ForkJoinPool.
+//
+// Снимок строится потоковым чтением таблицы после старта и заново каждые app.snapshot.rebuild-interval,
+// между перестроениями пополняется после коммита записей (через outbox) и событиями с других узлов.
+// Изменения, пришедшие во время перестроения, запоминаются и применяются к новой версии перед публикацией.
+//
+// Память на строку: колонки 13 байт (пол, тип документа, возраст по байту, гражданство short,
+// срок действия и дата смерти int) и таблица id -> строка ~16 байт: 3 млн строк - около 90 MB
+@Slf4j
+@Component
+public class UserColumnarSnapshot {
+
+    // строк на одну задачу параллельного подсчета
+    private static final int BLOCK_SIZE = 1 << 16;
+    // дата смерти живого пользователя
+    private static final int NO_DEATH = Integer.MIN_VALUE;
+    private static final int MAX_AGE = 255;
+    // проверка завершения обязательных фоновых миграций перед первым построением
+    private static final Duration MIGRATIONS_CHECK_INTERVAL = Duration.ofSeconds(5);
+
+    private static final Gender[] GENDERS = Gender.values();
+    private static final DocumentType[] DOCUMENT_TYPES = DocumentType.values();
+
+    private final UserJdbcRepository userJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final SnapshotProperties properties;
+    private final CitizenshipDictionary citizenshipDictionary;
+    private final OnlineMigrationService onlineMigrationService;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    // изменения, пришедшие во время перестроения; доступ под synchronized
+    private List<Consumer<Table>> pending;
+    private volatile Table table;
+    private volatile Instant builtAt;
+    private volatile Instant updatedAt;
+    private volatile long buildMillis;
+
+    public UserColumnarSnapshot(UserJdbcRepository userJdbcRepository,
+                                TransactionTemplate transactionTemplate,
+                                SnapshotProperties snapshotProperties,
+                                CitizenshipDictionary citizenshipDictionary,
+                                OnlineMigrationService onlineMigrationService,
+                                MeterRegistry meterRegistry) {
+        this.userJdbcRepository = userJdbcRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = snapshotProperties;
+        this.citizenshipDictionary = citizenshipDictionary;
+        this.onlineMigrationService = onlineMigrationService;
+
+        Gauge.builder("users.snapshot.rows", this, UserColumnarSnapshot::rows)
+                .register(meterRegistry);
+        Gauge.builder("users.snapshot.age", this, snapshot -> snapshot.ageMillis() / 1000.0)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return table != null;
+    }
+
+    public long rows() {
+        Table current = table;
+        return current == null ? 0 : current.columns.size;
+    }
+
+    public long sizeInBytes() {
+        Table current = table;
+        return current == null ? 0 : current.sizeInBytes();
+    }
+
+    public Instant builtAt() {
+        return builtAt;
+    }
+
+    public Instant updatedAt() {
+        return updatedAt;
+    }
+
+    public long buildMillis() {
+        return buildMillis;
+    }
+
+    // время с последнего полного перестроения из базы, -1 если снимок еще не построен
+    public long ageMillis() {
+        Instant built = builtAt;
+        return built == null ? -1 : System.currentTimeMillis() - built.toEpochMilli();
+    }
+
+    // число строк снимка, подходящих под фильтр; name не поддерживается. Снимок должен быть готов
+    public long count(UserFilterDto filter) {
+        Table current = table;
+        if (current == null) {
+            throw new IllegalStateException("User snapshot is not built yet");
+        }
+        Query query = Query.of(filter, citizenshipDictionary);
+        Columns columns = current.columns;
+        int size = columns.size;
+        if (query == null || size == 0) {
+            return 0;
+        }
+        int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        if (blocks == 1) {
+            return columns.count(query, 0, size);
+        }
+        return IntStream.range(0, blocks)
+                .parallel()
+                .mapToLong(block -> columns.count(query, block * BLOCK_SIZE, Math.min(size, (block + 1) * BLOCK_SIZE)))
+                .sum();
+    }
+
+    public void recordCreated(UserResponseDto user) {
+        Short citizenship = properties.enabled() ? citizenshipDictionary.findId(user.citizenship()) : null;
+        if (citizenship == null || user.id() == null) {
+            return;
+        }
+        long id = user.id();
+        int gender = user.gender().ordinal();
+        int documentType = user.documentType().ordinal();
+        int age = Math.clamp(user.age(), 0, MAX_AGE);
+        int expiryDay = (int) user.expiryDate().toEpochDay();
+        int deathDay = epochDay(user.deathDate());
+        TransactionHooks.afterCommit(() -> apply(t -> t.append(id, gender, documentType, age, citizenship, expiryDay, deathDay)));
+    }
+
+    public void recordDeceased(long id, LocalDate deathDate) {
+        if (!properties.enabled() || deathDate == null) {
+            return;
+        }
+        int deathDay = (int) deathDate.toEpochDay();
+        TransactionHooks.afterCommit(() -> apply(t -> t.markDeceased(id, deathDay)));
+    }
+
+    // первое построение идет в отдельном потоке, чтобы не задерживать старт приложения. Снимок читает
+    // citizenship_id, поэтому ждет заполнения старых строк (users-citizenship-id), в том числе на другом узле
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (properties.enabled()) {
+            Thread.ofVirtual().name("user-snapshot-build").start(() -> {
+                try {
+                    while (!onlineMigrationService.requiredMigrationsDone()) {
+                        Thread.sleep(MIGRATIONS_CHECK_INTERVAL);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                rebuild();
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.snapshot.rebuild-interval}", initialDelayString = "${app.snapshot.rebuild-interval}")
+    public void rebuild() {
+        if (!properties.enabled() || !onlineMigrationService.requiredMigrationsDone()
+                || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        try {
+            synchronized (this) {
+                pending = new ArrayList<>();
+            }
+            Table fresh = new Table(Math.max(properties.initialCapacity(), (int) (rows() * 1.1)));
+            transactionTemplate.executeWithoutResult(status -> userJdbcRepository.streamSnapshotRows(rs -> {
+                LocalDate deathDate = rs.getObject("death_date", LocalDate.class);
+                fresh.append(rs.getLong("id"),
+                        Gender.valueOf(rs.getString("gender")).ordinal(),
+                        DocumentType.valueOf(rs.getString("document_type")).ordinal(),
+                        Math.clamp(rs.getInt("age"), 0, MAX_AGE),
+                        rs.getShort("citizenship_id"),
+                        (int) rs.getObject("expiry_date", LocalDate.class).toEpochDay(),
+                        epochDay(deathDate));
+            }));
+            synchronized (this) {
+                pending.forEach(change -> change.accept(fresh));
+                pending = null;
+                table = fresh;
+                builtAt = Instant.ofEpochMilli(startedAt);
+                updatedAt = Instant.now();
+            }
+            buildMillis = System.currentTimeMillis() - startedAt;
+            log.info("User snapshot built: {} rows, {} KB, took {} ms", fresh.columns.size, fresh.sizeInBytes() / 1024, buildMillis);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pending = null;
+            }
+            log.error("Failed to build user snapshot, keeping the previous version", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private synchronized void apply(Consumer<Table> change) {
+        if (pending != null) {
+            pending.add(change);
+        }
+        if (table != null) {
+            change.accept(table);
+            updatedAt = Instant.now();
+        }
+    }
+
+    private static int epochDay(LocalDate date) {
+        return date == null ? NO_DEATH : (int) date.toEpochDay();
+    }
+
+    // одна версия снимка: колонки и положение строки по id. Меняется только одним писателем:
+    // потоком построения до публикации, после нее - под synchronized снимка
+    private static final class Table {
+
+        private final LongIntHashMap rowsById;
+        private volatile Columns columns;
+
+        private Table(int capacity) {
+            this.rowsById = new LongIntHashMap(capacity);
+            this.columns = new Columns(Math.max(capacity, 1024));
+        }
+
+        // повтор уже известного id (свое событие, пришедшее из kafka, или запись, попавшая и в чтение
+        // перестроения, и в отложенные изменения) меняет только дату смерти
+        private void append(long id, int gender, int documentType, int age, int citizenship, int expiryDay, int deathDay) {
+            int row = rowsById.get(id, -1);
+            if (row >= 0) {
+                if (deathDay != NO_DEATH) {
+                    columns.deathDay[row] = deathDay;
+                }
+                return;
+            }
+            if (columns.size == columns.gender.length) {
+                columns = columns.grow();
+            }
+            row = columns.size;
+            columns.gender[row] = (byte) gender;
+            columns.documentType[row] = (byte) documentType;
+            columns.age[row] = (byte) age;
+            columns.citizenship[row] = (short) citizenship;
+            columns.expiryDay[row] = expiryDay;
+            columns.deathDay[row] = deathDay;
+            rowsById.put(id, row);
+            // запись volatile size публикует заполненную строку читателям
+            columns.size = row + 1;
+        }
+
+        private void markDeceased(long id, int deathDay) {
+            int row = rowsById.get(id, -1);
+            if (row >= 0) {
+                columns.deathDay[row] = deathDay;
+            }
+        }
+
+        private long sizeInBytes() {
+            return columns.sizeInBytes() + rowsById.sizeInBytes();
+        }
+    }
+
+    // массивы фиксированной емкости; при заполнении копируются в новый объект, читатель, получивший
+    // старый объект, досчитывает по нему согласованно. Дата смерти меняется на месте без синхронизации:
+    // параллельный подсчет может ее не увидеть, как и любое изменение после начала запроса
+    private static final class Columns {
+
+        private final byte[] gender;
+        private final byte[] documentType;
+        private final byte[] age;
+        private final short[] citizenship;
+        private final int[] expiryDay;
+        private final int[] deathDay;
+        private volatile int size;
+
+        private Columns(int capacity) {
+            this.gender = new byte[capacity];
+            this.documentType = new byte[capacity];
+            this.age = new byte[capacity];
+            this.citizenship = new short[capacity];
+            this.expiryDay = new int[capacity];
+            this.deathDay = new int[capacity];
+        }
+
+        private Columns grow() {
+            int capacity = gender.length + (gender.length >> 1);
+            Columns grown = new Columns(capacity);
+            int rows = size;
+            System.arraycopy(gender, 0, grown.gender, 0, rows);
+            System.arraycopy(documentType, 0, grown.documentType, 0, rows);
+            System.arraycopy(age, 0, grown.age, 0, rows);
+            System.arraycopy(citizenship, 0, grown.citizenship, 0, rows);
+            System.arraycopy(expiryDay, 0, grown.expiryDay, 0, rows);
+            System.arraycopy(deathDay, 0, grown.deathDay, 0, rows);
+            grown.size = rows;
+            return grown;
+        }
+
+        // условия объединяются через & без короткого замыкания, чтобы jit собрал цикл без ветвлений
+        private long count(Query q, int from, int to) {
+            byte[] gender = this.gender;
+            byte[] documentType = this.documentType;
+            byte[] age = this.age;
+            short[] citizenship = this.citizenship;
+            int[] expiryDay = this.expiryDay;
+            int[] deathDay = this.deathDay;
+            long matched = 0;
+            for (int i = from; i < to; i++) {
+                int g = gender[i];
+                int d = documentType[i];
+                int a = age[i] & 0xFF;
+                int c = citizenship[i];
+                int e = expiryDay[i];
+                int x = deathDay[i];
+                boolean hit = g >= q.genderLo & g <= q.genderHi
+                        & d >= q.documentTypeLo & d <= q.documentTypeHi
+                        & a >= q.ageLo & a <= q.ageHi
+                        & c >= q.citizenshipLo & c <= q.citizenshipHi
+                        & e >= q.expiryLo & e <= q.expiryHi
+                        & x >= q.deathLo & x <= q.deathHi;
+                matched += hit ? 1 : 0;
+            }
+            return matched;
+        }
+
+        private long sizeInBytes() {
+            return (long) gender.length * (1 + 1 + 1 + 2 + 4 + 4);
+        }
+    }
+
+    // фильтр, сведенный к диапазонам по каждой колонке; незаданное условие - весь диапазон колонки
+    private record Query(int genderLo, int genderHi,
+                         int documentTypeLo, int documentTypeHi,
+                         int ageLo, int ageHi,
+                         int citizenshipLo, int citizenshipHi,
+                         int expiryLo, int expiryHi,
+                         int deathLo, int deathHi) {
+
+        // null, если под фильтр заведомо ничего не попадает (неизвестное снимку гражданство)
+        private static Query of(UserFilterDto filter, CitizenshipDictionary citizenshipDictionary) {
+            int citizenship = -1;
+            if (filter.citizenship() != null) {
+                Short code = citizenshipDictionary.findId(filter.citizenship());
+                if (code == null) {
+                    return null;
+                }
+                citizenship = code;
+            }
+            // живые хранят NO_DEATH = Integer.MIN_VALUE, поэтому любое условие на дату смерти
+            // начинается не ниже MIN_VALUE + 1 и отсекает живых
+            int deathLo = Integer.MIN_VALUE;
+            int deathHi = Integer.MAX_VALUE;
+            if (Boolean.TRUE.equals(filter.alive())) {
+                deathHi = NO_DEATH;
+            }
+            if (Boolean.FALSE.equals(filter.alive()) || filter.deathTo() != null) {
+                deathLo = NO_DEATH + 1;
+            }
+            if (filter.deathFrom() != null) {
+                deathLo = Math.max(deathLo, (int) filter.deathFrom().toEpochDay());
+            }
+            if (filter.deathTo() != null) {
+                deathHi = Math.min(deathHi, (int) filter.deathTo().toEpochDay());
+            }
+            return new Query(
+                    filter.gender() == null ? 0 : filter.gender().ordinal(),
+                    filter.gender() == null ? GENDERS.length - 1 : filter.gender().ordinal(),
+                    filter.documentType() == null ? 0 : filter.documentType().ordinal(),
+                    filter.documentType() == null ? DOCUMENT_TYPES.length - 1 : filter.documentType().ordinal(),
+                    filter.minAge() == null ? 0 : filter.minAge(),
+                    filter.maxAge() == null ? MAX_AGE : filter.maxAge(),
+                    citizenship < 0 ? 0 : citizenship,
+                    citizenship < 0 ? Short.MAX_VALUE : citizenship,
+                    filter.expiryFrom() == null ? Integer.MIN_VALUE : (int) filter.expiryFrom().toEpochDay(),
+                    filter.expiryTo() == null ? Integer.MAX_VALUE : (int) filter.expiryTo().toEpochDay(),
+                    deathLo,
+                    deathHi);
+        }
+    }
+}
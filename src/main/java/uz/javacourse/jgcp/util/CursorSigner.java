@@ -0,0 +1,62 @@
+package uz.javacourse.jgcp.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+
+// подписывает курсоры пагинации HMAC-SHA256: клиент получает непрозрачную строку и не может
+// подменить в ней ключ сортировки или применить курсор к другому фильтру (context входит в подпись)
+public final class CursorSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    // 128 бит подписи достаточно и вдвое сокращают длину курсора
+    private static final int SIGNATURE_BYTES = 16;
+
+    private final SecretKeySpec key;
+
+    public CursorSigner(String secret) {
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    public String sign(String payload, String context) {
+        byte[] body = payload.getBytes(StandardCharsets.UTF_8);
+        return encode(body) + "." + encode(mac(body, context));
+    }
+
+    // payload курсора или null, если курсор поврежден, подделан или выдан для другого context
+    public String verify(String token, String context) {
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        try {
+            byte[] body = Base64.getUrlDecoder().decode(token.substring(0, dot));
+            byte[] signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+            return MessageDigest.isEqual(signature, mac(body, context))
+                    ? new String(body, StandardCharsets.UTF_8)
+                    : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] mac(byte[] body, String context) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            mac.update(body);
+            mac.update((byte) 0);
+            return Arrays.copyOf(mac.doFinal(context.getBytes(StandardCharsets.UTF_8)), SIGNATURE_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,28 @@
+package uz.javacourse.jgcp.util;
+
+import java.util.Locale;
+
+// строит шаблоны для LOWER(column) LIKE :pattern ESCAPE '!', экранируя спецсимволы из пользовательского ввода
+// ('!' вместо обратной косой черты, чтобы одинаково работать в JPQL и в нативном SQL)
+public final class LikePatterns {
+
+    private LikePatterns() {
+    }
+
+    // подстрока в любом месте
+    public static String contains(String value) {
+        return "%" + escape(value) + "%";
+    }
+
+    // начало строки
+    public static String prefix(String value) {
+        return escape(value) + "%";
+    }
+
+    private static String escape(String value) {
+        return value.toLowerCase(Locale.ROOT)
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+    }
+}
@@ -0,0 +1,105 @@
+package uz.javacourse.jgcp.util;
+
+// хэш-таблица long -> int с открытой адресацией на примитивных массивах: 12 байт на слот
+// без объектов-оберток (HashMap<Long, Integer> занимает около 80 байт на запись).
+// Отрицательные ключи не поддерживаются. Не потокобезопасна
+public class LongIntHashMap {
+
+    private static final double LOAD_FACTOR = 0.75;
+    // ключ хранится со сдвигом на 1, поэтому 0 означает пустой слот
+    private static final long EMPTY = 0;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int resizeAt;
+
+    public LongIntHashMap(long expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    // значение или missingValue, если ключа нет
+    public int get(long key, int missingValue) {
+        long stored = key + 1;
+        int slot = slot(stored, keys.length);
+        while (true) {
+            long current = keys[slot];
+            if (current == stored) {
+                return values[slot];
+            }
+            if (current == EMPTY) {
+                return missingValue;
+            }
+            slot = slot + 1 == keys.length ? 0 : slot + 1;
+        }
+    }
+
+    public void put(long key, int value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Negative keys are not supported: " + key);
+        }
+        if (size >= resizeAt) {
+            rehash(keys.length * 2);
+        }
+        if (insert(keys, values, key + 1, value)) {
+            size++;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long sizeInBytes() {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                insert(keys, values, oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    // true если ключ новый
+    private static boolean insert(long[] keys, int[] values, long stored, int value) {
+        int slot = slot(stored, keys.length);
+        while (keys[slot] != EMPTY && keys[slot] != stored) {
+            slot = slot + 1 == keys.length ? 0 : slot + 1;
+        }
+        boolean added = keys[slot] == EMPTY;
+        keys[slot] = stored;
+        values[slot] = value;
+        return added;
+    }
+
+    // перемешивание (финализатор murmur3) и отображение в [0, capacity) умножением вместо деления,
+    // поэтому емкость не обязана быть степенью двойки
+    private static int slot(long key, int capacity) {
+        long hash = key;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) Math.multiplyHigh(hash & Long.MAX_VALUE, (long) capacity << 1);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(long expectedSize) {
+        long capacity = (long) Math.ceil(Math.max(expectedSize, 16) / LOAD_FACTOR);
+        if (capacity > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Expected size is too large: " + expectedSize);
+        }
+        return (int) capacity;
+    }
+}
@@ -0,0 +1,4 @@
+-- пустая миграция: заполнение citizenship_id выполняет фоновая миграция users-citizenship-id
+-- (UsersCitizenshipIdMigration). Версия сохранена, чтобы в истории flyway не было пропуска там,
+-- где ее уже применили
+SELECT 1;
@@ -0,0 +1,4 @@
+-- пустая миграция: NOT NULL, проверку внешнего ключа и индекс по citizenship_id добавляют завершающие шаги
+-- фоновой миграции users-citizenship-id (UsersCitizenshipIdMigration). Версия сохранена, чтобы в истории
+-- flyway не было пропуска там, где ее уже применили
+SELECT 1;
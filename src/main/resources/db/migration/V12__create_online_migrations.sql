@@ -0,0 +1,16 @@
+-- состояние фоновых миграций данных (OnlineMigrationService): большие заполнения идут пачками вне запуска
+-- flyway и продолжаются с last_key после перезапуска; owner и heartbeat_at - аренда, чтобы миграцию
+-- выполнял только один узел
+CREATE TABLE online_migrations (
+    name VARCHAR(100) PRIMARY KEY,
+    status VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+    last_key BIGINT NOT NULL DEFAULT 0,
+    max_key BIGINT,
+    rows_migrated BIGINT NOT NULL DEFAULT 0,
+    finalize_step INTEGER NOT NULL DEFAULT 0,
+    owner VARCHAR(100),
+    heartbeat_at TIMESTAMPTZ,
+    started_at TIMESTAMPTZ,
+    finished_at TIMESTAMPTZ,
+    error TEXT
+);
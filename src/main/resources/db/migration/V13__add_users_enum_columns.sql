@@ -0,0 +1,21 @@
+-- компактное хранение пола и типа документа: enum postgresql занимает 4 байта вместо строки до 18 байт.
+-- Здесь только изменения каталога; заполнение и замену столбцов выполняет фоновая миграция
+-- users-enum-columns (UsersEnumColumnsMigration), а до ее завершения приложение работает со строковыми столбцами
+CREATE TYPE gender AS ENUM ('MALE', 'FEMALE');
+CREATE TYPE document_type AS ENUM ('PASSPORT', 'ID_CARD', 'BIRTH_CERTIFICATE', 'DRIVER_LICENSE');
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS gender_enum gender,
+                  ADD COLUMN IF NOT EXISTS document_type_enum document_type;
+
+-- новые и измененные строки получают значения сразу, поэтому фоновая миграция заполняет только старые
+CREATE FUNCTION users_sync_enum_columns() RETURNS trigger AS $$
+BEGIN
+    NEW.gender_enum := CAST(NEW.gender AS gender);
+    NEW.document_type_enum := CAST(NEW.document_type AS document_type);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER users_sync_enum_columns
+    BEFORE INSERT OR UPDATE OF gender, document_type ON users
+    FOR EACH ROW EXECUTE FUNCTION users_sync_enum_columns();
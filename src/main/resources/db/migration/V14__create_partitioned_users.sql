@@ -0,0 +1,124 @@
+-- секционированная по хешу pinfl копия users: VACUUM, ANALYZE и перестроение индексов идут по секциям
+-- в 16 раз меньшего размера, а запросы по pinfl читают одну секцию. Здесь только пустые таблицы и триггеры;
+-- копирование и замену таблиц выполняет фоновая миграция users-partitioning (UsersPartitioningMigration)
+--
+-- Уникальный индекс секционированной таблицы обязан содержать ключ секционирования, поэтому в users_p
+-- глобально уникален только pinfl. Уникальность id, email и телефона держит узкая несекционированная
+-- таблица user_keys (~80 байт на человека), она же по id находит pinfl для отсечения секций
+CREATE TABLE user_keys (
+    id BIGINT PRIMARY KEY,
+    pinfl VARCHAR(14) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    phone_number VARCHAR(20) NOT NULL,
+    CONSTRAINT uk_user_keys_pinfl UNIQUE (pinfl),
+    CONSTRAINT uk_user_keys_email UNIQUE (email),
+    CONSTRAINT uk_user_keys_phone_number UNIQUE (phone_number)
+);
+
+CREATE TABLE users_p (
+    id BIGINT NOT NULL DEFAULT nextval('users_id_seq'),
+    full_name VARCHAR(255) NOT NULL,
+    address VARCHAR(500) NOT NULL,
+    phone_number VARCHAR(20) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    photo_url VARCHAR(500),
+    pinfl VARCHAR(14) NOT NULL,
+    age INTEGER NOT NULL,
+    gender gender NOT NULL,
+    document_type document_type NOT NULL,
+    issue_date DATE NOT NULL,
+    expiry_date DATE NOT NULL,
+    citizenship_id SMALLINT NOT NULL,
+    death_date DATE,
+    CONSTRAINT users_p_pkey PRIMARY KEY (pinfl),
+    CONSTRAINT fk_users_p_citizenship FOREIGN KEY (citizenship_id) REFERENCES citizenships (id),
+    CONSTRAINT chk_users_p_age CHECK (age >= 0 AND age <= 150),
+    CONSTRAINT chk_users_p_pinfl_digits_and_length CHECK (pinfl ~ '^[0-9]{14}$')
+) PARTITION BY HASH (pinfl);
+
+DO $$
+BEGIN
+    FOR i IN 0..15 LOOP
+        EXECUTE format('CREATE TABLE users_p_%s PARTITION OF users_p FOR VALUES WITH (MODULUS 16, REMAINDER %s)',
+                       lpad(i::text, 2, '0'), i);
+    END LOOP;
+END;
+$$;
+
+-- те же формы индексов, что у users (V4, V5, V8, users-citizenship-id), но по секциям; таблица пуста, поэтому индексы
+-- строятся мгновенно, а копирование заполняет их вместе с данными. id уникален через user_keys
+CREATE INDEX idx_users_p_id ON users_p (id);
+CREATE INDEX idx_users_p_gender_id ON users_p (gender, id);
+CREATE INDEX idx_users_p_gender_age_id ON users_p (gender, age, id);
+CREATE INDEX idx_users_p_document_type_id ON users_p (document_type, id);
+CREATE INDEX idx_users_p_citizenship_ref_id ON users_p (citizenship_id, id);
+CREATE INDEX idx_users_p_age_id ON users_p (age, id);
+CREATE INDEX idx_users_p_alive_id ON users_p (id) WHERE death_date IS NULL;
+CREATE INDEX idx_users_p_alive_expiry_date ON users_p (expiry_date, id) WHERE death_date IS NULL;
+CREATE INDEX idx_users_p_deceased_id ON users_p (id) WHERE death_date IS NOT NULL;
+CREATE INDEX idx_users_p_deceased_death_date ON users_p (death_date, id) WHERE death_date IS NOT NULL;
+CREATE INDEX idx_users_p_expiry_date_brin ON users_p USING brin (expiry_date);
+CREATE INDEX idx_users_p_death_date_brin ON users_p USING brin (death_date);
+CREATE INDEX idx_users_p_full_name_id ON users_p (full_name, id);
+CREATE INDEX idx_users_p_expiry_date_id ON users_p (expiry_date, id);
+CREATE INDEX idx_users_p_full_name_trgm ON users_p USING gin (lower(full_name) gin_trgm_ops);
+
+-- user_keys следует за секционированной таблицей и после замены остается при ней
+CREATE FUNCTION users_p_sync_keys() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO user_keys (id, pinfl, email, phone_number) VALUES (NEW.id, NEW.pinfl, NEW.email, NEW.phone_number);
+    ELSIF TG_OP = 'UPDATE' THEN
+        UPDATE user_keys SET id = NEW.id, pinfl = NEW.pinfl, email = NEW.email, phone_number = NEW.phone_number
+        WHERE id = OLD.id;
+    ELSE
+        DELETE FROM user_keys WHERE id = OLD.id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER users_p_sync_keys_insert
+    AFTER INSERT OR DELETE ON users_p
+    FOR EACH ROW EXECUTE FUNCTION users_p_sync_keys();
+
+CREATE TRIGGER users_p_sync_keys_update
+    AFTER UPDATE ON users_p
+    FOR EACH ROW
+    WHEN (OLD.id IS DISTINCT FROM NEW.id OR OLD.pinfl IS DISTINCT FROM NEW.pinfl
+          OR OLD.email IS DISTINCT FROM NEW.email OR OLD.phone_number IS DISTINCT FROM NEW.phone_number)
+    EXECUTE FUNCTION users_p_sync_keys();
+
+-- до замены каждая запись в users повторяется в users_p, поэтому фоновая миграция копирует только старые строки.
+-- Приведение через text работает и до, и после замены строковых столбцов на enum (users-enum-columns)
+CREATE FUNCTION users_mirror_to_partitioned() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        DELETE FROM users_p WHERE pinfl = OLD.pinfl;
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'UPDATE' AND OLD.pinfl <> NEW.pinfl THEN
+        DELETE FROM users_p WHERE pinfl = OLD.pinfl;
+    END IF;
+    INSERT INTO users_p (id, full_name, address, phone_number, email, photo_url, pinfl, age, gender,
+                         document_type, issue_date, expiry_date, citizenship_id, death_date)
+    VALUES (NEW.id, NEW.full_name, NEW.address, NEW.phone_number, NEW.email, NEW.photo_url, NEW.pinfl, NEW.age,
+            CAST(NEW.gender::text AS gender), CAST(NEW.document_type::text AS document_type),
+            NEW.issue_date, NEW.expiry_date, NEW.citizenship_id, NEW.death_date)
+    ON CONFLICT (pinfl) DO UPDATE
+        SET id = EXCLUDED.id, full_name = EXCLUDED.full_name, address = EXCLUDED.address,
+            phone_number = EXCLUDED.phone_number, email = EXCLUDED.email, photo_url = EXCLUDED.photo_url,
+            age = EXCLUDED.age, gender = EXCLUDED.gender, document_type = EXCLUDED.document_type,
+            issue_date = EXCLUDED.issue_date, expiry_date = EXCLUDED.expiry_date,
+            citizenship_id = EXCLUDED.citizenship_id, death_date = EXCLUDED.death_date;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- пол и тип документа не входят в UPDATE OF: иначе триггер помешал бы users-enum-columns удалить строковые
+-- столбцы, а ее заполнение *_enum повторялось бы в users_p. Приложение их не меняет, а hibernate
+-- обновляет все столбцы сразу, поэтому строка все равно копируется целиком
+CREATE TRIGGER users_mirror_to_partitioned
+    AFTER INSERT OR DELETE OR UPDATE OF full_name, address, phone_number, email, photo_url, pinfl, age,
+        issue_date, expiry_date, citizenship_id, death_date ON users
+    FOR EACH ROW EXECUTE FUNCTION users_mirror_to_partitioned();
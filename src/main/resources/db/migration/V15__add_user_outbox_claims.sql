@@ -0,0 +1,6 @@
+-- публикация идет вне транзакции: узел сначала забирает пачку (claimed_by, claimed_until), отправляет ее
+-- в kafka и удаляет короткой второй транзакцией. Забранная пачка, которую узел не удалил до claimed_until
+-- (узел упал или завис), снова доступна. Столбцы без значения по умолчанию добавляются без перезаписи таблицы
+ALTER TABLE user_outbox
+    ADD COLUMN claimed_by VARCHAR(100),
+    ADD COLUMN claimed_until TIMESTAMPTZ;
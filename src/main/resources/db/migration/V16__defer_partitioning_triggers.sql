@@ -0,0 +1,14 @@
+-- триггеры V14 удваивали каждую запись в users (копия в users_p и user_keys) с момента развертывания, даже если
+-- users-partitioning не запускали. Теперь их создает подготовительный шаг этой миграции (UsersPartitioningMigration),
+-- а здесь они удаляются вместе с накопленной копией, если миграция еще не начиналась. Начатую или завершенную
+-- миграцию это не затрагивает: после замены триггеры users_p_sync_keys_* принадлежат уже секционированной users
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM online_migrations WHERE name = 'users-partitioning' AND max_key IS NOT NULL) THEN
+        DROP TRIGGER IF EXISTS users_mirror_to_partitioned ON users;
+        DROP TRIGGER IF EXISTS users_p_sync_keys_insert ON users_p;
+        DROP TRIGGER IF EXISTS users_p_sync_keys_update ON users_p;
+        TRUNCATE users_p, user_keys;
+    END IF;
+END;
+$$;
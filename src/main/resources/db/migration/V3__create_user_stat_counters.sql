@@ -0,0 +1,34 @@
+-- счетчики по измерениям; каждый счетчик разбит на несколько слотов,
+-- чтобы параллельные регистрации не ждали блокировку одной строки
+CREATE TABLE user_stat_counters (
+    dimension VARCHAR(32) NOT NULL,
+    bucket VARCHAR(100) NOT NULL,
+    slot SMALLINT NOT NULL,
+    value BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (dimension, bucket, slot)
+);
+
+-- гистограмма по возрасту: одна корзина на каждый год
+CREATE TABLE user_age_histogram (
+    age SMALLINT NOT NULL,
+    slot SMALLINT NOT NULL,
+    value BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (age, slot)
+);
+
+INSERT INTO user_stat_counters (dimension, bucket, slot, value)
+SELECT 'STATUS', CASE WHEN death_date IS NULL THEN 'ALIVE' ELSE 'DECEASED' END, 0, COUNT(*)
+FROM users
+GROUP BY 2;
+
+INSERT INTO user_stat_counters (dimension, bucket, slot, value)
+SELECT 'GENDER', gender, 0, COUNT(*) FROM users GROUP BY gender;
+
+INSERT INTO user_stat_counters (dimension, bucket, slot, value)
+SELECT 'DOCUMENT_TYPE', document_type, 0, COUNT(*) FROM users GROUP BY document_type;
+
+INSERT INTO user_stat_counters (dimension, bucket, slot, value)
+SELECT 'CITIZENSHIP', citizenship, 0, COUNT(*) FROM users GROUP BY citizenship;
+
+INSERT INTO user_age_histogram (age, slot, value)
+SELECT age, 0, COUNT(*) FROM users GROUP BY age;
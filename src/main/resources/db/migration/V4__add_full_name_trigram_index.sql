@@ -0,0 +1,5 @@
+-- индекс для поиска подстроки в имени: LOWER(full_name) LIKE '%...%' и оператор похожести %
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_full_name_trgm
+    ON users USING gin (lower(full_name) gin_trgm_ops);
@@ -0,0 +1,39 @@
+-- индексы под формы запросов UserRepository: фильтр + сортировка по id для keyset пагинации.
+-- все создается CONCURRENTLY, чтобы миграция не блокировала запись в users
+
+-- pinfl и email уже покрыты уникальными ограничениями users_pinfl_key и users_email_key
+DROP INDEX CONCURRENTLY IF EXISTS idx_users_pinfl;
+DROP INDEX CONCURRENTLY IF EXISTS idx_users_email;
+
+-- existsByPhoneNumber
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_phone_number ON users (phone_number);
+
+-- findByGender*, countByGender
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_gender_id ON users (gender, id);
+
+-- findByGenderAndAgeBetween*, countByGenderAndAgeBetween
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_gender_age_id ON users (gender, age, id);
+
+-- findByCitizenship*, countByCitizenship
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_citizenship_id ON users (citizenship, id);
+
+-- findByDocumentType*, countByDocumentType
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_document_type_id ON users (document_type, id);
+
+-- findByAgeBetween*, countByAgeBetween
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_age_id ON users (age, id);
+
+-- findByDeathDateIsNull*: живых ~97%, частичный индекс по id дает порядок без сортировки
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_alive_id ON users (id) WHERE death_date IS NULL;
+
+-- findByDeathDateIsNullAndExpiryDateBefore*
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_alive_expiry_date ON users (expiry_date, id) WHERE death_date IS NULL;
+
+-- findByDeathDateIsNotNull*, findByDeathDateBetween*: умерших мало, частичные индексы компактные
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_deceased_id ON users (id) WHERE death_date IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_deceased_death_date ON users (death_date, id) WHERE death_date IS NOT NULL;
+
+-- диапазоны по датам: brin занимает единицы мегабайт и хорошо работает, пока даты коррелируют
+-- с физическим порядком строк (загрузка и регистрация идут по времени)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_expiry_date_brin ON users USING brin (expiry_date);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_death_date_brin ON users USING brin (death_date);
@@ -0,0 +1,6 @@
+-- номер телефона проверялся на уникальность только в приложении, из-за чего параллельные
+-- регистрации могли создать дубликаты; уникальный индекс закрывает гонку на уровне базы
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_users_phone_number ON users (phone_number);
+
+-- обычный индекс из V5 больше не нужен
+DROP INDEX CONCURRENTLY IF EXISTS idx_users_phone_number;
@@ -0,0 +1,9 @@
+-- события жизненного цикла пользователей, записываются в одной транзакции с изменением users
+-- и удаляются после публикации в kafka (UserOutboxRelay)
+CREATE TABLE user_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    topic VARCHAR(100) NOT NULL,
+    message_key VARCHAR(64) NOT NULL,
+    payload JSONB NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
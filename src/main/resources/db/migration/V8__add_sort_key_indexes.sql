@@ -0,0 +1,5 @@
+-- индексы под сортировки фильтра /api/users/filter: составной ключ (столбец, id) дает keyset-страницы
+-- в обоих направлениях без сортировки. Для death_date уже есть частичный idx_users_deceased_death_date,
+-- для expiry_date среди живых - idx_users_alive_expiry_date
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_full_name_id ON users (full_name, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_expiry_date_id ON users (expiry_date, id);
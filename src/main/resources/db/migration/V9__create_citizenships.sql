@@ -0,0 +1,42 @@
+-- справочник гражданств: users хранит smallint-ключ вместо повторяющейся строки VARCHAR(100).
+-- Здесь только изменения каталога и триггер двойной записи. Заполнение старых строк и ограничения выполняет
+-- фоновая миграция users-citizenship-id (UsersCitizenshipIdMigration) уже после старта, а строковый столбец
+-- остается для узлов предыдущей версии и удаляется в следующем выпуске, когда все узлы читают citizenship_id
+CREATE TABLE citizenships (
+    id SMALLINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(100) NOT NULL UNIQUE
+);
+
+-- NULL по умолчанию и внешний ключ NOT VALID - только изменение каталога, без перезаписи и проверки таблицы.
+-- Новая версия приложения пишет только ключ, поэтому строковый столбец становится необязательным
+ALTER TABLE users ADD COLUMN IF NOT EXISTS citizenship_id SMALLINT;
+ALTER TABLE users ADD CONSTRAINT fk_users_citizenship
+    FOREIGN KEY (citizenship_id) REFERENCES citizenships (id) NOT VALID;
+ALTER TABLE users ALTER COLUMN citizenship DROP NOT NULL;
+
+-- пока работают узлы обеих версий, каждая запись заполняет недостающую сторону: строка от узла предыдущей
+-- версии получает ключ, ключ от новой версии - строку. Незаполненный ключ старой строки восполняется при любом
+-- ее изменении, чтобы его видели триггеры после записи (копирование в users_p, V14).
+-- Сначала поиск, и только потом вставка: INSERT ... ON CONFLICT расходует значение identity даже при конфликте,
+-- а smallint быстро кончится
+CREATE FUNCTION users_sync_citizenship_id() RETURNS trigger AS $$
+BEGIN
+    IF NEW.citizenship IS NOT NULL
+            AND (NEW.citizenship_id IS NULL
+                 OR TG_OP = 'UPDATE' AND NEW.citizenship IS DISTINCT FROM OLD.citizenship) THEN
+        SELECT id INTO NEW.citizenship_id FROM citizenships WHERE name = NEW.citizenship;
+        IF NOT FOUND THEN
+            INSERT INTO citizenships (name) VALUES (NEW.citizenship) ON CONFLICT (name) DO NOTHING;
+            SELECT id INTO NEW.citizenship_id FROM citizenships WHERE name = NEW.citizenship;
+        END IF;
+    ELSIF NEW.citizenship_id IS NOT NULL
+            AND (NEW.citizenship IS NULL OR NEW.citizenship_id IS DISTINCT FROM OLD.citizenship_id) THEN
+        SELECT name INTO NEW.citizenship FROM citizenships WHERE id = NEW.citizenship_id;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER users_sync_citizenship_id
+    BEFORE INSERT OR UPDATE ON users
+    FOR EACH ROW EXECUTE FUNCTION users_sync_citizenship_id();
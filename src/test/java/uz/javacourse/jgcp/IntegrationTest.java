@@ -0,0 +1,38 @@
+package uz.javacourse.jgcp;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import uz.javacourse.jgcp.service.OnlineMigrationService;
+
+import java.time.Duration;
+
+import static org.awaitility.Awaitility.await;
+
+// общая основа интеграционных тестов: postgres в контейнере, встроенный kafka и профиль embedded-kafka.
+// Контекст кэшируется между классами с одинаковой конфигурацией, поэтому тесты не рассчитывают на пустую
+// базу или пустые топики: свои записи они находят по уникальным pinfl и email.
+// Дополнительные свойства - через @TestPropertySource, дополнительные топики - своей @EmbeddedKafka
+@SpringBootTest
+@ActiveProfiles("embedded-kafka")
+@EmbeddedKafka(partitions = 1, topics = {"user.created", "user.deceased"})
+@Import(TestcontainersConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class IntegrationTest {
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    protected OnlineMigrationService onlineMigrationService;
+
+    // обязательные фоновые миграции (users-citizenship-id) меняют строки users и заполняют citizenship_id,
+    // тесты, которые от этого зависят, дожидаются их окончания
+    protected void awaitRequiredMigrations() {
+        await().atMost(Duration.ofMinutes(5)).until(onlineMigrationService::requiredMigrationsDone);
+    }
+}
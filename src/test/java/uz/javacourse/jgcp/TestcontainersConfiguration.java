@@ -0,0 +1,18 @@
+package uz.javacourse.jgcp;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+// postgres для интеграционных тестов: контейнер живет вместе с контекстом, поэтому тесты
+// с одинаковой конфигурацией получают один закэшированный контекст и одну базу с данными V2
+@TestConfiguration(proxyBeanMethods = false)
+class TestcontainersConfiguration {
+
+    @Bean
+    @ServiceConnection
+    PostgreSQLContainer postgres() {
+        return new PostgreSQLContainer("postgres:16-alpine");
+    }
+}
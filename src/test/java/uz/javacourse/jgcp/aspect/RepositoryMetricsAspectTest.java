@@ -0,0 +1,44 @@
+package uz.javacourse.jgcp.aspect;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.repository.UserRepository;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// каждый вызов UserRepository попадает в таймер своего метода с результатом success или error
+class RepositoryMetricsAspectTest extends IntegrationTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void recordsLatencyPerMethodAndOutcome() {
+        long successes = count("countByDeathDateIsNull", "success");
+        long errors = count("findById", "error");
+
+        userRepository.countByDeathDateIsNull();
+        userRepository.countByDeathDateIsNull();
+        assertThatThrownBy(() -> userRepository.findById(null)).isInstanceOf(RuntimeException.class);
+
+        assertThat(count("countByDeathDateIsNull", "success")).isEqualTo(successes + 2);
+        assertThat(count("findById", "error")).isEqualTo(errors + 1);
+        assertThat(meterRegistry.get("users.repository")
+                .tag("method", "countByDeathDateIsNull").tag("outcome", "success").timer()
+                .totalTime(TimeUnit.NANOSECONDS)).isPositive();
+    }
+
+    private long count(String method, String outcome) {
+        Timer timer = meterRegistry.find("users.repository").tag("method", method).tag("outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
@@ -0,0 +1,89 @@
+package uz.javacourse.jgcp.aspect;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import uz.javacourse.jgcp.config.BulkheadProperties;
+import uz.javacourse.jgcp.dto.response.UserStatsDto;
+import uz.javacourse.jgcp.exception.ServiceUnavailableException;
+import uz.javacourse.jgcp.service.UserStatsService;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// вызовы сверх лимита ждут acquire-timeout и получают 503, освобожденные места снова доступны,
+// а вложенный вызов сервиса в том же потоке второе место не занимает
+class ServiceBulkheadAspectTest {
+
+    private static final UserStatsDto STATS = UserStatsDto.builder().total(1).build();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void rejectsCallsBeyondLimitAndReleasesPermits() throws Exception {
+        ServiceBulkheadAspect aspect = aspect(2);
+        CountDownLatch entered = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        UserStatsService blocking = proxy(aspect, (expiringStart, expiringEnd, deceasedStart, deceasedEnd) -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return STATS;
+        });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<UserStatsDto> first = executor.submit(() -> blocking.getStats(null, null, null, null));
+            Future<UserStatsDto> second = executor.submit(() -> blocking.getStats(null, null, null, null));
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(gauge("service.bulkhead.available")).isZero();
+
+            assertThatThrownBy(() -> blocking.getStats(null, null, null, null))
+                    .isInstanceOf(ServiceUnavailableException.class);
+            assertThat(meterRegistry.get("service.bulkhead.rejected").counter().count()).isEqualTo(1);
+
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(STATS);
+            assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(STATS);
+        }
+        assertThat(gauge("service.bulkhead.available")).isEqualTo(2);
+        assertThat(blocking.getStats(null, null, null, null)).isSameAs(STATS);
+    }
+
+    @Test
+    void nestedCallsInTheSameThreadReuseThePermit() {
+        ServiceBulkheadAspect aspect = aspect(1);
+        UserStatsService inner = proxy(aspect, (expiringStart, expiringEnd, deceasedStart, deceasedEnd) -> STATS);
+        UserStatsService outer = proxy(aspect, inner::getStats);
+
+        assertThat(outer.getStats(null, null, null, null)).isSameAs(STATS);
+        assertThat(gauge("service.bulkhead.available")).isEqualTo(1);
+    }
+
+    private ServiceBulkheadAspect aspect(int maxConcurrentCalls) {
+        return new ServiceBulkheadAspect(new BulkheadProperties(maxConcurrentCalls, Duration.ofMillis(100)),
+                meterRegistry);
+    }
+
+    // интерфейс сервиса лежит в uz.javacourse.jgcp.service, поэтому его методы попадают под pointcut аспекта
+    private static UserStatsService proxy(ServiceBulkheadAspect aspect, UserStatsService target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addInterface(UserStatsService.class);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+}
@@ -0,0 +1,93 @@
+package uz.javacourse.jgcp.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.request.UserRequestDto;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.service.UserService;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// users хранит ключ справочника, а наружу гражданство по-прежнему видно строкой: новое имя добавляется
+// вместе с пользователем, неизвестное ничего не находит и в справочник не попадает
+class CitizenshipDictionaryTest extends IntegrationTest {
+
+    @Autowired
+    private CitizenshipDictionary citizenshipDictionary;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void newCitizenshipIsStoredAsKeyAndReadBackAsName() {
+        UserResponseDto created = userService.createUser(UserRequestDto.builder()
+                .fullName("Janis Berzins")
+                .address("Toshkent, Yakkasaroy 3")
+                .phoneNumber("+998944444401")
+                .email("citizenship-44444444444401@example.uz")
+                .pinfl("44444444444401")
+                .age(41)
+                .gender(Gender.MALE)
+                .documentType(DocumentType.PASSPORT)
+                .issueDate(LocalDate.now().minusYears(4))
+                .expiryDate(LocalDate.now().plusYears(6))
+                .citizenship("Latviya")
+                .build());
+
+        Short id = citizenshipDictionary.findId("Latviya");
+        assertThat(id).isNotNull();
+        assertThat(jdbcTemplate.queryForObject("SELECT citizenship_id FROM users WHERE pinfl = ?", Short.class,
+                "44444444444401")).isEqualTo(id);
+        assertThat(citizenshipDictionary.nameOf(id)).isEqualTo("Latviya");
+        assertThat(userService.getUserById(created.id()).citizenship()).isEqualTo("Latviya");
+        assertThat(userService.getUsersByCitizenship("Latviya", PageRequest.of(0, 10)).getContent())
+                .extracting(UserResponseDto::id)
+                .containsExactly(created.id());
+    }
+
+    @Test
+    void unknownCitizenshipMatchesNothingAndIsNotAdded() {
+        assertThat(userService.getUsersByCitizenship("Atlantida", PageRequest.of(0, 10)).getContent()).isEmpty();
+        assertThat(citizenshipDictionary.findId("Atlantida")).isNull();
+        assertThat(countByName("Atlantida")).isZero();
+    }
+
+    @Test
+    void rolledBackRegistrationIsNotRemembered() {
+        transactionTemplate.executeWithoutResult(status -> {
+            citizenshipDictionary.register("Narniya");
+            status.setRollbackOnly();
+        });
+
+        assertThat(citizenshipDictionary.findId("Narniya")).isNull();
+        assertThat(countByName("Narniya")).isZero();
+    }
+
+    @Test
+    void reloadsEntriesAddedByOtherNodes() {
+        // запись, добавленная другим узлом, появляется в справочнике этого узла при первом чтении ключа
+        Short id = jdbcTemplate.queryForObject("INSERT INTO citizenships (name) VALUES ('Vakanda') RETURNING id",
+                Short.class);
+
+        assertThat(citizenshipDictionary.nameOf(id)).isEqualTo("Vakanda");
+        assertThat(citizenshipDictionary.findId("Vakanda")).isEqualTo(id);
+        assertThatThrownBy(() -> citizenshipDictionary.nameOf(Short.MAX_VALUE))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Unknown citizenship id " + Short.MAX_VALUE);
+    }
+
+    private int countByName(String name) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM citizenships WHERE name = ?", Integer.class, name);
+    }
+}
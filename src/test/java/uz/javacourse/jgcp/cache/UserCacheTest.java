@@ -0,0 +1,114 @@
+package uz.javacourse.jgcp.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+import tools.jackson.databind.ObjectMapper;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.event.UserCreatedEvent;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.service.UserService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+// загруженный пользователь отдается по обоим ключам без повторной загрузки, инвалидация убирает оба ключа,
+// загрузка, обогнанная инвалидацией, не кладет второй ключ, а события kafka с других узлов сбрасывают кэш
+class UserCacheTest extends IntegrationTest {
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void servesBothKeysFromOneLoadUntilEvicted() {
+        // id и pinfl вне начальных данных, чтобы не пересекаться с другими тестами контекста
+        UserResponseDto user = user(5_000_000_001L, "99999999999905");
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(userCache.getById(user.id(), () -> {
+            loads.incrementAndGet();
+            return user;
+        })).isEqualTo(user);
+        assertThat(userCache.getById(user.id(), () -> {
+            loads.incrementAndGet();
+            return user;
+        })).isEqualTo(user);
+        assertThat(userCache.getByPinfl(user.pinfl(), () -> {
+            loads.incrementAndGet();
+            return user;
+        })).isEqualTo(user);
+        assertThat(loads).hasValue(1);
+
+        userCache.evict(user.id(), user.pinfl());
+        assertThat(userCache.getIfPresent(user.id())).isNull();
+        assertThat(userCache.getIfPresentByPinfl(user.pinfl())).isNull();
+    }
+
+    @Test
+    void loadRacingAnEvictionDoesNotCacheTheOtherKey() {
+        UserResponseDto user = user(5_000_000_002L, "99999999999906");
+
+        // изменение закоммичено и инвалидировано, пока загрузка читала старую версию
+        userCache.getById(user.id(), () -> {
+            userCache.evictLocal(user.id(), user.pinfl());
+            return user;
+        });
+
+        assertThat(userCache.getIfPresentByPinfl(user.pinfl())).isNull();
+    }
+
+    @Test
+    void eventsFromOtherNodesEvictLocalEntries() {
+        long id = jdbcTemplate.queryForObject(
+                "SELECT id FROM users WHERE death_date IS NULL ORDER BY id LIMIT 1 OFFSET 100", Long.class);
+        UserResponseDto cached = userService.getUserById(id);
+
+        // изменение, сделанное мимо этого узла: локальный кэш о нем не знает
+        jdbcTemplate.update("UPDATE users SET full_name = 'Cache Eviction Test' WHERE id = ?", id);
+        assertThat(userService.getUserById(id).fullName()).isEqualTo(cached.fullName());
+
+        // до назначения партиций слушателю событие могло быть пропущено (чтение с конца), поэтому отправка
+        // повторяется; повтор для индекса и снимка ничего не меняет
+        String event = objectMapper.writeValueAsString(UserCreatedEvent.builder()
+                .eventId(UUID.randomUUID().toString())
+                .occurredAt(Instant.now())
+                .user(cached)
+                .build());
+        await().atMost(Duration.ofSeconds(30)).pollInterval(Duration.ofMillis(500)).untilAsserted(() -> {
+            kafkaTemplate.send("user.created", cached.pinfl(), event);
+            assertThat(userService.getUserById(id).fullName()).isEqualTo("Cache Eviction Test");
+        });
+        assertThat(userService.getUserByPinfl(cached.pinfl()).fullName()).isEqualTo("Cache Eviction Test");
+    }
+
+    private static UserResponseDto user(long id, String pinfl) {
+        return UserResponseDto.builder()
+                .id(id)
+                .fullName("Cache Test " + pinfl)
+                .pinfl(pinfl)
+                .age(30)
+                .gender(Gender.MALE)
+                .documentType(DocumentType.PASSPORT)
+                .issueDate(LocalDate.now().minusYears(1))
+                .expiryDate(LocalDate.now().plusYears(9))
+                .citizenship("Uzbekistan")
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+package uz.javacourse.jgcp.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.Driver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// read-only соединения выдаются репликами по кругу, отстающие, недоступные и не применившие LSN клиента
+// реплики пропускаются, а без подходящих реплик соединение берется у primary.
+// Вместо postgresql - базы h2 в памяти, узел определяется по url соединения
+class ReplicaRoutingDataSourceTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SimpleDriverDataSource primary =
+            new SimpleDriverDataSource(new Driver(), "jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1");
+    private final List<ReplicaNode> nodes = new ArrayList<>();
+
+    @AfterEach
+    void close() {
+        RequestContextHolder.resetRequestAttributes();
+        nodes.forEach(node -> node.dataSource().close());
+    }
+
+    @Test
+    void rotatesOverHealthyReplicasAndSkipsLaggingOnes() throws SQLException {
+        ReplicaNode first = replica("replica-a", 0, 0);
+        ReplicaNode second = replica("replica-b", 0, 0);
+        ReplicaRoutingDataSource routing = routing(false);
+
+        assertThat(List.of(target(routing), target(routing), target(routing), target(routing)))
+                .containsExactly("replica-a", "replica-b", "replica-a", "replica-b");
+
+        first.update(true, 30, 0);
+        assertThat(List.of(target(routing), target(routing))).containsOnly("replica-b");
+
+        second.markDown();
+        assertThat(target(routing)).isEqualTo("primary");
+        assertThat(routed("replica")).isEqualTo(6);
+        assertThat(routed("primary")).isEqualTo(1);
+        assertThat(meterRegistry.get("db.replica.healthy").tag("replica", "replica-b").gauge().value()).isZero();
+        assertThat(meterRegistry.get("db.replica.lag").tag("replica", "replica-a").gauge().value()).isEqualTo(30);
+    }
+
+    @Test
+    void unavailableReplicaIsMarkedDownAndSkipped() throws SQLException {
+        ReplicaNode broken = replica("replica-a", 0, 0);
+        replica("replica-b", 0, 0);
+        ReplicaRoutingDataSource routing = routing(false);
+        broken.dataSource().close();
+
+        assertThat(target(routing)).isEqualTo("replica-b");
+        assertThat(broken.healthy()).isFalse();
+        assertThat(List.of(target(routing), target(routing))).containsOnly("replica-b");
+    }
+
+    @Test
+    void failedHealthCheckMarksReplicaDown() {
+        // у h2 нет pg_is_in_recovery, поэтому проверка состояния завершается ошибкой
+        ReplicaNode replica = replica("replica-a", 0, 0);
+
+        routing(false).checkReplicas();
+
+        assertThat(replica.healthy()).isFalse();
+    }
+
+    @Test
+    void readYourWritesUsesOnlyReplicasThatReplayedTheLsn() throws SQLException {
+        replica("replica-a", 0, 0x1_0000_0100L);
+        replica("replica-b", 0, 0x1_0000_0300L);
+        ReplicaRoutingDataSource routing = routing(true);
+
+        withLsnHeader("1/200");
+        assertThat(List.of(target(routing), target(routing))).containsOnly("replica-b");
+
+        withLsnHeader("1/400");
+        assertThat(target(routing)).isEqualTo("primary");
+
+        // некорректный заголовок не ограничивает выбор реплик
+        withLsnHeader("not-an-lsn");
+        assertThat(List.of(target(routing), target(routing))).containsExactlyInAnyOrder("replica-a", "replica-b");
+    }
+
+    @Test
+    void parsesPostgresLsn() {
+        assertThat(ReadYourWrites.parseLsn("16/B374D848")).isEqualTo(0x16_B374_D848L);
+        assertThat(ReadYourWrites.parseLsn("0/0")).isZero();
+        assertThat(ReadYourWrites.parseLsn("B374D848")).isEqualTo(-1);
+        assertThat(ReadYourWrites.parseLsn("x/1")).isEqualTo(-1);
+    }
+
+    private ReplicaNode replica(String name, double lagSeconds, long replayLsn) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        ReplicaNode node = new ReplicaNode(name, dataSource);
+        node.update(true, lagSeconds, replayLsn);
+        nodes.add(node);
+        return node;
+    }
+
+    private ReplicaRoutingDataSource routing(boolean readYourWrites) {
+        return new ReplicaRoutingDataSource(primary, nodes, Duration.ofSeconds(5), readYourWrites, meterRegistry);
+    }
+
+    // имя базы h2, к которой относится выданное соединение
+    private static String target(ReplicaRoutingDataSource routing) throws SQLException {
+        try (Connection connection = routing.getConnection()) {
+            String url = connection.getMetaData().getURL();
+            return url.substring("jdbc:h2:mem:".length()).split(";")[0];
+        }
+    }
+
+    private static void withLsnHeader(String lsn) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(ReadYourWrites.HEADER, lsn);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private double routed(String target) {
+        return meterRegistry.get("db.replica.routed").tag("target", target).counter().count();
+    }
+}
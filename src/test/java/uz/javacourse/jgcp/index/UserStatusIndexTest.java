@@ -0,0 +1,82 @@
+package uz.javacourse.jgcp.index;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.constant.enums.AliveStatus;
+import uz.javacourse.jgcp.dto.event.UserDeceasedEvent;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+// индекс отвечает по заполнению из базы, не применяет откаченные изменения и получает смерти с других узлов
+// через kafka; неизвестные ему pinfl отдаются базе данных
+class UserStatusIndexTest extends IntegrationTest {
+
+    @Autowired
+    private UserStatusIndex userStatusIndex;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void answersFromWarmUpCommitsAndOtherNodes() {
+        Map<String, Object> alive = jdbcTemplate.queryForMap(
+                "SELECT id, pinfl FROM users WHERE death_date IS NULL ORDER BY id LIMIT 1");
+        Map<String, Object> dead = jdbcTemplate.queryForMap(
+                "SELECT id, pinfl FROM users WHERE death_date IS NOT NULL ORDER BY id LIMIT 1");
+        long aliveId = ((Number) alive.get("id")).longValue();
+        long deadId = ((Number) dead.get("id")).longValue();
+
+        await().atMost(Duration.ofMinutes(5)).until(() -> userStatusIndex.statusById(aliveId) == AliveStatus.ALIVE);
+        assertThat(userStatusIndex.statusById(deadId)).isEqualTo(AliveStatus.DECEASED);
+        assertThat(userStatusIndex.statusByPinfl((String) alive.get("pinfl"))).isEqualTo(AliveStatus.ALIVE);
+        assertThat(userStatusIndex.statusByPinfl((String) dead.get("pinfl"))).isEqualTo(AliveStatus.DECEASED);
+        assertThat(userStatusIndex.statusByPinfl("99999999999999")).isNull();
+        assertThat(userStatusIndex.statusById(Long.MAX_VALUE)).isNull();
+
+        // откаченная транзакция индекс не меняет
+        transactionTemplate.executeWithoutResult(status -> {
+            userStatusIndex.recordDeceased(aliveId, (String) alive.get("pinfl"));
+            status.setRollbackOnly();
+        });
+        assertThat(userStatusIndex.statusById(aliveId)).isEqualTo(AliveStatus.ALIVE);
+
+        // новый пользователь виден сразу после коммита
+        transactionTemplate.executeWithoutResult(status ->
+                userStatusIndex.recordCreated(4_000_000_001L, "99999999999998", false));
+        assertThat(userStatusIndex.statusByPinfl("99999999999998")).isEqualTo(AliveStatus.ALIVE);
+
+        // смерть, отмеченная на другом узле, приходит событием; до назначения партиций слушателю оно могло
+        // быть пропущено (чтение с конца), поэтому отправка повторяется - повтор безопасен
+        Map<String, Object> other = jdbcTemplate.queryForMap(
+                "SELECT id, pinfl FROM users WHERE death_date IS NULL ORDER BY id DESC LIMIT 1");
+        long otherId = ((Number) other.get("id")).longValue();
+        String event = objectMapper.writeValueAsString(UserDeceasedEvent.builder()
+                .eventId(UUID.randomUUID().toString())
+                .occurredAt(Instant.now())
+                .userId(otherId)
+                .pinfl((String) other.get("pinfl"))
+                .deathDate(LocalDate.now())
+                .build());
+        await().atMost(Duration.ofSeconds(30)).pollInterval(Duration.ofMillis(500)).untilAsserted(() -> {
+            kafkaTemplate.send("user.deceased", (String) other.get("pinfl"), event);
+            assertThat(userStatusIndex.statusById(otherId)).isEqualTo(AliveStatus.DECEASED);
+        });
+    }
+}
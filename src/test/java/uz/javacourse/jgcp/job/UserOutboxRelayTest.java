@@ -0,0 +1,79 @@
+package uz.javacourse.jgcp.job;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.request.UserRequestDto;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.service.UserService;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+// создание и смерть пользователя доходят до топиков через user_outbox; kafka встроенный, postgres в контейнере
+class UserOutboxRelayTest extends IntegrationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Test
+    void publishesLifecycleEventsKeyedByPinfl() {
+        UserResponseDto user = userService.createUser(UserRequestDto.builder()
+                .fullName("Outbox Relay Test")
+                .address("Toshkent, Chilonzor 1")
+                .phoneNumber("+998991234567")
+                .email("outbox-relay@example.uz")
+                .pinfl("99999999999901")
+                .age(40)
+                .gender(Gender.FEMALE)
+                .documentType(DocumentType.PASSPORT)
+                .issueDate(LocalDate.now().minusYears(1))
+                .expiryDate(LocalDate.now().plusYears(9))
+                .citizenship("Uzbekistan")
+                .build());
+        userService.markUserAsDeceased(user.id(), LocalDate.now());
+
+        // топики общие с другими тестами того же контекста: нужные события ищутся по ключу
+        Map<String, ConsumerRecord<String, String>> received = new HashMap<>();
+        try (Consumer<String, String> consumer = consumer()) {
+            embeddedKafka.consumeFromEmbeddedTopics(consumer, "user.created", "user.deceased");
+            // consumer не потокобезопасен, поэтому опрос идет в потоке теста
+            await().atMost(Duration.ofSeconds(30)).pollInSameThread().until(() -> {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(200))) {
+                    if ("99999999999901".equals(record.key())) {
+                        received.put(record.topic(), record);
+                    }
+                }
+                return received.size() == 2;
+            });
+        }
+
+        assertThat(received.get("user.created").value()).contains("\"email\":\"outbox-relay@example.uz\"");
+        assertThat(received.get("user.deceased").value()).contains("\"userId\":" + user.id());
+    }
+
+    private Consumer<String, String> consumer() {
+        Map<String, Object> props = Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, embeddedKafka.getBrokersAsString(),
+                ConsumerConfig.GROUP_ID_CONFIG, "user-outbox-relay-test",
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new StringDeserializer())
+                .createConsumer();
+    }
+}
@@ -0,0 +1,68 @@
+package uz.javacourse.jgcp.listener;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.TestPropertySource;
+import uz.javacourse.jgcp.IntegrationTest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+// корректная запись о смерти применяется к users, некорректная уходит в DLQ с причиной в заголовке
+@TestPropertySource(properties = "app.death-records.partitions=1")
+@EmbeddedKafka(partitions = 1, topics = {"user.created", "user.deceased", "death.records", "death.records.dlq"})
+class DeathRecordListenerTest extends IntegrationTest {
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Test
+    void appliesValidRecordsAndSendsInvalidOnesToDlq() {
+        // pinfl из начальных данных V2; у части сгенерированных людей дата смерти уже есть
+        String pinfl = jdbcTemplate.queryForObject(
+                "SELECT pinfl FROM users WHERE death_date IS NULL ORDER BY id LIMIT 1", String.class);
+        LocalDate deathDate = LocalDate.now().minusDays(3);
+
+        kafkaTemplate.send("death.records", pinfl, "{\"pinfl\":\"" + pinfl + "\",\"deathDate\":\"" + deathDate + "\"}");
+        kafkaTemplate.send("death.records", "00000000000043", "{not json");
+
+        await().atMost(Duration.ofSeconds(30)).untilAsserted(() -> assertThat(jdbcTemplate.queryForObject(
+                "SELECT death_date FROM users WHERE pinfl = ?", LocalDate.class, pinfl)).isEqualTo(deathDate));
+
+        try (Consumer<String, String> consumer = consumer()) {
+            embeddedKafka.consumeFromAnEmbeddedTopic(consumer, "death.records.dlq");
+            ConsumerRecord<String, String> deadLetter = KafkaTestUtils.getSingleRecord(consumer, "death.records.dlq",
+                    Duration.ofSeconds(30));
+            assertThat(deadLetter.key()).isEqualTo("00000000000043");
+            assertThat(deadLetter.value()).isEqualTo("{not json");
+            assertThat(new String(deadLetter.headers().lastHeader("x-dlq-reason").value(), StandardCharsets.UTF_8))
+                    .startsWith("Malformed JSON");
+        }
+    }
+
+    private Consumer<String, String> consumer() {
+        Map<String, Object> props = Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, embeddedKafka.getBrokersAsString(),
+                ConsumerConfig.GROUP_ID_CONFIG, "death-record-dlq-test",
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new StringDeserializer())
+                .createConsumer();
+    }
+}
@@ -0,0 +1,51 @@
+package uz.javacourse.jgcp.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.SqlParameterValue;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.request.UserFilterDto;
+
+import java.sql.Types;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserFilterSqlTest {
+
+    @Test
+    void sameShapeBuildsSameSqlWithDifferentArgs() {
+        UserFilterSql.Where first = UserFilterSql.where(UserFilterDto.builder()
+                .citizenship("Uzbekistan").alive(true).expiryTo(LocalDate.of(2026, 1, 1)).build());
+        UserFilterSql.Where second = UserFilterSql.where(UserFilterDto.builder()
+                .citizenship("Kazakhstan").alive(true).expiryTo(LocalDate.of(2027, 6, 30)).build());
+
+        assertThat(second.shape()).isEqualTo(first.shape());
+        assertThat(second.sql()).isSameAs(first.sql());
+        assertThat(first.sql()).isEqualTo(
+                "citizenship_id = (SELECT id FROM citizenships WHERE name = ?) AND expiry_date <= ? AND death_date IS NULL");
+        assertThat(first.args()).containsExactly("Uzbekistan", LocalDate.of(2026, 1, 1));
+    }
+
+    @Test
+    void predicatesKeepFixedOrderAndEscapeName() {
+        UserFilterSql.Where where = UserFilterSql.where(UserFilterDto.builder()
+                .name("50%_Ali").maxAge(60).gender(Gender.FEMALE).alive(false).build());
+
+        assertThat(where.sql()).isEqualTo(
+                "gender = ? AND age <= ? AND death_date IS NOT NULL AND lower(full_name) LIKE ? ESCAPE '!'");
+        assertThat(where.args()).hasSize(3);
+        assertThat(where.args().get(0)).isInstanceOfSatisfying(SqlParameterValue.class, value -> {
+            assertThat(value.getSqlType()).isEqualTo(Types.OTHER);
+            assertThat(value.getValue()).isEqualTo("FEMALE");
+        });
+        assertThat(where.args().subList(1, 3)).containsExactly(60, "%50!%!_ali%");
+    }
+
+    @Test
+    void emptyFilterMatchesEverything() {
+        UserFilterSql.Where where = UserFilterSql.where(UserFilterDto.builder().build());
+
+        assertThat(where.sql()).isEqualTo("TRUE");
+        assertThat(where.args()).isEmpty();
+    }
+}
@@ -0,0 +1,171 @@
+package uz.javacourse.jgcp.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import uz.javacourse.jgcp.migration.OnlineMigration;
+import uz.javacourse.jgcp.migration.UsersCitizenshipIdMigration;
+import uz.javacourse.jgcp.migration.UsersPartitioningMigration;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// проверяет через EXPLAIN, что для каждой формы запроса UserRepository есть индексный план;
+// enable_seqscan=off заставляет планировщик выбрать индекс, если он вообще применим
+@Testcontainers(disabledWithoutDocker = true)
+class UserRepositoryIndexPlanTest {
+
+    @Container
+    static final PostgreSQLContainer postgres = new PostgreSQLContainer("postgres:16-alpine");
+
+    private static Connection connection;
+
+    @BeforeAll
+    static void migrate() throws SQLException {
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .locations("classpath:db/migration")
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        // ключ гражданства у начальных данных заполняет фоновая миграция, здесь она проходит одной пачкой
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        OnlineMigration citizenship = new UsersCitizenshipIdMigration();
+        citizenship.migrateChunk(jdbcTemplate, 0, citizenship.maxKey(jdbcTemplate));
+        for (OnlineMigration.Step step : citizenship.finalizeSteps()) {
+            step.statements().forEach(jdbcTemplate::execute);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE users");
+            statement.execute("SET enable_seqscan = off");
+        }
+    }
+
+    @AfterAll
+    static void close() throws SQLException {
+        connection.close();
+    }
+
+    // SQL, который hibernate строит для запросов UserRepository
+    static Stream<Arguments> repositoryQueries() {
+        return Stream.of(
+                Arguments.of("findByPinfl", "SELECT * FROM users WHERE pinfl = '00000000000042'"),
+                Arguments.of("existsByEmail", "SELECT COUNT(*) FROM users WHERE email = 'user42@mail.com'"),
+                Arguments.of("existsByPhoneNumber", "SELECT COUNT(*) FROM users WHERE phone_number = '+998900000042'"),
+                Arguments.of("findByFullNameLikeAndIdGreaterThan",
+                        "SELECT * FROM users WHERE lower(full_name) LIKE '%user 4242%' ESCAPE '!' AND id > 0 ORDER BY id LIMIT 26"),
+                Arguments.of("findByFullNameStartingWithAndIdGreaterThan",
+                        "SELECT * FROM users WHERE lower(full_name) LIKE 'user 4242%' ESCAPE '!' AND id > 0 ORDER BY id LIMIT 26"),
+                Arguments.of("findByDeathDateIsNullAndIdGreaterThan",
+                        "SELECT * FROM users WHERE death_date IS NULL AND id > 1000 ORDER BY id LIMIT 26"),
+                Arguments.of("findByDeathDateIsNotNullAndIdGreaterThan",
+                        "SELECT * FROM users WHERE death_date IS NOT NULL AND id > 1000 ORDER BY id LIMIT 26"),
+                Arguments.of("findByDeathDateBetweenAndIdGreaterThan",
+                        "SELECT * FROM users WHERE death_date BETWEEN '2016-01-01' AND '2016-02-01' AND id > 0 ORDER BY id LIMIT 26"),
+                Arguments.of("findByExpiryDateBeforeAndIdGreaterThan",
+                        "SELECT * FROM users WHERE expiry_date < '2021-01-01' AND id > 0 ORDER BY id LIMIT 26"),
+                Arguments.of("findByExpiryDateBetweenAndIdGreaterThan",
+                        "SELECT * FROM users WHERE expiry_date BETWEEN '2030-01-01' AND '2030-01-31' AND id > 0 ORDER BY id LIMIT 26"),
+                Arguments.of("findByDocumentTypeAndIdGreaterThan",
+                        "SELECT * FROM users WHERE document_type = 'PASSPORT' AND id > 1000 ORDER BY id LIMIT 26"),
+                Arguments.of("findByGenderAndIdGreaterThan",
+                        "SELECT * FROM users WHERE gender = 'MALE' AND id > 1000 ORDER BY id LIMIT 26"),
+                Arguments.of("findByCitizenshipAndIdGreaterThan",
+                        "SELECT * FROM users WHERE citizenship_id = 1 AND id > 1000 ORDER BY id LIMIT 26"),
+                Arguments.of("findByAgeBetweenAndIdGreaterThan",
+                        "SELECT * FROM users WHERE age BETWEEN 30 AND 35 AND id > 1000 ORDER BY id LIMIT 26"),
+                Arguments.of("findByDeathDateIsNullAndExpiryDateBeforeAndIdGreaterThan",
+                        "SELECT * FROM users WHERE death_date IS NULL AND expiry_date < '2021-01-01' AND id > 0 ORDER BY id LIMIT 26"),
+                Arguments.of("findByGenderAndAgeBetweenAndIdGreaterThan",
+                        "SELECT * FROM users WHERE gender = 'FEMALE' AND age BETWEEN 30 AND 35 AND id > 1000 ORDER BY id LIMIT 26"),
+                Arguments.of("countByDeathDateIsNull", "SELECT COUNT(*) FROM users WHERE death_date IS NULL"),
+                Arguments.of("countByDeathDateBetween",
+                        "SELECT COUNT(*) FROM users WHERE death_date BETWEEN '2016-01-01' AND '2016-02-01'"),
+                Arguments.of("countByExpiryDateBetween",
+                        "SELECT COUNT(*) FROM users WHERE expiry_date BETWEEN '2030-01-01' AND '2030-01-31'"),
+                Arguments.of("countByGenderAndAgeBetween",
+                        "SELECT COUNT(*) FROM users WHERE gender = 'MALE' AND age BETWEEN 30 AND 35")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositoryQueries")
+    void queryUsesIndex(String queryName, String sql) throws SQLException {
+        String plan = explain(sql);
+
+        assertThat(plan)
+                .as("plan for %s:%n%s", queryName, plan)
+                .doesNotContain("Seq Scan on users");
+    }
+
+    // секционированная users_p (V14) получает новые строки триггером подготовительного шага users-partitioning;
+    // поиск по pinfl отсекается при планировании, поиск по id через user_keys - при выполнении,
+    // остальные секции помечены как never executed
+    @Test
+    void partitionedLookupsReadOnePartition() throws SQLException {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        for (OnlineMigration.Step step : new UsersPartitioningMigration().prepareSteps()) {
+            step.statements().forEach(jdbcTemplate::execute);
+        }
+        long id;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("""
+                     INSERT INTO users (full_name, address, phone_number, email, pinfl, age, gender, document_type,
+                                        issue_date, expiry_date, citizenship_id)
+                     VALUES ('Partitioned User', 'Tashkent', '+998990000001', 'partitioned@mail.com', '99999999999901',
+                             40, 'MALE', 'PASSPORT', '2020-01-01', '2030-01-01', 1)
+                     RETURNING id
+                     """)) {
+            rs.next();
+            id = rs.getLong("id");
+        }
+
+        String byPinfl = explain("SELECT * FROM users_p WHERE pinfl = '99999999999901'");
+        assertThat(executedPartitions(byPinfl)).as(byPinfl).isEqualTo(1);
+
+        String byId = explain("(ANALYZE, COSTS OFF) SELECT * FROM users_p"
+                + " WHERE pinfl = (SELECT k.pinfl FROM user_keys k WHERE k.id = " + id + ") AND id = " + id);
+        assertThat(executedPartitions(byId)).as(byId).isEqualTo(1);
+    }
+
+    private static int executedPartitions(String plan) {
+        Matcher matcher = Pattern.compile("on users_p_\\d+.*").matcher(plan);
+        int executed = 0;
+        while (matcher.find()) {
+            if (!matcher.group().contains("never executed")) {
+                executed++;
+            }
+        }
+        return executed;
+    }
+
+    private static String explain(String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+            while (rs.next()) {
+                plan.append(rs.getString(1)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package uz.javacourse.jgcp.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.constant.enums.DeathRegistrationOutcome;
+import uz.javacourse.jgcp.dto.request.BulkMarkDeceasedRequestDto;
+import uz.javacourse.jgcp.dto.request.DeathRecordItemDto;
+import uz.javacourse.jgcp.dto.response.BulkMarkDeceasedResponseDto;
+import uz.javacourse.jgcp.dto.response.DeathRecordResultDto;
+import uz.javacourse.jgcp.exception.BusinessException;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// пакетная отметка смерти: результат по каждой записи, схлопывание повторов и повторная отправка того же запроса.
+// Пачка по две записи, чтобы повторы pinfl попадали в разные пачки
+@TestPropertySource(properties = "app.death-records.bulk-chunk-size=2")
+class DeathRegistrationServiceTest extends IntegrationTest {
+
+    @Autowired
+    private DeathRegistrationService deathRegistrationService;
+
+    @Autowired
+    private UserCounterService userCounterService;
+
+    @Test
+    void marksByIdAndPinflAndReportsEachRecord() {
+        // заполнение citizenship_id тоже меняет строки users, пусть оно закончится до проверок
+        awaitRequiredMigrations();
+        List<Map<String, Object>> alive = jdbcTemplate.queryForList(
+                "SELECT id, pinfl FROM users WHERE death_date IS NULL ORDER BY id LIMIT 2");
+        Map<String, Object> deceased = jdbcTemplate.queryForMap(
+                "SELECT id, pinfl FROM users WHERE death_date IS NOT NULL ORDER BY id LIMIT 1");
+        long aliveId = ((Number) alive.get(0).get("id")).longValue();
+        String alivePinfl = (String) alive.get(1).get("pinfl");
+        long deceasedId = ((Number) deceased.get("id")).longValue();
+        LocalDate earlier = LocalDate.now().minusDays(10);
+        LocalDate later = LocalDate.now().minusDays(1);
+        long deceasedBefore = userCounterService.getDeceasedCount();
+
+        BulkMarkDeceasedRequestDto request = BulkMarkDeceasedRequestDto.builder()
+                .records(List.of(
+                        DeathRecordItemDto.builder().id(aliveId).deathDate(later).build(),
+                        DeathRecordItemDto.builder().pinfl(alivePinfl).deathDate(later).build(),
+                        DeathRecordItemDto.builder().pinfl(alivePinfl).deathDate(earlier).build(),
+                        DeathRecordItemDto.builder().id(deceasedId).deathDate(later).build(),
+                        DeathRecordItemDto.builder().id(Long.MAX_VALUE).deathDate(later).build(),
+                        DeathRecordItemDto.builder().pinfl("99999999999998").deathDate(later).build()))
+                .build();
+
+        BulkMarkDeceasedResponseDto response = deathRegistrationService.markDeceased(request);
+
+        assertThat(response.results()).extracting(DeathRecordResultDto::outcome).containsExactly(
+                DeathRegistrationOutcome.UPDATED,
+                DeathRegistrationOutcome.UPDATED,
+                DeathRegistrationOutcome.DUPLICATE,
+                DeathRegistrationOutcome.ALREADY_DECEASED,
+                DeathRegistrationOutcome.NOT_FOUND,
+                DeathRegistrationOutcome.NOT_FOUND);
+        assertThat(response.results().get(1).pinfl()).isEqualTo(alivePinfl);
+        // обе записи pinfl сообщают примененную дату - самую раннюю из повторов
+        assertThat(response.results().get(1).deathDate()).isEqualTo(earlier);
+        assertThat(response.results().get(2).deathDate()).isEqualTo(earlier);
+        assertThat(response.updated()).isEqualTo(2);
+        assertThat(response.alreadyDeceased()).isEqualTo(1);
+        assertThat(response.notFound()).isEqualTo(2);
+        assertThat(response.duplicate()).isEqualTo(1);
+        assertThat(response.failed()).isZero();
+
+        // повторы pinfl в запросе схлопываются в одно изменение с самой ранней датой
+        assertThat(deathDate("id = ?", aliveId)).isEqualTo(later);
+        assertThat(deathDate("pinfl = ?", alivePinfl)).isEqualTo(earlier);
+        assertThat(userCounterService.getDeceasedCount()).isEqualTo(deceasedBefore + 2);
+
+        // повторная отправка ничего не меняет
+        BulkMarkDeceasedResponseDto retried = deathRegistrationService.markDeceased(request);
+        assertThat(retried.updated()).isZero();
+        assertThat(retried.alreadyDeceased()).isEqualTo(3);
+        assertThat(retried.notFound()).isEqualTo(2);
+        assertThat(retried.duplicate()).isEqualTo(1);
+        assertThat(deathDate("pinfl = ?", alivePinfl)).isEqualTo(earlier);
+        assertThat(userCounterService.getDeceasedCount()).isEqualTo(deceasedBefore + 2);
+    }
+
+    @Test
+    void rejectsRecordWithBothIdAndPinfl() {
+        LocalDate before = deathDate("id = ?", 1L);
+        BulkMarkDeceasedRequestDto request = BulkMarkDeceasedRequestDto.builder()
+                .records(List.of(DeathRecordItemDto.builder()
+                        .id(1L)
+                        .pinfl("00000000000001")
+                        .deathDate(LocalDate.now())
+                        .build()))
+                .build();
+
+        assertThatThrownBy(() -> deathRegistrationService.markDeceased(request))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("records[0]");
+        assertThat(deathDate("id = ?", 1L)).isEqualTo(before);
+    }
+
+    private LocalDate deathDate(String condition, Object key) {
+        return jdbcTemplate.queryForObject("SELECT death_date FROM users WHERE " + condition, LocalDate.class, key);
+    }
+}
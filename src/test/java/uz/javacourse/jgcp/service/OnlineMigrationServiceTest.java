@@ -0,0 +1,152 @@
+package uz.javacourse.jgcp.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.constant.enums.OnlineMigrationStatus;
+import uz.javacourse.jgcp.dto.response.OnlineMigrationDto;
+import uz.javacourse.jgcp.migration.OnlineMigration;
+import uz.javacourse.jgcp.migration.UsersPartitioningMigration;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+// миграция продолжается с сохраненной пачки и сохраненного шага, после замены столбцов пулы соединений
+// заменяются и подготовленные запросы продолжают работать, а отмена убирает триггеры подготовительного шага
+class OnlineMigrationServiceTest extends IntegrationTest {
+
+    @Autowired
+    private RecordingMigration recordingMigration;
+
+    @Test
+    void resumesFromSavedChunkAndStep() {
+        // состояние узла, остановленного после 6 пачек из 10 и первого завершающего шага (chunk-size 100000)
+        jdbcTemplate.update("UPDATE online_migrations SET status = 'PAUSED', max_key = 1000000, last_key = 600000, "
+                + "finalize_step = 1 WHERE name = ?", RecordingMigration.NAME);
+
+        onlineMigrationService.start(RecordingMigration.NAME);
+
+        assertThat(awaitStatus(RecordingMigration.NAME, Duration.ofSeconds(30)).status())
+                .isEqualTo(OnlineMigrationStatus.DONE);
+        assertThat(recordingMigration.chunks).containsExactly(
+                List.of(600000L, 700000L), List.of(700000L, 800000L),
+                List.of(800000L, 900000L), List.of(900000L, 1000000L));
+        assertThat(jdbcTemplate.queryForList("SELECT step FROM online_migration_test_steps ORDER BY step", Integer.class))
+                .containsExactly(2, 3);
+    }
+
+    @Test
+    void swapReplacesPooledConnections() {
+        String sql = "SELECT gender FROM users WHERE id = ?";
+        // больше prepareThreshold pgjdbc: запрос подготовлен на сервере и хранит тип результата varchar
+        for (int i = 0; i < 10; i++) {
+            assertThat(jdbcTemplate.queryForObject(sql, String.class, 2L)).isEqualTo("MALE");
+        }
+
+        onlineMigrationService.start("users-enum-columns");
+
+        assertThat(awaitStatus("users-enum-columns", Duration.ofMinutes(5)).status())
+                .isEqualTo(OnlineMigrationStatus.DONE);
+        assertThat(jdbcTemplate.queryForObject("SELECT format_type(atttypid, atttypmod) FROM pg_attribute "
+                + "WHERE attrelid = 'users'::regclass AND attname = 'gender'", String.class)).isEqualTo("gender");
+        for (int i = 0; i < 10; i++) {
+            assertThat(jdbcTemplate.queryForObject(sql, String.class, 2L)).isEqualTo("MALE");
+        }
+    }
+
+    @Test
+    void abandonDropsPartitioningTriggersAndCopy() {
+        // до запуска users-partitioning запись в users не повторяется в users_p
+        assertThat(partitioningTriggers()).isZero();
+        awaitRequiredMigrations();
+
+        // состояние узла, остановленного сразу после подготовительного шага
+        for (OnlineMigration.Step step : new UsersPartitioningMigration().prepareSteps()) {
+            step.statements().forEach(jdbcTemplate::execute);
+        }
+        jdbcTemplate.update("UPDATE online_migrations SET status = 'PAUSED', "
+                + "max_key = (SELECT MAX(id) FROM users) WHERE name = ?", UsersPartitioningMigration.NAME);
+        jdbcTemplate.update("""
+                INSERT INTO users (full_name, address, phone_number, email, pinfl, age, gender, document_type,
+                                   issue_date, expiry_date, citizenship_id)
+                VALUES ('Abandon Test', 'Tashkent', '+998990000003', 'abandon-test@mail.com', '99999999999903',
+                        40, 'MALE', 'PASSPORT', '2020-01-01', '2030-01-01', 1)
+                """);
+        assertThat(partitioningTriggers()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users_p", Long.class)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_keys", Long.class)).isEqualTo(1);
+
+        OnlineMigrationDto abandoned = onlineMigrationService.abandon(UsersPartitioningMigration.NAME);
+
+        assertThat(abandoned.status()).isEqualTo(OnlineMigrationStatus.PAUSED);
+        assertThat(abandoned.maxKey()).isNull();
+        assertThat(partitioningTriggers()).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users_p", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_keys", Long.class)).isZero();
+    }
+
+    private long partitioningTriggers() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pg_trigger WHERE tgname IN ("
+                + "'users_mirror_to_partitioned', 'users_p_sync_keys_insert', 'users_p_sync_keys_update')",
+                Long.class);
+    }
+
+    // start() переводит миграцию в RUNNING до возврата, поэтому ожидание длится до ее остановки
+    private OnlineMigrationDto awaitStatus(String name, Duration timeout) {
+        return await().atMost(timeout).until(() -> onlineMigrationService.getMigrations().stream()
+                .filter(dto -> dto.name().equals(name))
+                .findFirst()
+                .orElseThrow(), migration -> migration.status() != OnlineMigrationStatus.RUNNING);
+    }
+
+    @TestConfiguration
+    static class RecordingMigrationConfig {
+
+        @Bean
+        RecordingMigration recordingMigration() {
+            return new RecordingMigration();
+        }
+    }
+
+    // запоминает полученные пачки, а каждый шаг отмечает себя в таблице
+    static class RecordingMigration implements OnlineMigration {
+
+        static final String NAME = "test-recording";
+
+        final List<List<Long>> chunks = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String name() {
+            return NAME;
+        }
+
+        @Override
+        public long maxKey(JdbcTemplate jdbcTemplate) {
+            return 1000000;
+        }
+
+        @Override
+        public int migrateChunk(JdbcTemplate jdbcTemplate, long fromExclusive, long toInclusive) {
+            chunks.add(List.of(fromExclusive, toInclusive));
+            return 0;
+        }
+
+        @Override
+        public List<Step> finalizeSteps() {
+            return List.of(step(1), step(2), step(3));
+        }
+
+        private static Step step(int number) {
+            return Step.of("step " + number,
+                    "CREATE TABLE IF NOT EXISTS online_migration_test_steps (step INTEGER)",
+                    "INSERT INTO online_migration_test_steps VALUES (" + number + ")");
+        }
+    }
+}
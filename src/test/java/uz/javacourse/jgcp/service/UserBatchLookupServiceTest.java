@@ -0,0 +1,89 @@
+package uz.javacourse.jgcp.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.dto.request.UserBatchLookupRequestDto;
+import uz.javacourse.jgcp.dto.response.UserBatchLookupResponseDto;
+import uz.javacourse.jgcp.dto.response.UserLookupResultDto;
+import uz.javacourse.jgcp.exception.BusinessException;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// результаты пакетного чтения идут в порядке запроса, отсутствующие ключи возвращаются с found=false,
+// уже загруженные записи берутся из кэша, остальные - из базы
+class UserBatchLookupServiceTest extends IntegrationTest {
+
+    @Autowired
+    private UserBatchLookupService userBatchLookupService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void keepsRequestOrderAndMarksMissingIds() {
+        // 1_777_002 попадает в кэш до запроса; повтор ключа дает повтор результата
+        userService.getUserById(1_777_002L);
+        double cached = keys("cache");
+        double loaded = keys("database");
+        double notFound = keys("not-found");
+
+        UserBatchLookupResponseDto response = userBatchLookupService.lookupUsers(UserBatchLookupRequestDto.builder()
+                .ids(List.of(1_777_003L, 5_000_000_101L, 1_777_001L, 1_777_002L, 1_777_003L))
+                .build());
+
+        assertThat(response.results()).extracting(UserLookupResultDto::key)
+                .containsExactly("1777003", "5000000101", "1777001", "1777002", "1777003");
+        assertThat(response.results()).extracting(UserLookupResultDto::found)
+                .containsExactly(true, false, true, true, true);
+        assertThat(response.results()).extracting(result -> result.user() == null ? null : result.user().id())
+                .containsExactly(1_777_003L, null, 1_777_001L, 1_777_002L, 1_777_003L);
+        assertThat(response.found()).isEqualTo(4);
+        assertThat(response.notFound()).isEqualTo(1);
+        assertThat(keys("cache")).isEqualTo(cached + 1);
+        assertThat(keys("database")).isEqualTo(loaded + 2);
+        assertThat(keys("not-found")).isEqualTo(notFound + 1);
+    }
+
+    @Test
+    void looksUpByPinflInRequestOrder() {
+        UserBatchLookupResponseDto response = userBatchLookupService.lookupUsers(UserBatchLookupRequestDto.builder()
+                .pinfls(List.of("00000001777012", "99999999999777", "00000001777011"))
+                .build());
+
+        assertThat(response.results()).extracting(UserLookupResultDto::found).containsExactly(true, false, true);
+        assertThat(response.results().getFirst().user().id()).isEqualTo(1_777_012L);
+        assertThat(response.results().getLast().user().id()).isEqualTo(1_777_011L);
+        assertThat(response.results().get(1).user()).isNull();
+    }
+
+    @Test
+    void rejectsAmbiguousOrOversizedRequests() {
+        assertThatThrownBy(() -> userBatchLookupService.lookupUsers(UserBatchLookupRequestDto.builder()
+                .ids(List.of(1L))
+                .pinfls(List.of("00000000000001"))
+                .build()))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Exactly one of ids or pinfls must be provided");
+        assertThatThrownBy(() -> userBatchLookupService.lookupUsers(UserBatchLookupRequestDto.builder().build()))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Exactly one of ids or pinfls must be provided");
+        assertThatThrownBy(() -> userBatchLookupService.lookupUsers(UserBatchLookupRequestDto.builder()
+                .ids(LongStream.rangeClosed(1, 5001).boxed().toList())
+                .build()))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("At most 5000 keys can be looked up at once");
+    }
+
+    private double keys(String source) {
+        return meterRegistry.get("users.batch-lookup.keys").tag("source", source).counter().count();
+    }
+}
@@ -0,0 +1,66 @@
+package uz.javacourse.jgcp.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.constant.enums.CountMethod;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.request.UserFilterDto;
+import uz.javacourse.jgcp.dto.response.CountEstimateDto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.assertj.core.api.Assertions.withinPercentage;
+
+// оценка без условий берется из статистики таблицы, с частыми условиями - из выборки страниц
+// с границей погрешности, с редкими - из плана запроса; точный подсчет служит эталоном
+class UserCountEstimateTest extends IntegrationTest {
+
+    @Autowired
+    private UserFilterService userFilterService;
+
+    @BeforeEach
+    void analyze() {
+        // фоновая миграция переписывает строки users; статистика собирается после нее,
+        // иначе reltuples и число страниц описывают разные состояния таблицы
+        awaitRequiredMigrations();
+        jdbcTemplate.execute("ANALYZE users");
+    }
+
+    @Test
+    void estimatesWholeTableFromStatistics() {
+        UserFilterDto filter = UserFilterDto.builder().build();
+
+        CountEstimateDto estimate = userFilterService.estimateUsersCount(filter);
+
+        assertThat(estimate.method()).isEqualTo(CountMethod.STATISTICS);
+        assertThat(estimate.errorBound()).isNotNull();
+        assertThat(estimate.count()).isCloseTo(userFilterService.countUsers(filter), withinPercentage(2));
+    }
+
+    @Test
+    void estimatesCommonConditionsFromSampleWithinBound() {
+        UserFilterDto filter = UserFilterDto.builder().gender(Gender.FEMALE).minAge(30).maxAge(39).build();
+
+        CountEstimateDto estimate = userFilterService.estimateUsersCount(filter);
+
+        assertThat(estimate.method()).isEqualTo(CountMethod.SAMPLE);
+        assertThat(estimate.errorBound()).isPositive();
+        // граница - 95% интервал, запас в полторы границы снимает случайные промахи выборки
+        assertThat(estimate.count()).isCloseTo(userFilterService.countUsers(filter),
+                within(estimate.errorBound() * 3 / 2));
+    }
+
+    @Test
+    void fallsBackToPlannerForRareConditions() {
+        // под имя подходит один пользователь начальных данных, в выборке меньше min-sample-matches совпадений
+        UserFilterDto filter = UserFilterDto.builder().name("user 1234567").build();
+
+        CountEstimateDto estimate = userFilterService.estimateUsersCount(filter);
+
+        assertThat(estimate.method()).isEqualTo(CountMethod.PLANNER);
+        assertThat(estimate.errorBound()).isNull();
+        assertThat(estimate.count()).isPositive();
+    }
+}
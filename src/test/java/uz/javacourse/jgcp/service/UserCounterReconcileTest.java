@@ -0,0 +1,34 @@
+package uz.javacourse.jgcp.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.constant.enums.Gender;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// сверка находит и исправляет расхождения и в счетчиках измерений, и в гистограмме возрастов
+class UserCounterReconcileTest extends IntegrationTest {
+
+    @Autowired
+    private UserCounterService userCounterService;
+
+    @Test
+    void reconcileFixesCounterAndHistogramDrift() {
+        // сверка группирует по citizenship_id, который у начальных данных заполняет users-citizenship-id
+        awaitRequiredMigrations();
+        assertThat(userCounterService.reconcile()).isZero();
+
+        jdbcTemplate.update("UPDATE user_stat_counters SET value = value + 5 "
+                + "WHERE dimension = 'GENDER' AND bucket = 'MALE' AND slot = 0");
+        jdbcTemplate.update("INSERT INTO user_age_histogram (age, slot, value) VALUES (33, 7, -2) "
+                + "ON CONFLICT (age, slot) DO UPDATE SET value = user_age_histogram.value - 2");
+
+        assertThat(userCounterService.reconcile()).isEqualTo(2);
+        assertThat(userCounterService.getCountByGender(Gender.MALE))
+                .isEqualTo(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE gender = 'MALE'", Long.class));
+        assertThat(userCounterService.getCountByAgeBetween(33, 33))
+                .isEqualTo(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE age = 33", Long.class));
+        assertThat(userCounterService.reconcile()).isZero();
+    }
+}
@@ -0,0 +1,63 @@
+package uz.javacourse.jgcp.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import tools.jackson.databind.ObjectMapper;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.constant.enums.DataFormat;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.mapper.UserCsvMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// выгрузка отдает весь отфильтрованный набор одним потоком: строк столько же, сколько COUNT(*) по тому же условию
+class UserExportServiceTest extends IntegrationTest {
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private UserCsvMapper userCsvMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void ndjsonExportHasOneLinePerMatchingUser() {
+        LocalDate start = LocalDate.of(2016, 1, 1);
+        LocalDate end = LocalDate.of(2016, 12, 31);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        userExportService.exportUsersDeceasedBetween(start, end, DataFormat.NDJSON, out);
+
+        List<UserResponseDto> users = new String(out.toByteArray(), StandardCharsets.UTF_8).lines()
+                .map(line -> objectMapper.readValue(line, UserResponseDto.class))
+                .toList();
+        assertThat(users).hasSize(count("death_date BETWEEN ? AND ?", start, end));
+        assertThat(users).isNotEmpty().allSatisfy(user -> assertThat(user.deathDate()).isBetween(start, end));
+        assertThat(users).extracting(UserResponseDto::id).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void csvExportStartsWithHeaderAndHasOneLinePerMatchingUser() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        userExportService.exportUsersByGenderAndAgeRange(Gender.FEMALE, 30, 31, DataFormat.CSV, out);
+
+        List<String> lines = new String(out.toByteArray(), StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines.getFirst() + "\n").isEqualTo(userCsvMapper.exportHeader());
+        assertThat(lines.subList(1, lines.size()))
+                .hasSize(count("gender = 'FEMALE' AND age BETWEEN ? AND ?", 30, 31))
+                .allSatisfy(line -> assertThat(line).contains(",FEMALE,"));
+    }
+
+    private int count(String condition, Object... args) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE " + condition, Integer.class, args);
+    }
+}
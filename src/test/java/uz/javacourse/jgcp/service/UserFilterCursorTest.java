@@ -0,0 +1,97 @@
+package uz.javacourse.jgcp.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.constant.enums.UserSortKey;
+import uz.javacourse.jgcp.dto.request.UserFilterDto;
+import uz.javacourse.jgcp.dto.request.UserRequestDto;
+import uz.javacourse.jgcp.dto.response.CursorPageDto;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.exception.BusinessException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// составной курсор (ключ сортировки, id) проходит одинаковые имена без пропусков и повторов в обе стороны,
+// а курсор другого фильтра или измененный курсор отклоняется
+class UserFilterCursorTest extends IntegrationTest {
+
+    @Autowired
+    private UserFilterService userFilterService;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void pagesThroughEqualSortKeysInBothDirections() {
+        List<Long> created = IntStream.rangeClosed(1, 5)
+                .mapToObj(i -> create("5555555555550" + i, "Kursor Tartibov").id())
+                .toList();
+        UserFilterDto filter = UserFilterDto.builder().name("kursor tartibov").build();
+
+        List<CursorPageDto<UserResponseDto>> pages = new ArrayList<>();
+        CursorPageDto<UserResponseDto> page = filter(filter, null);
+        pages.add(page);
+        while (page.hasNext()) {
+            page = filter(filter, page.nextCursor());
+            pages.add(page);
+        }
+
+        // у всех одно имя, поэтому порядок задает id
+        assertThat(pages).hasSize(3);
+        assertThat(pages.stream().flatMap(p -> p.content().stream()).map(UserResponseDto::id).toList())
+                .containsExactlyElementsOf(created);
+        assertThat(pages.getFirst().prevCursor()).isNull();
+        assertThat(pages.getLast().nextCursor()).isNull();
+
+        // назад от последней страницы возвращается та же вторая страница в прежнем порядке
+        CursorPageDto<UserResponseDto> back = filter(filter, pages.getLast().prevCursor());
+        assertThat(back.content()).isEqualTo(pages.get(1).content());
+        assertThat(back.prevCursor()).isNotNull();
+    }
+
+    @Test
+    void rejectsCursorOfAnotherFilterOrTamperedCursor() {
+        create("55555555555506", "Kursor Boshqa");
+        create("55555555555507", "Kursor Boshqa");
+        UserFilterDto filter = UserFilterDto.builder().name("kursor boshqa").build();
+        String cursor = filter(filter, null).nextCursor();
+        UserFilterDto other = UserFilterDto.builder().name("kursor boshqa").gender(Gender.FEMALE).build();
+
+        assertThatThrownBy(() -> filter(other, cursor))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Cursor is invalid or was issued for a different filter or sort");
+        assertThatThrownBy(() -> filter(filter, "x" + cursor))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Cursor is invalid or was issued for a different filter or sort");
+    }
+
+    private CursorPageDto<UserResponseDto> filter(UserFilterDto filter, String cursor) {
+        return userFilterService.filterUsers(filter, UserSortKey.FULL_NAME, Sort.Direction.ASC, cursor, 2);
+    }
+
+    private UserResponseDto create(String pinfl, String fullName) {
+        return userService.createUser(UserRequestDto.builder()
+                .fullName(fullName)
+                .address("Toshkent, Chilonzor 12")
+                .phoneNumber("+9989" + pinfl.substring(6))
+                .email("cursor-" + pinfl + "@example.uz")
+                .pinfl(pinfl)
+                .age(35)
+                .gender(Gender.FEMALE)
+                .documentType(DocumentType.PASSPORT)
+                .issueDate(LocalDate.now().minusYears(3))
+                .expiryDate(LocalDate.now().plusYears(7))
+                .citizenship("Uzbekistan")
+                .build());
+    }
+}
@@ -0,0 +1,82 @@
+package uz.javacourse.jgcp.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import tools.jackson.databind.ObjectMapper;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.constant.enums.DataFormat;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.request.UserRequestDto;
+import uz.javacourse.jgcp.dto.response.ImportRejectionDto;
+import uz.javacourse.jgcp.dto.response.ImportReportDto;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// импорт пачками по три строки: отказы внутри пачки, против базы и по уже записанной пачке
+@TestPropertySource(properties = "app.import.chunk-size=3")
+class UserImportServiceTest extends IntegrationTest {
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void importsChunksAndReportsRejectedRows() {
+        String body = String.join("\n",
+                // первая пачка: вторая строка повторяет email первой, третья берет pinfl отклоненной второй
+                line(user("77000000000001", "import-1@example.uz", "+998770000001")),
+                line(user("77000000000002", "import-1@example.uz", "+998770000002")),
+                line(user("77000000000002", "import-3@example.uz", "+998770000003")),
+                "{not json",
+                // вторая пачка: pinfl из первой пачки и pinfl из начальных данных V2
+                line(user("77000000000001", "import-4@example.uz", "+998770000004")),
+                line(user("00000000000042", "import-5@example.uz", "+998770000005")),
+                line(user("77000000000006", "import-6@example.uz", "+998770000006")));
+
+        ImportReportDto report = userImportService.importUsers(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), DataFormat.NDJSON);
+
+        assertThat(report.totalRows()).isEqualTo(7);
+        assertThat(report.importedRows()).isEqualTo(3);
+        assertThat(report.rejectedRows()).isEqualTo(4);
+        assertThat(report.rejections().stream()
+                .collect(Collectors.toMap(ImportRejectionDto::line, ImportRejectionDto::reason)))
+                .containsEntry(2L, "Duplicate email within import")
+                .containsEntry(5L, "User with this PINFL already exists")
+                .containsEntry(6L, "User with this PINFL already exists")
+                .containsKey(4L);
+        assertThat(jdbcTemplate.queryForList("SELECT email FROM users WHERE pinfl LIKE '77%' ORDER BY pinfl",
+                String.class))
+                .isEqualTo(List.of("import-1@example.uz", "import-3@example.uz", "import-6@example.uz"));
+    }
+
+    private String line(UserRequestDto user) {
+        return objectMapper.writeValueAsString(user);
+    }
+
+    private static UserRequestDto user(String pinfl, String email, String phoneNumber) {
+        return UserRequestDto.builder()
+                .fullName("Import Test " + pinfl)
+                .address("Toshkent, Yunusobod 4")
+                .phoneNumber(phoneNumber)
+                .email(email)
+                .pinfl(pinfl)
+                .age(30)
+                .gender(Gender.MALE)
+                .documentType(DocumentType.ID_CARD)
+                .issueDate(LocalDate.now().minusYears(2))
+                .expiryDate(LocalDate.now().plusYears(8))
+                .citizenship("Uzbekistan")
+                .build();
+    }
+}
@@ -0,0 +1,99 @@
+package uz.javacourse.jgcp.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.request.UserRequestDto;
+import uz.javacourse.jgcp.dto.response.CursorPageDto;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.exception.BusinessException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// поиск по подстроке без учета регистра и с экранированием LIKE, поиск по началу имени
+// и ранжированный поиск похожих имен, страницы которого не пересекаются
+class UserNameSearchTest extends IntegrationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void substringSearchIgnoresCaseAndEscapesWildcards() {
+        UserResponseDto literal = create("88888888888801", "Nodira Percent 50% Karimova");
+        UserResponseDto digits = create("88888888888802", "Nodira Percent 500 Karimova");
+
+        assertThat(userService.searchByName("percent 50", PageRequest.of(0, 10)).getContent())
+                .extracting(UserResponseDto::id)
+                .containsExactlyInAnyOrder(literal.id(), digits.id());
+        // % из запроса ищется как символ, а не как любая подстрока
+        assertThat(userService.searchByName("50%", PageRequest.of(0, 10)).getContent())
+                .extracting(UserResponseDto::id)
+                .containsExactly(literal.id());
+    }
+
+    @Test
+    void prefixSearchMatchesOnlyTheStartOfTheName() {
+        UserResponseDto first = create("88888888888803", "Shahlo Prefixova");
+        UserResponseDto second = create("88888888888804", "shahlo prefixova ikkinchi");
+        create("88888888888805", "Dilnoza Shahlo Prefixova");
+
+        assertThat(userService.searchByNamePrefixAfter("SHAHLO PREFIX", 0L, 10).getContent())
+                .extracting(UserResponseDto::id)
+                .containsExactly(first.id(), second.id());
+        assertThat(userService.searchByNamePrefixAfter("shahlo prefix", first.id(), 10).getContent())
+                .extracting(UserResponseDto::id)
+                .containsExactly(second.id());
+    }
+
+    @Test
+    void rankedSearchPagesMostSimilarFirstWithoutOverlap() {
+        UserResponseDto exact = create("88888888888806", "Zafarbek Qodirov");
+        UserResponseDto close = create("88888888888807", "Zafarbek Qodirova");
+        UserResponseDto partial = create("88888888888808", "Zafar Qodir");
+
+        List<Long> ids = new ArrayList<>();
+        CursorPageDto<UserResponseDto> page = userService.searchByNameRanked("Zafarbek Qodirov", null, 1);
+        assertThat(page.content()).extracting(UserResponseDto::id).containsExactly(exact.id());
+        String firstCursor = page.nextCursor();
+        ids.add(page.content().getFirst().id());
+        while (page.hasNext()) {
+            page = userService.searchByNameRanked("Zafarbek Qodirov", page.nextCursor(), 1);
+            page.content().forEach(user -> ids.add(user.id()));
+        }
+
+        assertThat(ids).doesNotHaveDuplicates().contains(close.id(), partial.id());
+        assertThat(ids.indexOf(close.id())).isLessThan(ids.indexOf(partial.id()));
+
+        // курсор подписан вместе с запросом: с другим именем или измененный он не принимается
+        assertThatThrownBy(() -> userService.searchByNameRanked("Zafar Qodir", firstCursor, 1))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Invalid search cursor");
+        assertThatThrownBy(() -> userService.searchByNameRanked("Zafarbek Qodirov", "x" + firstCursor, 1))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Invalid search cursor");
+    }
+
+    private UserResponseDto create(String pinfl, String fullName) {
+        return userService.createUser(UserRequestDto.builder()
+                .fullName(fullName)
+                .address("Toshkent, Mirzo Ulug'bek 7")
+                .phoneNumber("+9989" + pinfl.substring(6))
+                .email("search-" + pinfl + "@example.uz")
+                .pinfl(pinfl)
+                .age(28)
+                .gender(Gender.FEMALE)
+                .documentType(DocumentType.ID_CARD)
+                .issueDate(LocalDate.now().minusYears(2))
+                .expiryDate(LocalDate.now().plusYears(8))
+                .citizenship("Uzbekistan")
+                .build());
+    }
+}
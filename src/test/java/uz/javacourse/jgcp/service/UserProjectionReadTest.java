@@ -0,0 +1,69 @@
+package uz.javacourse.jgcp.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.transaction.support.TransactionTemplate;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.mapper.UserMapper;
+import uz.javacourse.jgcp.repository.UserRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// чтение сразу в UserResponseDto дает те же поля, что сущность после маппера,
+// и не оставляет управляемых сущностей в контексте персистентности
+class UserProjectionReadTest extends IntegrationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void slicesMatchMappedEntitiesWithoutManagingThem() {
+        // гражданство начальных данных читается из citizenship_id, который заполняет users-citizenship-id
+        awaitRequiredMigrations();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Session session = entityManager.unwrap(Session.class);
+            Slice<UserResponseDto> page = userService.getUsersByGenderAfter(Gender.FEMALE, 1_000_000L, 25);
+
+            assertThat(page.getContent()).hasSize(25);
+            assertThat(session.getStatistics().getEntityCount()).isZero();
+
+            for (UserResponseDto user : page.getContent()) {
+                assertThat(user.gender()).isEqualTo(Gender.FEMALE);
+                assertThat(user.citizenship()).isNotNull();
+                assertThat(user).isEqualTo(userMapper.toResponseDto(userRepository.findById(user.id()).orElseThrow()));
+            }
+            // сравнение со старым путем загрузило сущности, значит счетчик выше действительно их видит
+            assertThat(session.getStatistics().getEntityCount()).isEqualTo(25);
+        });
+    }
+
+    @Test
+    void singleUserReadsMatchMappedEntity() {
+        awaitRequiredMigrations();
+        UserResponseDto expected = transactionTemplate.execute(status ->
+                userMapper.toResponseDto(userRepository.findById(2_345_678L).orElseThrow()));
+
+        assertThat(userService.getUserById(2_345_678L)).isEqualTo(expected);
+        assertThat(userService.getUserByPinfl(expected.pinfl())).isEqualTo(expected);
+        assertThat(userService.isUserAlive(2_345_678L)).isEqualTo(expected.deathDate() == null);
+    }
+}
@@ -0,0 +1,93 @@
+package uz.javacourse.jgcp.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.response.UserStatsDto;
+import uz.javacourse.jgcp.exception.BusinessException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// один проход /stats дает те же числа, что отдельные подсчеты, а параллельные запросы одного периода
+// получают один результат вместо нескольких проходов по таблице
+class UserStatsServiceTest extends IntegrationTest {
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void matchesIndividualCounts() {
+        // разбивка по гражданству читает citizenship_id, который у начальных данных заполняет users-citizenship-id
+        awaitRequiredMigrations();
+        LocalDate start = LocalDate.of(2017, 1, 1);
+        LocalDate end = LocalDate.of(2019, 6, 30);
+
+        UserStatsDto stats = userStatsService.getStats(start, end, start, end);
+
+        assertThat(stats.total()).isEqualTo(userService.getTotalUsersCount());
+        assertThat(stats.alive()).isEqualTo(userService.getAliveUsersCount());
+        assertThat(stats.deceased()).isEqualTo(userService.getDeceasedUsersCount());
+        assertThat(stats.expiredDocuments()).isEqualTo(userService.getUsersWithExpiredDocumentsCount());
+        assertThat(stats.aliveWithExpiredDocuments()).isEqualTo(userService.getAliveUsersWithExpiredDocumentsCount());
+        assertThat(stats.documentsExpiringBetween())
+                .isEqualTo(userService.getUsersWithDocumentsExpiringBetweenCount(start, end));
+        assertThat(stats.deceasedBetween()).isEqualTo(userService.getUsersDeceasedBetweenCount(start, end));
+        for (Gender gender : Gender.values()) {
+            assertThat(stats.byGender().getOrDefault(gender, 0L)).isEqualTo(userService.getUsersCountByGender(gender));
+        }
+        for (DocumentType documentType : DocumentType.values()) {
+            assertThat(stats.byDocumentType().getOrDefault(documentType, 0L))
+                    .isEqualTo(userService.getUsersByDocumentTypeCount(documentType));
+        }
+        assertThat(stats.byCitizenship()).isNotEmpty().allSatisfy((citizenship, count) ->
+                assertThat(count).isEqualTo(userService.getUsersByCitizenshipCount(citizenship)));
+        assertThat(stats.byAgeBucket()).containsEntry("30-39", userService.getUsersByAgeRangeCount(30, 39));
+        assertThat(stats.byAgeBucket().values().stream().mapToLong(Long::longValue).sum()).isEqualTo(stats.total());
+    }
+
+    @Test
+    void concurrentRequestsForOnePeriodShareOneResult() throws Exception {
+        // период, который не запрашивает ни один другой тест, поэтому в кэше его еще нет
+        LocalDate start = LocalDate.of(2021, 3, 1);
+        LocalDate end = LocalDate.of(2021, 3, 31);
+
+        List<Future<UserStatsDto>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> userStatsService.getStats(start, end, null, null)));
+            }
+        }
+
+        UserStatsDto first = results.getFirst().get();
+        for (Future<UserStatsDto> result : results) {
+            assertThat(result.get()).isSameAs(first);
+        }
+        assertThat(first.deceasedBetween()).isNull();
+        assertThat(userStatsService.getStats(start, end, null, null)).isSameAs(first);
+    }
+
+    @Test
+    void rejectsIncompleteOrReversedPeriod() {
+        LocalDate today = LocalDate.now();
+
+        assertThatThrownBy(() -> userStatsService.getStats(today, null, null, null))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("expiringEnd");
+        assertThatThrownBy(() -> userStatsService.getStats(null, null, today, today.minusDays(1)))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("deceasedStart must not be after deceasedEnd");
+    }
+}
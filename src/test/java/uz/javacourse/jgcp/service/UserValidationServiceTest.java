@@ -0,0 +1,80 @@
+package uz.javacourse.jgcp.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.dto.request.UserRequestDto;
+import uz.javacourse.jgcp.exception.ConflictException;
+import uz.javacourse.jgcp.index.UserKeyBloomFilter;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+// новые значения проходят проверку уникальности без запроса в базу, занятые значения проверяются
+// одним запросом и каждое дает свою причину отказа
+class UserValidationServiceTest extends IntegrationTest {
+
+    @Autowired
+    private UserValidationService userValidationService;
+
+    @Autowired
+    private UserKeyBloomFilter userKeyBloomFilter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void skipsProbeForNewValuesAndReportsEachTakenValue() {
+        // пока фильтры не заполнены, занятым считается любое значение; ложное срабатывание на одном наборе
+        // возможно, поэтому готовность определяется по любому из нескольких новых наборов
+        UserRequestDto fresh = await().atMost(Duration.ofMinutes(2)).until(() -> IntStream.rangeClosed(1, 5)
+                .mapToObj(i -> request("6666666666660" + i, "bloom-fresh-" + i + "@example.uz", "+99896666660" + i))
+                .filter(user -> !userKeyBloomFilter.mightBeTaken(user.pinfl(), user.email(), user.phoneNumber()))
+                .findFirst()
+                .orElse(null), Objects::nonNull);
+        double skipped = probes("skipped");
+        double probed = probes("probed");
+
+        userValidationService.validateUniqueness(fresh);
+        assertThat(probes("skipped")).isEqualTo(skipped + 1);
+        assertThat(probes("probed")).isEqualTo(probed);
+
+        // pinfl, email и телефон пользователя 42 из начальных данных V2
+        assertThatThrownBy(() -> userValidationService.validateUniqueness(
+                request("00000000000042", fresh.email(), fresh.phoneNumber())))
+                .isInstanceOf(ConflictException.class)
+                .hasMessage("User with this PINFL already exists");
+        assertThatThrownBy(() -> userValidationService.validateUniqueness(
+                request(fresh.pinfl(), "user42@mail.com", fresh.phoneNumber())))
+                .isInstanceOf(ConflictException.class)
+                .hasMessage("User with this email already exists");
+        assertThatThrownBy(() -> userValidationService.validateUniqueness(
+                request(fresh.pinfl(), fresh.email(), "+998900000042")))
+                .isInstanceOf(ConflictException.class)
+                .hasMessage("User with this phone number already exists");
+        assertThat(probes("probed")).isEqualTo(probed + 3);
+
+        // зарегистрированные на этом узле значения сразу попадают в фильтр
+        userValidationService.registerKeys(fresh.pinfl(), fresh.email(), fresh.phoneNumber());
+        assertThat(userKeyBloomFilter.mightBeTaken(fresh.pinfl(), "bloom-other@example.uz", "+998966666699"))
+                .isTrue();
+    }
+
+    private double probes(String result) {
+        return meterRegistry.get("users.uniqueness.probe").tag("result", result).counter().count();
+    }
+
+    private static UserRequestDto request(String pinfl, String email, String phoneNumber) {
+        return UserRequestDto.builder()
+                .pinfl(pinfl)
+                .email(email)
+                .phoneNumber(phoneNumber)
+                .build();
+    }
+}
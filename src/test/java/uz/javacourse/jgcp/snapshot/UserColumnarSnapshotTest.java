@@ -0,0 +1,92 @@
+package uz.javacourse.jgcp.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import uz.javacourse.jgcp.IntegrationTest;
+import uz.javacourse.jgcp.constant.enums.DocumentType;
+import uz.javacourse.jgcp.constant.enums.Gender;
+import uz.javacourse.jgcp.dto.request.UserFilterDto;
+import uz.javacourse.jgcp.dto.request.UserRequestDto;
+import uz.javacourse.jgcp.dto.response.UserResponseDto;
+import uz.javacourse.jgcp.repository.UserFilterSql;
+import uz.javacourse.jgcp.service.UserService;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+// подсчеты по снимку совпадают с COUNT(*) по тем же фильтрам, и записи после коммита попадают в снимок
+class UserColumnarSnapshotTest extends IntegrationTest {
+
+    @Autowired
+    private UserColumnarSnapshot userColumnarSnapshot;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void countsMatchDatabase() {
+        // снимок строится после users-citizenship-id, поэтому ожидание покрывает и ее
+        awaitReady();
+        assertThat(userColumnarSnapshot.rows())
+                .isEqualTo(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class));
+
+        List<UserFilterDto> filters = List.of(
+                UserFilterDto.builder().build(),
+                UserFilterDto.builder().gender(Gender.MALE).build(),
+                UserFilterDto.builder().gender(Gender.FEMALE).minAge(30).maxAge(45).build(),
+                UserFilterDto.builder().citizenship("Uzbekistan").alive(true).build(),
+                UserFilterDto.builder().documentType(DocumentType.ID_CARD).alive(false).build(),
+                UserFilterDto.builder().deathFrom(LocalDate.of(2016, 1, 1)).deathTo(LocalDate.of(2018, 12, 31)).build(),
+                UserFilterDto.builder().expiryFrom(LocalDate.of(2022, 1, 1)).expiryTo(LocalDate.of(2023, 6, 30))
+                        .gender(Gender.MALE).alive(true).build());
+        for (UserFilterDto filter : filters) {
+            assertThat(userColumnarSnapshot.count(filter)).as(filter.toString()).isEqualTo(countInDatabase(filter));
+        }
+
+        // неизвестное гражданство не совпадает ни с одной строкой
+        assertThat(userColumnarSnapshot.count(UserFilterDto.builder().citizenship("Atlantis").build())).isZero();
+    }
+
+    @Test
+    void committedWritesReachSnapshot() {
+        awaitReady();
+        UserFilterDto aliveFemales = UserFilterDto.builder().gender(Gender.FEMALE).alive(true).build();
+        UserFilterDto deceasedFemales = UserFilterDto.builder().gender(Gender.FEMALE).alive(false).build();
+        long alive = userColumnarSnapshot.count(aliveFemales);
+        long deceased = userColumnarSnapshot.count(deceasedFemales);
+
+        UserResponseDto user = userService.createUser(UserRequestDto.builder()
+                .fullName("Snapshot Test")
+                .address("Toshkent, Yunusobod 4")
+                .phoneNumber("+998991234568")
+                .email("snapshot-test@example.uz")
+                .pinfl("99999999999902")
+                .age(35)
+                .gender(Gender.FEMALE)
+                .documentType(DocumentType.PASSPORT)
+                .issueDate(LocalDate.now().minusYears(1))
+                .expiryDate(LocalDate.now().plusYears(9))
+                .citizenship("Uzbekistan")
+                .build());
+        assertThat(userColumnarSnapshot.count(aliveFemales)).isEqualTo(alive + 1);
+
+        userService.markUserAsDeceased(user.id(), LocalDate.now());
+        assertThat(userColumnarSnapshot.count(aliveFemales)).isEqualTo(alive);
+        assertThat(userColumnarSnapshot.count(deceasedFemales)).isEqualTo(deceased + 1);
+        assertThat(userColumnarSnapshot.count(aliveFemales)).isEqualTo(countInDatabase(aliveFemales));
+    }
+
+    private long countInDatabase(UserFilterDto filter) {
+        UserFilterSql.Where where = UserFilterSql.where(filter);
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE " + where.sql(), Long.class,
+                where.args().toArray());
+    }
+
+    private void awaitReady() {
+        await().atMost(Duration.ofMinutes(5)).until(userColumnarSnapshot::isReady);
+    }
+}
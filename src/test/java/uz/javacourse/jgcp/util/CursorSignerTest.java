@@ -0,0 +1,49 @@
+package uz.javacourse.jgcp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// подписанный курсор возвращает свой payload только с тем же секретом и context,
+// любое изменение строки курсора дает null
+class CursorSignerTest {
+
+    private static final String CONTEXT = "FULL_NAME|ASC|filter";
+
+    private final CursorSigner signer = new CursorSigner("test-cursor-secret");
+
+    @Test
+    void roundTripsPayloadForSameContext() {
+        String payload = "F|42|Ali | Valiyev";
+
+        assertThat(signer.verify(signer.sign(payload, CONTEXT), CONTEXT)).isEqualTo(payload);
+    }
+
+    @Test
+    void rejectsCursorForOtherContextOrSecret() {
+        String token = signer.sign("F|42|Ali", CONTEXT);
+
+        assertThat(signer.verify(token, "FULL_NAME|DESC|filter")).isNull();
+        assertThat(new CursorSigner("other-secret").verify(token, CONTEXT)).isNull();
+    }
+
+    @Test
+    void rejectsTamperedOrMalformedCursor() {
+        String token = signer.sign("F|42|Ali", CONTEXT);
+        String signature = token.substring(token.indexOf('.'));
+        String forgedBody = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("F|1|Ali".getBytes(StandardCharsets.UTF_8));
+        // первый символ подписи целиком кодирует ее старшие 6 бит
+        int first = token.indexOf('.') + 1;
+        String forgedSignature = token.substring(0, first) + (token.charAt(first) == 'A' ? 'B' : 'A')
+                + token.substring(first + 1);
+
+        assertThat(signer.verify(forgedBody + signature, CONTEXT)).isNull();
+        assertThat(signer.verify(forgedSignature, CONTEXT)).isNull();
+        assertThat(signer.verify("no-signature", CONTEXT)).isNull();
+        assertThat(signer.verify("***." + signature.substring(1), CONTEXT)).isNull();
+    }
+}